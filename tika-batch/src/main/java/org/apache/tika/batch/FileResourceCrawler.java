@@ -20,6 +20,7 @@ package org.apache.tika.batch;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,9 +48,9 @@ public abstract class FileResourceCrawler implements Callable<IFileProcessorFutu
     private DocumentSelector documentSelector = null;
 
     //number of files added to queue
-    private int added = 0;
+    private final AtomicInteger added = new AtomicInteger();
     //number of files considered including those that were rejected by documentSelector
-    private int considered = 0;
+    private final AtomicInteger considered = new AtomicInteger();
 
     /**
      * @param queue        shared queue
@@ -86,53 +87,78 @@ public abstract class FileResourceCrawler implements Callable<IFileProcessorFutu
             //swallow
         }
 
-        return new FileResourceCrawlerFutureResult(considered, added);
+        return new FileResourceCrawlerFutureResult(considered.get(), added.get());
     }
 
     /**
+     * This may be called concurrently by crawlers that use several threads.
+     *
      * @param fileResource resource to add
      * @return int status of the attempt (SKIPPED, ADDED, STOP_NOW) to add the resource to the queue.
      * @throws InterruptedException
      */
     protected int tryToAdd(FileResource fileResource) throws InterruptedException {
 
-        if (maxFilesToAdd > -1 && added >= maxFilesToAdd) {
+        if (maxFilesToAdd > -1 && added.get() >= maxFilesToAdd) {
             return STOP_NOW;
         }
 
-        if (maxFilesToConsider > -1 && considered > maxFilesToConsider) {
+        if (maxFilesToConsider > -1 && considered.get() > maxFilesToConsider) {
             return STOP_NOW;
         }
 
         boolean isAdded = false;
         if (select(fileResource.getMetadata())) {
-            long start = System.currentTimeMillis();
-            while (queue.offer(fileResource, PAUSE_INCREMENT_MILLIS, TimeUnit.MILLISECONDS) == false) {
-                long elapsed = System.currentTimeMillis() - start;
-                LOG.info("FileResourceCrawler is pausing. Queue is full: {} after {} ms", queue.size(), elapsed);
-
-                if (maxConsecWaitInMillis > -1 && elapsed > maxConsecWaitInMillis) {
-                    timedOut = true;
-                    String msg = "FileResourceCrawler had to wait longer (" + elapsed + " ms) than allowed (" + maxConsecWaitInMillis + " ms)";
-                    LOG.error(msg);
-                    throw new InterruptedException(msg);
+            //reserve the slot first so that concurrent callers can't overshoot maxFilesToAdd
+            if (!reserveAdd()) {
+                return STOP_NOW;
+            }
+            boolean offered = false;
+            try {
+                long start = System.currentTimeMillis();
+                while (queue.offer(fileResource, PAUSE_INCREMENT_MILLIS, TimeUnit.MILLISECONDS) == false) {
+                    long elapsed = System.currentTimeMillis() - start;
+                    LOG.info("FileResourceCrawler is pausing. Queue is full: {} after {} ms", queue.size(), elapsed);
+
+                    if (maxConsecWaitInMillis > -1 && elapsed > maxConsecWaitInMillis) {
+                        timedOut = true;
+                        String msg = "FileResourceCrawler had to wait longer (" + elapsed + " ms) than allowed (" + maxConsecWaitInMillis + " ms)";
+                        LOG.error(msg);
+                        throw new InterruptedException(msg);
+                    }
+                    if (Thread
+                            .currentThread()
+                            .isInterrupted()) {
+                        LOG.info("FileResourceCrawler shutting down because of interrupted thread.");
+                        throw new InterruptedException("FileResourceCrawler interrupted.");
+                    }
                 }
-                if (Thread
-                        .currentThread()
-                        .isInterrupted()) {
-                    LOG.info("FileResourceCrawler shutting down because of interrupted thread.");
-                    throw new InterruptedException("FileResourceCrawler interrupted.");
+                offered = true;
+            } finally {
+                if (!offered) {
+                    added.decrementAndGet();
                 }
             }
             isAdded = true;
-            added++;
         } else {
             LOG.debug("crawler did not select: {}", fileResource.getResourceId());
         }
-        considered++;
+        considered.incrementAndGet();
         return (isAdded) ? ADDED : SKIPPED;
     }
 
+    private boolean reserveAdd() {
+        while (true) {
+            int current = added.get();
+            if (maxFilesToAdd > -1 && current >= maxFilesToAdd) {
+                return false;
+            }
+            if (added.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
     //Warning! Depending on the value of maxConsecWaitInMillis
     //this could try forever in vain to add poison to the queue.
     private void shutdown() throws InterruptedException {
@@ -185,7 +211,7 @@ public abstract class FileResourceCrawler implements Callable<IFileProcessorFutu
     }
 
     public int getConsidered() {
-        return considered;
+        return considered.get();
     }
 
     protected boolean select(Metadata m) {
@@ -250,7 +276,7 @@ public abstract class FileResourceCrawler implements Callable<IFileProcessorFutu
      * @return number of files that this crawler added to the queue
      */
     public int getAdded() {
-        return added;
+        return added.get();
     }
 
     /**
@@ -18,15 +18,19 @@ package org.apache.tika.batch.fs;
 
 
 import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 import org.apache.tika.batch.FileResource;
 import org.apache.tika.batch.FileResourceCrawler;
@@ -37,6 +41,9 @@ public class FSDirectoryCrawler extends FileResourceCrawler {
     private final Path startDirectory;
     private final Comparator<Path> pathComparator = new FileNameComparator();
     private CRAWL_ORDER crawlOrder;
+    private int numThreads = 1;
+    //set once any thread hits a limit, so that the others stop as well
+    private volatile boolean stopped = false;
 
     public FSDirectoryCrawler(ArrayBlockingQueue<FileResource> fileQueue, int numConsumers, Path root, CRAWL_ORDER crawlOrder) {
         super(fileQueue, numConsumers);
@@ -63,68 +70,137 @@ public class FSDirectoryCrawler extends FileResourceCrawler {
         }
     }
 
-    public void start() throws InterruptedException {
-        addFiles(startDirectory);
+    /**
+     * Number of threads to use to walk the directory tree.  With more than one
+     * thread, sub-directories are crawled concurrently in a {@link ForkJoinPool},
+     * and files from different directories are interleaved in the queue.
+     * The order of files within a directory still follows the crawl order.
+     * Default is 1.
+     *
+     * @param numThreads number of crawler threads
+     */
+    public void setNumThreads(int numThreads) {
+        this.numThreads = numThreads;
     }
 
-    private void addFiles(Path directory) throws InterruptedException {
-
-        if (directory == null) {
-            LOG.warn("FSFileAdder asked to process null directory?!");
+    public void start() throws InterruptedException {
+        if (numThreads <= 1) {
+            addFiles(startDirectory);
             return;
         }
-
-        List<Path> files = new ArrayList<>();
-        try (DirectoryStream<Path> ds = Files.newDirectoryStream(directory)) {
-            for (Path p : ds) {
-                files.add(p);
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        try {
+            ForkJoinTask<Void> task = pool.submit(new DirectoryTask(startDirectory));
+            task.get();
+        } catch (InterruptedException e) {
+            stopped = true;
+            throw e;
+        } catch (ExecutionException e) {
+            for (Throwable t = e.getCause(); t != null; t = t.getCause()) {
+                if (t instanceof InterruptedException) {
+                    throw (InterruptedException) t;
+                }
             }
-        } catch (IOException e) {
-            LOG.warn("FSFileAdder couldn't read {}: {}", directory.toAbsolutePath(), e.getMessage(), e);
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdownNow();
         }
-        if (files.size() == 0) {
-            LOG.info("Empty directory: {}", directory.toAbsolutePath());
-            return;
+    }
+
+    private void addFiles(Path directory) throws InterruptedException {
+        List<Path> directories = addFilesInDirectory(directory);
+        for (Path d : directories) {
+            addFiles(d);
         }
+    }
 
+    /**
+     * Adds the files in this directory to the queue.
+     *
+     * @return the sub-directories that still have to be crawled
+     */
+    private List<Path> addFilesInDirectory(Path directory) throws InterruptedException {
 
-        if (crawlOrder == CRAWL_ORDER.RANDOM) {
-            Collections.shuffle(files);
-        } else if (crawlOrder == CRAWL_ORDER.SORTED) {
-            files.sort(pathComparator);
+        List<Path> directories = new ArrayList<>();
+        if (directory == null) {
+            LOG.warn("FSFileAdder asked to process null directory?!");
+            return directories;
+        }
+        if (stopped) {
+            return directories;
         }
 
-        int numFiles = 0;
-        List<Path> directories = new LinkedList<>();
-        for (Path f : files) {
-            if (Thread
-                    .currentThread()
-                    .isInterrupted()) {
-                throw new InterruptedException("file adder interrupted");
-            }
-            if (!Files.isReadable(f)) {
-                LOG.warn("Skipping -- {} -- file/directory is not readable", f.toAbsolutePath());
-                continue;
+        int[] numFiles = new int[1];
+        if (crawlOrder == CRAWL_ORDER.OS_ORDER) {
+            //no need to hold the whole listing in memory
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(directory)) {
+                for (Path p : ds) {
+                    if (!addFile(p, numFiles, directories)) {
+                        return directories;
+                    }
+                }
+            } catch (IOException | DirectoryIteratorException e) {
+                LOG.warn("FSFileAdder couldn't read {}: {}", directory.toAbsolutePath(), e.getMessage(), e);
             }
-            if (Files.isDirectory(f)) {
-                directories.add(f);
-                continue;
+        } else {
+            List<Path> files = new ArrayList<>();
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(directory)) {
+                for (Path p : ds) {
+                    files.add(p);
+                }
+            } catch (IOException | DirectoryIteratorException e) {
+                LOG.warn("FSFileAdder couldn't read {}: {}", directory.toAbsolutePath(), e.getMessage(), e);
             }
-            numFiles++;
-            if (numFiles == 1) {
-                handleFirstFileInDirectory(f);
+            if (crawlOrder == CRAWL_ORDER.RANDOM) {
+                Collections.shuffle(files);
+            } else if (crawlOrder == CRAWL_ORDER.SORTED) {
+                files.sort(pathComparator);
             }
-            int added = tryToAdd(new FSFileResource(root, f));
-            if (added == FileResourceCrawler.STOP_NOW) {
-                LOG.debug("crawler has hit a limit: {} : {}", f.toAbsolutePath(), added);
-                return;
+            for (Path f : files) {
+                if (!addFile(f, numFiles, directories)) {
+                    return directories;
+                }
             }
-            LOG.debug("trying to add: {} : {}", f.toAbsolutePath(), added);
         }
+        if (numFiles[0] == 0 && directories.isEmpty()) {
+            LOG.info("Empty directory: {}", directory.toAbsolutePath());
+        }
+        return directories;
+    }
 
-        for (Path f : directories) {
-            addFiles(f);
+    /**
+     * @return false if the crawler has hit a limit and should stop
+     */
+    private boolean addFile(Path f, int[] numFiles, List<Path> directories) throws InterruptedException {
+        if (Thread
+                .currentThread()
+                .isInterrupted()) {
+            throw new InterruptedException("file adder interrupted");
+        }
+        if (stopped) {
+            return false;
+        }
+        if (!Files.isReadable(f)) {
+            LOG.warn("Skipping -- {} -- file/directory is not readable", f.toAbsolutePath());
+            return true;
         }
+        if (Files.isDirectory(f)) {
+            directories.add(f);
+            return true;
+        }
+        numFiles[0]++;
+        if (numFiles[0] == 1) {
+            handleFirstFileInDirectory(f);
+        }
+        int added = tryToAdd(new FSFileResource(root, f));
+        if (added == FileResourceCrawler.STOP_NOW) {
+            LOG.debug("crawler has hit a limit: {} : {}", f.toAbsolutePath(), added);
+            stopped = true;
+            directories.clear();
+            return false;
+        }
+        LOG.debug("trying to add: {} : {}", f.toAbsolutePath(), added);
+        return true;
     }
 
     /**
@@ -134,6 +210,10 @@ public class FSDirectoryCrawler extends FileResourceCrawler {
      * mkdirs() on an output directory if your FileResourceConsumers
      * are writing to a file.
      *
+     * <p>
+     * If {@link #setNumThreads(int)} is greater than 1, this may be called
+     * concurrently for different directories.
+     *
      * @param f file to handle
      */
     public void handleFirstFileInDirectory(Path f) {
@@ -164,4 +244,35 @@ public class FSDirectoryCrawler extends FileResourceCrawler {
                             .toString());
         }
     }
+
+    private static class CrawlerInterruptedException extends RuntimeException {
+        CrawlerInterruptedException(InterruptedException e) {
+            super(e);
+        }
+    }
+
+    private class DirectoryTask extends RecursiveAction {
+
+        private final Path directory;
+
+        DirectoryTask(Path directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        protected void compute() {
+            List<Path> directories;
+            try {
+                directories = addFilesInDirectory(directory);
+            } catch (InterruptedException e) {
+                stopped = true;
+                throw new CrawlerInterruptedException(e);
+            }
+            List<DirectoryTask> tasks = new ArrayList<>(directories.size());
+            for (Path d : directories) {
+                tasks.add(new DirectoryTask(d));
+            }
+            invokeAll(tasks);
+        }
+    }
 }
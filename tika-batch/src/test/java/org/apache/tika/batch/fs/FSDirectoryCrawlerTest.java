@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.batch.fs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.apache.tika.batch.FileResource;
+
+public class FSDirectoryCrawlerTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    public void testMultiThreaded() throws Exception {
+        int numFiles = buildTree();
+        for (FSDirectoryCrawler.CRAWL_ORDER order : FSDirectoryCrawler.CRAWL_ORDER.values()) {
+            Set<String> ids = crawl(order, 4, -1);
+            assertEquals(numFiles, ids.size(), order.toString());
+        }
+    }
+
+    @Test
+    public void testMaxFilesToAdd() throws Exception {
+        buildTree();
+        assertEquals(7, crawl(FSDirectoryCrawler.CRAWL_ORDER.OS_ORDER, 4, 7).size());
+        assertEquals(7, crawl(FSDirectoryCrawler.CRAWL_ORDER.SORTED, 1, 7).size());
+    }
+
+    private Set<String> crawl(FSDirectoryCrawler.CRAWL_ORDER order, int numThreads,
+                              int maxFilesToAdd) {
+        ArrayBlockingQueue<FileResource> queue = new ArrayBlockingQueue<>(1000);
+        FSDirectoryCrawler crawler = new FSDirectoryCrawler(queue, 1, root, order);
+        crawler.setNumThreads(numThreads);
+        crawler.setMaxFilesToAdd(maxFilesToAdd);
+        crawler.setDocumentSelector(new FSDocumentSelector(null, null, -1, -1));
+        crawler.call();
+
+        Set<String> ids = new HashSet<>();
+        for (FileResource r : queue) {
+            if (r instanceof FSFileResource) {
+                ids.add(r.getResourceId());
+            }
+        }
+        assertEquals(ids.size(), crawler.getAdded());
+        return ids;
+    }
+
+    private int buildTree() throws Exception {
+        int numFiles = 0;
+        for (int i = 0; i < 5; i++) {
+            Path dir = root.resolve("dir" + i);
+            for (int j = 0; j < 3; j++) {
+                Path sub = Files.createDirectories(dir.resolve("sub" + j));
+                for (int k = 0; k < 4; k++) {
+                    Files.write(sub.resolve("file" + k + ".txt"), new byte[]{(byte) k});
+                    numFiles++;
+                }
+            }
+            Files.write(dir.resolve("top.txt"), new byte[0]);
+            numFiles++;
+        }
+        return numFiles;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.benchmark;
+
+import java.io.StringWriter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.sax.BodyContentHandler;
+import org.apache.tika.sax.ToHTMLContentHandler;
+import org.apache.tika.sax.ToTextContentHandler;
+import org.apache.tika.sax.ToXMLContentHandler;
+import org.apache.tika.sax.WriteOutContentHandler;
+import org.apache.tika.sax.XHTMLContentHandler;
+
+/**
+ * Cost of the SAX handler chain on its own, without any parser in front of it.
+ * The events are replayed through {@link XHTMLContentHandler} exactly as a
+ * parser would emit them, so the numbers include the xhtml wrapping.
+ * <p>
+ * <code>WRITE_OUT_LIMITED</code> sets a write limit of half the generated text
+ * and does not throw, so it measures the cost of truncation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContentHandlerBenchmark {
+
+    @Param({"TO_XML", "TO_HTML", "TO_TEXT", "BODY", "WRITE_OUT", "WRITE_OUT_LIMITED"})
+    public String handler;
+
+    @Param({"500"})
+    public int paragraphs;
+
+    @Param({"" + Corpus.DEFAULT_SEED})
+    public long seed;
+
+    private char[][] text;
+
+    private int writeLimit;
+
+    private Metadata metadata;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<String> ps = Corpus.paragraphs(paragraphs, seed);
+        text = new char[ps.size()][];
+        int total = 0;
+        for (int i = 0; i < ps.size(); i++) {
+            text[i] = ps.get(i).toCharArray();
+            total += text[i].length;
+        }
+        writeLimit = total / 2;
+        metadata = new Metadata();
+        metadata.set(TikaCoreProperties.TITLE, "Benchmark document");
+    }
+
+    @Benchmark
+    public String replay() throws SAXException {
+        ContentHandler contentHandler = newHandler();
+        XHTMLContentHandler xhtml = new XHTMLContentHandler(contentHandler, metadata);
+        xhtml.startDocument();
+        for (int i = 0; i < text.length; i++) {
+            if (i % 10 == 0) {
+                xhtml.element("h2", "Section " + (i / 10 + 1));
+            }
+            xhtml.startElement("p");
+            xhtml.characters(text[i], 0, text[i].length);
+            xhtml.endElement("p");
+        }
+        xhtml.endDocument();
+        return contentHandler.toString();
+    }
+
+    private ContentHandler newHandler() {
+        switch (handler) {
+            case "TO_XML":
+                return new ToXMLContentHandler();
+            case "TO_HTML":
+                return new ToHTMLContentHandler();
+            case "TO_TEXT":
+                return new ToTextContentHandler();
+            case "BODY":
+                return new BodyContentHandler(-1);
+            case "WRITE_OUT":
+                return new WriteOutContentHandler(-1);
+            case "WRITE_OUT_LIMITED":
+                return new WriteOutContentHandler(new ToTextContentHandler(new StringWriter()),
+                        writeLimit, false, null);
+            default:
+                throw new IllegalArgumentException("Unknown handler: " + handler);
+        }
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+
+/**
+ * Generates the documents the benchmarks run against.
+ * <p>
+ * Everything is derived from a fixed vocabulary and a seeded {@link Random}, so
+ * the same format, size and seed always yield the same extracted text. This is
+ * what makes numbers comparable between runs and between releases without
+ * having to ship a binary test corpus.
+ */
+public class Corpus {
+
+    /**
+     * Seed used by the benchmarks unless overridden with
+     * <code>-p seed=...</code> on the JMH command line.
+     */
+    public static final long DEFAULT_SEED = 20250101L;
+
+    //fixed timestamp for zip entries so that the bytes are reproducible
+    private static final long ZIP_ENTRY_TIME = 1577836800000L;
+
+    private static final int PDF_LINES_PER_PAGE = 48;
+
+    private static final int PDF_CHARS_PER_LINE = 90;
+
+    private static final String[] VOCABULARY = new String[]{
+            "the", "of", "and", "to", "in", "a", "is", "that", "for", "it", "as", "was",
+            "with", "be", "by", "on", "not", "he", "this", "are", "or", "his", "from",
+            "at", "which", "but", "have", "an", "had", "they", "you", "were", "their",
+            "one", "all", "we", "can", "her", "has", "there", "been", "if", "more",
+            "when", "will", "would", "who", "so", "no", "document", "parser", "content",
+            "metadata", "archive", "report", "quarterly", "revenue", "contract",
+            "agreement", "shipment", "invoice", "customer", "delivery", "schedule",
+            "meeting", "minutes", "attachment", "signature", "approval", "budget",
+            "forecast", "analysis", "summary", "appendix", "section", "paragraph",
+            "table", "figure", "reference", "library", "detection", "extraction",
+            "café", "naïve", "Zürich", "façade", "résumé", "Málaga", "Øresund", "Straße"
+    };
+
+    /**
+     * Formats available from {@link #generate(Format, int, long)}, along with the
+     * file name and media type the parsers should see for them.
+     */
+    public enum Format {
+        TXT("document.txt", "text/plain; charset=UTF-8"),
+        HTML("document.html", "text/html; charset=UTF-8"),
+        XML("document.xml", "application/xml"),
+        PDF("document.pdf", "application/pdf"),
+        DOCX("document.docx",
+                "application/vnd.openxmlformats-officedocument.wordprocessingml.document"),
+        ZIP("document.zip", "application/zip");
+
+        private final String fileName;
+        private final String mediaType;
+
+        Format(String fileName, String mediaType) {
+            this.fileName = fileName;
+            this.mediaType = mediaType;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public String getMediaType() {
+            return mediaType;
+        }
+    }
+
+    /**
+     * @param format     format to generate
+     * @param paragraphs number of paragraphs of text in the document
+     * @param seed       seed for the word generator
+     * @return the serialized document
+     * @throws IOException if the underlying writer fails
+     */
+    public static byte[] generate(Format format, int paragraphs, long seed) throws IOException {
+        List<String> text = paragraphs(paragraphs, seed);
+        switch (format) {
+            case TXT:
+                return toText(text);
+            case HTML:
+                return toHtml(text);
+            case XML:
+                return toXml(text);
+            case PDF:
+                return toPdf(text);
+            case DOCX:
+                return toDocx(text);
+            case ZIP:
+                return toZip(paragraphs, seed);
+            default:
+                throw new IllegalArgumentException("Unsupported format: " + format);
+        }
+    }
+
+    /**
+     * @param paragraphs number of paragraphs
+     * @param seed       seed for the word generator
+     * @return paragraphs of pseudo-random sentences drawn from a fixed vocabulary
+     */
+    public static List<String> paragraphs(int paragraphs, long seed) {
+        Random random = new Random(seed);
+        List<String> ret = new ArrayList<>(paragraphs);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < paragraphs; i++) {
+            sb.setLength(0);
+            int sentences = 3 + random.nextInt(5);
+            for (int s = 0; s < sentences; s++) {
+                int words = 6 + random.nextInt(12);
+                for (int w = 0; w < words; w++) {
+                    String word = VOCABULARY[random.nextInt(VOCABULARY.length)];
+                    if (w == 0) {
+                        sb.append(Character.toUpperCase(word.charAt(0))).append(word, 1,
+                                word.length());
+                    } else {
+                        sb.append(' ').append(word);
+                    }
+                }
+                sb.append(". ");
+            }
+            ret.add(sb.toString().trim());
+        }
+        return ret;
+    }
+
+    private static byte[] toText(List<String> paragraphs) {
+        StringBuilder sb = new StringBuilder();
+        for (String p : paragraphs) {
+            sb.append(p).append("\n\n");
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] toHtml(List<String> paragraphs) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<!DOCTYPE html>\n<html><head><meta charset=\"UTF-8\">")
+                .append("<title>Benchmark document</title>")
+                .append("<meta name=\"author\" content=\"Apache Tika\"></head>\n<body>\n");
+        for (int i = 0; i < paragraphs.size(); i++) {
+            if (i % 10 == 0) {
+                sb.append("<h2>Section ").append(i / 10 + 1).append("</h2>\n");
+            }
+            sb.append("<p>").append(paragraphs.get(i)).append("</p>\n");
+        }
+        sb.append("</body></html>\n");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] toXml(List<String> paragraphs) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<records>\n");
+        for (int i = 0; i < paragraphs.size(); i++) {
+            sb.append("  <record id=\"").append(i).append("\"><body>")
+                    .append(paragraphs.get(i)).append("</body></record>\n");
+        }
+        sb.append("</records>\n");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] toPdf(List<String> paragraphs) throws IOException {
+        PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+        List<String> lines = new ArrayList<>();
+        for (String p : paragraphs) {
+            wrap(p, lines);
+            lines.add("");
+        }
+        try (PDDocument document = new PDDocument();
+                ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
+            for (int start = 0; start < lines.size(); start += PDF_LINES_PER_PAGE) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream stream = new PDPageContentStream(document, page)) {
+                    stream.beginText();
+                    stream.setFont(font, 10);
+                    stream.setLeading(14);
+                    stream.newLineAtOffset(40, 740);
+                    int end = Math.min(lines.size(), start + PDF_LINES_PER_PAGE);
+                    for (int i = start; i < end; i++) {
+                        stream.showText(lines.get(i));
+                        stream.newLine();
+                    }
+                    stream.endText();
+                }
+            }
+            document.save(bos);
+            return bos.toByteArray();
+        }
+    }
+
+    private static void wrap(String paragraph, List<String> lines) {
+        StringBuilder line = new StringBuilder();
+        for (String word : paragraph.split(" ")) {
+            if (line.length() > 0 && line.length() + word.length() + 1 > PDF_CHARS_PER_LINE) {
+                lines.add(line.toString());
+                line.setLength(0);
+            }
+            if (line.length() > 0) {
+                line.append(' ');
+            }
+            line.append(word);
+        }
+        if (line.length() > 0) {
+            lines.add(line.toString());
+        }
+    }
+
+    private static byte[] toDocx(List<String> paragraphs) throws IOException {
+        try (XWPFDocument document = new XWPFDocument();
+                ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
+            document.getProperties().getCoreProperties().setTitle("Benchmark document");
+            for (String p : paragraphs) {
+                document.createParagraph().createRun().setText(p);
+            }
+            document.write(bos);
+            return bos.toByteArray();
+        }
+    }
+
+    /**
+     * The zip holds one text, html and xml entry per ten paragraphs requested so
+     * that the package parser has a realistic number of embedded documents to
+     * dispatch.
+     */
+    private static byte[] toZip(int paragraphs, long seed) throws IOException {
+        int entries = Math.max(1, paragraphs / 10);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(bos)) {
+            for (int i = 0; i < entries; i++) {
+                List<String> text = paragraphs(10, seed + i);
+                addEntry(zos, "entry-" + i + ".txt", toText(text));
+                addEntry(zos, "entry-" + i + ".html", toHtml(text));
+                addEntry(zos, "entry-" + i + ".xml", toXml(text));
+            }
+        }
+        return bos.toByteArray();
+    }
+
+    private static void addEntry(ZipOutputStream zos, String name, byte[] bytes)
+            throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setTime(ZIP_ENTRY_TIME);
+        zos.putNextEntry(entry);
+        zos.write(bytes);
+        zos.closeEntry();
+    }
+}
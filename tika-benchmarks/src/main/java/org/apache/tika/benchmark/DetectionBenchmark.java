@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.tika.config.TikaConfig;
+import org.apache.tika.detect.Detector;
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.mime.MediaType;
+import org.apache.tika.mime.MimeTypes;
+
+/**
+ * Detection throughput for the mime magic alone ({@link MimeTypes#detect}), for
+ * the full {@link org.apache.tika.detect.DefaultDetector} chain (which adds the
+ * container detectors). See {@link NameDetectionBenchmark} for name-only lookups.
+ * <p>
+ * The <code>UNKNOWN</code> sample is random bytes with no resource name, which
+ * is the worst case for magic matching because no rule short-circuits.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DetectionBenchmark {
+
+    @Param({"TXT", "HTML", "XML", "PDF", "DOCX", "ZIP", "PNG", "GIF", "JPEG", "OLE2",
+            "UNKNOWN"})
+    public String sample;
+
+    @Param({"" + Corpus.DEFAULT_SEED})
+    public long seed;
+
+    private byte[] bytes;
+
+    private String fileName;
+
+    private MimeTypes mimeTypes;
+
+    private Detector defaultDetector;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        TikaConfig config = TikaConfig.getDefaultConfig();
+        mimeTypes = config.getMimeRepository();
+        defaultDetector = config.getDetector();
+        switch (sample) {
+            case "PNG":
+                bytes = withHeader(new byte[]{(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A,
+                        0x0A});
+                fileName = "image.png";
+                break;
+            case "GIF":
+                bytes = withHeader("GIF89a".getBytes(StandardCharsets.US_ASCII));
+                fileName = "image.gif";
+                break;
+            case "JPEG":
+                bytes = withHeader(new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF,
+                        (byte) 0xE0});
+                fileName = "image.jpg";
+                break;
+            case "OLE2":
+                bytes = withHeader(new byte[]{(byte) 0xD0, (byte) 0xCF, 0x11, (byte) 0xE0,
+                        (byte) 0xA1, (byte) 0xB1, 0x1A, (byte) 0xE1});
+                fileName = "legacy.doc";
+                break;
+            case "UNKNOWN":
+                bytes = withHeader(new byte[0]);
+                fileName = null;
+                break;
+            default:
+                Corpus.Format format = Corpus.Format.valueOf(sample);
+                bytes = Corpus.generate(format, 20, seed);
+                fileName = format.getFileName();
+        }
+    }
+
+    private byte[] withHeader(byte[] header) {
+        byte[] ret = new byte[64 * 1024];
+        new Random(seed).nextBytes(ret);
+        System.arraycopy(header, 0, ret, 0, header.length);
+        return ret;
+    }
+
+    @Benchmark
+    public MediaType mimeTypesMagic() throws IOException {
+        try (TikaInputStream tis = TikaInputStream.get(bytes)) {
+            return mimeTypes.detect(tis, new Metadata());
+        }
+    }
+
+    @Benchmark
+    public MediaType mimeTypesMagicAndName() throws IOException {
+        Metadata metadata = new Metadata();
+        if (fileName != null) {
+            metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, fileName);
+        }
+        try (TikaInputStream tis = TikaInputStream.get(bytes)) {
+            return mimeTypes.detect(tis, metadata);
+        }
+    }
+
+    @Benchmark
+    public MediaType defaultDetector() throws IOException {
+        Metadata metadata = new Metadata();
+        if (fileName != null) {
+            metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, fileName);
+        }
+        try (TikaInputStream tis = TikaInputStream.get(bytes)) {
+            return defaultDetector.detect(tis, metadata);
+        }
+    }
+}
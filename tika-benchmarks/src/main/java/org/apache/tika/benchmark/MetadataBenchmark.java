@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.apache.tika.metadata.DublinCore;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.Office;
+import org.apache.tika.metadata.Property;
+import org.apache.tika.metadata.TikaCoreProperties;
+
+/**
+ * Allocation and lookup costs of {@link Metadata}: multi-valued
+ * <code>add</code>, <code>set</code> that overwrites, reads and iteration over
+ * <code>names()</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetadataBenchmark {
+
+    private static final Property[] PROPERTIES = new Property[]{
+            TikaCoreProperties.TITLE, TikaCoreProperties.CREATOR,
+            TikaCoreProperties.DESCRIPTION, TikaCoreProperties.EMBEDDED_RESOURCE_PATH,
+            DublinCore.SUBJECT, DublinCore.PUBLISHER, Office.AUTHOR, Office.KEYWORDS
+    };
+
+    @Param({"1", "10", "100"})
+    public int valuesPerKey;
+
+    @Param({"32"})
+    public int keys;
+
+    private String[] names;
+
+    private String[] values;
+
+    private Metadata populated;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        names = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            names[i] = "X-Benchmark:key-" + i;
+        }
+        values = new String[valuesPerKey];
+        for (int i = 0; i < valuesPerKey; i++) {
+            values[i] = "value-" + i;
+        }
+        populated = new Metadata();
+        for (String name : names) {
+            for (String value : values) {
+                populated.add(name, value);
+            }
+        }
+    }
+
+    @Benchmark
+    public Metadata add() {
+        Metadata metadata = new Metadata();
+        for (String name : names) {
+            for (String value : values) {
+                metadata.add(name, value);
+            }
+        }
+        return metadata;
+    }
+
+    @Benchmark
+    public Metadata set() {
+        Metadata metadata = new Metadata();
+        for (String value : values) {
+            for (String name : names) {
+                metadata.set(name, value);
+            }
+        }
+        return metadata;
+    }
+
+    @Benchmark
+    public Metadata setProperties() {
+        Metadata metadata = new Metadata();
+        for (String value : values) {
+            for (Property property : PROPERTIES) {
+                metadata.set(property, value);
+            }
+        }
+        return metadata;
+    }
+
+    @Benchmark
+    public void getValues(Blackhole blackhole) {
+        for (String name : names) {
+            blackhole.consume(populated.getValues(name));
+        }
+    }
+
+    @Benchmark
+    public void names(Blackhole blackhole) {
+        for (String name : populated.names()) {
+            blackhole.consume(populated.get(name));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.apache.tika.config.TikaConfig;
+import org.apache.tika.mime.MimeTypes;
+
+/**
+ * Resource-name based lookups through {@link MimeTypes#getMimeType(String)}. The
+ * names mix simple extensions, upper case extensions, multi-part extensions,
+ * literal file names and names that match no glob at all.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NameDetectionBenchmark {
+
+    private static final String[] FILE_NAMES = new String[]{
+            "report.pdf", "IMG_0001.JPG", "archive.tar.gz", "notes.txt", "index.html",
+            "presentation.pptx", "Makefile", "data.csv", "photo.jpeg", "song.mp3",
+            "mail.eml", "letter.doc", "budget.xlsx", "README", "backup.7z", "page.xhtml",
+            "image.tiff", "config.xml", "script.py", "unknown.qqq"
+    };
+
+    private MimeTypes mimeTypes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mimeTypes = TikaConfig.getDefaultConfig().getMimeRepository();
+    }
+
+    @Benchmark
+    public void getMimeType(Blackhole blackhole) {
+        for (String name : FILE_NAMES) {
+            blackhole.consume(mimeTypes.getMimeType(name));
+        }
+    }
+}
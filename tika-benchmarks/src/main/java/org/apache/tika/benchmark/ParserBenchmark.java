@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.tika.config.TikaConfig;
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
+import org.apache.tika.parser.RecursiveParserWrapper;
+import org.apache.tika.sax.BasicContentHandlerFactory;
+import org.apache.tika.sax.BodyContentHandler;
+import org.apache.tika.sax.RecursiveParserWrapperHandler;
+
+/**
+ * End to end {@link AutoDetectParser} throughput over the generated
+ * {@link Corpus}, both with a plain {@link BodyContentHandler} and through the
+ * {@link RecursiveParserWrapper} as used by tika-server's /rmeta and the pipes.
+ * <p>
+ * Only the text, html, xml, pdf, microsoft and pkg parser modules are on the
+ * benchmark classpath, which keeps the parser set (and thus the dispatch cost)
+ * stable between releases.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"TXT", "HTML", "XML", "PDF", "DOCX", "ZIP"})
+    public Corpus.Format format;
+
+    @Param({"50", "500"})
+    public int paragraphs;
+
+    @Param({"" + Corpus.DEFAULT_SEED})
+    public long seed;
+
+    private byte[] bytes;
+
+    private Parser parser;
+
+    private RecursiveParserWrapper recursiveParserWrapper;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        bytes = Corpus.generate(format, paragraphs, seed);
+        parser = new AutoDetectParser(TikaConfig.getDefaultConfig());
+        recursiveParserWrapper = new RecursiveParserWrapper(parser);
+    }
+
+    @Benchmark
+    public String autoDetectBodyContent() throws Exception {
+        BodyContentHandler handler = new BodyContentHandler(-1);
+        Metadata metadata = new Metadata();
+        metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, format.getFileName());
+        try (TikaInputStream tis = TikaInputStream.get(bytes)) {
+            parser.parse(tis, handler, metadata, new ParseContext());
+        }
+        return handler.toString();
+    }
+
+    @Benchmark
+    public List<Metadata> recursiveParserWrapper() throws Exception {
+        RecursiveParserWrapperHandler handler = new RecursiveParserWrapperHandler(
+                new BasicContentHandlerFactory(BasicContentHandlerFactory.HANDLER_TYPE.TEXT,
+                        -1));
+        Metadata metadata = new Metadata();
+        metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, format.getFileName());
+        try (TikaInputStream tis = TikaInputStream.get(bytes)) {
+            recursiveParserWrapper.parse(tis, handler, metadata, new ParseContext());
+        }
+        return handler.getMetadataList();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.benchmark;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.serialization.JsonMetadataList;
+import org.apache.tika.serialization.JsonStreamingSerializer;
+
+/**
+ * Writers and readers from tika-serialization over a metadata list that looks
+ * like the output of the {@link org.apache.tika.parser.RecursiveParserWrapper}:
+ * one container plus <code>embedded</code> attachments, each with a handful of
+ * metadata fields and extracted content.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"0", "100"})
+    public int embedded;
+
+    @Param({"20"})
+    public int paragraphs;
+
+    @Param({"" + Corpus.DEFAULT_SEED})
+    public long seed;
+
+    private List<Metadata> metadataList;
+
+    private String json;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        metadataList = new ArrayList<>();
+        for (int i = 0; i <= embedded; i++) {
+            Metadata metadata = new Metadata();
+            metadata.set(Metadata.CONTENT_TYPE, "text/plain; charset=UTF-8");
+            metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, "attachment-" + i + ".txt");
+            metadata.set(TikaCoreProperties.TITLE, "Attachment " + i);
+            metadata.add(TikaCoreProperties.CREATOR, "Apache Tika");
+            metadata.add(TikaCoreProperties.CREATOR, "Benchmark");
+            metadata.set(TikaCoreProperties.PARSE_TIME_MILLIS, Long.toString(i));
+            if (i > 0) {
+                metadata.set(TikaCoreProperties.EMBEDDED_RESOURCE_PATH, "/attachment-" + i);
+            }
+            metadata.set(TikaCoreProperties.TIKA_CONTENT,
+                    String.join("\n", Corpus.paragraphs(paragraphs, seed + i)));
+            metadataList.add(metadata);
+        }
+        StringWriter writer = new StringWriter();
+        JsonMetadataList.toJson(metadataList, writer);
+        json = writer.toString();
+    }
+
+    @Benchmark
+    public String jsonMetadataListWrite() throws IOException {
+        StringWriter writer = new StringWriter();
+        JsonMetadataList.toJson(metadataList, writer);
+        return writer.toString();
+    }
+
+    @Benchmark
+    public List<Metadata> jsonMetadataListRead() throws IOException {
+        return JsonMetadataList.fromJson(new StringReader(json));
+    }
+
+    @Benchmark
+    public String jsonStreamingWrite() throws IOException {
+        StringWriter writer = new StringWriter();
+        try (JsonStreamingSerializer serializer = new JsonStreamingSerializer(writer)) {
+            for (Metadata metadata : metadataList) {
+                serializer.add(metadata);
+            }
+        }
+        return writer.toString();
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.benchmark;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+
+import org.apache.tika.config.TikaConfig;
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.mime.MediaType;
+
+public class CorpusTest {
+
+    @Test
+    public void testReproducible() throws Exception {
+        assertEquals(Corpus.paragraphs(10, Corpus.DEFAULT_SEED),
+                Corpus.paragraphs(10, Corpus.DEFAULT_SEED));
+        assertNotEquals(Corpus.paragraphs(10, Corpus.DEFAULT_SEED),
+                Corpus.paragraphs(10, Corpus.DEFAULT_SEED + 1));
+        for (Corpus.Format format : new Corpus.Format[]{Corpus.Format.TXT,
+                Corpus.Format.HTML, Corpus.Format.XML, Corpus.Format.ZIP}) {
+            assertArrayEquals(Corpus.generate(format, 20, Corpus.DEFAULT_SEED),
+                    Corpus.generate(format, 20, Corpus.DEFAULT_SEED), format.name());
+        }
+    }
+
+    @Test
+    public void testDetection() throws Exception {
+        TikaConfig config = TikaConfig.getDefaultConfig();
+        for (Corpus.Format format : Corpus.Format.values()) {
+            byte[] bytes = Corpus.generate(format, 20, Corpus.DEFAULT_SEED);
+            try (TikaInputStream tis = TikaInputStream.get(bytes)) {
+                MediaType detected = config.getDetector().detect(tis, new Metadata());
+                assertEquals(MediaType.parse(format.getMediaType()).getBaseType(),
+                        detected.getBaseType(), format.name());
+            }
+        }
+    }
+}
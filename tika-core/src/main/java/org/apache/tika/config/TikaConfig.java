@@ -60,6 +60,7 @@ import org.apache.tika.exception.TikaConfigException;
 import org.apache.tika.exception.TikaException;
 import org.apache.tika.language.translate.DefaultTranslator;
 import org.apache.tika.language.translate.Translator;
+import org.apache.tika.metadata.Metadata;
 import org.apache.tika.metadata.filter.MetadataFilter;
 import org.apache.tika.metadata.filter.NoOpFilter;
 import org.apache.tika.metadata.listfilter.MetadataListFilter;
@@ -170,6 +171,7 @@ public class TikaConfig {
         EncodingDetectorXmlLoader encodingDetectorXmlLoader = new EncodingDetectorXmlLoader();
         RendererXmlLoader rendererXmlLoader = new RendererXmlLoader();
         updateXMLReaderUtils(element);
+        updateMetadataStorage(element);
         this.mimeTypes = typesFromDomElement(element);
         this.detector = detectorLoader.loadOverall(element, mimeTypes, loader);
         this.encodingDetector = encodingDetectorXmlLoader.loadOverall(element, mimeTypes, loader);
@@ -264,6 +266,7 @@ public class TikaConfig {
             try (InputStream stream = getConfigInputStream(config, tmpServiceLoader)) {
                 Element element = XMLReaderUtils.buildDOM(stream).getDocumentElement();
                 updateXMLReaderUtils(element);
+                updateMetadataStorage(element);
                 serviceLoader = serviceLoaderFromDomElement(element, tmpServiceLoader.getLoader());
                 DetectorXmlLoader detectorLoader = new DetectorXmlLoader();
                 EncodingDetectorXmlLoader encodingDetectorLoader = new EncodingDetectorXmlLoader();
@@ -572,14 +575,37 @@ public class TikaConfig {
             XMLReaderUtils.setMaxEntityExpansions(Integer.parseInt(child.getAttribute("maxEntityExpansions")));
         }
 
-        // make sure to call this after set entity expansions
-        if (child.hasAttribute("poolSize")) {
-            XMLReaderUtils.setPoolSize(Integer.parseInt(child.getAttribute("poolSize")));
+        // make sure to call this after set entity expansions, and only once,
+        // because it rebuilds the pools
+        if (child.hasAttribute("poolSize") || child.hasAttribute("maxPoolSize") ||
+                child.hasAttribute("poolIdleTimeoutMillis")) {
+            int poolSize = child.hasAttribute("poolSize") ?
+                    Integer.parseInt(child.getAttribute("poolSize")) :
+                    XMLReaderUtils.getPoolSize();
+            int maxPoolSize = child.hasAttribute("maxPoolSize") ?
+                    Integer.parseInt(child.getAttribute("maxPoolSize")) :
+                    XMLReaderUtils.getMaxPoolSize();
+            long poolIdleTimeoutMillis = child.hasAttribute("poolIdleTimeoutMillis") ?
+                    Long.parseLong(child.getAttribute("poolIdleTimeoutMillis")) :
+                    XMLReaderUtils.getPoolIdleTimeoutMillis();
+            XMLReaderUtils.setPoolSettings(poolSize, maxPoolSize, poolIdleTimeoutMillis);
         }
 
     }
 
 
+    private void updateMetadataStorage(Element element) throws TikaConfigException {
+        Element child = getChild(element, "metadata");
+        if (child == null || !child.hasAttribute("storage")) {
+            return;
+        }
+        try {
+            Metadata.setDefaultStorage(Metadata.STORAGE.parse(child.getAttribute("storage")));
+        } catch (IllegalArgumentException e) {
+            throw new TikaConfigException("bad metadata storage", e);
+        }
+    }
+
     /**
      * Returns the configured parser instance.
      *
@@ -91,6 +91,18 @@ public class MagicDetector implements Detector {
      * starts at this offset.
      */
     private final int offsetRangeEnd;
+    /**
+     * The compiled regular expression if {@link #isRegex}, <code>null</code> otherwise.
+     */
+    private final Pattern regex;
+    /**
+     * Bytes that every match contains at {@link #literalOffset}, see {@link #getLiteral()}.
+     */
+    private final byte[] literal;
+    /**
+     * Distance of the {@link #literal} from the start of the match.
+     */
+    private final int literalOffset;
 
     /**
      * Creates a detector for input documents that have the exact given byte
@@ -182,6 +194,26 @@ public class MagicDetector implements Detector {
 
         this.offsetRangeBegin = offsetRangeBegin;
         this.offsetRangeEnd = offsetRangeEnd;
+
+        if (this.isRegex) {
+            int flags = 0;
+            if (this.isStringIgnoreCase) {
+                flags = Pattern.CASE_INSENSITIVE;
+            }
+            String source = new String(this.pattern, UTF_8);
+            this.regex = Pattern.compile(source, flags);
+            RegexLiteral regexLiteral = new RegexLiteral(source, isStringIgnoreCase);
+            this.literal = regexLiteral.bytes;
+            this.literalOffset = regexLiteral.offset;
+        } else {
+            this.regex = null;
+            int i = 0;
+            while (i < patternLength && this.mask[i] == (byte) 0xFF) {
+                i++;
+            }
+            this.literal = Arrays.copyOf(this.pattern, i);
+            this.literalOffset = 0;
+        }
     }
 
     public static MagicDetector parse(MediaType mediaType, String type, String offset, String value,
@@ -373,58 +405,131 @@ public class MagicDetector implements Detector {
                 }
             }
 
-            if (this.isRegex) {
-                int flags = 0;
-                if (this.isStringIgnoreCase) {
-                    flags = Pattern.CASE_INSENSITIVE;
-                }
-
-                Pattern p = Pattern.compile(new String(this.pattern, UTF_8), flags);
+            return matches(buffer, offset) ? type : MediaType.OCTET_STREAM;
+        } finally {
+            input.reset();
+        }
+    }
 
-                ByteBuffer bb = ByteBuffer.wrap(buffer);
-                CharBuffer result = ISO_8859_1.decode(bb);
-                Matcher m = p.matcher(result);
+    /**
+     * Checks this magic against a document prefix that is already in memory.
+     * This gives the same result as {@link #detect(InputStream, Metadata)}
+     * on a stream over the same bytes, without the stream, mark/reset and
+     * window copy overhead.
+     *
+     * @param data first bytes of the document
+     * @return <code>true</code> if the magic matches
+     * @since Apache Tika 4.0.0
+     */
+    public boolean matches(byte[] data) {
+        if (data == null || data.length < offsetRangeBegin) {
+            return false;
+        }
+        int end = Math.min(data.length, offsetRangeEnd + length);
+        byte[] buffer = new byte[length + (offsetRangeEnd - offsetRangeBegin)];
+        System.arraycopy(data, offsetRangeBegin, buffer, 0, end - offsetRangeBegin);
+        return matches(buffer, end);
+    }
 
-                boolean match = false;
-                // Loop until we've covered the entire offset range
-                for (int i = 0; i <= offsetRangeEnd - offsetRangeBegin; i++) {
-                    m.region(i, length + i);
-                    match = m.lookingAt(); // match regex from start of region
-                    if (match) {
-                        return type;
-                    }
-                }
-            } else {
-                if (offset < offsetRangeBegin + length) {
-                    return MediaType.OCTET_STREAM;
+    /**
+     * @param buffer comparison window, starting at {@link #offsetRangeBegin}
+     * @param offset number of document bytes read, counted from the start of the document
+     */
+    private boolean matches(byte[] buffer, int offset) {
+        if (this.isRegex) {
+            ByteBuffer bb = ByteBuffer.wrap(buffer);
+            CharBuffer result = ISO_8859_1.decode(bb);
+            Matcher m = regex.matcher(result);
+
+            // Loop until we've covered the entire offset range
+            for (int i = 0; i <= offsetRangeEnd - offsetRangeBegin; i++) {
+                m.region(i, length + i);
+                if (m.lookingAt()) { // match regex from start of region
+                    return true;
                 }
-                // Loop until we've covered the entire offset range
-                for (int i = 0; i <= offsetRangeEnd - offsetRangeBegin; i++) {
-                    boolean match = true;
-                    int masked;
-                    for (int j = 0; match && j < length; j++) {
-                        masked = (buffer[i + j] & mask[j]);
-                        if (this.isStringIgnoreCase) {
-                            masked = Character.toLowerCase(masked);
-                        }
-                        match = (masked == pattern[j]);
-                    }
-                    if (match) {
-                        return type;
+            }
+        } else {
+            if (offset < offsetRangeBegin + length) {
+                return false;
+            }
+            // Loop until we've covered the entire offset range
+            for (int i = 0; i <= offsetRangeEnd - offsetRangeBegin; i++) {
+                boolean match = true;
+                int masked;
+                for (int j = 0; match && j < length; j++) {
+                    masked = (buffer[i + j] & mask[j]);
+                    if (this.isStringIgnoreCase) {
+                        masked = Character.toLowerCase(masked);
                     }
+                    match = (masked == pattern[j]);
+                }
+                if (match) {
+                    return true;
                 }
             }
-
-            return MediaType.OCTET_STREAM;
-        } finally {
-            input.reset();
         }
+        return false;
     }
 
     public int getLength() {
         return this.patternLength;
     }
 
+    /**
+     * @return first offset (inclusive) at which the pattern may start
+     * @since Apache Tika 4.0.0
+     */
+    public int getOffsetRangeBegin() {
+        return offsetRangeBegin;
+    }
+
+    /**
+     * @return last offset (inclusive) at which the pattern may start
+     * @since Apache Tika 4.0.0
+     */
+    public int getOffsetRangeEnd() {
+        return offsetRangeEnd;
+    }
+
+    /**
+     * Returns bytes that any input matched by this detector has to contain
+     * at {@link #getLiteralOffset()} bytes after the start of the match. For
+     * plain patterns this is the part before the first masked byte, for
+     * regular expressions it is the leading literal text, if any. For
+     * case-insensitive matches the bytes are lower case and have to be
+     * compared against the lower-cased input.
+     *
+     * @return bytes that every match contains, possibly empty
+     * @since Apache Tika 4.0.0
+     */
+    public byte[] getLiteral() {
+        return literal.clone();
+    }
+
+    /**
+     * @return distance of the {@link #getLiteral() literal} from the start of the match
+     * @since Apache Tika 4.0.0
+     */
+    public int getLiteralOffset() {
+        return literalOffset;
+    }
+
+    /**
+     * @return <code>true</code> if the pattern is a regular expression
+     * @since Apache Tika 4.0.0
+     */
+    public boolean isRegex() {
+        return isRegex;
+    }
+
+    /**
+     * @return <code>true</code> if the pattern is compared case-insensitively
+     * @since Apache Tika 4.0.0
+     */
+    public boolean isStringIgnoreCase() {
+        return isStringIgnoreCase;
+    }
+
     /**
      * Returns a string representation of the Detection Rule.
      * Should sort nicely by type and details, as we sometimes
@@ -435,4 +540,254 @@ public class MagicDetector implements Detector {
         return "Magic Detection for " + type + " looking for " + pattern.length + " bytes = " +
                 Arrays.toString(this.pattern) + " mask = " + Arrays.toString(this.mask);
     }
+
+    /**
+     * Conservatively extracts the literal text that every match of a regular
+     * expression has to contain, possibly after a fixed number of single
+     * character atoms such as <code>.</code> or <code>[\r\n]</code>. If
+     * in doubt, no literal is extracted.
+     */
+    private static class RegexLiteral {
+
+        private static final byte[] NONE = new byte[0];
+
+        private static final int STOP = -1;
+
+        private static final int ANY = -2;
+
+        private final String re;
+
+        private final int n;
+
+        private int i = 0;
+
+        private byte[] bytes = NONE;
+
+        private int offset = 0;
+
+        RegexLiteral(String re, boolean ignoreCase) {
+            this.re = re;
+            this.n = re.length();
+            if (hasTopLevelAlternation() || !skipFlags()) {
+                return;
+            }
+            if (i < n && re.charAt(i) == '^') {
+                i++;
+            }
+            StringBuilder sb = new StringBuilder();
+            int shift = 0;
+            while (i < n) {
+                int atom = nextAtom();
+                if (atom == STOP) {
+                    break;
+                }
+                int min = 1;
+                boolean last = false;
+                if (i < n) {
+                    char q = re.charAt(i);
+                    if (q == '?' || q == '*') {
+                        // optional atom, nothing after it is at a fixed position
+                        break;
+                    } else if (q == '+') {
+                        last = true;
+                    } else if (q == '{') {
+                        int close = re.indexOf('}', i);
+                        if (close < 0) {
+                            break;
+                        }
+                        String range = re.substring(i + 1, close);
+                        try {
+                            if (range.matches("\\d+")) {
+                                min = Integer.parseInt(range);
+                                i = close + 1;
+                                if (i < n && (re.charAt(i) == '?' || re.charAt(i) == '+')) {
+                                    i++;
+                                }
+                            } else if (range.matches("\\d+,\\d*")) {
+                                min = Integer.parseInt(range.substring(0, range.indexOf(',')));
+                                last = true;
+                            } else {
+                                break;
+                            }
+                        } catch (NumberFormatException e) {
+                            break;
+                        }
+                    }
+                }
+                if (atom == ANY) {
+                    if (sb.length() > 0 || last) {
+                        break;
+                    }
+                    shift += min;
+                } else {
+                    for (int k = 0; k < min; k++) {
+                        sb.append((char) atom);
+                    }
+                }
+                if (last || min == 0) {
+                    break;
+                }
+            }
+            if (sb.length() == 0) {
+                return;
+            }
+            bytes = new byte[sb.length()];
+            for (int k = 0; k < bytes.length; k++) {
+                char c = sb.charAt(k);
+                if (ignoreCase && c >= 'A' && c <= 'Z') {
+                    c = (char) (c + 32);
+                }
+                bytes[k] = (byte) c;
+            }
+            offset = shift;
+        }
+
+        /**
+         * @return the literal character, {@link #ANY} for a single character
+         * class or {@link #STOP} if the atom is not understood
+         */
+        private int nextAtom() {
+            char c = re.charAt(i);
+            if (c == '.') {
+                i++;
+                return ANY;
+            } else if (c == '[') {
+                int end = classEnd();
+                if (end < 0) {
+                    return STOP;
+                }
+                i = end + 1;
+                return ANY;
+            } else if (c == '\\') {
+                if (i + 1 >= n) {
+                    return STOP;
+                }
+                char e = re.charAt(i + 1);
+                int value;
+                switch (e) {
+                    case 'x':
+                        value = hex(i + 2, 2);
+                        i += 4;
+                        return value;
+                    case 'u':
+                        value = hex(i + 2, 4);
+                        i += 6;
+                        return value > 0xFF ? STOP : value;
+                    case 't':
+                        i += 2;
+                        return '\t';
+                    case 'n':
+                        i += 2;
+                        return '\n';
+                    case 'r':
+                        i += 2;
+                        return '\r';
+                    case 'f':
+                        i += 2;
+                        return '\f';
+                    case 'e':
+                        i += 2;
+                        return 0x1B;
+                    case 'a':
+                        i += 2;
+                        return 0x07;
+                    case 'd': case 'D': case 's': case 'S': case 'w': case 'W':
+                    case 'h': case 'H': case 'v': case 'V':
+                        i += 2;
+                        return ANY;
+                    default:
+                        if (e < 0x80 && !Character.isLetterOrDigit(e)) {
+                            i += 2;
+                            return e;
+                        }
+                        return STOP;
+                }
+            } else if ("()|*+?{}$^".indexOf(c) >= 0 || c > 0xFF) {
+                return STOP;
+            }
+            i++;
+            return c;
+        }
+
+        private int hex(int start, int length) {
+            if (start + length > n) {
+                return STOP;
+            }
+            try {
+                return Integer.parseInt(re.substring(start, start + length), 16);
+            } catch (NumberFormatException e) {
+                return STOP;
+            }
+        }
+
+        private int classEnd() {
+            int j = i + 1;
+            if (j < n && re.charAt(j) == '^') {
+                j++;
+            }
+            if (j < n && re.charAt(j) == ']') {
+                j++;
+            }
+            while (j < n) {
+                char c = re.charAt(j);
+                if (c == '\\') {
+                    j += 2;
+                } else if (c == '[' || c == '&') {
+                    // nested classes and intersections
+                    return -1;
+                } else if (c == ']') {
+                    return j;
+                } else {
+                    j++;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Skips leading inline flags that do not change what a literal matches.
+         *
+         * @return <code>false</code> if the flags are not understood
+         */
+        private boolean skipFlags() {
+            if (!re.startsWith("(?")) {
+                return true;
+            }
+            int close = re.indexOf(')');
+            if (close < 0) {
+                return false;
+            }
+            for (int j = 2; j < close; j++) {
+                if ("smdu".indexOf(re.charAt(j)) < 0) {
+                    return false;
+                }
+            }
+            i = close + 1;
+            return true;
+        }
+
+        private boolean hasTopLevelAlternation() {
+            int depth = 0;
+            boolean inClass = false;
+            for (int j = 0; j < n; j++) {
+                char c = re.charAt(j);
+                if (c == '\\') {
+                    j++;
+                } else if (inClass) {
+                    if (c == ']') {
+                        inClass = false;
+                    }
+                } else if (c == '[') {
+                    inClass = true;
+                } else if (c == '(') {
+                    depth++;
+                } else if (c == ')') {
+                    depth--;
+                } else if (c == '|' && depth == 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
 }
@@ -100,8 +100,7 @@ public class ParsingEmbeddedDocumentExtractor implements EmbeddedDocumentExtract
 
         // Use the delegate parser to parse this entry
         try (TemporaryResources tmp = new TemporaryResources()) {
-            final TikaInputStream newStream =
-                    TikaInputStream.get(CloseShieldInputStream.wrap(stream), tmp, metadata);
+            final TikaInputStream newStream = newStream(stream, tmp, metadata);
             if (stream instanceof TikaInputStream) {
                 final Object container = ((TikaInputStream) stream).getOpenContainer();
                 if (container != null) {
@@ -125,6 +124,19 @@ public class ParsingEmbeddedDocumentExtractor implements EmbeddedDocumentExtract
         }
     }
 
+    private static TikaInputStream newStream(InputStream stream, TemporaryResources tmp,
+                                             Metadata metadata) throws IOException {
+        if (stream instanceof TikaInputStream) {
+            //keep random access to e.g. an entry that is stored in a zip file,
+            //rather than spooling it to a temporary file once more
+            TikaInputStream duplicate = ((TikaInputStream) stream).duplicate(tmp);
+            if (duplicate != null) {
+                return duplicate;
+            }
+        }
+        return TikaInputStream.get(CloseShieldInputStream.wrap(stream), tmp, metadata);
+    }
+
     void recordException(Exception e, ParseContext context) {
         ParseRecord record = context.get(ParseRecord.class);
         if (record == null) {
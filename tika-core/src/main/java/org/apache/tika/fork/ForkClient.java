@@ -62,6 +62,8 @@ class ForkClient {
 
     private volatile int filesProcessed = 0;
 
+    private volatile long parseMillis = 0;
+
     public ForkClient(Path tikaDir, ParserFactoryFactory parserFactoryFactory, List<String> java,
                       TimeoutLimits timeoutLimits) throws IOException, TikaException {
         this(tikaDir, parserFactoryFactory, null, java, timeoutLimits);
@@ -248,22 +250,52 @@ class ForkClient {
         }
     }
 
+    /**
+     * Asks the server how much of its heap is in use.
+     *
+     * @return bytes of heap in use, or -1 if the server could not be reached
+     */
+    public synchronized long getHeapUsed() {
+        try {
+            output.writeByte(ForkServer.MEMORY);
+            output.flush();
+            if (input.read() != ForkServer.MEMORY) {
+                return -1;
+            }
+            return input.readLong();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
     public synchronized Throwable call(String method, Object... args)
             throws IOException, TikaException {
         filesProcessed++;
-        List<ForkResource> r = new ArrayList<>(resources);
-        output.writeByte(ForkServer.CALL);
-        output.writeUTF(method);
-        for (Object arg : args) {
-            sendObject(arg, r);
+        long start = System.currentTimeMillis();
+        try {
+            List<ForkResource> r = new ArrayList<>(resources);
+            output.writeByte(ForkServer.CALL);
+            output.writeUTF(method);
+            for (Object arg : args) {
+                sendObject(arg, r);
+            }
+            return waitForResponse(r);
+        } finally {
+            parseMillis += System.currentTimeMillis() - start;
         }
-        return waitForResponse(r);
     }
 
     public int getFilesProcessed() {
         return filesProcessed;
     }
 
+    /**
+     * @return total milliseconds this client has spent in {@link #call(String, Object...)}
+     */
+    public long getParseMillis() {
+        return parseMillis;
+    }
+
     /**
      * Serializes the object first into an in-memory buffer and then
      * writes it to the output stream with a preceding size integer.
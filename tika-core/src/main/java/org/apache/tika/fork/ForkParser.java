@@ -23,10 +23,14 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.Deque;
 import java.util.List;
-import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.xml.sax.ContentHandler;
 import org.xml.sax.SAXException;
@@ -57,7 +61,20 @@ public class ForkParser implements Parser, Closeable {
     //of jars, not via legacy bootstrap etc.
     private final Path tikaBin;
     private final ParserFactoryFactory parserFactoryFactory;
-    private final Queue<ForkClient> pool = new LinkedList<>();
+    //idle clients; most recently used first so that the warmest processes are reused
+    private final Deque<ForkClient> pool = new ConcurrentLinkedDeque<>();
+    //number of live clients, idle or in use
+    private final AtomicInteger liveClients = new AtomicInteger();
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder clientsStarted = new LongAdder();
+    private final LongAdder clientsRecycled = new LongAdder();
+    private final LongAdder clientsLost = new LongAdder();
+    //one permit per client that may be checked out; created on first use
+    //so that the pool size may be set via @Field
+    private volatile PoolPermits permits;
+    private volatile boolean closed = false;
     /**
      * Java command line
      */
@@ -67,7 +84,6 @@ public class ForkParser implements Parser, Closeable {
      */
     @Field
     private int poolSize = 5;
-    private int currentlyInUse = 0;
     @Field
     private long serverPulseMillis = 1000;
 
@@ -80,6 +96,12 @@ public class ForkParser implements Parser, Closeable {
     @Field
     private int maxFilesProcessedPerClient = -1;
 
+    @Field
+    private long maxParseMillisPerClient = -1;
+
+    @Field
+    private long maxHeapBytesPerClient = -1;
+
     /**
      * If you have a directory with, say, tike-app.jar and you want the
      * forked process/server to build a parser
@@ -156,6 +178,9 @@ public class ForkParser implements Parser, Closeable {
      * @param poolSize process pool size
      */
     public synchronized void setPoolSize(int poolSize) {
+        if (permits != null) {
+            permits.resize(poolSize - this.poolSize);
+        }
         this.poolSize = poolSize;
     }
 
@@ -276,71 +301,207 @@ public class ForkParser implements Parser, Closeable {
     }
 
     public synchronized void close() {
-        for (ForkClient client : pool) {
-            client.close();
+        closed = true;
+        ForkClient client;
+        while ((client = pool.poll()) != null) {
+            closeClient(client);
         }
-        pool.clear();
+        //leave the permits alone so that waiting callers wake up and fail
         poolSize = 0;
     }
 
-    private synchronized ForkClient acquireClient() throws IOException, TikaException {
-        while (true) {
-            ForkClient client = pool.poll();
-
-            // Create a new process if there's room in the pool
-            if (client == null && currentlyInUse < poolSize) {
-                client = newClient();
+    /**
+     * Starts forked servers until <code>numServers</code> are alive (or the pool
+     * size is reached) so that the first parse requests do not pay the process
+     * startup cost.  Idle servers still shut themselves down after
+     * {@link #setServerWaitTimeoutMillis(long)}; set that to <code>-1</code>
+     * to keep them warm indefinitely.
+     *
+     * @param numServers number of servers to have ready
+     * @since Apache Tika 4.0.0
+     */
+    public void warmUp(int numServers) throws IOException, TikaException {
+        PoolPermits p = getPermits();
+        int toStart = Math.min(numServers, getPoolSize()) - liveClients.get();
+        for (int i = 0; i < toStart; i++) {
+            if (!p.tryAcquire()) {
+                return;
+            }
+            try {
+                pool.addLast(newClient());
+            } finally {
+                p.release();
             }
+        }
+    }
+
+    /**
+     * @return number of idle servers currently in the pool
+     */
+    public int getIdleServers() {
+        return pool.size();
+    }
+
+    /**
+     * @return number of forked servers that are currently alive, idle or in use
+     */
+    public int getLiveServers() {
+        return liveClients.get();
+    }
+
+    /**
+     * @return number of times a server has been checked out of the pool
+     */
+    public long getAcquisitions() {
+        return acquisitions.sum();
+    }
+
+    /**
+     * @return total milliseconds that callers have spent waiting for a free server
+     */
+    public long getTotalWaitMillis() {
+        return waitNanos.sum() / 1_000_000;
+    }
+
+    /**
+     * @return longest time in milliseconds that a caller has waited for a free server
+     */
+    public long getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000;
+    }
+
+    /**
+     * @return number of forked servers that have been started, including warm up
+     */
+    public long getServersStarted() {
+        return clientsStarted.sum();
+    }
+
+    /**
+     * @return number of healthy servers that were shut down because they reached
+     * one of the recycling limits
+     */
+    public long getServersRecycled() {
+        return clientsRecycled.sum();
+    }
 
-            // Ping the process, and get rid of it if it's inactive
-            if (client != null && !client.ping()) {
-                client.close();
-                client = null;
+    /**
+     * @return number of servers that crashed, timed out or stopped responding
+     */
+    public long getServersLost() {
+        return clientsLost.sum();
+    }
+
+    private ForkClient acquireClient() throws IOException, TikaException {
+        PoolPermits p = getPermits();
+        long start = System.nanoTime();
+        try {
+            p.acquire();
+        } catch (InterruptedException e) {
+            throw new TikaException("Interrupted while waiting for a fork parser", e);
+        }
+        long waited = System.nanoTime() - start;
+        acquisitions.increment();
+        waitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        boolean ok = false;
+        try {
+            if (closed) {
+                throw new TikaException("ForkParser has been closed");
+            }
+            ForkClient client;
+            while ((client = pool.pollFirst()) != null) {
+                // Ping the process, and get rid of it if it's inactive
+                if (client.ping()) {
+                    ok = true;
+                    return client;
+                }
+                clientsLost.increment();
+                closeClient(client);
+            }
+            client = newClient();
+            ok = true;
+            return client;
+        } finally {
+            if (!ok) {
+                p.release();
             }
+        }
+    }
 
-            if (client != null) {
-                currentlyInUse++;
-                return client;
-            } else if (currentlyInUse >= poolSize) {
-                try {
-                    wait();
-                } catch (InterruptedException e) {
-                    throw new TikaException("Interrupted while waiting for a fork parser", e);
+    private PoolPermits getPermits() {
+        PoolPermits p = permits;
+        if (p == null) {
+            synchronized (this) {
+                p = permits;
+                if (p == null) {
+                    p = new PoolPermits(poolSize);
+                    permits = p;
                 }
             }
         }
+        return p;
     }
 
     private ForkClient newClient() throws IOException, TikaException {
         TimeoutLimits timeoutLimits = new TimeoutLimits(serverPulseMillis, serverParseTimeoutMillis,
                 serverWaitTimeoutMillis);
+        ForkClient client;
         if (loader == null && parser == null && tikaBin != null && parserFactoryFactory != null) {
-            return new ForkClient(tikaBin, parserFactoryFactory, java, timeoutLimits);
+            client = new ForkClient(tikaBin, parserFactoryFactory, java, timeoutLimits);
         } else if (loader != null && parser != null && tikaBin == null &&
                 parserFactoryFactory == null) {
-            return new ForkClient(loader, parser, java, timeoutLimits);
+            client = new ForkClient(loader, parser, java, timeoutLimits);
         } else if (loader != null && parser == null && tikaBin != null &&
                 parserFactoryFactory != null) {
-            return new ForkClient(tikaBin, parserFactoryFactory, loader, java, timeoutLimits);
+            client = new ForkClient(tikaBin, parserFactoryFactory, loader, java, timeoutLimits);
         } else {
             //TODO: make this more useful
             throw new IllegalStateException("Unexpected combination of state items");
         }
+        clientsStarted.increment();
+        liveClients.incrementAndGet();
+        return client;
     }
 
-    private synchronized void releaseClient(ForkClient client, boolean alive) {
-        currentlyInUse--;
-        if (currentlyInUse + pool.size() < poolSize && alive) {
-            if (maxFilesProcessedPerClient > 0 &&
-                    client.getFilesProcessed() >= maxFilesProcessedPerClient) {
-                client.close();
+    private void releaseClient(ForkClient client, boolean alive) {
+        try {
+            if (!alive) {
+                clientsLost.increment();
+                closeClient(client);
+            } else if (closed || liveClients.get() > getPoolSize()) {
+                closeClient(client);
+            } else if (shouldRecycle(client)) {
+                clientsRecycled.increment();
+                closeClient(client);
             } else {
-                pool.offer(client);
+                pool.addFirst(client);
             }
-            notifyAll();
-        } else {
-            client.close();
+        } finally {
+            getPermits().release();
+        }
+    }
+
+    private boolean shouldRecycle(ForkClient client) {
+        if (maxFilesProcessedPerClient > 0 &&
+                client.getFilesProcessed() >= maxFilesProcessedPerClient) {
+            return true;
+        }
+        if (maxParseMillisPerClient > 0 &&
+                client.getParseMillis() >= maxParseMillisPerClient) {
+            return true;
         }
+        if (maxHeapBytesPerClient > 0) {
+            long heapUsed = client.getHeapUsed();
+            //-1 means the server didn't answer, so get rid of it as well
+            return heapUsed < 0 || heapUsed >= maxHeapBytesPerClient;
+        }
+        return false;
+    }
+
+    private void closeClient(ForkClient client) {
+        liveClients.decrementAndGet();
+        client.close();
     }
 
     /**
@@ -391,4 +552,45 @@ public class ForkParser implements Parser, Closeable {
         this.maxFilesProcessedPerClient = maxFilesProcessedPerClient;
     }
 
+    /**
+     * Restarts a server once it has spent this many milliseconds parsing in total.
+     * Parsers that slow down as they age (fragmented heaps, growing caches) are
+     * replaced before they start hitting {@link #setServerParseTimeoutMillis(long)}.
+     * Default value is -1, which disables this check.
+     *
+     * @param maxParseMillisPerServer total parse time after which a server is restarted
+     * @since Apache Tika 4.0.0
+     */
+    public void setMaxParseMillisPerServer(long maxParseMillisPerServer) {
+        this.maxParseMillisPerClient = maxParseMillisPerServer;
+    }
+
+    /**
+     * Restarts a server when more than this many bytes of its heap are in use
+     * after a parse.  This catches leaks sooner than
+     * {@link #setMaxFilesProcessedPerServer(int)} when file sizes vary a lot.
+     * Default value is -1, which disables this check.
+     *
+     * @param maxHeapBytesPerServer heap in use after which a server is restarted
+     * @since Apache Tika 4.0.0
+     */
+    public void setMaxHeapBytesPerServer(long maxHeapBytesPerServer) {
+        this.maxHeapBytesPerClient = maxHeapBytesPerServer;
+    }
+
+    private static class PoolPermits extends Semaphore {
+
+        PoolPermits(int permits) {
+            super(permits, true);
+        }
+
+        void resize(int delta) {
+            if (delta > 0) {
+                release(delta);
+            } else if (delta < 0) {
+                reducePermits(-delta);
+            }
+        }
+    }
+
 }
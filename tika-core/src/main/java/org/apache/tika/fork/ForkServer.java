@@ -51,6 +51,8 @@ class ForkServer implements Runnable {
     public static final byte INIT_PARSER_FACTORY_FACTORY = 6;
     public static final byte INIT_LOADER_PARSER = 7;
     public static final byte INIT_PARSER_FACTORY_FACTORY_LOADER = 8;
+
+    public static final byte MEMORY = 9;
     private final Object[] lock = new Object[0];
     /**
      * Input stream for reading from the parent process
@@ -165,6 +167,10 @@ class ForkServer implements Runnable {
                     break;
                 } else if (request == PING) {
                     output.writeByte(PING);
+                } else if (request == MEMORY) {
+                    Runtime runtime = Runtime.getRuntime();
+                    output.writeByte(MEMORY);
+                    output.writeLong(runtime.totalMemory() - runtime.freeMemory());
                 } else if (request == CALL) {
                     call(classLoader, parser);
                 } else {
@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * Read-only view of a range of another {@link SeekableByteChannel}, for
+ * example the data of a stored entry within a zip file.
+ * <p>
+ * Each view has its own position, so several views may share the same
+ * underlying channel. Reads on a {@link FileChannel} are positional;
+ * other channels are repositioned under a lock on the channel. Closing
+ * a view does not close the underlying channel.
+ *
+ * @since Apache Tika 4.0.0
+ */
+public class RangeSeekableByteChannel implements SeekableByteChannel {
+
+    private final SeekableByteChannel channel;
+
+    private final long offset;
+
+    private final long length;
+
+    private long position = 0;
+
+    private boolean open = true;
+
+    /**
+     * @param channel underlying channel
+     * @param offset  start of the range in the underlying channel
+     * @param length  length of the range
+     */
+    public RangeSeekableByteChannel(SeekableByteChannel channel, long offset, long length) {
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException("Invalid range: " + offset + "+" + length);
+        }
+        this.channel = channel;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        ensureOpen();
+        if (position >= length) {
+            return -1;
+        }
+        int max = (int) Math.min(dst.remaining(), length - position);
+        ByteBuffer window = dst.slice();
+        window.limit(max);
+        int n;
+        if (channel instanceof FileChannel) {
+            n = ((FileChannel) channel).read(window, offset + position);
+        } else {
+            synchronized (channel) {
+                channel.position(offset + position);
+                n = channel.read(window);
+            }
+        }
+        if (n > 0) {
+            dst.position(dst.position() + n);
+            position += n;
+        }
+        return n;
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long position() throws IOException {
+        ensureOpen();
+        return position;
+    }
+
+    @Override
+    public SeekableByteChannel position(long newPosition) throws IOException {
+        ensureOpen();
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("Position must not be negative: " + newPosition);
+        }
+        position = newPosition;
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+        ensureOpen();
+        return length;
+    }
+
+    @Override
+    public SeekableByteChannel truncate(long size) throws IOException {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open && channel.isOpen();
+    }
+
+    @Override
+    public void close() {
+        open = false;
+    }
+
+    /**
+     * @return the underlying channel
+     */
+    public SeekableByteChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * @return start of the range in the underlying channel
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    private void ensureOpen() throws ClosedChannelException {
+        if (!isOpen()) {
+            throw new ClosedChannelException();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Read-only {@link SeekableByteChannel} over a resource that can only be
+ * read sequentially, such as a compressed entry of an archive. Forward
+ * seeks skip ahead in the current stream; seeking backwards opens a fresh
+ * stream from the {@link InputStreamFactory} and skips to the new position.
+ * <p>
+ * This trades CPU for disk: nothing is written to a temporary file, but
+ * each backwards seek re-reads (and e.g. decompresses) the resource from
+ * the start. It is a good fit for readers that mostly move forwards.
+ *
+ * @since Apache Tika 4.0.0
+ */
+public class ReopeningSeekableByteChannel implements SeekableByteChannel {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final InputStreamFactory factory;
+
+    private final long size;
+
+    private InputStream stream;
+
+    //position of the current stream
+    private long streamPosition = 0;
+
+    private long position = 0;
+
+    private byte[] buffer;
+
+    private boolean open = true;
+
+    /**
+     * @param factory factory that opens a fresh stream at the start of the resource
+     * @param size    length of the resource
+     */
+    public ReopeningSeekableByteChannel(InputStreamFactory factory, long size) {
+        this.factory = factory;
+        this.size = size;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        ensureOpen();
+        if (position >= size) {
+            return -1;
+        }
+        if (stream == null || position < streamPosition) {
+            IOUtils.closeQuietly(stream);
+            stream = factory.getInputStream();
+            streamPosition = 0;
+        }
+        if (position > streamPosition) {
+            long skipped = IOUtils.skip(stream, position - streamPosition);
+            streamPosition += skipped;
+            if (streamPosition < position) {
+                return -1;
+            }
+        }
+        int max = (int) Math.min(dst.remaining(), size - position);
+        int n;
+        if (dst.hasArray()) {
+            n = stream.read(dst.array(), dst.arrayOffset() + dst.position(), max);
+            if (n > 0) {
+                dst.position(dst.position() + n);
+            }
+        } else {
+            if (buffer == null) {
+                buffer = new byte[BUFFER_SIZE];
+            }
+            n = stream.read(buffer, 0, Math.min(max, buffer.length));
+            if (n > 0) {
+                dst.put(buffer, 0, n);
+            }
+        }
+        if (n > 0) {
+            position += n;
+            streamPosition += n;
+        }
+        return n;
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long position() throws IOException {
+        ensureOpen();
+        return position;
+    }
+
+    @Override
+    public SeekableByteChannel position(long newPosition) throws IOException {
+        ensureOpen();
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("Position must not be negative: " + newPosition);
+        }
+        position = newPosition;
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+        ensureOpen();
+        return size;
+    }
+
+    @Override
+    public SeekableByteChannel truncate(long size) throws IOException {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() throws IOException {
+        open = false;
+        if (stream != null) {
+            stream.close();
+            stream = null;
+        }
+    }
+
+    private void ensureOpen() throws ClosedChannelException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+    }
+}
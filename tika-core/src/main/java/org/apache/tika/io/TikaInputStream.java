@@ -29,12 +29,16 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.sql.Blob;
 import java.sql.SQLException;
+import java.util.Arrays;
 
 import org.apache.commons.io.input.TaggedInputStream;
 import org.apache.commons.io.input.UnsynchronizedByteArrayInputStream;
@@ -81,6 +85,10 @@ public class TikaInputStream extends TaggedInputStream {
      * method.
      */
     private static final int BLOB_SIZE_THRESHOLD = 1024 * 1024;
+    /**
+     * Default for {@link #setMemoryThreshold(int)}.
+     */
+    public static final int DEFAULT_MEMORY_THRESHOLD = 1024 * 1024;
     /**
      * Tracker of temporary resources.
      */
@@ -98,6 +106,24 @@ public class TikaInputStream extends TaggedInputStream {
      * then the value is <code>null</code>.
      */
     private Path path;
+    /**
+     * The contents of this stream, if they are held in memory. This is either
+     * the array passed to {@link #get(byte[], Metadata)} or the contents of a
+     * small stream read by {@link #getSeekableByteChannel()}. Otherwise
+     * <code>null</code>.
+     */
+    private byte[] data;
+    /**
+     * If this stream is a range of a larger channel, as created by
+     * {@link #get(SeekableByteChannel, long, long, TemporaryResources, Metadata)},
+     * a view of that range. Otherwise <code>null</code>.
+     */
+    private RangeSeekableByteChannel range;
+    /**
+     * Streams up to this many bytes are kept in memory rather than
+     * spooled to a temporary file by {@link #getSeekableByteChannel()}.
+     */
+    private int memoryThreshold = DEFAULT_MEMORY_THRESHOLD;
     /**
      * Total length of the stream, or -1 if unknown.
      */
@@ -308,8 +334,10 @@ public class TikaInputStream extends TaggedInputStream {
      */
     public static TikaInputStream get(byte[] data, Metadata metadata) {
         metadata.set(Metadata.CONTENT_LENGTH, Integer.toString(data.length));
-        return new TikaInputStream(new UnsynchronizedByteArrayInputStream(data), new TemporaryResources(),
-                data.length, getExtension(metadata));
+        TikaInputStream stream = new TikaInputStream(new UnsynchronizedByteArrayInputStream(data),
+                new TemporaryResources(), data.length, getExtension(metadata));
+        stream.data = data;
+        return stream;
     }
 
     /**
@@ -427,6 +455,65 @@ public class TikaInputStream extends TaggedInputStream {
         return stream;
     }
 
+    /**
+     * Creates a TikaInputStream from a Factory which can create
+     * fresh {@link InputStream}s for the same resource multiple times,
+     * and whose length is known. If this is longer than the
+     * {@link #getMemoryThreshold() memory threshold},
+     * {@link #getSeekableByteChannel()} returns a
+     * {@link ReopeningSeekableByteChannel} on the factory rather than
+     * spooling the resource to a temporary file.
+     *
+     * @param factory  factory for the resource
+     * @param length   length of the resource
+     * @param tmp      tracker for temporary resources associated with this stream
+     * @param metadata metadata instance, may be <code>null</code>
+     * @since Apache Tika 4.0.0
+     */
+    public static TikaInputStream get(InputStreamFactory factory, long length,
+                                      TemporaryResources tmp, Metadata metadata)
+            throws IOException {
+        if (metadata != null) {
+            metadata.set(Metadata.CONTENT_LENGTH, Long.toString(length));
+        }
+        InputStream stream = factory.getInputStream();
+        tmp.addResource(stream);
+        TikaInputStream tis = new TikaInputStream(new BufferedInputStream(stream), tmp,
+                length, getExtension(metadata));
+        tis.streamFactory = factory;
+        return tis;
+    }
+
+    /**
+     * Creates a TikaInputStream on a range of a channel, for example the data
+     * of an entry that is stored uncompressed within a zip file. Nothing is
+     * copied: reads, {@link #getSeekableByteChannel()} and
+     * {@link #getByteBuffer(long, int)} all go to the underlying channel,
+     * which is memory mapped by the latter if it is a {@link FileChannel}.
+     * <p>
+     * The channel is not closed by this stream, and must stay open until
+     * this stream has been processed.
+     *
+     * @param channel  channel that contains the stream
+     * @param offset   start of the stream in the channel
+     * @param length   length of the stream
+     * @param tmp      tracker for temporary resources associated with this stream
+     * @param metadata metadata instance, may be <code>null</code>
+     * @since Apache Tika 4.0.0
+     */
+    public static TikaInputStream get(SeekableByteChannel channel, long offset, long length,
+                                      TemporaryResources tmp, Metadata metadata) {
+        if (metadata != null) {
+            metadata.set(Metadata.CONTENT_LENGTH, Long.toString(length));
+        }
+        RangeSeekableByteChannel range = new RangeSeekableByteChannel(channel, offset, length);
+        TikaInputStream tis = new TikaInputStream(
+                new BufferedInputStream(Channels.newInputStream(range)), tmp, length,
+                getExtension(metadata));
+        tis.range = range;
+        return tis;
+    }
+
     /**
      * Creates a TikaInputStream from the given database BLOB.
      * <p>
@@ -669,6 +756,42 @@ public class TikaInputStream extends TaggedInputStream {
         return path != null;
     }
 
+    /**
+     * @return whether {@link #getSeekableByteChannel()} can be served from a file,
+     * a byte array or a range of a channel, without reading this stream
+     * @since Apache Tika 4.0.0
+     */
+    public boolean hasRandomAccess() {
+        return path != null || data != null || range != null;
+    }
+
+    /**
+     * Returns a new stream over the same contents as this one, which has not
+     * been read yet. This is for callers that must not read or close this
+     * stream themselves, such as embedded document extractors. Unlike a
+     * wrapper around this stream, the new stream keeps the random access
+     * of this one, see {@link #hasRandomAccess()}.
+     *
+     * @param tmp tracker for temporary resources associated with the new stream
+     * @return the new stream, or <code>null</code> if this stream has no random
+     * access or has already been read
+     * @throws IOException if the contents of this stream can not be accessed
+     * @since Apache Tika 4.0.0
+     */
+    public TikaInputStream duplicate(TemporaryResources tmp) throws IOException {
+        if (!hasRandomAccess() || position != 0) {
+            return null;
+        }
+        SeekableByteChannel channel = getSeekableByteChannel();
+        RangeSeekableByteChannel view = channel instanceof RangeSeekableByteChannel ?
+                (RangeSeekableByteChannel) channel :
+                new RangeSeekableByteChannel(channel, 0, channel.size());
+        TikaInputStream tis = new TikaInputStream(
+                new BufferedInputStream(Channels.newInputStream(view)), tmp, view.size(), suffix);
+        tis.range = view;
+        return tis;
+    }
+
 
     /**
      * If the user created this TikaInputStream with a file,
@@ -754,6 +877,149 @@ public class TikaInputStream extends TaggedInputStream {
         return channel;
     }
 
+    /**
+     * Returns a read-only channel with random access to the full contents
+     * of this stream, independent of the current position of the stream.
+     * Parsers that need random access should prefer this over
+     * {@link #getPath()}, because it avoids a temporary file for small inputs:
+     * <ul>
+     *     <li>if this stream is backed by a file, this is a {@link FileChannel}
+     *     on that file, which can also be memory mapped</li>
+     *     <li>if this stream is backed by a byte array, this is a channel over
+     *     that array</li>
+     *     <li>if this stream is a range of another channel, this is a view of
+     *     that range</li>
+     *     <li>if this stream was created from an {@link InputStreamFactory} with
+     *     a known length above {@link #getMemoryThreshold()}, this is a
+     *     {@link ReopeningSeekableByteChannel} on the factory</li>
+     *     <li>otherwise, streams of at most {@link #getMemoryThreshold()} bytes
+     *     are read into memory, and larger streams are spooled to a temporary
+     *     file, just like with {@link #getPath()}</li>
+     * </ul>
+     * The channel is closed when this stream is closed.
+     *
+     * @return channel with random access to the contents of this stream
+     * @throws IOException if the stream has already been read
+     * @since Apache Tika 4.0.0
+     */
+    public SeekableByteChannel getSeekableByteChannel() throws IOException {
+        if (range != null) {
+            return new RangeSeekableByteChannel(range.getChannel(), range.getOffset(), length);
+        }
+        if (path == null && data == null) {
+            if (streamFactory != null && length >= 0 &&
+                    (memoryThreshold < 0 || length > memoryThreshold)) {
+                ReopeningSeekableByteChannel channel =
+                        new ReopeningSeekableByteChannel(streamFactory, length);
+                tmp.addResource(channel);
+                return channel;
+            }
+            bufferOrSpool();
+        }
+        if (data != null) {
+            return new ByteArraySeekableByteChannel(data);
+        }
+        return getFileChannel();
+    }
+
+    /**
+     * Returns a read-only view of a range of the contents of this stream,
+     * independent of the current position of the stream. For file backed
+     * streams, this is a memory mapped window on the file, see
+     * {@link FileChannel#map(FileChannel.MapMode, long, long)}.
+     *
+     * @param offset offset of the range in the stream
+     * @param size   size of the range; the range must not extend beyond the end
+     *               of the stream
+     * @return read-only buffer with the contents of the range
+     * @throws IOException if the stream has already been read
+     * @since Apache Tika 4.0.0
+     */
+    public ByteBuffer getByteBuffer(long offset, int size) throws IOException {
+        if (path == null && data == null && range == null) {
+            bufferOrSpool();
+        }
+        long available = data != null ? data.length : length;
+        if (offset < 0 || size < 0 || offset + size > available) {
+            throw new IOException("Range " + offset + "+" + size + " is outside of the stream (length " +
+                    available + ")");
+        }
+        if (data != null) {
+            return ByteBuffer.wrap(data, (int) offset, size).slice().asReadOnlyBuffer();
+        }
+        if (range != null) {
+            if (range.getChannel() instanceof FileChannel) {
+                return ((FileChannel) range.getChannel()).map(FileChannel.MapMode.READ_ONLY,
+                        range.getOffset() + offset, size);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            SeekableByteChannel channel = getSeekableByteChannel().position(offset);
+            while (buffer.hasRemaining() && channel.read(buffer) > -1) {
+                //keep reading
+            }
+            buffer.flip();
+            return buffer.asReadOnlyBuffer();
+        }
+        try (FileChannel channel = FileChannel.open(path)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+        }
+    }
+
+    /**
+     * @return the maximum number of bytes that {@link #getSeekableByteChannel()}
+     * keeps in memory rather than spooling them to a temporary file
+     * @since Apache Tika 4.0.0
+     */
+    public int getMemoryThreshold() {
+        return memoryThreshold;
+    }
+
+    /**
+     * Sets the maximum number of bytes that {@link #getSeekableByteChannel()}
+     * keeps in memory rather than spooling them to a temporary file.
+     * The default is {@link #DEFAULT_MEMORY_THRESHOLD}.
+     *
+     * @since Apache Tika 4.0.0
+     */
+    public void setMemoryThreshold(int memoryThreshold) {
+        this.memoryThreshold = memoryThreshold;
+    }
+
+    /**
+     * Reads a stream that is neither file nor array backed into memory if it is
+     * at most {@link #memoryThreshold} bytes long, or spools it to a temporary file.
+     */
+    private void bufferOrSpool() throws IOException {
+        if (position > 0) {
+            throw new IOException("Stream is already being read");
+        }
+        if (memoryThreshold < 0 || memoryThreshold == Integer.MAX_VALUE || length > memoryThreshold) {
+            getPath();
+            return;
+        }
+        //one more byte than expected, to find out if there is more
+        byte[] buffer = new byte[(int) (length >= 0 ? length : memoryThreshold) + 1];
+        int n = peek(buffer);
+        if (n == buffer.length) {
+            getPath();
+            return;
+        }
+        data = Arrays.copyOf(buffer, n);
+
+        // Replace the buffered stream with one on the data, in a way that still
+        // ends up closing the old stream when the close() method is called.
+        final InputStream oldStream = in;
+        in = new UnsynchronizedByteArrayInputStream(data) {
+            @Override
+            public void close() throws IOException {
+                oldStream.close();
+            }
+        };
+        length = n;
+        position = 0;
+        mark = -1;
+    }
+
     public boolean hasLength() {
         return length != -1;
     }
@@ -828,6 +1094,8 @@ public class TikaInputStream extends TaggedInputStream {
     @Override
     public void close() throws IOException {
         path = null;
+        data = null;
+        range = null;
         mark = -1;
 
         // The close method was explicitly called, so we indeed
@@ -0,0 +1,343 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.metadata;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Storage behind {@link Metadata.STORAGE#COMPACT}.
+ * <p>
+ * Keys and values are kept in parallel arrays in insertion order instead of
+ * in hash map entries. Names of registered {@link Property properties} are
+ * replaced by the property's own name instance, so that lookups with a
+ * property usually succeed on an identity comparison. Only once there are
+ * more than {@link #INDEX_THRESHOLD} keys is a hash index built.
+ * <p>
+ * Values are growable arrays: {@link #append(String, String)} doesn't copy
+ * the existing values on every call. The array is trimmed to its exact size
+ * when it is handed out through {@link #get(Object)}.
+ */
+class CompactMetadataMap extends AbstractMap<String, String[]> implements Serializable {
+
+    private static final long serialVersionUID = -2960253785092622421L;
+
+    private static final int INDEX_THRESHOLD = 16;
+
+    private static final String[] EMPTY = new String[0];
+
+    private String[] keys = new String[8];
+
+    private String[][] values = new String[8][];
+
+    private int[] counts = new int[8];
+
+    private int size = 0;
+
+    //open addressing table of (position + 1), null until there are enough keys
+    private transient int[] index;
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String && indexOf((String) key) > -1;
+    }
+
+    @Override
+    public String[] get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        int i = indexOf((String) key);
+        return i < 0 ? null : valuesAt(i);
+    }
+
+    /**
+     * @return the first value for the key without materializing the array
+     */
+    String getFirst(String key) {
+        int i = indexOf(key);
+        return i < 0 || counts[i] == 0 ? null : values[i][0];
+    }
+
+    /**
+     * @return the number of values for the key, <code>0</code> if there are none
+     */
+    int count(String key) {
+        int i = indexOf(key);
+        return i < 0 ? 0 : counts[i];
+    }
+
+    @Override
+    public String[] put(String key, String[] value) {
+        if (key == null || value == null) {
+            throw new NullPointerException("null keys and values are not supported");
+        }
+        int i = indexOf(key);
+        if (i < 0) {
+            addKey(key, value, value.length);
+            return null;
+        }
+        String[] old = valuesAt(i);
+        values[i] = value;
+        counts[i] = value.length;
+        return old;
+    }
+
+    /**
+     * Appends a value to the key's values, adding the key if necessary.
+     */
+    void append(String key, String value) {
+        int i = indexOf(key);
+        if (i < 0) {
+            addKey(key, new String[]{value}, 1);
+            return;
+        }
+        String[] vals = values[i];
+        int count = counts[i];
+        if (count == vals.length) {
+            //either full or handed out through get(), grow a private copy
+            vals = Arrays.copyOf(vals, Math.max(4, count * 2));
+            values[i] = vals;
+        }
+        vals[count] = value;
+        counts[i] = count + 1;
+    }
+
+    @Override
+    public String[] remove(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        int i = indexOf((String) key);
+        if (i < 0) {
+            return null;
+        }
+        String[] old = valuesAt(i);
+        removeAt(i);
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+        index = null;
+    }
+
+    @Override
+    public Set<Entry<String, String[]>> entrySet() {
+        return new EntrySet();
+    }
+
+    private String[] valuesAt(int i) {
+        String[] vals = values[i];
+        int count = counts[i];
+        if (vals.length != count) {
+            vals = count == 0 ? EMPTY : Arrays.copyOf(vals, count);
+            values[i] = vals;
+        }
+        return vals;
+    }
+
+    private int indexOf(String key) {
+        if (index != null) {
+            int mask = index.length - 1;
+            int slot = spread(key.hashCode()) & mask;
+            while (index[slot] != 0) {
+                int i = index[slot] - 1;
+                String k = keys[i];
+                if (k == key || k.equals(key)) {
+                    return i;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+        for (int i = 0; i < size; i++) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            if (keys[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void addKey(String key, String[] vals, int count) {
+        if (size == keys.length) {
+            int capacity = size * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        keys[size] = canonical(key);
+        values[size] = vals;
+        counts[size] = count;
+        size++;
+        if (index != null && size * 2 <= index.length) {
+            insertIndex(size - 1);
+        } else if (size > INDEX_THRESHOLD) {
+            rebuildIndex();
+        }
+    }
+
+    private void removeAt(int i) {
+        int moved = size - i - 1;
+        if (moved > 0) {
+            System.arraycopy(keys, i + 1, keys, i, moved);
+            System.arraycopy(values, i + 1, values, i, moved);
+            System.arraycopy(counts, i + 1, counts, i, moved);
+        }
+        size--;
+        keys[size] = null;
+        values[size] = null;
+        if (index != null) {
+            rebuildIndex();
+        }
+    }
+
+    private void rebuildIndex() {
+        if (size <= INDEX_THRESHOLD) {
+            index = null;
+            return;
+        }
+        int capacity = Integer.highestOneBit(size * 4 - 1);
+        index = new int[capacity];
+        for (int i = 0; i < size; i++) {
+            insertIndex(i);
+        }
+    }
+
+    private void insertIndex(int i) {
+        int mask = index.length - 1;
+        int slot = spread(keys[i].hashCode()) & mask;
+        while (index[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = i + 1;
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    private static String canonical(String key) {
+        Property property = Property.get(key);
+        return property == null ? key : property.getName();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        for (int i = 0; i < size; i++) {
+            keys[i] = canonical(keys[i]);
+        }
+        rebuildIndex();
+    }
+
+    @Override
+    public int hashCode() {
+        int h = 0;
+        for (int i = 0; i < size; i++) {
+            h += keys[i].hashCode() ^ Arrays.hashCode(valuesAt(i));
+        }
+        return h;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Map)) {
+            return false;
+        }
+        Map<?, ?> other = (Map<?, ?>) o;
+        if (other.size() != size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            Object otherValues = other.get(keys[i]);
+            if (!(otherValues instanceof String[]) ||
+                    !Arrays.equals(valuesAt(i), (String[]) otherValues)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private class EntrySet extends AbstractSet<Entry<String, String[]>> {
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Iterator<Entry<String, String[]>> iterator() {
+            return new Iterator<Entry<String, String[]>>() {
+
+                private int next = 0;
+
+                private int last = -1;
+
+                @Override
+                public boolean hasNext() {
+                    return next < size;
+                }
+
+                @Override
+                public Entry<String, String[]> next() {
+                    if (next >= size) {
+                        throw new NoSuchElementException();
+                    }
+                    last = next++;
+                    return new SimpleEntry<>(keys[last], valuesAt(last)) {
+                        @Override
+                        public String[] setValue(String[] value) {
+                            put(getKey(), value);
+                            return super.setValue(value);
+                        }
+                    };
+                }
+
+                @Override
+                public void remove() {
+                    if (last < 0) {
+                        throw new IllegalStateException();
+                    }
+                    removeAt(last);
+                    next = last;
+                    last = -1;
+                }
+            };
+        }
+    }
+}
@@ -92,6 +92,37 @@ public class Metadata
      * already, and will set that into the Metadata object.
      */
     private static final DateUtils DATE_UTILS = new DateUtils();
+    /**
+     * How new {@link Metadata} objects store their values.
+     * <p>
+     * {@link STORAGE#HASH_MAP}, the default, stores each name in a hash map
+     * and copies the values on every {@link #add(String, String)}.
+     * <p>
+     * {@link STORAGE#COMPACT} keeps names and values in arrays in insertion
+     * order, shares the names of registered {@link Property properties} and
+     * grows the values of a name instead of copying them on every add. This
+     * saves memory and allocations when there are many metadata objects, e.g.
+     * when parsing mail archives with thousands of attachments.
+     *
+     * @since Apache Tika 4.0.0
+     */
+    public enum STORAGE {
+        HASH_MAP,
+        COMPACT;
+
+        public static STORAGE parse(String storageString) {
+            for (STORAGE s : STORAGE.values()) {
+                if (s.name().equalsIgnoreCase(storageString)) {
+                    return s;
+                }
+            }
+            throw new IllegalArgumentException("I regret that I don't recognize '" +
+                    storageString + "'. I only understand: hash_map, compact");
+        }
+    }
+
+    private static volatile STORAGE DEFAULT_STORAGE = STORAGE.HASH_MAP;
+
     /**
      * A map of all metadata attributes.
      */
@@ -103,7 +134,37 @@ public class Metadata
      * Constructs a new, empty metadata.
      */
     public Metadata() {
-        metadata = new HashMap<>();
+        this(DEFAULT_STORAGE);
+    }
+
+    /**
+     * Constructs a new, empty metadata with the given storage.
+     *
+     * @param storage how to store the values
+     * @since Apache Tika 4.0.0
+     */
+    public Metadata(STORAGE storage) {
+        metadata = storage == STORAGE.COMPACT ? new CompactMetadataMap() : new HashMap<>();
+    }
+
+    /**
+     * Sets the storage that {@link #Metadata()} uses from now on. This is
+     * typically set with <code>&lt;metadata storage="compact"/&gt;</code>
+     * in the tika-config.xml.
+     *
+     * @param storage storage for new metadata objects
+     * @since Apache Tika 4.0.0
+     */
+    public static void setDefaultStorage(STORAGE storage) {
+        DEFAULT_STORAGE = storage;
+    }
+
+    /**
+     * @return storage that {@link #Metadata()} uses
+     * @since Apache Tika 4.0.0
+     */
+    public static STORAGE getDefaultStorage() {
+        return DEFAULT_STORAGE;
     }
 
     private static DateFormat createDateFormat(String format, TimeZone timezone) {
@@ -133,8 +194,7 @@ public class Metadata
      * @return true is named value is multivalued, false if single value or null
      */
     public boolean isMultiValued(final Property property) {
-        return metadata.get(property.getName()) != null &&
-                metadata.get(property.getName()).length > 1;
+        return isMultiValued(property.getName());
     }
 
     /**
@@ -144,7 +204,11 @@ public class Metadata
      * @return true is named value is multivalued, false if single value or null
      */
     public boolean isMultiValued(final String name) {
-        return metadata.get(name) != null && metadata.get(name).length > 1;
+        if (metadata instanceof CompactMetadataMap) {
+            return ((CompactMetadataMap) metadata).count(name) > 1;
+        }
+        String[] values = metadata.get(name);
+        return values != null && values.length > 1;
     }
 
     /**
@@ -164,6 +228,9 @@ public class Metadata
      * @return the value associated to the specified metadata name.
      */
     public String get(final String name) {
+        if (metadata instanceof CompactMetadataMap) {
+            return ((CompactMetadataMap) metadata).getFirst(name);
+        }
         String[] values = metadata.get(name);
         if (values == null) {
             return null;
@@ -287,6 +354,13 @@ public class Metadata
      * @param value the metadata value.
      */
     public void add(final String name, final String value) {
+        if (writeFilter == ACCEPT_ALL && metadata instanceof CompactMetadataMap) {
+            //same as ACCEPT_ALL, but without copying the existing values
+            if (value != null) {
+                ((CompactMetadataMap) metadata).append(name, value);
+            }
+            return;
+        }
         writeFilter.add(name, value, metadata);
     }
 
@@ -35,6 +35,10 @@ class AndClause implements Clause {
         return true;
     }
 
+    Clause[] getClauses() {
+        return clauses;
+    }
+
     public int size() {
         int size = 0;
         for (Clause clause : clauses) {
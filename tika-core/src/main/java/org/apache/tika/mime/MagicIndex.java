@@ -0,0 +1,459 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.mime;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.tika.detect.MagicDetector;
+
+/**
+ * Pre-filter over the magic rules, compiled once when the {@link MimeTypes}
+ * have been loaded.
+ * <p>
+ * For every {@link Magic} we try to derive a set of anchors: literal byte
+ * sequences within an offset range such that the magic can only match if at
+ * least one of its anchors is present in the data. Anchors at a fixed (or
+ * nearly fixed) offset are compiled into one prefix trie per offset, anchors
+ * that may occur anywhere in a wider window are compiled into an Aho-Corasick
+ * automaton that is run once over the window. Case-insensitive anchors get
+ * their own tries and automaton over the lower-cased input.
+ * <p>
+ * Detection walks the tries and runs the automata over the document prefix,
+ * which yields the candidate magics. Only those, plus the magics for which no
+ * anchor could be derived (regular expressions, patterns that start with a
+ * mask, ...), are then evaluated in full and in the usual priority order.
+ * An anchor is a necessary, not a sufficient condition, so the detection
+ * result is exactly the same as evaluating every magic.
+ */
+class MagicIndex {
+
+    /**
+     * Offset ranges spanning fewer positions than this are expanded into one
+     * trie entry per offset, wider ones go into the automaton.
+     */
+    private static final int MAX_EXPANDED_RANGE = 8;
+
+    /**
+     * Nodes with at least this many children get a direct lookup table, as
+     * do the roots, where the automaton spends most of its time.
+     */
+    private static final int MIN_TABLE_SIZE = 16;
+
+    private static final byte[] NO_LABELS = new byte[0];
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private static final int[] NO_VALUES = new int[0];
+
+    /**
+     * Number of magics covered by this index, any magic at or beyond this
+     * position is treated as unanchored.
+     */
+    private final int size;
+
+    private final boolean[] anchored;
+
+    private final int[] offsets;
+
+    private final boolean[] ignoreCase;
+
+    private final Node[] roots;
+
+    private final Scanner[] scanners;
+
+    MagicIndex(List<Magic> magics) {
+        size = magics.size();
+        anchored = new boolean[size];
+        // key is offset * 2 + (ignoreCase ? 1 : 0)
+        Map<Long, NodeBuilder> tries = new TreeMap<>();
+        List<Anchor> exactRanged = new ArrayList<>();
+        List<Anchor> foldedRanged = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            List<Anchor> anchors = anchors(magics.get(i).getClause());
+            if (anchors == null) {
+                continue;
+            }
+            anchored[i] = true;
+            for (Anchor anchor : anchors) {
+                if (anchor.end - anchor.begin < MAX_EXPANDED_RANGE) {
+                    for (int offset = anchor.begin; offset <= anchor.end; offset++) {
+                        long key = offset * 2L + (anchor.ignoreCase ? 1 : 0);
+                        tries.computeIfAbsent(key, k -> new NodeBuilder())
+                                .add(anchor.bytes, 0, i);
+                    }
+                } else {
+                    Anchor ranged = new Anchor(anchor, i);
+                    if (anchor.ignoreCase) {
+                        foldedRanged.add(ranged);
+                    } else {
+                        exactRanged.add(ranged);
+                    }
+                }
+            }
+        }
+        offsets = new int[tries.size()];
+        ignoreCase = new boolean[tries.size()];
+        roots = new Node[tries.size()];
+        int i = 0;
+        for (Map.Entry<Long, NodeBuilder> e : tries.entrySet()) {
+            offsets[i] = (int) (e.getKey() / 2);
+            ignoreCase[i] = e.getKey() % 2 == 1;
+            roots[i] = e.getValue().build(true);
+            i++;
+        }
+        List<Scanner> s = new ArrayList<>(2);
+        if (!exactRanged.isEmpty()) {
+            s.add(new Scanner(exactRanged, false));
+        }
+        if (!foldedRanged.isEmpty()) {
+            s.add(new Scanner(foldedRanged, true));
+        }
+        scanners = s.toArray(new Scanner[0]);
+    }
+
+    /**
+     * Walks all the tries and runs the automata over the given data.
+     *
+     * @param data first few bytes of a document stream
+     * @return the positions of the anchored magics that may match
+     */
+    BitSet candidates(byte[] data) {
+        BitSet candidates = new BitSet(size);
+        for (int i = 0; i < offsets.length; i++) {
+            int pos = offsets[i];
+            Node node = roots[i];
+            while (node != null) {
+                for (int t : node.values) {
+                    candidates.set(t);
+                }
+                if (pos >= data.length) {
+                    break;
+                }
+                node = node.next(ignoreCase[i] ? fold(data[pos]) : data[pos]);
+                pos++;
+            }
+        }
+        for (Scanner scanner : scanners) {
+            scanner.scan(data, candidates);
+        }
+        return candidates;
+    }
+
+    /**
+     * @param index      position of the magic in the sorted magics list
+     * @param candidates result of {@link #candidates(byte[])}
+     * @return <code>false</code> if the magic can not match and need not be evaluated
+     */
+    boolean mayMatch(int index, BitSet candidates) {
+        return index >= size || !anchored[index] || candidates.get(index);
+    }
+
+    /**
+     * Lower cases ASCII letters, which is what {@link MagicDetector} does for
+     * case-insensitive string matches.
+     */
+    private static byte fold(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + 32) : b;
+    }
+
+    /**
+     * @return anchors for the clause, at least one of which is present in
+     * any data that the clause matches, or <code>null</code> if none can be derived
+     */
+    private static List<Anchor> anchors(Clause clause) {
+        if (clause instanceof MagicMatch) {
+            return anchors((MagicMatch) clause);
+        } else if (clause instanceof AndClause) {
+            // any single child is a necessary condition, use the cheapest one
+            List<Anchor> best = null;
+            for (Clause child : ((AndClause) clause).getClauses()) {
+                List<Anchor> anchors = anchors(child);
+                if (anchors != null && (best == null || cost(anchors) < cost(best))) {
+                    best = anchors;
+                }
+            }
+            return best;
+        } else if (clause instanceof OrClause) {
+            return union(((OrClause) clause).getClauses());
+        } else if (clause instanceof MinShouldMatchClause) {
+            // at least one child has to match
+            return union(((MinShouldMatchClause) clause).getClauses());
+        }
+        return null;
+    }
+
+    private static int cost(List<Anchor> anchors) {
+        int cost = 0;
+        for (Anchor anchor : anchors) {
+            cost += Math.min(anchor.end - anchor.begin + 1, MAX_EXPANDED_RANGE);
+        }
+        return cost;
+    }
+
+    private static List<Anchor> union(List<Clause> clauses) {
+        List<Anchor> union = new ArrayList<>();
+        for (Clause child : clauses) {
+            List<Anchor> anchors = anchors(child);
+            if (anchors == null) {
+                return null;
+            }
+            union.addAll(anchors);
+        }
+        return union.isEmpty() ? null : union;
+    }
+
+    private static List<Anchor> anchors(MagicMatch match) {
+        MagicDetector detector;
+        try {
+            detector = match.getDetector();
+        } catch (RuntimeException e) {
+            // invalid rule, leave it to be reported when it is evaluated
+            return null;
+        }
+        byte[] prefix = detector.getLiteral();
+        // MagicDetector zero-pads the comparison window if the data is short,
+        // so trailing zeros may match beyond the end of the data. Leave them
+        // out, then the anchor always lies within the data.
+        int length = prefix.length;
+        while (length > 0 && prefix[length - 1] == 0) {
+            length--;
+        }
+        if (length == 0) {
+            return null;
+        }
+        List<Anchor> anchors = new ArrayList<>(1);
+        int shift = detector.getLiteralOffset();
+        anchors.add(new Anchor(detector.getOffsetRangeBegin() + shift,
+                detector.getOffsetRangeEnd() + shift, Arrays.copyOf(prefix, length),
+                detector.isStringIgnoreCase(), -1));
+        return anchors;
+    }
+
+    private static class Anchor {
+
+        private final int begin;
+
+        private final int end;
+
+        private final byte[] bytes;
+
+        private final boolean ignoreCase;
+
+        private final int magic;
+
+        Anchor(int begin, int end, byte[] bytes, boolean ignoreCase, int magic) {
+            this.begin = begin;
+            this.end = end;
+            this.bytes = bytes;
+            this.ignoreCase = ignoreCase;
+            this.magic = magic;
+        }
+
+        Anchor(Anchor anchor, int magic) {
+            this(anchor.begin, anchor.end, anchor.bytes, anchor.ignoreCase, magic);
+        }
+    }
+
+    /**
+     * Aho-Corasick automaton over the anchors that have a wide offset range.
+     * A hit only counts if the anchor starts within its range.
+     */
+    private static class Scanner {
+
+        private final boolean ignoreCase;
+
+        private final Node root;
+
+        private final int[] begin;
+
+        private final int[] end;
+
+        private final int[] length;
+
+        private final int[] magic;
+
+        /**
+         * No anchor can end beyond this position
+         */
+        private final int limit;
+
+        Scanner(List<Anchor> anchors, boolean ignoreCase) {
+            this.ignoreCase = ignoreCase;
+            begin = new int[anchors.size()];
+            end = new int[anchors.size()];
+            length = new int[anchors.size()];
+            magic = new int[anchors.size()];
+            NodeBuilder builder = new NodeBuilder();
+            int max = 0;
+            for (int i = 0; i < anchors.size(); i++) {
+                Anchor anchor = anchors.get(i);
+                begin[i] = anchor.begin;
+                end[i] = anchor.end;
+                length[i] = anchor.bytes.length;
+                magic[i] = anchor.magic;
+                max = Math.max(max, anchor.end + anchor.bytes.length);
+                builder.add(anchor.bytes, 0, i);
+            }
+            limit = max;
+            root = builder.buildAutomaton();
+        }
+
+        void scan(byte[] data, BitSet candidates) {
+            int stop = Math.min(data.length, limit);
+            Node node = root;
+            for (int pos = 0; pos < stop; pos++) {
+                byte b = ignoreCase ? fold(data[pos]) : data[pos];
+                Node next = node.next(b);
+                while (next == null && node != root) {
+                    node = node.fail;
+                    next = node.next(b);
+                }
+                node = next == null ? root : next;
+                for (int a : node.values) {
+                    int start = pos - length[a] + 1;
+                    if (start >= begin[a] && start <= end[a]) {
+                        candidates.set(magic[a]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Trie node, with the outgoing edges sorted by label for a binary search.
+     * In the tries the values are the magics whose anchor ends at this node,
+     * in the automaton they are the anchors that end here, including those
+     * reached through the failure links.
+     */
+    private static class Node {
+
+        private final byte[] labels;
+
+        private final Node[] children;
+
+        /**
+         * Direct lookup table for the roots and for nodes with many children
+         */
+        private final Node[] table;
+
+        private int[] values;
+
+        private Node fail;
+
+        Node(byte[] labels, Node[] children, int[] values, boolean isRoot) {
+            this.labels = labels;
+            this.children = children;
+            this.values = values;
+            if (isRoot || labels.length >= MIN_TABLE_SIZE) {
+                table = new Node[256];
+                for (int i = 0; i < labels.length; i++) {
+                    table[labels[i] & 0xFF] = children[i];
+                }
+            } else {
+                table = null;
+            }
+        }
+
+        Node next(byte b) {
+            if (table != null) {
+                return table[b & 0xFF];
+            }
+            int i = Arrays.binarySearch(labels, b);
+            return i < 0 ? null : children[i];
+        }
+    }
+
+    private static class NodeBuilder {
+
+        private final TreeMap<Byte, NodeBuilder> children = new TreeMap<>();
+
+        private final List<Integer> values = new ArrayList<>();
+
+        void add(byte[] bytes, int pos, int value) {
+            if (pos == bytes.length) {
+                if (!values.contains(value)) {
+                    values.add(value);
+                }
+                return;
+            }
+            children.computeIfAbsent(bytes[pos], k -> new NodeBuilder()).add(bytes, pos + 1, value);
+        }
+
+        Node build(boolean isRoot) {
+            byte[] labels = children.isEmpty() ? NO_LABELS : new byte[children.size()];
+            Node[] nodes = children.isEmpty() ? NO_CHILDREN : new Node[children.size()];
+            int i = 0;
+            for (Map.Entry<Byte, NodeBuilder> e : children.entrySet()) {
+                labels[i] = e.getKey();
+                nodes[i] = e.getValue().build(false);
+                i++;
+            }
+            int[] v = NO_VALUES;
+            if (!values.isEmpty()) {
+                v = new int[values.size()];
+                for (int j = 0; j < v.length; j++) {
+                    v[j] = values.get(j);
+                }
+            }
+            return new Node(labels, nodes, v, isRoot);
+        }
+
+        /**
+         * Builds the trie and then adds the failure links and merges the
+         * values along them, breadth first.
+         */
+        Node buildAutomaton() {
+            Node root = build(true);
+            root.fail = root;
+            Deque<Node> queue = new ArrayDeque<>();
+            for (Node child : root.children) {
+                child.fail = root;
+                queue.add(child);
+            }
+            while (!queue.isEmpty()) {
+                Node node = queue.poll();
+                for (int i = 0; i < node.children.length; i++) {
+                    Node child = node.children[i];
+                    byte b = node.labels[i];
+                    Node f = node.fail;
+                    Node next = f.next(b);
+                    while (next == null && f != root) {
+                        f = f.fail;
+                        next = f.next(b);
+                    }
+                    child.fail = next == null ? root : next;
+                    if (child.fail.values.length > 0) {
+                        int[] merged = Arrays.copyOf(child.values,
+                                child.values.length + child.fail.values.length);
+                        System.arraycopy(child.fail.values, 0, merged, child.values.length,
+                                child.fail.values.length);
+                        child.values = merged;
+                    }
+                    queue.add(child);
+                }
+            }
+            return root;
+        }
+    }
+}
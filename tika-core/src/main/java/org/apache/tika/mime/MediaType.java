@@ -26,6 +26,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -57,12 +58,24 @@ public final class MediaType implements Comparable<MediaType>, Serializable {
             "(?is)\\s*(charset\\s*=\\s*[^\\c;\\s]+)\\s*;\\s*" + VALID_CHARS + "\\s*/\\s*" +
                     VALID_CHARS + "\\s*");
 
+    /**
+     * Maximum number of entries in {@link #SIMPLE_TYPES} and in
+     * {@link #PARSED_TYPES}, beyond those of the registry.
+     */
+    private static final int MAX_INTERNED_TYPES = 10000;
+
     /**
      * Set of basic types with normalized "type/subtype" names.
      * Used to optimize type lookup and to avoid having too many
      * {@link MediaType} instances in memory.
      */
-    private static final Map<String, MediaType> SIMPLE_TYPES = new HashMap<>();
+    private static final Map<String, MediaType> SIMPLE_TYPES = new ConcurrentHashMap<>();
+
+    /**
+     * Other strings that have been parsed, e.g. with parameters or in
+     * upper case, and their media types.
+     */
+    private static final Map<String, MediaType> PARSED_TYPES = new ConcurrentHashMap<>();
 
     public static final MediaType OCTET_STREAM = parse("application/octet-stream");
 
@@ -249,24 +262,116 @@ public final class MediaType implements Comparable<MediaType>, Serializable {
         }
 
         // Optimization for the common cases
-        synchronized (SIMPLE_TYPES) {
-            MediaType type = SIMPLE_TYPES.get(string);
-            if (type == null) {
-                int slash = string.indexOf('/');
-                if (slash == -1) {
-                    return null;
-                } else if (SIMPLE_TYPES.size() < 10000 &&
-                        isSimpleName(string.substring(0, slash)) &&
-                        isSimpleName(string.substring(slash + 1))) {
-                    type = new MediaType(string, slash);
-                    SIMPLE_TYPES.put(string, type);
+        MediaType type = SIMPLE_TYPES.get(string);
+        if (type != null) {
+            return type;
+        }
+        int slash = string.indexOf('/');
+        if (slash == -1) {
+            return null;
+        }
+        if (isSimpleName(string, 0, slash) &&
+                isSimpleName(string, slash + 1, string.length())) {
+            type = new MediaType(string, slash);
+            if (SIMPLE_TYPES.size() < MAX_INTERNED_TYPES) {
+                MediaType previous = SIMPLE_TYPES.putIfAbsent(string, type);
+                if (previous != null) {
+                    return previous;
                 }
             }
-            if (type != null) {
-                return type;
-            }
+            return type;
+        }
+
+        type = PARSED_TYPES.get(string);
+        if (type != null) {
+            return type;
+        }
+        type = parseTokens(string);
+        if (type == null) {
+            type = parseWithPatterns(string);
+        }
+        if (type != null && PARSED_TYPES.size() < MAX_INTERNED_TYPES) {
+            PARSED_TYPES.put(string, type);
         }
+        return type;
+    }
 
+    /**
+     * Parses the common form "type/subtype(; parameter=...)*" without regular
+     * expressions. Anything out of the ordinary, such as non-ASCII or control
+     * characters, is left to {@link #parseWithPatterns(String)}.
+     *
+     * @return parsed media type, or <code>null</code> if the string is not of
+     * the common form
+     */
+    private static MediaType parseTokens(String string) {
+        int length = string.length();
+        int i = skipBlanks(string, 0);
+        int typeStart = i;
+        i = skipToken(string, i);
+        int typeEnd = i;
+        i = skipBlanks(string, i);
+        if (typeEnd == typeStart || i == length || string.charAt(i) != '/') {
+            return null;
+        }
+        i = skipBlanks(string, i + 1);
+        int subtypeStart = i;
+        i = skipToken(string, i);
+        int subtypeEnd = i;
+        i = skipBlanks(string, i);
+        if (subtypeEnd == subtypeStart || (i < length && string.charAt(i) != ';')) {
+            return null;
+        }
+        return new MediaType(string.substring(typeStart, typeEnd),
+                string.substring(subtypeStart, subtypeEnd),
+                parseParameters(string.substring(i)));
+    }
+
+    private static int skipBlanks(String string, int i) {
+        while (i < string.length() && (string.charAt(i) == ' ' || string.charAt(i) == '\t')) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipToken(String string, int i) {
+        while (i < string.length() && isTokenChar(string.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * @return whether the character is a printable ASCII character that may be
+     * part of a type or subtype, see <a href="http://www.ietf.org/rfc/rfc2045.txt">RFC 2045</a>
+     */
+    private static boolean isTokenChar(char c) {
+        if (c <= ' ' || c >= 0x7f) {
+            return false;
+        }
+        switch (c) {
+            case '(':
+            case ')':
+            case '<':
+            case '>':
+            case '@':
+            case ',':
+            case ';':
+            case ':':
+            case '\\':
+            case '"':
+            case '/':
+            case '[':
+            case ']':
+            case '?':
+            case '=':
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    private static MediaType parseWithPatterns(String string) {
         Matcher matcher;
         matcher = TYPE_PATTERN.matcher(string);
         if (matcher.matches()) {
@@ -282,15 +387,36 @@ public final class MediaType implements Comparable<MediaType>, Serializable {
         return null;
     }
 
+    /**
+     * Makes the given type the one that {@link #parse(String)} returns for
+     * its string form, e.g. for the types of a {@link MediaTypeRegistry}.
+     * Types with parameters are not interned.
+     *
+     * @param type media type
+     * @return the interned type, which may be an equal type that was
+     * interned before
+     */
+    static MediaType intern(MediaType type) {
+        if (type.hasParameters()) {
+            return type;
+        }
+        MediaType previous = SIMPLE_TYPES.putIfAbsent(type.string, type);
+        return previous != null ? previous : type;
+    }
+
     private static boolean isSimpleName(String name) {
-        for (int i = 0; i < name.length(); i++) {
-            char c = name.charAt(i);
+        return isSimpleName(name, 0, name.length());
+    }
+
+    private static boolean isSimpleName(String string, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = string.charAt(i);
             if (c != '-' && c != '+' && c != '.' && c != '_' && !('0' <= c && c <= '9') &&
                     !('a' <= c && c <= 'z')) {
                 return false;
             }
         }
-        return name.length() > 0;
+        return end > start;
     }
 
     private static Map<String, String> parseParameters(String string) {
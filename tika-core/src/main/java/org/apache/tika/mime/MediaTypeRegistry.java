@@ -99,12 +99,19 @@ public class MediaTypeRegistry implements Serializable {
         return children;
     }
 
+    /**
+     * Adds a canonical type. The type is also interned, so that
+     * {@link MediaType#parse(String)} finds it without parsing.
+     *
+     * @param type canonical type
+     */
     public void addType(MediaType type) {
+        type = MediaType.intern(type);
         registry.put(type, type);
     }
 
     public void addAlias(MediaType type, MediaType alias) {
-        registry.put(alias, type);
+        registry.put(MediaType.intern(alias), type);
     }
 
     public void addSuperType(MediaType type, MediaType supertype) {
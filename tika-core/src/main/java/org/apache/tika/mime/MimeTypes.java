@@ -25,6 +25,7 @@ import java.io.Serializable;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -109,6 +110,10 @@ public final class MimeTypes implements Detector, Serializable {
      * Sorted list of all registered magics
      */
     private final List<Magic> magics = new ArrayList<>();
+    /**
+     * Anchor index over the sorted magics, built by {@link #init()}
+     */
+    private transient MagicIndex magicIndex;
     /**
      * Sorted list of all registered rootXML
      */
@@ -229,13 +234,19 @@ public final class MimeTypes implements Detector, Serializable {
             return rootMimeTypeL;
         }
 
-        // Then, check for magic bytes
+        // Then, check for magic bytes, skipping the ones the index rules out
+        MagicIndex index = magicIndex;
+        BitSet candidates = index != null ? index.candidates(data) : null;
         List<MimeType> result = new ArrayList<>(1);
         int currentPriority = -1;
-        for (Magic magic : magics) {
+        for (int m = 0; m < magics.size(); m++) {
+            Magic magic = magics.get(m);
             if (currentPriority > 0 && currentPriority > magic.getPriority()) {
                 break;
             }
+            if (candidates != null && !index.mayMatch(m, candidates)) {
+                continue;
+            }
             if (magic.eval(data)) {
                 result.add(magic.getType());
                 currentPriority = magic.getPriority();
@@ -266,10 +277,14 @@ public final class MimeTypes implements Detector, Serializable {
                         // So, if we got here, we might have a HTML file that's
                         //  invalid XML. So, try our HTML magics explicitly (TIKA-2419)
                         boolean isHTML = false;
-                        for (Magic magic : magics) {
+                        for (int m = 0; m < magics.size(); m++) {
+                            Magic magic = magics.get(m);
                             if (!magic.getType().equals(htmlMimeType)) {
                                 continue;
                             }
+                            if (candidates != null && !index.mayMatch(m, candidates)) {
+                                continue;
+                            }
                             if (magic.eval(data)) {
                                 isHTML = true;
                                 break;
@@ -501,6 +516,7 @@ public final class MimeTypes implements Detector, Serializable {
         }
         Collections.sort(magics);
         Collections.sort(xmls);
+        magicIndex = new MagicIndex(magics);
     }
 
     /**
@@ -61,6 +61,10 @@ class MinShouldMatchClause implements Clause {
         return false;
     }
 
+    List<Clause> getClauses() {
+        return clauses;
+    }
+
     public int size() {
         int size = 0;
         for (Clause clause : clauses) {
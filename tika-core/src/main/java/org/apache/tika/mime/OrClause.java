@@ -35,6 +35,10 @@ class OrClause implements Clause {
         return false;
     }
 
+    List<Clause> getClauses() {
+        return clauses;
+    }
+
     public int size() {
         int size = 0;
         for (Clause clause : clauses) {
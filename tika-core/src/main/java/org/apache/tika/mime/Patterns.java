@@ -17,11 +17,13 @@
 package org.apache.tika.mime;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.regex.Pattern;
 
 /**
  * Defines a MimeType pattern.
@@ -31,7 +33,7 @@ class Patterns implements Serializable {
     /**
      * Serial version UID.
      */
-    private static final long serialVersionUID = -5778015347278111140L;
+    private static final long serialVersionUID = -5778015347278111141L;
 
     private final MediaTypeRegistry registry;
 
@@ -44,13 +46,26 @@ class Patterns implements Serializable {
      * Index of extension patterns of the form "*extension".
      */
     private final Map<String, MimeType> extensions = new HashMap<>();
+
+    /**
+     * The extension patterns as a trie of their reversed characters, so that
+     * the longest matching extension can be found in one pass over the end of
+     * a name.
+     */
+    private final SuffixNode suffixes = new SuffixNode();
+
     /**
      * Index of generic glob patterns, sorted by length.
      */
     private final SortedMap<String, MimeType> globs =
             new TreeMap<>(new LengthComparator());
-    private int minExtensionLength = Integer.MAX_VALUE;
-    private int maxExtensionLength = 0;
+
+    /**
+     * The generic glob patterns, compiled in the order of {@link #globs}.
+     * Built on first use, and reset whenever a glob is added. Both happen
+     * while holding the lock on {@link #globs}.
+     */
+    private transient volatile CompiledGlob[] compiledGlobs;
 
     public Patterns(MediaTypeRegistry registry) {
         this.registry = registry;
@@ -101,9 +116,7 @@ class Patterns implements Serializable {
         MimeType previous = extensions.get(extension);
         if (previous == null || registry.isSpecializationOf(previous.getType(), type.getType())) {
             extensions.put(extension, type);
-            int length = extension.length();
-            minExtensionLength = Math.min(minExtensionLength, length);
-            maxExtensionLength = Math.max(maxExtensionLength, length);
+            suffixes.put(extension, type);
         } else if (previous == type ||
                 registry.isSpecializationOf(type.getType(), previous.getType())) {
             // do nothing
@@ -113,14 +126,18 @@ class Patterns implements Serializable {
     }
 
     private void addGlob(String glob, MimeType type) throws MimeTypeException {
-        MimeType previous = globs.get(glob);
-        if (previous == null || registry.isSpecializationOf(previous.getType(), type.getType())) {
-            globs.put(glob, type);
-        } else if (previous == type ||
-                registry.isSpecializationOf(type.getType(), previous.getType())) {
-            // do nothing
-        } else {
-            throw new MimeTypeException("Conflicting glob pattern: " + glob);
+        synchronized (globs) {
+            MimeType previous = globs.get(glob);
+            if (previous == null ||
+                    registry.isSpecializationOf(previous.getType(), type.getType())) {
+                globs.put(glob, type);
+                compiledGlobs = null;
+            } else if (previous == type ||
+                    registry.isSpecializationOf(type.getType(), previous.getType())) {
+                // do nothing
+            } else {
+                throw new MimeTypeException("Conflicting glob pattern: " + glob);
+            }
         }
     }
 
@@ -144,29 +161,46 @@ class Patterns implements Serializable {
         }
 
         // First, try exact match of the provided resource name
-        if (names.containsKey(name)) {
-            return names.get(name);
+        MimeType type = names.get(name);
+        if (type != null) {
+            return type;
         }
 
         // Then try "extension" (*.xxx) matching
-        int maxLength = Math.min(maxExtensionLength, name.length());
-        for (int n = maxLength; n >= minExtensionLength; n--) {
-            String extension = name.substring(name.length() - n);
-            if (extensions.containsKey(extension)) {
-                return extensions.get(extension);
-            }
+        type = suffixes.longestMatch(name);
+        if (type != null) {
+            return type;
         }
 
         // And finally, try complex regexp matching
-        for (Map.Entry<String, MimeType> entry : globs.entrySet()) {
-            if (name.matches(entry.getKey())) {
-                return entry.getValue();
+        for (CompiledGlob glob : getCompiledGlobs()) {
+            if (glob.pattern.matcher(name).matches()) {
+                return glob.type;
             }
         }
 
         return null;
     }
 
+    private CompiledGlob[] getCompiledGlobs() {
+        CompiledGlob[] compiled = compiledGlobs;
+        if (compiled == null) {
+            synchronized (globs) {
+                compiled = compiledGlobs;
+                if (compiled == null) {
+                    compiled = new CompiledGlob[globs.size()];
+                    int i = 0;
+                    for (Map.Entry<String, MimeType> entry : globs.entrySet()) {
+                        compiled[i++] = new CompiledGlob(Pattern.compile(entry.getKey()),
+                                entry.getValue());
+                    }
+                    compiledGlobs = compiled;
+                }
+            }
+        }
+        return compiled;
+    }
+
     private String compile(String glob) {
         StringBuilder pattern = new StringBuilder();
         pattern.append("\\A");
@@ -187,6 +221,87 @@ class Patterns implements Serializable {
         return pattern.toString();
     }
 
+    private static final class CompiledGlob {
+
+        private final Pattern pattern;
+
+        private final MimeType type;
+
+        private CompiledGlob(Pattern pattern, MimeType type) {
+            this.pattern = pattern;
+            this.type = type;
+        }
+    }
+
+    /**
+     * Node of a trie of reversed extensions. The children are kept in
+     * arrays sorted by character, as most nodes have only a few of them.
+     */
+    private static final class SuffixNode implements Serializable {
+
+        /**
+         * Serial version UID.
+         */
+        private static final long serialVersionUID = 3129164870458732861L;
+
+        private char[] keys = new char[0];
+
+        private SuffixNode[] children = new SuffixNode[0];
+
+        /**
+         * Type of the extension that ends at this node, if any.
+         */
+        private MimeType type;
+
+        void put(String extension, MimeType type) {
+            SuffixNode node = this;
+            for (int i = extension.length() - 1; i >= 0; i--) {
+                node = node.getOrAddChild(extension.charAt(i));
+            }
+            node.type = type;
+        }
+
+        /**
+         * @return the type of the longest extension that the name ends with,
+         * or <code>null</code> if there is none
+         */
+        MimeType longestMatch(String name) {
+            MimeType match = type;
+            SuffixNode node = this;
+            for (int i = name.length() - 1; i >= 0 && node != null; i--) {
+                node = node.getChild(name.charAt(i));
+                if (node != null && node.type != null) {
+                    match = node.type;
+                }
+            }
+            return match;
+        }
+
+        private SuffixNode getChild(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            return i < 0 ? null : children[i];
+        }
+
+        private SuffixNode getOrAddChild(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            if (i >= 0) {
+                return children[i];
+            }
+            i = -i - 1;
+            char[] newKeys = new char[keys.length + 1];
+            SuffixNode[] newChildren = new SuffixNode[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, i);
+            System.arraycopy(children, 0, newChildren, 0, i);
+            newKeys[i] = c;
+            newChildren[i] = new SuffixNode();
+            System.arraycopy(keys, i, newKeys, i + 1, keys.length - i);
+            System.arraycopy(children, i, newChildren, i + 1, children.length - i);
+            keys = newKeys;
+            children = newChildren;
+            return newChildren[i];
+        }
+    }
+
     private static final class LengthComparator implements Comparator<String>, Serializable {
 
         /**
@@ -23,9 +23,12 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.xml.sax.ContentHandler;
 import org.xml.sax.SAXException;
@@ -70,6 +73,32 @@ public class CompositeParser implements Parser {
      */
     private Parser fallback = new EmptyParser();
 
+    /**
+     * Maximum number of dispatch indexes that are kept, one for each set
+     * of context objects that the component parsers' types depend on.
+     */
+    private static final int MAX_DISPATCH_INDEXES = 4;
+
+    /**
+     * Whether a class overrides {@link #getParsers(ParseContext)}.
+     */
+    private static final ClassValue<Boolean> OVERRIDES_GET_PARSERS = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                return type.getMethod("getParsers", ParseContext.class).getDeclaringClass() !=
+                        CompositeParser.class;
+            } catch (NoSuchMethodException e) {
+                return false;
+            }
+        }
+    };
+
+    /**
+     * Dispatch indexes, most recently built last.
+     */
+    private transient volatile DispatchIndex[] dispatchIndexes = new DispatchIndex[0];
+
     public CompositeParser(MediaTypeRegistry registry, List<Parser> parsers,
                            Collection<Class<? extends Parser>> excludeParsers) {
         if (excludeParsers == null || excludeParsers.isEmpty()) {
@@ -97,14 +126,64 @@ public class CompositeParser implements Parser {
         this(new MediaTypeRegistry());
     }
 
+    /**
+     * Returns the component parsers by media type.
+     * <p>
+     * Subclasses that override this method are dispatched through it for
+     * each document, without the index that is otherwise kept. To change
+     * the parsers that documents are dispatched to, override
+     * {@link #getDispatchParsers()} instead.
+     *
+     * @param context parse context
+     * @return component parsers, keyed by media type
+     */
     public Map<MediaType, Parser> getParsers(ParseContext context) {
-        Map<MediaType, Parser> map = new HashMap<>();
-        for (Parser parser : parsers) {
-            for (MediaType type : parser.getSupportedTypes(context)) {
-                map.put(registry.normalize(type), parser);
+        return new HashMap<>(getDispatchIndex(context).parsers);
+    }
+
+    /**
+     * Returns the parsers that are indexed by media type, in increasing
+     * order of priority: if two parsers support the same type, the later
+     * one is used.
+     *
+     * @return component parsers
+     * @since Apache Tika 4.0.0
+     */
+    protected List<Parser> getDispatchParsers() {
+        return parsers;
+    }
+
+    /**
+     * Returns the index of the component parsers by media type.
+     * <p>
+     * The types that a parser supports may depend on objects in the parse
+     * context. The index records which objects the component parsers looked
+     * up while it was built, and is reused for contexts that hold the same
+     * instances under those keys, so a lookup doesn't ask the component parsers
+     * for their types again. Changes to a parser's types that don't come from
+     * the context, or that come from changing a context object in place, are
+     * not seen; set the parsers again with {@link #setParsers(Map)} after such
+     * changes.
+     */
+    private DispatchIndex getDispatchIndex(ParseContext context) {
+        List<Parser> dispatchParsers = getDispatchParsers();
+        DispatchIndex[] indexes = dispatchIndexes;
+        if (indexes == null) {
+            //deserialized
+            indexes = new DispatchIndex[0];
+        }
+        for (int i = indexes.length - 1; i >= 0; i--) {
+            if (indexes[i].isValid(registry, dispatchParsers, context)) {
+                return indexes[i];
             }
         }
-        return map;
+        DispatchIndex index = new DispatchIndex(registry, dispatchParsers, context);
+        int keep = Math.min(indexes.length, MAX_DISPATCH_INDEXES - 1);
+        DispatchIndex[] updated = new DispatchIndex[keep + 1];
+        System.arraycopy(indexes, indexes.length - keep, updated, 0, keep);
+        updated[keep] = index;
+        dispatchIndexes = updated;
+        return index;
     }
 
     private boolean isExcluded(Collection<Class<? extends Parser>> excludeParsers,
@@ -172,6 +251,7 @@ public class CompositeParser implements Parser {
      */
     public void setMediaTypeRegistry(MediaTypeRegistry registry) {
         this.registry = registry;
+        this.dispatchIndexes = new DispatchIndex[0];
     }
 
     /**
@@ -203,6 +283,7 @@ public class CompositeParser implements Parser {
             this.parsers.add(ParserDecorator
                     .withTypes(entry.getValue(), Collections.singleton(entry.getKey())));
         }
+        this.dispatchIndexes = new DispatchIndex[0];
     }
 
     /**
@@ -241,32 +322,39 @@ public class CompositeParser implements Parser {
     }
 
     protected Parser getParser(Metadata metadata, ParseContext context) {
-        Map<MediaType, Parser> map = getParsers(context);
         //check for parser override first
         String contentTypeString = metadata.get(TikaCoreProperties.CONTENT_TYPE_PARSER_OVERRIDE);
         if (contentTypeString == null) {
             contentTypeString = metadata.get(Metadata.CONTENT_TYPE);
         }
         MediaType type = MediaType.parse(contentTypeString);
-        if (type != null) {
+        if (type == null) {
+            return fallback;
+        }
+        if (OVERRIDES_GET_PARSERS.get(getClass())) {
+            Map<MediaType, Parser> map = getParsers(context);
             // We always work on the normalised, canonical form
             type = registry.normalize(type);
-        }
-        while (type != null) {
-            // Try finding a parser for the type
-            Parser parser = map.get(type);
-            if (parser != null) {
-                return parser;
+            while (type != null) {
+                // Try finding a parser for the type
+                Parser parser = map.get(type);
+                if (parser != null) {
+                    return parser;
+                }
+                // Failing that, try for the parent of the type
+                type = registry.getSupertype(type);
             }
-
-            // Failing that, try for the parent of the type
-            type = registry.getSupertype(type);
+            return fallback;
         }
-        return fallback;
+        Parser parser = getDispatchIndex(context).getParser(type);
+        return parser != null ? parser : fallback;
     }
 
     public Set<MediaType> getSupportedTypes(ParseContext context) {
-        return getParsers(context).keySet();
+        if (OVERRIDES_GET_PARSERS.get(getClass())) {
+            return getParsers(context).keySet();
+        }
+        return getDispatchIndex(context).supportedTypes;
     }
 
     /**
@@ -345,4 +433,157 @@ public class CompositeParser implements Parser {
             }
         }
     }
+
+    /**
+     * Component parsers by media type, and the parsers that were found for the
+     * media types of documents, including the walk up the type hierarchy.
+     */
+    private static final class DispatchIndex {
+
+        /**
+         * Maximum number of media types whose parser is remembered. Media types
+         * with parameters are remembered separately.
+         */
+        private static final int MAX_RESOLVED_TYPES = 1000;
+
+        /**
+         * Marks media types for which no component parser was found.
+         */
+        private static final Parser NO_PARSER = new EmptyParser();
+
+        private final MediaTypeRegistry registry;
+        private final List<Parser> dispatchParserList;
+        private final Parser[] dispatchParsers;
+        //the context objects that the types were built from, by key
+        private final Map<String, Object> contextObjects;
+        //whether the types depend on all the objects in the context
+        private final boolean allContextObjects;
+        private final Map<MediaType, Parser> parsers;
+        private final Set<MediaType> supportedTypes;
+        private final ConcurrentMap<MediaType, Parser> resolved = new ConcurrentHashMap<>();
+
+        private DispatchIndex(MediaTypeRegistry registry, List<Parser> dispatchParsers,
+                              ParseContext context) {
+            this.registry = registry;
+            this.dispatchParserList = dispatchParsers;
+            this.dispatchParsers = dispatchParsers.toArray(new Parser[0]);
+            RecordingParseContext recording = new RecordingParseContext(context);
+            Map<MediaType, Parser> map = new HashMap<>();
+            for (Parser parser : this.dispatchParsers) {
+                for (MediaType type : parser.getSupportedTypes(recording)) {
+                    map.put(registry.normalize(type), parser);
+                }
+            }
+            this.parsers = map;
+            this.supportedTypes = Collections.unmodifiableSet(map.keySet());
+            this.allContextObjects = recording.allKeys;
+            this.contextObjects = new HashMap<>();
+            for (String key : allContextObjects ? context.keySet() : recording.keys) {
+                contextObjects.put(key, context.getObject(key));
+            }
+        }
+
+        private boolean isValid(MediaTypeRegistry registry, List<Parser> dispatchParsers,
+                                ParseContext context) {
+            if (registry != this.registry || !isSameParsers(dispatchParsers)) {
+                return false;
+            }
+            if (allContextObjects && !context.keySet().equals(contextObjects.keySet())) {
+                return false;
+            }
+            for (Map.Entry<String, Object> e : contextObjects.entrySet()) {
+                if (context.getObject(e.getKey()) != e.getValue()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean isSameParsers(List<Parser> dispatchParsers) {
+            if (dispatchParsers == dispatchParserList) {
+                return true;
+            }
+            if (dispatchParsers.size() != this.dispatchParsers.length) {
+                return false;
+            }
+            for (int i = 0; i < this.dispatchParsers.length; i++) {
+                if (dispatchParsers.get(i) != this.dispatchParsers[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return the parser for the type or its closest supertype, or null
+         */
+        private Parser getParser(MediaType type) {
+            Parser parser = resolved.get(type);
+            if (parser == null) {
+                parser = NO_PARSER;
+                // We always work on the normalised, canonical form
+                MediaType t = registry.normalize(type);
+                while (t != null) {
+                    // Try finding a parser for the type
+                    Parser p = parsers.get(t);
+                    if (p != null) {
+                        parser = p;
+                        break;
+                    }
+                    // Failing that, try for the parent of the type
+                    t = registry.getSupertype(t);
+                }
+                if (resolved.size() < MAX_RESOLVED_TYPES) {
+                    resolved.put(type, parser);
+                }
+            }
+            return parser == NO_PARSER ? null : parser;
+        }
+    }
+
+    /**
+     * Parse context that records which objects are looked up in the
+     * context that it wraps.
+     */
+    private static final class RecordingParseContext extends ParseContext {
+
+        private static final long serialVersionUID = -3275081591637853126L;
+
+        private final ParseContext context;
+        private final Set<String> keys = new HashSet<>();
+        private boolean allKeys = false;
+
+        private RecordingParseContext(ParseContext context) {
+            this.context = context;
+        }
+
+        @Override
+        public <T> void set(Class<T> key, T value) {
+            context.set(key, value);
+        }
+
+        @Override
+        public <T> T get(Class<T> key) {
+            keys.add(key.getName());
+            return context.get(key);
+        }
+
+        @Override
+        public Object getObject(String key) {
+            keys.add(key);
+            return context.getObject(key);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            allKeys = true;
+            return context.isEmpty();
+        }
+
+        @Override
+        public Set<String> keySet() {
+            allKeys = true;
+            return context.keySet();
+        }
+    }
 }
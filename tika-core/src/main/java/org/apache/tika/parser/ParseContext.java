@@ -85,6 +85,28 @@ public class ParseContext implements Serializable {
         }
     }
 
+    /**
+     * Returns the object in this context that was added under the given
+     * key, as listed by {@link #keySet()}.
+     *
+     * @param key name of the interface implemented by the requested object
+     * @return the object, or <code>null</code> if not found
+     * @since Apache Tika 4.0.0
+     */
+    public Object getObject(String key) {
+        return context.get(key);
+    }
+
+    /**
+     * @return a shallow copy of this context, e.g. for parsing an embedded
+     * document on another thread
+     */
+    ParseContext copy() {
+        ParseContext copy = new ParseContext();
+        copy.context.putAll(context);
+        return copy;
+    }
+
     public boolean isEmpty() {
         return context.size() == 0;
     }
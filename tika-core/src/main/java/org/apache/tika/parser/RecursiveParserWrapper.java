@@ -18,7 +18,21 @@ package org.apache.tika.parser;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.io.input.CloseShieldInputStream;
@@ -26,12 +40,15 @@ import org.xml.sax.Attributes;
 import org.xml.sax.ContentHandler;
 import org.xml.sax.SAXException;
 
+import org.apache.tika.config.TikaTaskTimeout;
 import org.apache.tika.exception.CorruptedFileException;
 import org.apache.tika.exception.EncryptedDocumentException;
 import org.apache.tika.exception.TikaException;
 import org.apache.tika.exception.WriteLimitReachedException;
 import org.apache.tika.exception.ZeroByteFileException;
+import org.apache.tika.extractor.EmbeddedDocumentExtractor;
 import org.apache.tika.extractor.ParentContentHandler;
+import org.apache.tika.extractor.ParsingEmbeddedDocumentExtractor;
 import org.apache.tika.io.FilenameUtils;
 import org.apache.tika.io.TemporaryResources;
 import org.apache.tika.io.TikaInputStream;
@@ -42,6 +59,7 @@ import org.apache.tika.sax.AbstractRecursiveParserWrapperHandler;
 import org.apache.tika.sax.ContentHandlerFactory;
 import org.apache.tika.sax.RecursiveParserWrapperHandler;
 import org.apache.tika.sax.SecureContentHandler;
+import org.apache.tika.sax.WriteLimitCounter;
 import org.apache.tika.sax.WriteLimiter;
 import org.apache.tika.utils.ExceptionUtils;
 import org.apache.tika.utils.ParserUtils;
@@ -72,6 +90,9 @@ import org.apache.tika.utils.ParserUtils;
  * Note that this wrapper holds all data in memory and is not appropriate
  * for files with content too large to be held in memory.
  * <p>
+ * The direct embedded documents of the container document can optionally
+ * be parsed concurrently, see {@link #setEmbeddedExecutor(ExecutorService)}.
+ * <p>
  * The unit tests for this class are in the tika-parsers module.
  * </p>
  */
@@ -82,10 +103,21 @@ public class RecursiveParserWrapper extends ParserDecorator {
      */
     private static final long serialVersionUID = 9086536568120690938L;
 
+    /**
+     * Default maximum number of embedded documents that have been read from
+     * the container, but that have not been parsed yet.
+     */
+    public static final int DEFAULT_MAX_PENDING_EMBEDDED = 16;
+
 
     private final boolean catchEmbeddedExceptions;
 
     private final boolean inlineContent = false;
+
+    private transient ExecutorService embeddedExecutor = null;
+
+    private int maxPendingEmbedded = DEFAULT_MAX_PENDING_EMBEDDED;
+
     /**
      * Initialize the wrapper with {@link #catchEmbeddedExceptions} set
      * to <code>true</code> as default.
@@ -115,8 +147,72 @@ public class RecursiveParserWrapper extends ParserDecorator {
         return getWrappedParser().getSupportedTypes(context);
     }
 
+    /**
+     * Parse the direct embedded documents of the container document
+     * concurrently on the given executor, for example the attachments of an
+     * email. Each such embedded document is read into memory or a temporary
+     * file when the container reports it, and it is parsed together with its
+     * own embedded documents as a single task. The results are passed to the
+     * {@link AbstractRecursiveParserWrapperHandler} in the same order, and with
+     * the same embedded ids, as when parsing serially.
+     * <p>
+     * Embedded documents that depend on the state of the container parser,
+     * i.e. that have an open container or that are inline, are still parsed
+     * on the calling thread. The write limit and the maximum number of
+     * embedded resources are shared by all tasks, and the
+     * {@link TikaTaskTimeout} in the parse context, if any, bounds the time
+     * spent waiting for the tasks.
+     * <p>
+     * Unlike the ids and names, the shared write limit is consumed in the
+     * order in which the tasks write, not in document order. Once the limit
+     * is reached, which embedded documents have been truncated may therefore
+     * differ from a serial parse, though the total number of characters is
+     * the same.
+     * <p>
+     * This is only used if embedded exceptions are caught, see
+     * {@link #RecursiveParserWrapper(Parser, boolean)}. Other exceptions,
+     * such as a {@link WriteLimitReachedException}, are thrown once the
+     * results of the embedded documents before them have been passed on; later
+     * embedded documents are then dropped.
+     * <p>
+     * The executor is not shut down by this class.
+     *
+     * @param embeddedExecutor executor, or <code>null</code> to parse serially (the default)
+     * @since Apache Tika 4.0.0
+     */
+    public void setEmbeddedExecutor(ExecutorService embeddedExecutor) {
+        this.embeddedExecutor = embeddedExecutor;
+    }
+
+    public ExecutorService getEmbeddedExecutor() {
+        return embeddedExecutor;
+    }
 
     /**
+     * Maximum number of embedded documents per container that have been read,
+     * but that have not been parsed yet. When this is reached, the container
+     * parser waits. The default is {@link #DEFAULT_MAX_PENDING_EMBEDDED}.
+     *
+     * @param maxPendingEmbedded maximum number of pending embedded documents
+     * @since Apache Tika 4.0.0
+     */
+    public void setMaxPendingEmbedded(int maxPendingEmbedded) {
+        if (maxPendingEmbedded < 1) {
+            throw new IllegalArgumentException("maxPendingEmbedded must be > 0");
+        }
+        this.maxPendingEmbedded = maxPendingEmbedded;
+    }
+
+    public int getMaxPendingEmbedded() {
+        return maxPendingEmbedded;
+    }
+
+
+    /**
+     * The characters written by the container and all of its embedded documents
+     * are counted by a {@link WriteLimitCounter}, which is left in the
+     * <code>context</code> so that callers can read the totals after the parse.
+     *
      * @param stream
      * @param recursiveParserWrapperHandler -- handler must implement
      * {@link RecursiveParserWrapperHandler}
@@ -133,9 +229,11 @@ public class RecursiveParserWrapper extends ParserDecorator {
             throws IOException, SAXException, TikaException {
         //this tracks the state of the parent parser, per call to #parse
         ParserState parserState;
+        boolean concurrent = embeddedExecutor != null && catchEmbeddedExceptions;
         if (recursiveParserWrapperHandler instanceof AbstractRecursiveParserWrapperHandler) {
             parserState = new ParserState(
-                    (AbstractRecursiveParserWrapperHandler) recursiveParserWrapperHandler);
+                    (AbstractRecursiveParserWrapperHandler) recursiveParserWrapperHandler,
+                    concurrent);
         } else {
             throw new IllegalStateException(
                     "ContentHandler must implement RecursiveParserWrapperHandler");
@@ -146,6 +244,9 @@ public class RecursiveParserWrapper extends ParserDecorator {
         ContentHandler localHandler =
                 parserState.recursiveParserWrapperHandler.getNewContentHandler();
         long started = System.currentTimeMillis();
+        if (concurrent) {
+            parserState.queue = new EmbeddedTaskQueue(parserState, metadata, context);
+        }
         parserState.recursiveParserWrapperHandler.startDocument();
         TemporaryResources tmp = new TemporaryResources();
         int writeLimit = -1;
@@ -159,13 +260,21 @@ public class RecursiveParserWrapper extends ParserDecorator {
                 throwOnWriteLimitReached = ((WriteLimiter)factory).isThrowOnWriteLimitReached();
             }
         }
+        WriteLimitCounter writeLimitCounter = new WriteLimitCounter(writeLimit);
+        context.set(WriteLimitCounter.class, writeLimitCounter);
         try {
             TikaInputStream tis = TikaInputStream.get(stream, tmp, metadata);
             RecursivelySecureContentHandler secureContentHandler =
-                    new RecursivelySecureContentHandler(localHandler, tis, new SecureHandlerCounter(writeLimit),
+                    new RecursivelySecureContentHandler(localHandler, tis, writeLimitCounter,
                             throwOnWriteLimitReached, context);
             context.set(RecursivelySecureContentHandler.class, secureContentHandler);
-            getWrappedParser().parse(tis, secureContentHandler, metadata, context);
+            try {
+                getWrappedParser().parse(tis, secureContentHandler, metadata, context);
+            } finally {
+                if (parserState.queue != null) {
+                    parserState.queue.finish();
+                }
+            }
         } catch (Throwable e) {
             if (e instanceof EncryptedDocumentException) {
                 metadata.set(TikaCoreProperties.IS_ENCRYPTED, "true");
@@ -229,11 +338,16 @@ public class RecursiveParserWrapper extends ParserDecorator {
         public void parse(InputStream stream, ContentHandler ignore, Metadata metadata,
                           ParseContext context) throws IOException, SAXException, TikaException {
 
+            if (parserState.queue != null) {
+                parserState.queue.submit(stream, metadata, context);
+                return;
+            }
             //Test to see if we should avoid parsing
-            if (parserState.recursiveParserWrapperHandler.hasHitMaximumEmbeddedResources()) {
+            if (!parserState.reserveEmbedded()) {
                 return;
             }
             // Work out what this thing is
+            int unknownCount = parserState.unknownCount.get();
             String objectName = getResourceName(metadata, parserState.unknownCount);
             String objectLocation = this.location + objectName;
 
@@ -248,6 +362,12 @@ public class RecursiveParserWrapper extends ParserDecorator {
             //get a fresh handler
             ContentHandler localHandler =
                     parserState.recursiveParserWrapperHandler.getNewContentHandler();
+            if (parserState.recursiveParserWrapperHandler instanceof EmbeddedRecorder &&
+                    parserState.unknownCount.get() != unknownCount) {
+                //the name is renumbered when the task is replayed
+                ((EmbeddedRecorder) parserState.recursiveParserWrapperHandler).unknownName =
+                        parserState.unknownCount.get();
+            }
             parserState.recursiveParserWrapperHandler.startEmbeddedDocument(localHandler, metadata);
 
             Parser preContextParser = context.get(Parser.class);
@@ -313,47 +433,491 @@ public class RecursiveParserWrapper extends ParserDecorator {
         }
     }
 
+    /**
+     * Parses the direct embedded documents of a container on the
+     * {@link #embeddedExecutor}, and passes their results on to the
+     * container's handler in the order in which the container reported them.
+     * This is only used on the thread that parses the container.
+     */
+    private class EmbeddedTaskQueue {
+        private final ParserState parserState;
+        private final Metadata containerMetadata;
+        private final ParseContext containerContext;
+        //System.nanoTime() by which all tasks must have completed, or -1
+        private final long deadline;
+        private final Semaphore permits = new Semaphore(maxPendingEmbedded);
+        private final List<EmbeddedTask> tasks = new ArrayList<>();
+        //index of the first task whose results have not been passed on
+        private int next = 0;
+        private boolean failed = false;
+        //a timeout or interrupt while the container was parsing
+        private TikaException failure = null;
+        private boolean containerParsing = true;
+
+        private EmbeddedTaskQueue(ParserState parserState, Metadata containerMetadata,
+                                  ParseContext containerContext) {
+            this.parserState = parserState;
+            this.containerMetadata = containerMetadata;
+            this.containerContext = containerContext;
+            long timeoutMillis = TikaTaskTimeout.getTimeoutMillis(containerContext, -1);
+            this.deadline = timeoutMillis > 0 ?
+                    System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis) : -1;
+        }
+
+        private void submit(InputStream stream, Metadata metadata, ParseContext context)
+                throws IOException, SAXException, TikaException {
+            drain(false);
+            //after a failed task, serial parsing would not have got this far
+            if (failed || failure != null || !parserState.reserveEmbedded()) {
+                return;
+            }
+            EmbeddedTask task = new EmbeddedTask(new ParserState(
+                    new EmbeddedRecorder(parserState.recursiveParserWrapperHandler), parserState));
+            tasks.add(task);
+            if (!isIndependent(stream, metadata, context)) {
+                task.parse(stream, metadata, context);
+                return;
+            }
+            try {
+                acquire();
+            } catch (TikaException e) {
+                //the container's parser may swallow this, finish() throws it again
+                failure = e;
+                task.cancel();
+                throw e;
+            }
+            TikaInputStream spooled;
+            try {
+                spooled = TikaInputStream.get(CloseShieldInputStream.wrap(stream), task.tmp,
+                        metadata);
+                //read the document while the container's stream is still available
+                spooled.getSeekableByteChannel();
+            } catch (IOException e) {
+                task.cancel();
+                throw e;
+            }
+            ParseContext taskContext = context.copy();
+            task.parseRecord = new ParseRecord();
+            //this is an embedded document of the container
+            task.parseRecord.beforeParse();
+            taskContext.set(ParseRecord.class, task.parseRecord);
+            //the container's extractor parses with the container's context
+            ParsingEmbeddedDocumentExtractor extractor =
+                    (ParsingEmbeddedDocumentExtractor) context.get(EmbeddedDocumentExtractor.class);
+            if (extractor != null) {
+                ParsingEmbeddedDocumentExtractor taskExtractor =
+                        new ParsingEmbeddedDocumentExtractor(taskContext);
+                taskExtractor.setWriteFileNameToContent(extractor.isWriteFileNameToContent());
+                taskContext.set(EmbeddedDocumentExtractor.class, taskExtractor);
+            }
+            Runnable runnable = () -> task.run(spooled, metadata, taskContext);
+            try {
+                task.future = embeddedExecutor.submit(runnable);
+            } catch (RejectedExecutionException e) {
+                //e.g. the executor has been shut down
+                runnable.run();
+            }
+        }
+
+        /**
+         * Waits for all tasks, and passes on their results.
+         */
+        private void finish() throws IOException, SAXException, TikaException {
+            containerParsing = false;
+            drain(true);
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        /**
+         * @return whether the embedded document can be parsed without the
+         * container's stream or extractor
+         */
+        private boolean isIndependent(InputStream stream, Metadata metadata,
+                                      ParseContext context) {
+            TikaInputStream tis = TikaInputStream.cast(stream);
+            if (tis != null && tis.getOpenContainer() != null) {
+                return false;
+            }
+            EmbeddedDocumentExtractor extractor = context.get(EmbeddedDocumentExtractor.class);
+            if (extractor != null &&
+                    extractor.getClass() != ParsingEmbeddedDocumentExtractor.class) {
+                return false;
+            }
+            return !TikaCoreProperties.EmbeddedResourceType.INLINE.toString()
+                    .equals(metadata.get(TikaCoreProperties.EMBEDDED_RESOURCE_TYPE));
+        }
+
+        private void drain(boolean wait) throws IOException, SAXException, TikaException {
+            while (next < tasks.size()) {
+                EmbeddedTask task = tasks.get(next);
+                if (task.future != null) {
+                    if (!wait && !task.future.isDone()) {
+                        return;
+                    }
+                    await(task.future);
+                }
+                if (task.failure != null) {
+                    failed = true;
+                    if (!wait) {
+                        return;
+                    }
+                }
+                next++;
+                replay(task);
+                if (task.failure != null) {
+                    cancelRemaining();
+                    rethrow(task.failure);
+                }
+            }
+        }
+
+        private void replay(EmbeddedTask task) throws SAXException {
+            int base = parserState.embeddedCount;
+            int unknownBase = parserState.unknownCount.get();
+            //the renumbered resource paths of the open documents
+            Deque<String> paths = new ArrayDeque<>();
+            for (EmbeddedEvent event : task.recorder.events) {
+                if (event.start) {
+                    renumber(event.metadata, base);
+                    paths.push(renumberPath(event, unknownBase,
+                            paths.isEmpty() ? "" : paths.peek()));
+                    parserState.recursiveParserWrapperHandler
+                            .startEmbeddedDocument(event.contentHandler, event.metadata);
+                } else {
+                    paths.pop();
+                    parserState.recursiveParserWrapperHandler
+                            .endEmbeddedDocument(event.contentHandler, event.metadata);
+                }
+            }
+            parserState.embeddedCount += task.state.embeddedCount;
+            parserState.unknownCount.addAndGet(task.state.unknownCount.get());
+            if (task.parseRecord != null) {
+                mergeParseRecord(task.parseRecord);
+            }
+        }
+
+        /**
+         * The ids of a task start at 1, shift them by the number of
+         * embedded documents before the task.
+         */
+        private void renumber(Metadata metadata, int base) {
+            Integer id = metadata.getInt(TikaCoreProperties.EMBEDDED_ID);
+            if (id != null) {
+                metadata.set(TikaCoreProperties.EMBEDDED_ID, base + id);
+            }
+            String idPath = metadata.get(TikaCoreProperties.EMBEDDED_ID_PATH);
+            if (idPath != null) {
+                StringBuilder sb = new StringBuilder();
+                for (String part : idPath.substring(1).split("/")) {
+                    sb.append("/").append(base + Integer.parseInt(part));
+                }
+                metadata.set(TikaCoreProperties.EMBEDDED_ID_PATH, sb.toString());
+            }
+        }
+
+        /**
+         * The generated names of a task, <code>embedded-N</code>, start at 1
+         * too. Shift them by the number of generated names before the task, in
+         * the resource path of the document and of its embedded documents.
+         *
+         * @param parentPath renumbered resource path of the parent document,
+         *                   or an empty string for a direct embedded document
+         * @return renumbered resource path of the document
+         */
+        private String renumberPath(EmbeddedEvent event, int unknownBase, String parentPath) {
+            String path = event.metadata.get(TikaCoreProperties.EMBEDDED_RESOURCE_PATH);
+            if (path == null) {
+                return parentPath;
+            }
+            //resource names don't contain path separators
+            String name = event.unknownName > 0 ?
+                    "embedded-" + (unknownBase + event.unknownName) :
+                    path.substring(path.lastIndexOf('/') + 1);
+            String renumbered = parentPath + "/" + name;
+            if (!renumbered.equals(path)) {
+                event.metadata.set(TikaCoreProperties.EMBEDDED_RESOURCE_PATH, renumbered);
+            }
+            return renumbered;
+        }
+
+        /**
+         * When parsing serially, the container and its embedded documents share
+         * a {@link ParseRecord}, which the container's {@link CompositeParser}
+         * adds to the container's metadata.
+         */
+        private void mergeParseRecord(ParseRecord record) {
+            ParseRecord containerRecord = containerContext.get(ParseRecord.class);
+            if (containerParsing && containerRecord != null) {
+                for (String parser : record.getParsers()) {
+                    containerRecord.addParserClass(parser);
+                }
+                record.getExceptions().forEach(containerRecord::addException);
+                record.getWarnings().forEach(containerRecord::addWarning);
+                record.getMetadataList().forEach(containerRecord::addMetadata);
+                if (record.isWriteLimitReached()) {
+                    containerRecord.setWriteLimitReached(true);
+                }
+                return;
+            }
+            Set<String> parsers = new HashSet<>(Arrays.asList(
+                    containerMetadata.getValues(TikaCoreProperties.TIKA_PARSED_BY_FULL_SET)));
+            for (String parser : record.getParsers()) {
+                if (parsers.add(parser)) {
+                    containerMetadata.add(TikaCoreProperties.TIKA_PARSED_BY_FULL_SET, parser);
+                }
+            }
+            for (Exception e : record.getExceptions()) {
+                containerMetadata.add(TikaCoreProperties.EMBEDDED_EXCEPTION,
+                        ExceptionUtils.getStackTrace(e));
+            }
+            for (String msg : record.getWarnings()) {
+                containerMetadata.add(TikaCoreProperties.EMBEDDED_WARNING, msg);
+            }
+            if (record.isWriteLimitReached()) {
+                containerMetadata.set(TikaCoreProperties.WRITE_LIMIT_REACHED, true);
+            }
+            for (Metadata m : record.getMetadataList()) {
+                for (String n : m.names()) {
+                    for (String v : m.getValues(n)) {
+                        containerMetadata.add(n, v);
+                    }
+                }
+            }
+        }
+
+        private void acquire() throws TikaException {
+            try {
+                if (deadline < 0) {
+                    permits.acquire();
+                } else if (!permits.tryAcquire(Math.max(0, deadline - System.nanoTime()),
+                        TimeUnit.NANOSECONDS)) {
+                    cancelRemaining();
+                    throw new TikaException("Timed out waiting for embedded documents");
+                }
+            } catch (InterruptedException e) {
+                cancelRemaining();
+                Thread.currentThread().interrupt();
+                throw new TikaException("Interrupted while waiting for embedded documents", e);
+            }
+        }
+
+        private void await(Future<?> future) throws TikaException {
+            try {
+                if (deadline < 0) {
+                    future.get();
+                } else {
+                    future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                }
+            } catch (TimeoutException e) {
+                cancelRemaining();
+                throw new TikaException("Timed out waiting for embedded documents");
+            } catch (InterruptedException e) {
+                cancelRemaining();
+                Thread.currentThread().interrupt();
+                throw new TikaException("Interrupted while waiting for embedded documents", e);
+            } catch (ExecutionException e) {
+                //EmbeddedTask#run records all failures
+                throw new TikaException("Unexpected failure of an embedded task", e.getCause());
+            }
+        }
+
+        private void cancelRemaining() {
+            for (int i = next; i < tasks.size(); i++) {
+                tasks.get(i).cancel();
+            }
+            next = tasks.size();
+        }
+
+        private void rethrow(Throwable t) throws IOException, SAXException, TikaException {
+            if (t instanceof IOException) {
+                throw (IOException) t;
+            } else if (t instanceof SAXException) {
+                throw (SAXException) t;
+            } else if (t instanceof TikaException) {
+                throw (TikaException) t;
+            } else if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            } else if (t instanceof Error) {
+                throw (Error) t;
+            }
+            throw new TikaException("Unexpected failure of an embedded task", t);
+        }
+
+        /**
+         * A direct embedded document of the container, which is parsed
+         * together with its own embedded documents.
+         */
+        private class EmbeddedTask {
+            private final ParserState state;
+            private final EmbeddedRecorder recorder;
+            private final TemporaryResources tmp = new TemporaryResources();
+            //set by whoever runs or cancels this task first
+            private final AtomicBoolean claimed = new AtomicBoolean(false);
+            private ParseRecord parseRecord;
+            //null if the task is parsed on the container's thread
+            private Future<?> future;
+            private volatile Throwable failure;
+
+            private EmbeddedTask(ParserState state) {
+                this.state = state;
+                this.recorder = (EmbeddedRecorder) state.recursiveParserWrapperHandler;
+            }
+
+            private void parse(InputStream stream, Metadata metadata, ParseContext context)
+                    throws IOException, SAXException, TikaException {
+                new EmbeddedParserDecorator(getWrappedParser(), "/", "/", state)
+                        .parse(stream, null, metadata, context);
+            }
+
+            private void run(TikaInputStream stream, Metadata metadata, ParseContext context) {
+                if (!claimed.compareAndSet(false, true)) {
+                    return;
+                }
+                try {
+                    parse(stream, metadata, context);
+                } catch (Throwable t) {
+                    failure = t;
+                } finally {
+                    release();
+                }
+            }
+
+            private void cancel() {
+                if (claimed.compareAndSet(false, true)) {
+                    release();
+                } else if (future != null) {
+                    future.cancel(true);
+                }
+            }
+
+            private void release() {
+                try {
+                    tmp.close();
+                } catch (IOException e) {
+                    //swallow
+                } finally {
+                    permits.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Records the calls of an embedded task, so that they can be
+     * passed on to the container's handler in order.
+     */
+    private static class EmbeddedRecorder extends AbstractRecursiveParserWrapperHandler {
+        private final AbstractRecursiveParserWrapperHandler handler;
+        private final transient List<EmbeddedEvent> events = new ArrayList<>();
+        //the number of the generated name of the next embedded document, or 0
+        private int unknownName = 0;
+
+        private EmbeddedRecorder(AbstractRecursiveParserWrapperHandler handler) {
+            super(handler.getContentHandlerFactory());
+            this.handler = handler;
+        }
+
+        @Override
+        public ContentHandler getNewContentHandler() {
+            return handler.getNewContentHandler();
+        }
+
+        @Override
+        public void startEmbeddedDocument(ContentHandler contentHandler, Metadata metadata)
+                throws SAXException {
+            super.startEmbeddedDocument(contentHandler, metadata);
+            events.add(new EmbeddedEvent(true, contentHandler, metadata, unknownName));
+            unknownName = 0;
+        }
+
+        @Override
+        public void endEmbeddedDocument(ContentHandler contentHandler, Metadata metadata)
+                throws SAXException {
+            super.endEmbeddedDocument(contentHandler, metadata);
+            events.add(new EmbeddedEvent(false, contentHandler, metadata, 0));
+        }
+    }
+
+    private static class EmbeddedEvent {
+        private final boolean start;
+        private final ContentHandler contentHandler;
+        private final Metadata metadata;
+        //the number of the generated name of the document, or 0
+        private final int unknownName;
+
+        private EmbeddedEvent(boolean start, ContentHandler contentHandler, Metadata metadata,
+                              int unknownName) {
+            this.start = start;
+            this.contentHandler = contentHandler;
+            this.metadata = metadata;
+            this.unknownName = unknownName;
+        }
+    }
+
     /**
      * This tracks the state of the parse of a single document.
      * In future versions, this will allow the RecursiveParserWrapper to be thread safe.
      */
     private static class ParserState {
         private final AbstractRecursiveParserWrapperHandler recursiveParserWrapperHandler;
-        private AtomicInteger unknownCount = new AtomicInteger(0);
+        private final AtomicInteger unknownCount;
         private int embeddedCount = 0;//this is effectively 1-indexed
-        private ParserState(AbstractRecursiveParserWrapperHandler handler) {
+        //shared by the container and its embedded tasks, if these are parsed concurrently
+        private final AtomicInteger embeddedResources;
+        private final int maxEmbeddedResources;
+        //the first embedded document of a task has already been counted by the container
+        private boolean reserved = false;
+        private EmbeddedTaskQueue queue = null;
+
+        private ParserState(AbstractRecursiveParserWrapperHandler handler, boolean concurrent) {
             this.recursiveParserWrapperHandler = handler;
+            this.unknownCount = new AtomicInteger(0);
+            this.embeddedResources = concurrent ? new AtomicInteger(0) : null;
+            this.maxEmbeddedResources = handler.getMaxEmbeddedResources();
         }
-    }
-
-    static class SecureHandlerCounter {
-        private final int totalWriteLimit;
-        private boolean writeLimitReached = false;
-        //total chars written to all handlers
-        private int totalChars = 0;
 
-        private SecureHandlerCounter(int totalWriteLimit) {
-            this.totalWriteLimit = totalWriteLimit;
+        private ParserState(EmbeddedRecorder recorder, ParserState container) {
+            this.recursiveParserWrapperHandler = recorder;
+            //each task counts its own generated names, these are renumbered on replay
+            this.unknownCount = new AtomicInteger(0);
+            this.embeddedResources = container.embeddedResources;
+            this.maxEmbeddedResources = container.maxEmbeddedResources;
+            this.reserved = true;
         }
+
         /**
-         * Given the requested length, how many characters are actually available
-         * @param length
-         * @return
+         * @return whether another embedded document may be parsed
          */
-        int getAvailable(int length) {
-            return Math.min(totalWriteLimit - totalChars, length);
-        }
-        void addChars(int numChars) {
-            totalChars += numChars;
+        private boolean reserveEmbedded() {
+            if (reserved) {
+                reserved = false;
+                return true;
+            }
+            if (embeddedResources == null) {
+                return !recursiveParserWrapperHandler.hasHitMaximumEmbeddedResources();
+            }
+            if (maxEmbeddedResources < 0) {
+                return true;
+            }
+            while (true) {
+                int count = embeddedResources.get();
+                if (count >= maxEmbeddedResources) {
+                    return false;
+                }
+                if (embeddedResources.compareAndSet(count, count + 1)) {
+                    return true;
+                }
+            }
         }
-
     }
 
     //
     static class RecursivelySecureContentHandler extends SecureContentHandler {
         private static AtomicInteger COUNTER = new AtomicInteger();
         private final ContentHandler handler;
-        private final SecureHandlerCounter handlerCounter;
+        private final WriteLimitCounter handlerCounter;
 
         private final boolean throwOnWriteLimitReached;
 
@@ -362,7 +926,7 @@ public class RecursiveParserWrapper extends ParserDecorator {
         private final int id = COUNTER.getAndIncrement();
 
         public RecursivelySecureContentHandler(ContentHandler handler, TikaInputStream stream,
-                                               SecureHandlerCounter handlerCounter,
+                                               WriteLimitCounter handlerCounter,
                                                boolean throwOnWriteLimitReached, ParseContext parseContext) {
             super(handler, stream);
             this.handler = handler;
@@ -398,17 +962,13 @@ public class RecursiveParserWrapper extends ParserDecorator {
 
         @Override
         public void characters(char[] ch, int start, int length) throws SAXException {
-            if (handlerCounter.writeLimitReached) {
+            if (handlerCounter.isWriteLimitReached()) {
                 return;
             }
-
-            if (handlerCounter.totalWriteLimit < 0) {
-                super.characters(ch, start, length);
-                return;
+            int availableLength = handlerCounter.reserve(length);
+            if (availableLength > 0) {
+                super.characters(ch, start, availableLength);
             }
-            int availableLength = handlerCounter.getAvailable(length);
-            super.characters(ch, start, availableLength);
-            handlerCounter.addChars(availableLength);
             if (availableLength < length) {
                 handleWriteLimitReached();
             }
@@ -416,27 +976,21 @@ public class RecursiveParserWrapper extends ParserDecorator {
 
         @Override
         public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
-            if (handlerCounter.writeLimitReached) {
+            if (handlerCounter.isWriteLimitReached()) {
                 return;
             }
-
-            if (handlerCounter.totalWriteLimit < 0) {
-                super.ignorableWhitespace(ch, start, length);
-                return;
+            int availableLength = handlerCounter.reserve(length);
+            if (availableLength > 0) {
+                super.ignorableWhitespace(ch, start, availableLength);
             }
-            int availableLength = handlerCounter.getAvailable(length);
-            super.ignorableWhitespace(ch, start, availableLength);
-            handlerCounter.addChars(availableLength);
             if (availableLength < length) {
                 handleWriteLimitReached();
             }
         }
 
         private void handleWriteLimitReached() throws WriteLimitReachedException {
-            handlerCounter.writeLimitReached = true;
-
             if (throwOnWriteLimitReached) {
-                throw new WriteLimitReachedException(handlerCounter.totalWriteLimit);
+                throw new WriteLimitReachedException(handlerCounter.getWriteLimit());
             } else {
                 ParseRecord parseRecord = parseContext.get(ParseRecord.class);
                 if (parseRecord != null) {
@@ -0,0 +1,347 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.parser.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+import org.apache.tika.metadata.Metadata;
+
+/**
+ * Result of a parse as stored by a {@link ParseResultCache}: the metadata
+ * that the parser added or changed, and the SAX events that it wrote.
+ *
+ * @since Apache Tika 4.0.0
+ */
+public class CachedParseResult {
+
+    private static final int MAGIC = 0x54504352;
+
+    private static final int VERSION = 1;
+
+    //writeUTF can write at most 64k bytes, i.e. 21845 chars of 3 bytes
+    private static final int MAX_CHUNK_CHARS = 16384;
+
+    private static final byte START_DOCUMENT = 1;
+    private static final byte END_DOCUMENT = 2;
+    private static final byte START_PREFIX_MAPPING = 3;
+    private static final byte END_PREFIX_MAPPING = 4;
+    private static final byte START_ELEMENT = 5;
+    private static final byte END_ELEMENT = 6;
+    private static final byte CHARACTERS = 7;
+    private static final byte IGNORABLE_WHITESPACE = 8;
+    private static final byte PROCESSING_INSTRUCTION = 9;
+    private static final byte SKIPPED_ENTITY = 10;
+
+    private final Metadata metadata;
+
+    private final byte[] events;
+
+    CachedParseResult(Metadata metadata, byte[] events) {
+        this.metadata = metadata;
+        this.events = events;
+    }
+
+    /**
+     * @return the metadata that the parser added or changed
+     */
+    public Metadata getMetadata() {
+        return metadata;
+    }
+
+    /**
+     * @return approximate size of this result in bytes
+     */
+    public long getSize() {
+        return events.length;
+    }
+
+    /**
+     * Writes the cached events to the handler and sets the cached
+     * metadata values in the metadata.
+     */
+    public void replay(ContentHandler handler, Metadata target)
+            throws IOException, SAXException {
+        for (String name : metadata.names()) {
+            target.remove(name);
+            for (String value : metadata.getValues(name)) {
+                target.add(name, value);
+            }
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(events));
+        while (true) {
+            int event = in.read();
+            switch (event) {
+                case -1:
+                    return;
+                case START_DOCUMENT:
+                    handler.startDocument();
+                    break;
+                case END_DOCUMENT:
+                    handler.endDocument();
+                    break;
+                case START_PREFIX_MAPPING:
+                    handler.startPrefixMapping(readString(in), readString(in));
+                    break;
+                case END_PREFIX_MAPPING:
+                    handler.endPrefixMapping(readString(in));
+                    break;
+                case START_ELEMENT: {
+                    String uri = readString(in);
+                    String localName = readString(in);
+                    String qName = readString(in);
+                    int length = in.readInt();
+                    AttributesImpl atts = new AttributesImpl();
+                    for (int i = 0; i < length; i++) {
+                        atts.addAttribute(readString(in), readString(in), readString(in),
+                                readString(in), readString(in));
+                    }
+                    handler.startElement(uri, localName, qName, atts);
+                    break;
+                }
+                case END_ELEMENT:
+                    handler.endElement(readString(in), readString(in), readString(in));
+                    break;
+                case CHARACTERS: {
+                    char[] ch = readString(in).toCharArray();
+                    handler.characters(ch, 0, ch.length);
+                    break;
+                }
+                case IGNORABLE_WHITESPACE: {
+                    char[] ch = readString(in).toCharArray();
+                    handler.ignorableWhitespace(ch, 0, ch.length);
+                    break;
+                }
+                case PROCESSING_INSTRUCTION:
+                    handler.processingInstruction(readString(in), readString(in));
+                    break;
+                case SKIPPED_ENTITY:
+                    handler.skippedEntity(readString(in));
+                    break;
+                default:
+                    throw new IOException("Unknown event: " + event);
+            }
+        }
+    }
+
+    /**
+     * Writes this result to the stream in a form that {@link #read(InputStream)}
+     * reads back.
+     */
+    public void write(OutputStream os) throws IOException {
+        DataOutputStream out = new DataOutputStream(os);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        String[] names = metadata.names();
+        out.writeInt(names.length);
+        for (String name : names) {
+            writeString(out, name);
+            String[] values = metadata.getValues(name);
+            out.writeInt(values.length);
+            for (String value : values) {
+                writeString(out, value);
+            }
+        }
+        out.writeInt(events.length);
+        out.write(events);
+        out.flush();
+    }
+
+    /**
+     * Reads a result that was written with {@link #write(OutputStream)}.
+     */
+    public static CachedParseResult read(InputStream is) throws IOException {
+        DataInputStream in = new DataInputStream(is);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a cached parse result");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported cached parse result version: " + version);
+        }
+        Metadata metadata = new Metadata();
+        int numNames = in.readInt();
+        for (int i = 0; i < numNames; i++) {
+            String name = readString(in);
+            int numValues = in.readInt();
+            for (int j = 0; j < numValues; j++) {
+                metadata.add(name, readString(in));
+            }
+        }
+        byte[] events = new byte[in.readInt()];
+        in.readFully(events);
+        return new CachedParseResult(metadata, events);
+    }
+
+    private static void writeString(DataOutput out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(s.length());
+        for (int start = 0; start < s.length(); start += MAX_CHUNK_CHARS) {
+            out.writeUTF(s.substring(start, Math.min(s.length(), start + MAX_CHUNK_CHARS)));
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length == 0) {
+            return "";
+        }
+        if (length <= MAX_CHUNK_CHARS) {
+            return in.readUTF();
+        }
+        StringBuilder sb = new StringBuilder(length);
+        while (sb.length() < length) {
+            sb.append(in.readUTF());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Records the SAX events that it receives, until more than a maximum
+     * number of bytes have been recorded.
+     */
+    static class Recorder extends DefaultHandler {
+
+        private final long maxBytes;
+
+        private ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        private DataOutputStream out = new DataOutputStream(bytes);
+
+        Recorder(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        /**
+         * @return the recorded events or <code>null</code> if there were too many
+         */
+        byte[] getEvents() {
+            return bytes == null ? null : bytes.toByteArray();
+        }
+
+        @Override
+        public void startDocument() throws SAXException {
+            record(START_DOCUMENT);
+        }
+
+        @Override
+        public void endDocument() throws SAXException {
+            record(END_DOCUMENT);
+        }
+
+        @Override
+        public void startPrefixMapping(String prefix, String uri) throws SAXException {
+            record(START_PREFIX_MAPPING, prefix, uri);
+        }
+
+        @Override
+        public void endPrefixMapping(String prefix) throws SAXException {
+            record(END_PREFIX_MAPPING, prefix);
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes atts)
+                throws SAXException {
+            if (out == null) {
+                return;
+            }
+            try {
+                out.write(START_ELEMENT);
+                writeString(out, uri);
+                writeString(out, localName);
+                writeString(out, qName);
+                out.writeInt(atts.getLength());
+                for (int i = 0; i < atts.getLength(); i++) {
+                    writeString(out, atts.getURI(i));
+                    writeString(out, atts.getLocalName(i));
+                    writeString(out, atts.getQName(i));
+                    writeString(out, atts.getType(i));
+                    writeString(out, atts.getValue(i));
+                }
+            } catch (IOException e) {
+                throw new SAXException(e);
+            }
+            checkSize();
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            record(END_ELEMENT, uri, localName, qName);
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) throws SAXException {
+            record(CHARACTERS, new String(ch, start, length));
+        }
+
+        @Override
+        public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+            record(IGNORABLE_WHITESPACE, new String(ch, start, length));
+        }
+
+        @Override
+        public void processingInstruction(String target, String data) throws SAXException {
+            record(PROCESSING_INSTRUCTION, target, data);
+        }
+
+        @Override
+        public void skippedEntity(String name) throws SAXException {
+            record(SKIPPED_ENTITY, name);
+        }
+
+        private void record(byte event, String... strings) throws SAXException {
+            if (out == null) {
+                return;
+            }
+            try {
+                out.write(event);
+                for (String s : strings) {
+                    writeString(out, s);
+                }
+            } catch (IOException e) {
+                throw new SAXException(e);
+            }
+            checkSize();
+        }
+
+        private void checkSize() {
+            if (bytes.size() > maxBytes) {
+                bytes = null;
+                out = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.parser.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.parser.DigestingParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
+import org.apache.tika.parser.ParserDecorator;
+import org.apache.tika.sax.TeeContentHandler;
+
+/**
+ * Decorator that caches the results of the decorated parser in a
+ * {@link ParseResultCache}, so that documents that have been seen
+ * before are not parsed again.
+ * <p>
+ * Results are keyed by the digests that a {@link DigestingParser}
+ * has added to the metadata, the detected content type, the objects in
+ * the {@link ParseContext} and a configuration key. Serializable objects
+ * in the context, such as parser configurations, are keyed by their
+ * serialized form, and parsers by their class. Documents without digests,
+ * or with other objects in their context, are always parsed. The parser must therefore
+ * be decorated by a {@link DigestingParser}, for example:
+ * <pre>
+ * new AutoDetectParser(new DigestingParser(
+ *         new CachingParser(new DefaultParser(), cache, "my-config-v1"),
+ *         digester, false))
+ * </pre>
+ * The configuration key must change whenever the configuration of the
+ * parsers changes in a way that changes their output.
+ * <p>
+ * A cache hit sets the metadata values that the parser added or changed
+ * when the document was first parsed and replays the SAX events that it
+ * wrote. Documents whose parse fails, or whose output is larger than
+ * {@link #setMaxResultBytes(long)}, are not cached. Documents whose embedded
+ * documents are parsed through the same {@link CachingParser} are not cached
+ * either, because their embedded documents may have been written to other
+ * handlers; their embedded documents are cached on their own.
+ * <p>
+ * The cache is not serialized with the parser. A deserialized copy, such as
+ * the one that the ForkParser sends to its forked process, parses every
+ * document without caching.
+ *
+ * @since Apache Tika 4.0.0
+ */
+public class CachingParser extends ParserDecorator {
+
+    private static final long serialVersionUID = 2405387102851672390L;
+
+    private static final Logger LOG = LoggerFactory.getLogger(CachingParser.class);
+
+    private static final String DIGEST_PREFIX = TikaCoreProperties.TIKA_META_PREFIX + "digest" +
+            TikaCoreProperties.NAMESPACE_PREFIX_DELIMITER;
+
+    //null in a deserialized copy
+    private final transient ParseResultCache cache;
+
+    private final String configKey;
+
+    private long maxResultBytes = 10 * 1024 * 1024;
+
+    /**
+     * @param parser    parser to decorate
+     * @param cache     cache for the results
+     * @param configKey identifies the configuration of the parser
+     */
+    public CachingParser(Parser parser, ParseResultCache cache, String configKey) {
+        super(parser);
+        this.cache = cache;
+        this.configKey = configKey;
+    }
+
+    @Override
+    public void parse(InputStream stream, ContentHandler handler, Metadata metadata,
+                      ParseContext context) throws IOException, SAXException, TikaException {
+        ParseState parent = context.get(ParseState.class);
+        if (parent != null) {
+            parent.hasNestedParses = true;
+        }
+        String key = cache == null ? null : getKey(metadata, context);
+        if (key == null) {
+            super.parse(stream, handler, metadata, context);
+            return;
+        }
+        CachedParseResult cached = null;
+        try {
+            cached = cache.get(key);
+        } catch (IOException e) {
+            LOG.warn("Couldn't read cached parse result", e);
+        }
+        if (cached != null) {
+            cached.replay(handler, metadata);
+            return;
+        }
+
+        Metadata before = copy(metadata);
+        CachedParseResult.Recorder recorder = new CachedParseResult.Recorder(maxResultBytes);
+        ParseState state = new ParseState();
+        context.set(ParseState.class, state);
+        try {
+            super.parse(stream, new TeeContentHandler(handler, recorder), metadata, context);
+        } finally {
+            context.set(ParseState.class, parent);
+        }
+        byte[] events = recorder.getEvents();
+        if (events == null || state.hasNestedParses) {
+            return;
+        }
+        try {
+            cache.put(key, new CachedParseResult(getChanges(before, metadata), events));
+        } catch (IOException e) {
+            LOG.warn("Couldn't cache parse result", e);
+        }
+    }
+
+    /**
+     * @return maximum size of the recorded output of a document that is cached
+     */
+    public long getMaxResultBytes() {
+        return maxResultBytes;
+    }
+
+    /**
+     * Sets the maximum size of the recorded output of a document that is
+     * cached. Larger results are not cached. The default is 10MB.
+     */
+    public void setMaxResultBytes(long maxResultBytes) {
+        this.maxResultBytes = maxResultBytes;
+    }
+
+    /**
+     * @return the key for the document, or <code>null</code> if it has no digests
+     * or if an object in the context cannot be fingerprinted
+     */
+    String getKey(Metadata metadata, ParseContext context) {
+        List<String> digests = new ArrayList<>();
+        for (String name : metadata.names()) {
+            if (name.startsWith(DIGEST_PREFIX)) {
+                digests.add(name + "=" + metadata.get(name));
+            }
+        }
+        if (digests.isEmpty()) {
+            return null;
+        }
+        Collections.sort(digests);
+        List<String> contextKeys = new ArrayList<>(context.keySet());
+        contextKeys.remove(ParseState.class.getName());
+        Collections.sort(contextKeys);
+
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        update(md, configKey);
+        update(md, metadata.get(Metadata.CONTENT_TYPE));
+        for (String digest : digests) {
+            update(md, digest);
+        }
+        for (String contextKey : contextKeys) {
+            update(md, contextKey);
+            Object value = context.getObject(contextKey);
+            if (!updateValue(md, value)) {
+                LOG.debug("Not caching, {} in the parse context can't be fingerprinted",
+                        value.getClass().getName());
+                return null;
+            }
+        }
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    private static boolean updateValue(MessageDigest md, Object value) {
+        if (value instanceof Parser) {
+            //the configuration of the parsers is covered by the configKey
+            update(md, value.getClass().getName());
+            return true;
+        }
+        if (!(value instanceof Serializable)) {
+            return false;
+        }
+        try (ObjectOutputStream oos = new ObjectOutputStream(
+                new DigestOutputStream(OutputStream.nullOutputStream(), md))) {
+            oos.writeObject(value);
+        } catch (IOException e) {
+            //e.g. a field that isn't serializable
+            return false;
+        }
+        md.update((byte) 0);
+        return true;
+    }
+
+    private static void update(MessageDigest md, String s) {
+        md.update(String.valueOf(s).getBytes(StandardCharsets.UTF_8));
+        md.update((byte) 0);
+    }
+
+    private static Metadata copy(Metadata metadata) {
+        Metadata copy = new Metadata();
+        for (String name : metadata.names()) {
+            for (String value : metadata.getValues(name)) {
+                copy.add(name, value);
+            }
+        }
+        return copy;
+    }
+
+    private static Metadata getChanges(Metadata before, Metadata after) {
+        Metadata changes = new Metadata();
+        for (String name : after.names()) {
+            String[] values = after.getValues(name);
+            if (!Arrays.equals(values, before.getValues(name))) {
+                for (String value : values) {
+                    changes.add(name, value);
+                }
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Tracks whether documents are parsed through this parser while
+     * another document is being parsed.
+     */
+    private static class ParseState {
+        private boolean hasNestedParses = false;
+    }
+}
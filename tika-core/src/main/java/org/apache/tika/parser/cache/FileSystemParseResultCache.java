@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.parser.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link ParseResultCache} that stores one file per result in a directory,
+ * and evicts the least recently used results once there are more than a
+ * maximum number of results or once they take up more than a maximum number
+ * of bytes.
+ * <p>
+ * Results that are already in the directory are picked up on construction,
+ * least recently modified first. The directory should not be shared
+ * by several instances.
+ *
+ * @since Apache Tika 4.0.0
+ */
+public class FileSystemParseResultCache implements ParseResultCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FileSystemParseResultCache.class);
+
+    private static final String SUFFIX = ".tpr";
+
+    private final Path directory;
+
+    private final long maxBytes;
+
+    private final int maxEntries;
+
+    //key -> size in bytes, in access order
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long totalBytes = 0;
+
+    /**
+     * @param directory  directory to store the results in; created if it doesn't exist
+     * @param maxBytes   maximum number of bytes that the results may take up
+     * @param maxEntries maximum number of results
+     */
+    public FileSystemParseResultCache(Path directory, long maxBytes, int maxEntries)
+            throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.maxEntries = maxEntries;
+        Files.createDirectories(directory);
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        files.sort(Comparator.comparing(FileSystemParseResultCache::lastModified));
+        for (Path file : files) {
+            String fileName = file.getFileName().toString();
+            long size = Files.size(file);
+            entries.put(fileName.substring(0, fileName.length() - SUFFIX.length()), size);
+            totalBytes += size;
+        }
+        evict();
+    }
+
+    @Override
+    public CachedParseResult get(String key) throws IOException {
+        synchronized (entries) {
+            if (entries.get(key) == null) {
+                return null;
+            }
+        }
+        Path file = getPath(key);
+        try (InputStream is = new BufferedInputStream(Files.newInputStream(file))) {
+            return CachedParseResult.read(is);
+        } catch (NoSuchFileException e) {
+            //evicted in the meantime
+            return null;
+        } catch (IOException e) {
+            LOG.warn("Removing unreadable cached parse result {}", file, e);
+            remove(key);
+            return null;
+        }
+    }
+
+    @Override
+    public void put(String key, CachedParseResult result) throws IOException {
+        Path tmp = Files.createTempFile(directory, "tmp-", ".tmp");
+        try {
+            try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+                result.write(os);
+            }
+            long size = Files.size(tmp);
+            if (size > maxBytes) {
+                return;
+            }
+            synchronized (entries) {
+                Files.move(tmp, getPath(key), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                Long previous = entries.put(key, size);
+                totalBytes += size - (previous == null ? 0 : previous);
+                evict();
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * @return the number of cached results
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return the number of bytes that the cached results take up
+     */
+    public long getTotalBytes() {
+        synchronized (entries) {
+            return totalBytes;
+        }
+    }
+
+    private void remove(String key) throws IOException {
+        synchronized (entries) {
+            Long size = entries.remove(key);
+            if (size != null) {
+                totalBytes -= size;
+                Files.deleteIfExists(getPath(key));
+            }
+        }
+    }
+
+    private void evict() throws IOException {
+        synchronized (entries) {
+            Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+            while ((entries.size() > maxEntries || totalBytes > maxBytes) && it.hasNext()) {
+                Map.Entry<String, Long> eldest = it.next();
+                it.remove();
+                totalBytes -= eldest.getValue();
+                Files.deleteIfExists(getPath(eldest.getKey()));
+            }
+        }
+    }
+
+    private Path getPath(String key) {
+        return directory.resolve(key + SUFFIX);
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.parser.cache;
+
+import java.io.IOException;
+
+/**
+ * Store of parse results for {@link CachingParser}. Implementations must
+ * be thread safe.
+ *
+ * @since Apache Tika 4.0.0
+ */
+public interface ParseResultCache {
+
+    /**
+     * @param key key that {@link CachingParser} computed for a document;
+     *            a lower case hex string
+     * @return the cached result or <code>null</code> if there is none
+     */
+    CachedParseResult get(String key) throws IOException;
+
+    /**
+     * Stores a result. Implementations may evict other results, or drop this one.
+     */
+    void put(String key, CachedParseResult result) throws IOException;
+}
@@ -0,0 +1,461 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.pipes;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.pipes.emitter.EmitData;
+import org.apache.tika.pipes.emitter.EmitKey;
+import org.apache.tika.pipes.fetcher.FetchKey;
+
+/**
+ * {@link PipesCodec.PROTOCOL#BINARY}.
+ * <p>
+ * Every message starts with a version byte. Integers are written as
+ * unsigned varints and strings as a varint of the UTF-8 length plus one
+ * followed by the bytes, where <code>0</code> stands for <code>null</code>.
+ * Within a message, each metadata key is written once and afterwards
+ * referred to by its index. Metadata values at or above the compression
+ * threshold are deflated.
+ * <p>
+ * Only the {@link ParseContext} is written with java serialization, and
+ * only if it is not empty, because it may hold arbitrary objects.
+ */
+class BinaryPipesCodec implements PipesCodec {
+
+    static final byte VERSION = 1;
+
+    private static final int VALUE_NULL = 0;
+
+    private static final int VALUE_PLAIN = 1;
+
+    private static final int VALUE_DEFLATED = 2;
+
+    private final int compressThresholdBytes;
+
+    private final Map<String, Integer> keyIndex = new HashMap<>();
+
+    private final List<String> keys = new ArrayList<>();
+
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+    private final Inflater inflater = new Inflater();
+
+    /**
+     * @param compressThresholdBytes minimum UTF-8 length of a metadata value
+     *                               to deflate, <code>-1</code> to never compress
+     */
+    BinaryPipesCodec(int compressThresholdBytes) {
+        this.compressThresholdBytes = compressThresholdBytes;
+    }
+
+    @Override
+    public byte[] serialize(FetchEmitTuple t) throws IOException {
+        Output out = start();
+        out.writeString(t.getId());
+        FetchKey fetchKey = t.getFetchKey();
+        out.writeBoolean(fetchKey != null);
+        if (fetchKey != null) {
+            out.writeString(fetchKey.getFetcherName());
+            out.writeString(fetchKey.getFetchKey());
+            out.writeLong(fetchKey.getRangeStart());
+            out.writeLong(fetchKey.getRangeEnd());
+        }
+        writeEmitKey(t.getEmitKey(), out);
+        writeMetadata(t.getMetadata(), out);
+        writeParseContext(t.getParseContext(), out);
+        out.writeVInt(t.getOnParseException() == null ? 0 :
+                t.getOnParseException().ordinal() + 1);
+        return out.toByteArray();
+    }
+
+    @Override
+    public FetchEmitTuple deserializeFetchEmitTuple(ByteBuffer bytes) throws IOException {
+        Input in = start(bytes);
+        String id = in.readString();
+        FetchKey fetchKey = null;
+        if (in.readBoolean()) {
+            fetchKey = new FetchKey(in.readString(), in.readString(), in.readLong(),
+                    in.readLong());
+        }
+        EmitKey emitKey = readEmitKey(in);
+        Metadata metadata = readMetadata(in);
+        ParseContext parseContext = readParseContext(in);
+        int onParseException = in.readVInt();
+        return new FetchEmitTuple(id, fetchKey, emitKey, metadata, parseContext,
+                onParseException == 0 ? null :
+                        FetchEmitTuple.ON_PARSE_EXCEPTION.values()[onParseException - 1]);
+    }
+
+    @Override
+    public byte[] serialize(EmitData emitData) throws IOException {
+        Output out = start();
+        writeEmitKey(emitData.getEmitKey(), out);
+        List<Metadata> metadataList = emitData.getMetadataList();
+        out.writeVInt(metadataList == null ? 0 : metadataList.size() + 1);
+        if (metadataList != null) {
+            for (Metadata metadata : metadataList) {
+                writeMetadata(metadata, out);
+            }
+        }
+        out.writeString(emitData.getContainerStackTrace());
+        writeParseContext(emitData.getParseContext(), out);
+        return out.toByteArray();
+    }
+
+    @Override
+    public EmitData deserializeEmitData(ByteBuffer bytes) throws IOException {
+        Input in = start(bytes);
+        EmitKey emitKey = readEmitKey(in);
+        List<Metadata> metadataList = null;
+        int size = in.readVInt();
+        if (size > 0) {
+            metadataList = new ArrayList<>(size - 1);
+            for (int i = 0; i < size - 1; i++) {
+                metadataList.add(readMetadata(in));
+            }
+        }
+        String stack = in.readString();
+        ParseContext parseContext = readParseContext(in);
+        return new EmitData(emitKey, metadataList, stack, parseContext);
+    }
+
+    @Override
+    public byte[] serialize(Metadata metadata) throws IOException {
+        Output out = start();
+        writeMetadata(metadata, out);
+        return out.toByteArray();
+    }
+
+    @Override
+    public Metadata deserializeMetadata(ByteBuffer bytes) throws IOException {
+        return readMetadata(start(bytes));
+    }
+
+    private Output start() {
+        keyIndex.clear();
+        Output out = new Output();
+        out.writeByte(VERSION);
+        return out;
+    }
+
+    private Input start(ByteBuffer bytes) throws IOException {
+        keys.clear();
+        Input in = new Input(bytes);
+        int version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported pipes protocol version: " + version);
+        }
+        return in;
+    }
+
+    private static void writeEmitKey(EmitKey emitKey, Output out) {
+        out.writeBoolean(emitKey != null);
+        if (emitKey != null) {
+            out.writeString(emitKey.getEmitterName());
+            out.writeString(emitKey.getEmitKey());
+        }
+    }
+
+    private static EmitKey readEmitKey(Input in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        return new EmitKey(in.readString(), in.readString());
+    }
+
+    private static void writeParseContext(ParseContext parseContext, Output out)
+            throws IOException {
+        if (parseContext == null) {
+            out.writeVInt(0);
+        } else if (parseContext.isEmpty()) {
+            out.writeVInt(1);
+        } else {
+            byte[] bytes = JavaPipesCodec.write(parseContext);
+            out.writeVInt(bytes.length + 1);
+            out.write(bytes, 0, bytes.length);
+        }
+    }
+
+    private static ParseContext readParseContext(Input in) throws IOException {
+        int length = in.readVInt();
+        if (length == 0) {
+            return null;
+        } else if (length == 1) {
+            return new ParseContext();
+        }
+        return JavaPipesCodec.read(ByteBuffer.wrap(in.readBytes(length - 1)), ParseContext.class);
+    }
+
+    private void writeMetadata(Metadata metadata, Output out) {
+        if (metadata == null) {
+            out.writeVInt(0);
+            return;
+        }
+        String[] names = metadata.names();
+        out.writeVInt(names.length + 1);
+        for (String name : names) {
+            Integer index = keyIndex.get(name);
+            if (index == null) {
+                //new key, written in full
+                out.writeVInt(0);
+                out.writeString(name);
+                keyIndex.put(name, keyIndex.size());
+            } else {
+                out.writeVInt(index + 1);
+            }
+            String[] values = metadata.getValues(name);
+            out.writeVInt(values.length);
+            for (String value : values) {
+                writeValue(value, out);
+            }
+        }
+    }
+
+    private Metadata readMetadata(Input in) throws IOException {
+        int size = in.readVInt();
+        if (size == 0) {
+            return null;
+        }
+        Metadata metadata = new Metadata();
+        for (int i = 0; i < size - 1; i++) {
+            int ref = in.readVInt();
+            String name;
+            if (ref == 0) {
+                name = in.readString();
+                if (name == null) {
+                    throw new IOException("metadata key must not be null");
+                }
+                //keys come from a small vocabulary, share them between documents
+                name = name.intern();
+                keys.add(name);
+            } else if (ref <= keys.size()) {
+                name = keys.get(ref - 1);
+            } else {
+                throw new IOException("Unknown metadata key reference: " + ref);
+            }
+            int count = in.readVInt();
+            for (int j = 0; j < count; j++) {
+                String value = readValue(in);
+                if (value != null) {
+                    metadata.add(name, value);
+                }
+            }
+        }
+        return metadata;
+    }
+
+    private void writeValue(String value, Output out) {
+        if (value == null) {
+            out.writeVInt(VALUE_NULL);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (compressThresholdBytes < 0 || bytes.length < compressThresholdBytes) {
+            out.writeVInt(VALUE_PLAIN);
+            out.writeVInt(bytes.length);
+            out.write(bytes, 0, bytes.length);
+            return;
+        }
+        deflater.reset();
+        deflater.setInput(bytes);
+        deflater.finish();
+        byte[] buffer = new byte[Math.max(64, bytes.length / 2)];
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            length += deflater.deflate(buffer, length, buffer.length - length);
+        }
+        out.writeVInt(VALUE_DEFLATED);
+        out.writeVInt(bytes.length);
+        out.writeVInt(length);
+        out.write(buffer, 0, length);
+    }
+
+    private String readValue(Input in) throws IOException {
+        int type = in.readVInt();
+        switch (type) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_PLAIN:
+                return in.readUTF8(in.readVInt());
+            case VALUE_DEFLATED:
+                int length = in.readVInt();
+                byte[] compressed = in.readBytes(in.readVInt());
+                byte[] bytes = new byte[length];
+                inflater.reset();
+                inflater.setInput(compressed);
+                try {
+                    int read = 0;
+                    while (read < length && !inflater.finished()) {
+                        int n = inflater.inflate(bytes, read, length - read);
+                        if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                            break;
+                        }
+                        read += n;
+                    }
+                    if (read != length) {
+                        throw new EOFException("truncated compressed value");
+                    }
+                } catch (DataFormatException e) {
+                    throw new IOException("corrupt compressed value", e);
+                }
+                return new String(bytes, StandardCharsets.UTF_8);
+            default:
+                throw new IOException("Unknown value type: " + type);
+        }
+    }
+
+    private static class Output {
+
+        private byte[] buffer = new byte[1024];
+
+        private int length = 0;
+
+        private void ensure(int extra) {
+            if (length + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+            }
+        }
+
+        void writeByte(int b) {
+            ensure(1);
+            buffer[length++] = (byte) b;
+        }
+
+        void writeBoolean(boolean b) {
+            writeByte(b ? 1 : 0);
+        }
+
+        void write(byte[] bytes, int off, int len) {
+            ensure(len);
+            System.arraycopy(bytes, off, buffer, length, len);
+            length += len;
+        }
+
+        void writeVInt(int v) {
+            ensure(5);
+            while ((v & ~0x7F) != 0) {
+                buffer[length++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buffer[length++] = (byte) v;
+        }
+
+        void writeLong(long v) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[length++] = (byte) (v >>> shift);
+            }
+        }
+
+        void writeString(String s) {
+            if (s == null) {
+                writeVInt(0);
+                return;
+            }
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVInt(bytes.length + 1);
+            write(bytes, 0, bytes.length);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, length);
+        }
+    }
+
+    private static class Input {
+
+        private final ByteBuffer buffer;
+
+        Input(ByteBuffer buffer) {
+            this.buffer = buffer.slice();
+        }
+
+        private void require(int n) throws EOFException {
+            if (n < 0 || n > buffer.remaining()) {
+                throw new EOFException("truncated message at " + buffer.position());
+            }
+        }
+
+        int readByte() throws EOFException {
+            require(1);
+            return buffer.get();
+        }
+
+        boolean readBoolean() throws EOFException {
+            return readByte() != 0;
+        }
+
+        int readVInt() throws IOException {
+            int v = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = readByte();
+                v |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return v;
+                }
+            }
+            throw new IOException("malformed varint at " + buffer.position());
+        }
+
+        long readLong() throws EOFException {
+            require(8);
+            return buffer.getLong();
+        }
+
+        byte[] readBytes(int n) throws EOFException {
+            require(n);
+            byte[] bytes = new byte[n];
+            buffer.get(bytes);
+            return bytes;
+        }
+
+        String readUTF8(int n) throws EOFException {
+            require(n);
+            String s;
+            if (buffer.hasArray()) {
+                s = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), n,
+                        StandardCharsets.UTF_8);
+                buffer.position(buffer.position() + n);
+            } else {
+                s = new String(readBytes(n), StandardCharsets.UTF_8);
+            }
+            return s;
+        }
+
+        String readString() throws IOException {
+            int length = readVInt();
+            return length == 0 ? null : readUTF8(length - 1);
+        }
+    }
+}
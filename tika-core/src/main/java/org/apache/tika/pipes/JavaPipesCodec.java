@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.pipes;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+
+import org.apache.commons.io.input.UnsynchronizedByteArrayInputStream;
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.pipes.emitter.EmitData;
+
+/**
+ * {@link PipesCodec.PROTOCOL#JAVA}: plain java serialization.
+ */
+class JavaPipesCodec implements PipesCodec {
+
+    @Override
+    public byte[] serialize(FetchEmitTuple t) throws IOException {
+        return write(t);
+    }
+
+    @Override
+    public FetchEmitTuple deserializeFetchEmitTuple(ByteBuffer bytes) throws IOException {
+        return read(bytes, FetchEmitTuple.class);
+    }
+
+    @Override
+    public byte[] serialize(EmitData emitData) throws IOException {
+        return write(emitData);
+    }
+
+    @Override
+    public EmitData deserializeEmitData(ByteBuffer bytes) throws IOException {
+        return read(bytes, EmitData.class);
+    }
+
+    @Override
+    public byte[] serialize(Metadata metadata) throws IOException {
+        return write(metadata);
+    }
+
+    @Override
+    public Metadata deserializeMetadata(ByteBuffer bytes) throws IOException {
+        return read(bytes, Metadata.class);
+    }
+
+    static byte[] write(Serializable object) throws IOException {
+        UnsynchronizedByteArrayOutputStream bos = UnsynchronizedByteArrayOutputStream.builder().get();
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(bos)) {
+            objectOutputStream.writeObject(object);
+        }
+        return bos.toByteArray();
+    }
+
+    static <T> T read(ByteBuffer buffer, Class<T> clazz) throws IOException {
+        byte[] bytes;
+        int offset = 0;
+        if (buffer.hasArray()) {
+            bytes = buffer.array();
+            offset = buffer.arrayOffset() + buffer.position();
+        } else {
+            bytes = new byte[buffer.remaining()];
+            buffer.duplicate().get(bytes);
+        }
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(
+                UnsynchronizedByteArrayInputStream.builder().setByteArray(bytes)
+                        .setOffset(offset).setLength(buffer.remaining()).get())) {
+            return clazz.cast(objectInputStream.readObject());
+        } catch (ClassNotFoundException e) {
+            throw new IOException("class not found deserializing " + clazz.getSimpleName(), e);
+        }
+    }
+}
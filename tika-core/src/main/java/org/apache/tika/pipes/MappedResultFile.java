@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.pipes;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Memory mapped file that the forked {@link PipesServer} writes large results
+ * into, instead of pushing them through its stdout pipe. The pipe then only
+ * carries the status and the length of the result, and the {@link PipesClient}
+ * decodes the result directly from the mapping.
+ * <p>
+ * There is one file per client. The server only writes a result while the client
+ * is waiting for it, so the file never holds more than one result at a time.
+ */
+class MappedResultFile implements Closeable {
+
+    //grow the mapping in steps of at least this size to avoid remapping
+    //for every slightly larger result
+    private static final long MIN_MAPPING_SIZE = 1024 * 1024;
+
+    private final FileChannel channel;
+
+    private MappedByteBuffer mapping;
+
+    private MappedResultFile(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * @param path file shared with the client
+     * @return a file that the server can write results to
+     */
+    static MappedResultFile openForWriting(Path path) throws IOException {
+        return new MappedResultFile(FileChannel.open(path, StandardOpenOption.READ,
+                StandardOpenOption.WRITE));
+    }
+
+    /**
+     * @param path file shared with the server
+     * @return a file that the client can read results from
+     */
+    static MappedResultFile openForReading(Path path) throws IOException {
+        return new MappedResultFile(FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    /**
+     * Copies the bytes to the start of the file, growing it if necessary.
+     */
+    void write(byte[] bytes) throws IOException {
+        if (mapping == null || mapping.capacity() < bytes.length) {
+            long size = Math.min(Integer.MAX_VALUE,
+                    Math.max(MIN_MAPPING_SIZE, Math.max(bytes.length,
+                            mapping == null ? 0 : 2L * mapping.capacity())));
+            mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        mapping.put(0, bytes);
+    }
+
+    /**
+     * @param length length of the result the server has written
+     * @return read-only view of the first <code>length</code> bytes of the file
+     */
+    ByteBuffer read(int length) throws IOException {
+        if (mapping == null || mapping.capacity() < length) {
+            long size = channel.size();
+            if (size < length) {
+                throw new IOException("result file has " + size + " bytes, expected " + length);
+            }
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    Math.min(size, Integer.MAX_VALUE));
+        }
+        return mapping.slice(0, length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        mapping = null;
+        channel.close();
+    }
+}
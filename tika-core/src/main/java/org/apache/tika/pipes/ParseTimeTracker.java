@@ -0,0 +1,350 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.pipes;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.mime.MediaType;
+
+/**
+ * Tracks how long documents take to process, per media type and size
+ * bucket, and derives a timeout for each document from these
+ * distributions. This is shared by the {@link PipesClient}s of a
+ * {@link PipesParser} or {@link org.apache.tika.pipes.async.AsyncProcessor}.
+ * <p>
+ * The media type and size of a document are those that the forked
+ * process reports after detection. Until a bucket has seen
+ * {@link PipesConfigBase#getAdaptiveTimeoutMinSamples()} documents,
+ * its documents get the configured {@link PipesConfigBase#getTimeoutMillis()}.
+ * After that, a document gets
+ * {@link PipesConfigBase#getAdaptiveTimeoutMultiplier()} times the
+ * 99th percentile of its bucket, but never less than
+ * {@link PipesConfigBase#getMinTimeoutMillis()} or more than
+ * {@link PipesConfigBase#getTimeoutMillis()}.
+ * <p>
+ * Documents that time out are recorded with the time at which they were
+ * stopped, so a bucket whose timeout is too short drifts upwards.
+ * Recording does not take locks.
+ *
+ * @since Apache Tika 4.0.0
+ */
+public class ParseTimeTracker {
+
+    //bucket i of a histogram holds times in [2^(i-1), 2^i) ms; bucket 0 holds 0 ms
+    private static final int NUM_TIME_BUCKETS = 64;
+
+    private final long minTimeoutMillis;
+    private final long maxTimeoutMillis;
+    private final double multiplier;
+    private final int minSamples;
+    private final ConcurrentMap<Key, Histogram> histograms = new ConcurrentHashMap<>();
+
+    public ParseTimeTracker(PipesConfigBase pipesConfig) {
+        this(pipesConfig.getMinTimeoutMillis(), pipesConfig.getTimeoutMillis(),
+                pipesConfig.getAdaptiveTimeoutMultiplier(),
+                pipesConfig.getAdaptiveTimeoutMinSamples());
+    }
+
+    public ParseTimeTracker(long minTimeoutMillis, long maxTimeoutMillis, double multiplier,
+                            int minSamples) {
+        this.minTimeoutMillis = Math.min(minTimeoutMillis, maxTimeoutMillis);
+        this.maxTimeoutMillis = maxTimeoutMillis;
+        this.multiplier = multiplier;
+        this.minSamples = minSamples;
+    }
+
+    /**
+     * @param metadata metadata of the document after detection, may be null
+     * @return the timeout for the document, counted from the start of its processing
+     */
+    public long getTimeoutMillis(Metadata metadata) {
+        if (metadata == null) {
+            return maxTimeoutMillis;
+        }
+        Histogram histogram = histograms.get(Key.of(metadata));
+        if (histogram == null || histogram.count.sum() < minSamples) {
+            return maxTimeoutMillis;
+        }
+        long timeout = (long) (multiplier * histogram.quantile(0.99));
+        return Math.max(minTimeoutMillis, Math.min(maxTimeoutMillis, timeout));
+    }
+
+    /**
+     * Records the processing time of a document. Only results that say how long
+     * the parse takes (success, parse exception or timeout) are recorded.
+     *
+     * @param metadata      metadata of the document after detection, may be null
+     * @param status        final status of the document
+     * @param elapsedMillis time from the start of processing to the result
+     */
+    public void record(Metadata metadata, PipesResult.STATUS status, long elapsedMillis) {
+        if (metadata == null) {
+            return;
+        }
+        boolean timeout;
+        switch (status) {
+            case PARSE_SUCCESS:
+            case PARSE_SUCCESS_WITH_EXCEPTION:
+            case PARSE_EXCEPTION_NO_EMIT:
+            case EMIT_SUCCESS:
+            case EMIT_SUCCESS_PARSE_EXCEPTION:
+            case EMPTY_OUTPUT:
+                timeout = false;
+                break;
+            case TIMEOUT:
+                timeout = true;
+                break;
+            default:
+                return;
+        }
+        histograms.computeIfAbsent(Key.of(metadata), Histogram::new)
+                .add(Math.max(0, elapsedMillis), timeout);
+    }
+
+    /**
+     * @return a snapshot of the distribution of each media type and size bucket,
+     * with the buckets that took the most time in total first
+     */
+    public List<Distribution> getDistributions() {
+        List<Distribution> distributions = new ArrayList<>();
+        for (Histogram histogram : histograms.values()) {
+            distributions.add(histogram.snapshot());
+        }
+        distributions.sort(Comparator.comparingLong(Distribution::getTotalMillis).reversed());
+        return distributions;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("ParseTimeTracker{");
+        for (Distribution d : getDistributions()) {
+            sb.append("\n  ").append(d);
+        }
+        return sb.append("\n}").toString();
+    }
+
+    /**
+     * Size bucket of a document. Each bucket spans a factor of four:
+     * bucket <code>b</code> holds documents shorter than <code>2^(2b+1)</code> bytes.
+     *
+     * @return the size bucket, or -1 if the length is unknown
+     */
+    static int sizeBucket(long length) {
+        if (length < 0) {
+            return -1;
+        }
+        return (64 - Long.numberOfLeadingZeros(length)) / 2;
+    }
+
+    private static int timeBucket(long millis) {
+        return Math.min(NUM_TIME_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(millis));
+    }
+
+    private static final class Key {
+        private final String mediaType;
+        private final int sizeBucket;
+
+        private Key(String mediaType, int sizeBucket) {
+            this.mediaType = mediaType;
+            this.sizeBucket = sizeBucket;
+        }
+
+        private static Key of(Metadata metadata) {
+            String mediaType = "unknown";
+            MediaType mt = MediaType.parse(metadata.get(Metadata.CONTENT_TYPE));
+            if (mt != null) {
+                mediaType = mt.getBaseType().toString();
+            }
+            long length = -1;
+            String contentLength = metadata.get(Metadata.CONTENT_LENGTH);
+            if (contentLength != null) {
+                try {
+                    length = Long.parseLong(contentLength);
+                } catch (NumberFormatException e) {
+                    //leave unknown
+                }
+            }
+            return new Key(mediaType, sizeBucket(length));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return sizeBucket == key.sizeBucket && mediaType.equals(key.mediaType);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mediaType, sizeBucket);
+        }
+    }
+
+    private static final class Histogram {
+        private final Key key;
+        private final AtomicLongArray buckets = new AtomicLongArray(NUM_TIME_BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder totalMillis = new LongAdder();
+        private final AtomicLong maxMillis = new AtomicLong();
+
+        private Histogram(Key key) {
+            this.key = key;
+        }
+
+        private void add(long millis, boolean timeout) {
+            buckets.incrementAndGet(timeBucket(millis));
+            count.increment();
+            totalMillis.add(millis);
+            maxMillis.accumulateAndGet(millis, Math::max);
+            if (timeout) {
+                timeouts.increment();
+            }
+        }
+
+        /**
+         * @return upper bound of the bucket that holds the quantile
+         */
+        private long quantile(double q) {
+            long[] counts = new long[NUM_TIME_BUCKETS];
+            long total = 0;
+            for (int i = 0; i < NUM_TIME_BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+                total += counts[i];
+            }
+            long rank = (long) Math.ceil(q * total);
+            long seen = 0;
+            for (int i = 0; i < NUM_TIME_BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank && counts[i] > 0) {
+                    return 1L << i;
+                }
+            }
+            return maxMillis.get();
+        }
+
+        private Distribution snapshot() {
+            return new Distribution(key.mediaType, key.sizeBucket, count.sum(), timeouts.sum(),
+                    totalMillis.sum(), maxMillis.get(), quantile(0.5), quantile(0.9),
+                    quantile(0.99));
+        }
+    }
+
+    /**
+     * Parse times of the documents of one media type and size bucket.
+     * Percentiles are upper bounds, accurate to a factor of two.
+     */
+    public static class Distribution {
+        private final String mediaType;
+        private final int sizeBucket;
+        private final long count;
+        private final long timeouts;
+        private final long totalMillis;
+        private final long maxMillis;
+        private final long p50Millis;
+        private final long p90Millis;
+        private final long p99Millis;
+
+        private Distribution(String mediaType, int sizeBucket, long count, long timeouts,
+                             long totalMillis, long maxMillis, long p50Millis, long p90Millis,
+                             long p99Millis) {
+            this.mediaType = mediaType;
+            this.sizeBucket = sizeBucket;
+            this.count = count;
+            this.timeouts = timeouts;
+            this.totalMillis = totalMillis;
+            this.maxMillis = maxMillis;
+            this.p50Millis = p50Millis;
+            this.p90Millis = p90Millis;
+            this.p99Millis = p99Millis;
+        }
+
+        public String getMediaType() {
+            return mediaType;
+        }
+
+        /**
+         * @return size bucket, see {@link #getMaxLength()}; -1 if the length was unknown
+         */
+        public int getSizeBucket() {
+            return sizeBucket;
+        }
+
+        /**
+         * @return exclusive upper bound of the length of the documents in the bucket,
+         * or -1 if the length was unknown
+         */
+        public long getMaxLength() {
+            if (sizeBucket < 0) {
+                return -1;
+            }
+            return sizeBucket >= 31 ? Long.MAX_VALUE : 1L << (2 * sizeBucket + 1);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTimeouts() {
+            return timeouts;
+        }
+
+        public long getTotalMillis() {
+            return totalMillis;
+        }
+
+        public long getMaxMillis() {
+            return maxMillis;
+        }
+
+        public long getP50Millis() {
+            return p50Millis;
+        }
+
+        public long getP90Millis() {
+            return p90Millis;
+        }
+
+        public long getP99Millis() {
+            return p99Millis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "%s length<%s: count=%d timeouts=%d total=%dms max=%dms " +
+                            "p50<=%dms p90<=%dms p99<=%dms", mediaType,
+                    sizeBucket < 0 ? "unknown" : Long.toString(getMaxLength()), count,
+                    timeouts, totalMillis, maxMillis, p50Millis, p90Millis, p99Millis);
+        }
+    }
+}
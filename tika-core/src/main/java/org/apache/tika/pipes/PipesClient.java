@@ -16,6 +16,7 @@
  */
 package org.apache.tika.pipes;
 
+import static org.apache.tika.pipes.PipesServer.MAPPED_RESULT;
 import static org.apache.tika.pipes.PipesServer.STATUS.CALL;
 import static org.apache.tika.pipes.PipesServer.STATUS.PING;
 import static org.apache.tika.pipes.PipesServer.STATUS.READY;
@@ -26,9 +27,10 @@ import java.io.Closeable;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -40,8 +42,9 @@ import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
-import org.apache.commons.io.input.UnsynchronizedByteArrayInputStream;
 import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -51,6 +54,7 @@ import org.apache.tika.metadata.TikaCoreProperties;
 import org.apache.tika.parser.ParseContext;
 import org.apache.tika.pipes.emitter.EmitData;
 import org.apache.tika.pipes.emitter.EmitKey;
+import org.apache.tika.utils.ConcurrentUtils;
 import org.apache.tika.utils.ProcessUtils;
 import org.apache.tika.utils.StringUtils;
 
@@ -66,22 +70,58 @@ public class PipesClient implements Closeable {
     private static final int MAX_BYTES_BEFORE_READY = 20000;
     private static AtomicInteger CLIENT_COUNTER = new AtomicInteger(0);
     private static final long WAIT_ON_DESTROY_MS = 10000;
+    //how often to check whether an adaptive deadline has passed
+    private static final long CHECK_DEADLINE_MS = 200;
     //this synchronizes the creation and/or closing of the executorService
     //there are a number of assumptions throughout that PipesClient is run
-    //single threaded
-    private final Object[] executorServiceLock = new Object[0];
+    //single threaded.  This is not a monitor, so that virtual threads
+    //don't pin their carrier thread while waiting for it
+    private final ReentrantLock executorServiceLock = new ReentrantLock();
     private final PipesConfigBase pipesConfig;
     private final int pipesClientId;
+    private final PipesCodec codec;
+    private final ParseTimeTracker parseTimeTracker;
     private volatile boolean closed = false;
-    private ExecutorService executorService = Executors.newFixedThreadPool(1);
+    private ExecutorService executorService;
     private Process process;
     private DataOutputStream output;
     private DataInputStream input;
     private int filesProcessed = 0;
+    private Path resultFilePath;
+    private MappedResultFile resultFile;
 
     public PipesClient(PipesConfigBase pipesConfig) {
+        this(pipesConfig, null);
+    }
+
+    /**
+     * @param pipesConfig
+     * @param parseTimeTracker if not null, documents get timeouts from this tracker,
+     *                         and their parse times are recorded in it.  This may be
+     *                         shared by several clients.
+     */
+    public PipesClient(PipesConfigBase pipesConfig, ParseTimeTracker parseTimeTracker) {
         this.pipesConfig = pipesConfig;
+        this.parseTimeTracker = parseTimeTracker;
         this.pipesClientId = CLIENT_COUNTER.getAndIncrement();
+        this.codec = PipesCodec.newInstance(pipesConfig.getProtocol(),
+                pipesConfig.getCompressThresholdBytes());
+        this.executorService = newExecutorService();
+    }
+
+    /**
+     * With virtual threads, each read from the forked process gets a new
+     * virtual thread, otherwise they share a single platform thread.
+     */
+    private ExecutorService newExecutorService() {
+        if (!pipesConfig.isVirtualThreads()) {
+            return Executors.newFixedThreadPool(1);
+        }
+        ExecutorService virtualThreadExecutor = ConcurrentUtils.newVirtualThreadPerTaskExecutor();
+        if (virtualThreadExecutor == null) {
+            throw new IllegalStateException("virtualThreads requires Java 21 or later");
+        }
+        return virtualThreadExecutor;
     }
 
     public int getFilesProcessed() {
@@ -114,11 +154,20 @@ public class PipesClient implements Closeable {
                 //swallow
             }
         }
-        synchronized (executorServiceLock) {
+        executorServiceLock.lock();
+        try {
             if (executorService != null) {
                 executorService.shutdownNow();
             }
             closed = true;
+        } finally {
+            executorServiceLock.unlock();
+        }
+        if (resultFile != null) {
+            resultFile.close();
+        }
+        if (resultFilePath != null) {
+            Files.deleteIfExists(resultFilePath);
         }
     }
 
@@ -145,20 +194,24 @@ public class PipesClient implements Closeable {
                 }
             }
         }
-        return actuallyProcess(t);
+        long start = System.currentTimeMillis();
+        PipesResult[] intermediateResult = new PipesResult[1];
+        PipesResult result = actuallyProcess(t, start, intermediateResult);
+        if (parseTimeTracker != null && intermediateResult[0] != null) {
+            parseTimeTracker.record(intermediateResult[0].getEmitData().getMetadataList().get(0),
+                    result.getStatus(), System.currentTimeMillis() - start);
+        }
+        return result;
     }
 
-    private PipesResult actuallyProcess(FetchEmitTuple t) throws InterruptedException {
-        long start = System.currentTimeMillis();
-        final PipesResult[] intermediateResult = new PipesResult[1];
+    private PipesResult actuallyProcess(FetchEmitTuple t, long start,
+                                        PipesResult[] intermediateResult)
+            throws InterruptedException {
+        //until the type and length of the document are known
+        AtomicLong deadline = new AtomicLong(start + pipesConfig.getTimeoutMillis());
         FutureTask<PipesResult> futureTask = new FutureTask<>(() -> {
 
-            UnsynchronizedByteArrayOutputStream bos = UnsynchronizedByteArrayOutputStream.builder().get();
-            try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(bos)) {
-                objectOutputStream.writeObject(t);
-            }
-
-            byte[] bytes = bos.toByteArray();
+            byte[] bytes = codec.serialize(t);
             output.write(CALL.getByte());
             output.writeInt(bytes.length);
             output.write(bytes);
@@ -175,6 +228,10 @@ public class PipesClient implements Closeable {
             PipesResult result = readResults(t, start);
             while (result.getStatus().equals(PipesResult.STATUS.INTERMEDIATE_RESULT)) {
                 intermediateResult[0] = result;
+                if (parseTimeTracker != null) {
+                    deadline.set(start + parseTimeTracker.getTimeoutMillis(
+                            result.getEmitData().getMetadataList().get(0)));
+                }
                 result = readResults(t, start);
             }
             if (LOG.isDebugEnabled()) {
@@ -199,7 +256,10 @@ public class PipesClient implements Closeable {
                         ": PipesClient closed");
             }
             executorService.execute(futureTask);
-            return futureTask.get(pipesConfig.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+            if (parseTimeTracker == null) {
+                return futureTask.get(pipesConfig.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+            }
+            return awaitDeadline(futureTask, deadline);
         } catch (InterruptedException e) {
             destroyForcibly();
             throw e;
@@ -232,6 +292,26 @@ public class PipesClient implements Closeable {
         }
     }
 
+    /**
+     * Waits for the result until the deadline, which may move once the
+     * type and length of the document are known.
+     */
+    private PipesResult awaitDeadline(FutureTask<PipesResult> futureTask, AtomicLong deadline)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        while (true) {
+            long remaining = deadline.get() - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new TimeoutException();
+            }
+            try {
+                return futureTask.get(Math.min(remaining, CHECK_DEADLINE_MS),
+                        TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                //check the deadline again
+            }
+        }
+    }
+
     private PipesResult buildFatalResult(PipesResult result,
                                          PipesResult[] intermediateResult) {
 
@@ -363,42 +443,33 @@ public class PipesClient implements Closeable {
         return new PipesResult(status, msg);
     }
 
-    private PipesResult deserializeEmitData() throws IOException {
+    private ByteBuffer readResult() throws IOException {
         int length = input.readInt();
+        if (length == MAPPED_RESULT) {
+            //the server wrote the result to the memory mapped file
+            return resultFile.read(input.readInt());
+        }
         byte[] bytes = new byte[length];
         input.readFully(bytes);
-        try (ObjectInputStream objectInputStream = new ObjectInputStream(
-                UnsynchronizedByteArrayInputStream.builder().setByteArray(bytes).get())) {
-            EmitData emitData = (EmitData) objectInputStream.readObject();
+        return ByteBuffer.wrap(bytes);
+    }
 
-            String stack = emitData.getContainerStackTrace();
-            if (StringUtils.isBlank(stack)) {
-                return new PipesResult(emitData);
-            } else {
-                return new PipesResult(emitData, stack);
-            }
-        } catch (ClassNotFoundException e) {
-            LOG.error("class not found exception deserializing data", e);
-            //this should be catastrophic
-            throw new RuntimeException(e);
+    private PipesResult deserializeEmitData() throws IOException {
+        EmitData emitData = codec.deserializeEmitData(readResult());
+
+        String stack = emitData.getContainerStackTrace();
+        if (StringUtils.isBlank(stack)) {
+            return new PipesResult(emitData);
+        } else {
+            return new PipesResult(emitData, stack);
         }
     }
 
     private PipesResult deserializeIntermediateResult(EmitKey emitKey, ParseContext parseContext) throws IOException {
 
-        int length = input.readInt();
-        byte[] bytes = new byte[length];
-        input.readFully(bytes);
-        try (ObjectInputStream objectInputStream = new ObjectInputStream(
-                UnsynchronizedByteArrayInputStream.builder().setByteArray(bytes).get())) {
-            Metadata metadata = (Metadata) objectInputStream.readObject();
-            EmitData emitData = new EmitData(emitKey, Collections.singletonList(metadata));
-            return new PipesResult(PipesResult.STATUS.INTERMEDIATE_RESULT, emitData, true);
-        } catch (ClassNotFoundException e) {
-            LOG.error("class not found exception deserializing data", e);
-            //this should be catastrophic
-            throw new RuntimeException(e);
-        }
+        Metadata metadata = codec.deserializeMetadata(readResult());
+        EmitData emitData = new EmitData(emitKey, Collections.singletonList(metadata));
+        return new PipesResult(PipesResult.STATUS.INTERMEDIATE_RESULT, emitData, true);
     }
 
     private void restart() throws IOException, InterruptedException, TimeoutException {
@@ -414,17 +485,23 @@ public class PipesClient implements Closeable {
             if (! shutdown) {
                 LOG.warn("pipesClientId={}: executorService has not yet shutdown", pipesClientId);
             }
-            synchronized (executorServiceLock) {
+            executorServiceLock.lock();
+            try {
                 if (closed) {
                     throw new IllegalArgumentException("pipesClientId=" + pipesClientId +
                             ": PipesClient closed");
                 }
-                executorService = Executors.newFixedThreadPool(1);
+                executorService = newExecutorService();
+            } finally {
+                executorServiceLock.unlock();
             }
             LOG.info("pipesClientId={}: restarting process", pipesClientId);
         } else {
             LOG.info("pipesClientId={}: starting process", pipesClientId);
         }
+        if (pipesConfig.getMemoryMappedResultsThresholdBytes() > -1 && resultFile == null) {
+            initResultFile();
+        }
         ProcessBuilder pb = new ProcessBuilder(getCommandline());
         pb.redirectError(ProcessBuilder.Redirect.INHERIT);
 
@@ -490,6 +567,20 @@ public class PipesClient implements Closeable {
         }
     }
 
+    private void initResultFile() throws IOException {
+        Path dir = pipesConfig.getMemoryMappedResultsDirectory();
+        if (dir == null) {
+            resultFilePath = Files.createTempFile("tika-pipes-" + pipesClientId + "-", ".results");
+        } else {
+            Files.createDirectories(dir);
+            resultFilePath = Files.createTempFile(dir, "tika-pipes-" + pipesClientId + "-",
+                    ".results");
+        }
+        resultFile = MappedResultFile.openForReading(resultFilePath);
+        LOG.debug("pipesClientId={}: reading large results from {}", pipesClientId,
+                resultFilePath);
+    }
+
     private static String getMsg(String msg, UnsynchronizedByteArrayOutputStream bos) {
         String readSoFar = bos.toString(StandardCharsets.UTF_8);
         if (StringUtils.isBlank(readSoFar)) {
@@ -561,6 +652,13 @@ public class PipesClient implements Closeable {
         commandLine.add(Long.toString(pipesConfig.getMaxForEmitBatchBytes()));
         commandLine.add(Long.toString(pipesConfig.getTimeoutMillis()));
         commandLine.add(Long.toString(pipesConfig.getShutdownClientAfterMillis()));
+        commandLine.add(pipesConfig.getProtocol().name());
+        commandLine.add(Integer.toString(pipesConfig.getCompressThresholdBytes()));
+        if (resultFilePath != null) {
+            commandLine.add(Integer.toString(pipesConfig.getMemoryMappedResultsThresholdBytes()));
+            commandLine.add(ProcessUtils.escapeCommandLine(
+                    resultFilePath.toAbsolutePath().toString()));
+        }
         LOG.debug("pipesClientId={}: commandline: {}", pipesClientId, commandLine);
         return commandLine.toArray(new String[0]);
     }
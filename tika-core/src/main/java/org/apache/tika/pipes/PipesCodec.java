@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.pipes;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.pipes.emitter.EmitData;
+
+/**
+ * Serializes the payloads that the {@link PipesClient} and the forked
+ * {@link PipesServer} exchange: the {@link FetchEmitTuple} that is sent
+ * to the server, and the {@link EmitData} and intermediate {@link Metadata}
+ * that are sent back.
+ * <p>
+ * Messages are read from a {@link ByteBuffer} so that they can be decoded
+ * directly from a memory mapped result file.
+ * <p>
+ * Implementations are not thread safe. Each client and each server uses
+ * its own instance.
+ */
+public interface PipesCodec {
+
+    /**
+     * {@link PROTOCOL#JAVA} uses java serialization and is the default.
+     * <p>
+     * {@link PROTOCOL#BINARY} is a compact, versioned format that writes
+     * length-prefixed UTF-8 strings, writes each metadata key only once per
+     * message and can deflate large values such as the extracted content.
+     * Only the {@link org.apache.tika.parser.ParseContext}, if not empty,
+     * is still written with java serialization.
+     */
+    enum PROTOCOL {
+        JAVA,
+        BINARY;
+
+        public static PROTOCOL parse(String protocolString) {
+            for (PROTOCOL p : PROTOCOL.values()) {
+                if (p.name().equalsIgnoreCase(protocolString)) {
+                    return p;
+                }
+            }
+            throw new IllegalArgumentException("I regret that I don't recognize '" +
+                    protocolString + "'. I only understand: " +
+                    String.join(", ", names()));
+        }
+
+        private static String[] names() {
+            PROTOCOL[] protocols = PROTOCOL.values();
+            String[] names = new String[protocols.length];
+            for (int i = 0; i < protocols.length; i++) {
+                names[i] = protocols[i].name().toLowerCase(Locale.US);
+            }
+            return names;
+        }
+    }
+
+    /**
+     * @param protocol               protocol to use
+     * @param compressThresholdBytes minimum size in bytes of a metadata value that
+     *                               {@link PROTOCOL#BINARY} deflates; <code>-1</code>
+     *                               to never compress. Ignored by other protocols.
+     * @return a new codec
+     */
+    static PipesCodec newInstance(PROTOCOL protocol, int compressThresholdBytes) {
+        switch (protocol) {
+            case JAVA:
+                return new JavaPipesCodec();
+            case BINARY:
+                return new BinaryPipesCodec(compressThresholdBytes);
+            default:
+                throw new IllegalArgumentException("Unsupported protocol: " + protocol);
+        }
+    }
+
+    byte[] serialize(FetchEmitTuple t) throws IOException;
+
+    FetchEmitTuple deserializeFetchEmitTuple(ByteBuffer bytes) throws IOException;
+
+    byte[] serialize(EmitData emitData) throws IOException;
+
+    EmitData deserializeEmitData(ByteBuffer bytes) throws IOException;
+
+    byte[] serialize(Metadata metadata) throws IOException;
+
+    Metadata deserializeMetadata(ByteBuffer bytes) throws IOException;
+}
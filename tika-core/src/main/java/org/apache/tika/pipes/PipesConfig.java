@@ -38,6 +38,7 @@ public class PipesConfig extends PipesConfigBase {
         try (InputStream is = Files.newInputStream(tikaConfig)) {
             Set<String> settings = pipesConfig.configure("pipes", is);
         }
+        pipesConfig.checkVirtualThreads();
         if (pipesConfig.getTikaConfig() == null) {
             LOG.debug("A separate tikaConfig was not specified in the <pipes/> element in the  " +
                     "config file; will use {} for pipes", tikaConfig);
@@ -49,6 +50,7 @@ public class PipesConfig extends PipesConfigBase {
     public static PipesConfig load(InputStream tikaConfigInputStream) throws IOException, TikaConfigException {
         PipesConfig pipesConfig = new PipesConfig();
         pipesConfig.configure("pipes", tikaConfigInputStream);
+        pipesConfig.checkVirtualThreads();
         return pipesConfig;
     }
 
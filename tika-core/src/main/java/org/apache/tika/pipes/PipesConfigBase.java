@@ -23,6 +23,7 @@ import java.util.Collections;
 import java.util.List;
 
 import org.apache.tika.config.ConfigBase;
+import org.apache.tika.exception.TikaConfigException;
 
 public class PipesConfigBase extends ConfigBase {
 
@@ -61,6 +62,24 @@ public class PipesConfigBase extends ConfigBase {
     private List<String> forkedJvmArgs = new ArrayList<>();
     private Path tikaConfig;
     private String javaPath = "java";
+    private PipesCodec.PROTOCOL protocol = PipesCodec.PROTOCOL.JAVA;
+    public static final int DEFAULT_COMPRESS_THRESHOLD_BYTES = -1;
+    private int compressThresholdBytes = DEFAULT_COMPRESS_THRESHOLD_BYTES;
+    private int memoryMappedResultsThresholdBytes = -1;
+    private Path memoryMappedResultsDirectory;
+    public static final long DEFAULT_MIN_TIMEOUT_MILLIS = 10000;
+    public static final double DEFAULT_ADAPTIVE_TIMEOUT_MULTIPLIER = 4.0;
+    public static final int DEFAULT_ADAPTIVE_TIMEOUT_MIN_SAMPLES = 50;
+    private boolean adaptiveTimeouts = false;
+    private long minTimeoutMillis = DEFAULT_MIN_TIMEOUT_MILLIS;
+    private double adaptiveTimeoutMultiplier = DEFAULT_ADAPTIVE_TIMEOUT_MULTIPLIER;
+    private int adaptiveTimeoutMinSamples = DEFAULT_ADAPTIVE_TIMEOUT_MIN_SAMPLES;
+    public static final int DEFAULT_SPOOL_MEMORY_THRESHOLD_BYTES = 1024 * 1024;
+    public static final long DEFAULT_MAX_SPOOL_BYTES = 100L * 1024 * 1024;
+    private int spoolMemoryThresholdBytes = DEFAULT_SPOOL_MEMORY_THRESHOLD_BYTES;
+    private long maxSpoolBytes = DEFAULT_MAX_SPOOL_BYTES;
+    private Path spoolDirectory;
+    private boolean virtualThreads = false;
 
     public long getTimeoutMillis() {
         return timeoutMillis;
@@ -189,4 +208,212 @@ public class PipesConfigBase extends ConfigBase {
     public void setStaleFetcherDelaySeconds(int staleFetcherDelaySeconds) {
         this.staleFetcherDelaySeconds = staleFetcherDelaySeconds;
     }
+
+    public PipesCodec.PROTOCOL getProtocol() {
+        return protocol;
+    }
+
+    /**
+     * Protocol used to exchange tuples and results between the PipesClient
+     * and the forked PipesServer.  See {@link PipesCodec.PROTOCOL}.
+     *
+     * @param protocol
+     */
+    public void setProtocol(PipesCodec.PROTOCOL protocol) {
+        this.protocol = protocol;
+    }
+
+    public void setProtocol(String protocol) {
+        setProtocol(PipesCodec.PROTOCOL.parse(protocol));
+    }
+
+    public int getCompressThresholdBytes() {
+        return compressThresholdBytes;
+    }
+
+    /**
+     * With the {@link PipesCodec.PROTOCOL#BINARY} protocol, deflate metadata
+     * values, typically the extracted content, that are at least this many bytes
+     * long.  If set to <code>-1</code>, values are never compressed.
+     *
+     * @param compressThresholdBytes
+     */
+    public void setCompressThresholdBytes(int compressThresholdBytes) {
+        this.compressThresholdBytes = compressThresholdBytes;
+    }
+
+    public int getMemoryMappedResultsThresholdBytes() {
+        return memoryMappedResultsThresholdBytes;
+    }
+
+    /**
+     * If set to a value &gt;= <code>0</code>, the forked PipesServer writes results of
+     * at least this many bytes to a memory mapped file that is shared with the
+     * PipesClient, and only the status and length go through the process's
+     * stdout.  This avoids copying large extracts through the pipe.
+     * If set to <code>-1</code> (the default), all results go through stdout.
+     *
+     * @param memoryMappedResultsThresholdBytes
+     */
+    public void setMemoryMappedResultsThresholdBytes(int memoryMappedResultsThresholdBytes) {
+        this.memoryMappedResultsThresholdBytes = memoryMappedResultsThresholdBytes;
+    }
+
+    public Path getMemoryMappedResultsDirectory() {
+        return memoryMappedResultsDirectory;
+    }
+
+    /**
+     * Directory for the memory mapped result files, one per client.  If not set,
+     * the default temporary directory is used.  A RAM-backed file system such as
+     * <code>/dev/shm</code> avoids any writes to disk.
+     *
+     * @param memoryMappedResultsDirectory
+     */
+    public void setMemoryMappedResultsDirectory(Path memoryMappedResultsDirectory) {
+        this.memoryMappedResultsDirectory = memoryMappedResultsDirectory;
+    }
+
+    public void setMemoryMappedResultsDirectory(String memoryMappedResultsDirectory) {
+        setMemoryMappedResultsDirectory(Paths.get(memoryMappedResultsDirectory));
+    }
+
+    public boolean isAdaptiveTimeouts() {
+        return adaptiveTimeouts;
+    }
+
+    /**
+     * If <code>true</code>, each document gets a timeout that is learned from the
+     * parse times of earlier documents of the same media type and size, see
+     * {@link ParseTimeTracker}.  {@link #getTimeoutMillis()} is then the longest
+     * timeout that a document can get.  The default is <code>false</code>.
+     *
+     * @param adaptiveTimeouts
+     */
+    public void setAdaptiveTimeouts(boolean adaptiveTimeouts) {
+        this.adaptiveTimeouts = adaptiveTimeouts;
+    }
+
+    public long getMinTimeoutMillis() {
+        return minTimeoutMillis;
+    }
+
+    /**
+     * Shortest timeout that a document can get if {@link #isAdaptiveTimeouts()}.
+     *
+     * @param minTimeoutMillis
+     */
+    public void setMinTimeoutMillis(long minTimeoutMillis) {
+        this.minTimeoutMillis = minTimeoutMillis;
+    }
+
+    public double getAdaptiveTimeoutMultiplier() {
+        return adaptiveTimeoutMultiplier;
+    }
+
+    /**
+     * With adaptive timeouts, a document may take this many times the 99th
+     * percentile of the parse times of similar documents.
+     *
+     * @param adaptiveTimeoutMultiplier
+     */
+    public void setAdaptiveTimeoutMultiplier(double adaptiveTimeoutMultiplier) {
+        this.adaptiveTimeoutMultiplier = adaptiveTimeoutMultiplier;
+    }
+
+    public int getAdaptiveTimeoutMinSamples() {
+        return adaptiveTimeoutMinSamples;
+    }
+
+    /**
+     * With adaptive timeouts, documents get {@link #getTimeoutMillis()} until
+     * this many similar documents have been parsed.
+     *
+     * @param adaptiveTimeoutMinSamples
+     */
+    public void setAdaptiveTimeoutMinSamples(int adaptiveTimeoutMinSamples) {
+        this.adaptiveTimeoutMinSamples = adaptiveTimeoutMinSamples;
+    }
+
+    public int getSpoolMemoryThresholdBytes() {
+        return spoolMemoryThresholdBytes;
+    }
+
+    /**
+     * Documents that are uploaded to the gRPC server are held in memory up to
+     * this many bytes; larger documents are written to a file in
+     * {@link #getSpoolDirectory()} as they arrive.
+     *
+     * @param spoolMemoryThresholdBytes
+     */
+    public void setSpoolMemoryThresholdBytes(int spoolMemoryThresholdBytes) {
+        this.spoolMemoryThresholdBytes = spoolMemoryThresholdBytes;
+    }
+
+    public long getMaxSpoolBytes() {
+        return maxSpoolBytes;
+    }
+
+    /**
+     * Maximum length of a document that is uploaded to the gRPC server.
+     * Longer uploads are rejected. Set to <code>-1</code> for no limit.
+     *
+     * @param maxSpoolBytes
+     */
+    public void setMaxSpoolBytes(long maxSpoolBytes) {
+        this.maxSpoolBytes = maxSpoolBytes;
+    }
+
+    public Path getSpoolDirectory() {
+        return spoolDirectory;
+    }
+
+    /**
+     * Directory in which the gRPC server spools uploaded documents for the
+     * forked PipesServer to read. If not set, a new temporary directory is used.
+     *
+     * @param spoolDirectory
+     */
+    public void setSpoolDirectory(Path spoolDirectory) {
+        this.spoolDirectory = spoolDirectory;
+    }
+
+    public void setSpoolDirectory(String spoolDirectory) {
+        setSpoolDirectory(Paths.get(spoolDirectory));
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Run the threads that wait on the forked processes on virtual threads
+     * instead of platform threads: the thread with which each
+     * {@link PipesClient} reads from its process, and, in the
+     * {@link org.apache.tika.pipes.async.AsyncProcessor}, the fetch/emit
+     * workers, the emitters and the watcher.
+     * <p>
+     * This saves platform threads, it does not add concurrency: each
+     * worker still drives one forked process, so at most
+     * {@link #getNumClients()} documents are parsed at a time.
+     * <p>
+     * This requires Java 21 or later. Loading a configuration that turns
+     * this on fails on older JVMs.
+     *
+     * @param virtualThreads
+     */
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * @throws TikaConfigException if virtual threads are configured, but
+     * this JVM doesn't support them
+     */
+    protected void checkVirtualThreads() throws TikaConfigException {
+        if (virtualThreads && Runtime.version().feature() < 21) {
+            throw new TikaConfigException("virtualThreads requires Java 21 or later, " +
+                    "but this is Java " + Runtime.version().feature());
+        }
+    }
 }
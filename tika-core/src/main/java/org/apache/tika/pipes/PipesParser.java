@@ -29,13 +29,17 @@ public class PipesParser implements Closeable {
     private final PipesConfig pipesConfig;
     private final List<PipesClient> clients = new ArrayList<>();
     private final ArrayBlockingQueue<PipesClient> clientQueue ;
+    //null unless adaptive timeouts are configured
+    private final ParseTimeTracker parseTimeTracker;
 
 
     public PipesParser(PipesConfig pipesConfig) {
         this.pipesConfig = pipesConfig;
         this.clientQueue = new ArrayBlockingQueue<>(pipesConfig.getNumClients());
+        this.parseTimeTracker = pipesConfig.isAdaptiveTimeouts() ?
+                new ParseTimeTracker(pipesConfig) : null;
         for (int i = 0; i < pipesConfig.getNumClients(); i++) {
-            PipesClient client = new PipesClient(pipesConfig);
+            PipesClient client = new PipesClient(pipesConfig, parseTimeTracker);
             clientQueue.offer(client);
             clients.add(client);
         }
@@ -58,6 +62,14 @@ public class PipesParser implements Closeable {
         }
     }
 
+    /**
+     * @return the parse times of the documents processed so far, or null
+     * if adaptive timeouts are not configured
+     */
+    public ParseTimeTracker getParseTimeTracker() {
+        return parseTimeTracker;
+    }
+
     @Override
     public void close() throws IOException {
         List<IOException> exceptions = new ArrayList<>();
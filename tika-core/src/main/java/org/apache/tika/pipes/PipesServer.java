@@ -21,9 +21,8 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -34,7 +33,6 @@ import java.util.Optional;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.input.UnsynchronizedByteArrayInputStream;
-import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xml.sax.ContentHandler;
@@ -97,6 +95,12 @@ public class PipesServer implements Runnable {
     //this has to be some number not close to 0-3
     //it looks like the server crashes with exit value 3 on OOM, for example
     public static final int TIMEOUT_EXIT_CODE = 17;
+
+    /**
+     * Written instead of the length of a result if the result itself was written
+     * to the memory mapped result file. The actual length follows.
+     */
+    static final int MAPPED_RESULT = -1;
     private DigestingParser.Digester digester;
 
     private Detector detector;
@@ -137,6 +141,10 @@ public class PipesServer implements Runnable {
     private final long maxForEmitBatchBytes;
     private final long serverParseTimeoutMillis;
     private final long serverWaitTimeoutMillis;
+    private final PipesCodec codec;
+    //results at least this long are written to the resultFile instead of stdout
+    private final int memoryMappedResultsThresholdBytes;
+    private final MappedResultFile resultFile;
     private Parser autoDetectParser;
     private Parser rMetaParser;
     private TikaConfig tikaConfig;
@@ -150,12 +158,31 @@ public class PipesServer implements Runnable {
                        long maxForEmitBatchBytes, long serverParseTimeoutMillis,
                        long serverWaitTimeoutMillis)
             throws IOException, TikaException, SAXException {
+        this(tikaConfigPath, in, out, maxForEmitBatchBytes, serverParseTimeoutMillis,
+                serverWaitTimeoutMillis, PipesCodec.PROTOCOL.JAVA,
+                PipesConfigBase.DEFAULT_COMPRESS_THRESHOLD_BYTES, -1, null);
+    }
+
+    public PipesServer(Path tikaConfigPath, InputStream in, PrintStream out,
+                       long maxForEmitBatchBytes, long serverParseTimeoutMillis,
+                       long serverWaitTimeoutMillis, PipesCodec.PROTOCOL protocol,
+                       int compressThresholdBytes, int memoryMappedResultsThresholdBytes,
+                       Path memoryMappedResultsPath)
+            throws IOException, TikaException, SAXException {
         this.tikaConfigPath = tikaConfigPath;
         this.input = new DataInputStream(in);
         this.output = new DataOutputStream(out);
         this.maxForEmitBatchBytes = maxForEmitBatchBytes;
         this.serverParseTimeoutMillis = serverParseTimeoutMillis;
         this.serverWaitTimeoutMillis = serverWaitTimeoutMillis;
+        this.codec = PipesCodec.newInstance(protocol, compressThresholdBytes);
+        if (memoryMappedResultsPath != null && memoryMappedResultsThresholdBytes > -1) {
+            this.resultFile = MappedResultFile.openForWriting(memoryMappedResultsPath);
+            this.memoryMappedResultsThresholdBytes = memoryMappedResultsThresholdBytes;
+        } else {
+            this.resultFile = null;
+            this.memoryMappedResultsThresholdBytes = -1;
+        }
         this.parsing = false;
         this.since = System.currentTimeMillis();
     }
@@ -167,10 +194,19 @@ public class PipesServer implements Runnable {
             long maxForEmitBatchBytes = Long.parseLong(args[1]);
             long serverParseTimeoutMillis = Long.parseLong(args[2]);
             long serverWaitTimeoutMillis = Long.parseLong(args[3]);
+            PipesCodec.PROTOCOL protocol = args.length > 4 ?
+                    PipesCodec.PROTOCOL.parse(args[4]) : PipesCodec.PROTOCOL.JAVA;
+            int compressThresholdBytes = args.length > 5 ? Integer.parseInt(args[5]) :
+                    PipesConfigBase.DEFAULT_COMPRESS_THRESHOLD_BYTES;
+            int memoryMappedResultsThresholdBytes = args.length > 7 ?
+                    Integer.parseInt(args[6]) : -1;
+            Path memoryMappedResultsPath = args.length > 7 ? Paths.get(args[7]) : null;
 
             PipesServer server =
                     new PipesServer(tikaConfig, System.in, System.out, maxForEmitBatchBytes,
-                            serverParseTimeoutMillis, serverWaitTimeoutMillis);
+                            serverParseTimeoutMillis, serverWaitTimeoutMillis, protocol,
+                            compressThresholdBytes, memoryMappedResultsThresholdBytes,
+                            memoryMappedResultsPath);
             System.setIn(UnsynchronizedByteArrayInputStream.builder().setByteArray(new byte[0]).get());
             System.setOut(System.err);
             Thread watchdog = new Thread(server, "Tika Watchdog");
@@ -744,16 +780,10 @@ public class PipesServer implements Runnable {
             int length = input.readInt();
             byte[] bytes = new byte[length];
             input.readFully(bytes);
-            try (ObjectInputStream objectInputStream = new ObjectInputStream(
-                    UnsynchronizedByteArrayInputStream.builder().setByteArray(bytes).get())) {
-                return (FetchEmitTuple) objectInputStream.readObject();
-            }
+            return codec.deserializeFetchEmitTuple(ByteBuffer.wrap(bytes));
         } catch (IOException e) {
             LOG.error("problem reading tuple", e);
             exit(1);
-        } catch (ClassNotFoundException e) {
-            LOG.error("can't find class?!", e);
-            exit(1);
         }
         //unreachable, no?!
         return null;
@@ -795,11 +825,9 @@ public class PipesServer implements Runnable {
 
     private void writeIntermediate(EmitKey emitKey, Metadata metadata) {
         try {
-            UnsynchronizedByteArrayOutputStream bos = UnsynchronizedByteArrayOutputStream.builder().get();
-            try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(bos)) {
-                objectOutputStream.writeObject(metadata);
-            }
-            write(STATUS.INTERMEDIATE_RESULT, bos.toByteArray());
+            //not through the result file: the client may still be reading this
+            //while the final result is written
+            write(STATUS.INTERMEDIATE_RESULT, codec.serialize(metadata));
         } catch (IOException e) {
             LOG.error("problem writing intermediate data (forking process shutdown?)", e);
             exit(1);
@@ -808,11 +836,7 @@ public class PipesServer implements Runnable {
 
     private void write(EmitData emitData) {
         try {
-            UnsynchronizedByteArrayOutputStream bos = UnsynchronizedByteArrayOutputStream.builder().get();
-            try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(bos)) {
-                objectOutputStream.writeObject(emitData);
-            }
-            write(STATUS.PARSE_SUCCESS, bos.toByteArray());
+            writeResult(STATUS.PARSE_SUCCESS, codec.serialize(emitData));
         } catch (IOException e) {
             LOG.error("problem writing emit data (forking process shutdown?)", e);
             exit(1);
@@ -824,6 +848,18 @@ public class PipesServer implements Runnable {
         write(status, bytes);
     }
 
+    private void writeResult(STATUS status, byte[] bytes) throws IOException {
+        if (resultFile == null || bytes.length < memoryMappedResultsThresholdBytes) {
+            write(status, bytes);
+            return;
+        }
+        resultFile.write(bytes);
+        output.write(status.getByte());
+        output.writeInt(MAPPED_RESULT);
+        output.writeInt(bytes.length);
+        output.flush();
+    }
+
     private void write(STATUS status, byte[] bytes) {
         try {
             int len = bytes.length;
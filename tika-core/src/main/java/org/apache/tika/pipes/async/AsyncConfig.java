@@ -42,6 +42,7 @@ public class AsyncConfig extends PipesConfigBase {
         try (InputStream is = Files.newInputStream(p)) {
             asyncConfig.configure("async", is);
         }
+        asyncConfig.checkVirtualThreads();
         if (asyncConfig.getTikaConfig() == null) {
             asyncConfig.setTikaConfig(p);
         }
@@ -35,6 +35,7 @@ import org.slf4j.LoggerFactory;
 
 import org.apache.tika.exception.TikaException;
 import org.apache.tika.pipes.FetchEmitTuple;
+import org.apache.tika.pipes.ParseTimeTracker;
 import org.apache.tika.pipes.PipesClient;
 import org.apache.tika.pipes.PipesException;
 import org.apache.tika.pipes.PipesReporter;
@@ -44,6 +45,7 @@ import org.apache.tika.pipes.emitter.EmitterManager;
 import org.apache.tika.pipes.pipesiterator.PipesIterator;
 import org.apache.tika.pipes.pipesiterator.TotalCountResult;
 import org.apache.tika.pipes.pipesiterator.TotalCounter;
+import org.apache.tika.utils.ConcurrentUtils;
 
 /**
  * This is the main class for handling async requests. This manages
@@ -62,6 +64,8 @@ public class AsyncProcessor implements Closeable {
     private final ExecutorCompletionService<Integer> executorCompletionService;
     private final ExecutorService executorService;
     private final AsyncConfig asyncConfig;
+    //null unless adaptive timeouts are configured
+    private final ParseTimeTracker parseTimeTracker;
     private final AtomicLong totalProcessed = new AtomicLong(0);
     private static long MAX_OFFER_WAIT_MS = 120000;
     private volatile int numParserThreadsFinished = 0;
@@ -75,11 +79,11 @@ public class AsyncProcessor implements Closeable {
 
     public AsyncProcessor(Path tikaConfigPath, PipesIterator pipesIterator) throws TikaException, IOException {
         this.asyncConfig = AsyncConfig.load(tikaConfigPath);
+        this.parseTimeTracker = asyncConfig.isAdaptiveTimeouts() ?
+                new ParseTimeTracker(asyncConfig) : null;
         this.fetchEmitTuples = new ArrayBlockingQueue<>(asyncConfig.getQueueSize());
         this.emitData = new ArrayBlockingQueue<>(100);
-        //+1 is the watcher thread
-        this.executorService = Executors.newFixedThreadPool(
-                asyncConfig.getNumClients() + asyncConfig.getNumEmitters() + 1);
+        this.executorService = newExecutorService(asyncConfig);
         this.executorCompletionService =
                 new ExecutorCompletionService<>(executorService);
         try {
@@ -123,6 +127,16 @@ public class AsyncProcessor implements Closeable {
         }
     }
 
+    private static ExecutorService newExecutorService(AsyncConfig asyncConfig) {
+        if (asyncConfig.isVirtualThreads()) {
+            //AsyncConfig#load has checked that this JVM supports virtual threads
+            return ConcurrentUtils.newVirtualThreadPerTaskExecutor();
+        }
+        //+1 is the watcher thread
+        return Executors.newFixedThreadPool(
+                asyncConfig.getNumClients() + asyncConfig.getNumEmitters() + 1);
+    }
+
     private void startCounter(TotalCounter totalCounter) {
         Thread counterThread = new Thread(() -> {
             totalCounter.startTotalCount();
@@ -252,12 +266,23 @@ public class AsyncProcessor implements Closeable {
     public void close() throws IOException {
         executorService.shutdownNow();
         asyncConfig.getPipesReporter().close();
+        if (parseTimeTracker != null) {
+            LOG.info("parse times: {}", parseTimeTracker);
+        }
     }
 
     public long getTotalProcessed() {
         return totalProcessed.get();
     }
 
+    /**
+     * @return the parse times of the documents processed so far, or null
+     * if adaptive timeouts are not configured
+     */
+    public ParseTimeTracker getParseTimeTracker() {
+        return parseTimeTracker;
+    }
+
     private class FetchEmitWorker implements Callable<Integer> {
 
         private final AsyncConfig asyncConfig;
@@ -275,7 +300,7 @@ public class AsyncProcessor implements Closeable {
         @Override
         public Integer call() throws Exception {
 
-            try (PipesClient pipesClient = new PipesClient(asyncConfig)) {
+            try (PipesClient pipesClient = new PipesClient(asyncConfig, parseTimeTracker)) {
                 while (true) {
                     FetchEmitTuple t = fetchEmitTuples.poll(1, TimeUnit.SECONDS);
                     if (t == null) {
@@ -118,6 +118,13 @@ public abstract class AbstractRecursiveParserWrapperHandler extends DefaultHandl
         return maxEmbeddedResources > -1 && embeddedResources >= maxEmbeddedResources;
     }
 
+    /**
+     * @return the maximum number of embedded resources to parse, or -1 for no limit
+     */
+    public int getMaxEmbeddedResources() {
+        return maxEmbeddedResources;
+    }
+
     public ContentHandlerFactory getContentHandlerFactory() {
         return contentHandlerFactory;
     }
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.sax;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the characters written by all the handlers of a single request,
+ * for example a container document and its embedded documents, and
+ * enforces a shared write limit.
+ * <p>
+ * Characters are counted per {@link org.xml.sax.ContentHandler#characters(char[], int, int)}
+ * chunk, not per character. Without a write limit, the count is striped
+ * across threads; with a limit, each chunk takes a single compare-and-set.
+ * Neither case takes a lock, so the counter may be shared by handlers
+ * that run concurrently, and read at any time.
+ *
+ * @since Apache Tika 4.0.0
+ */
+public class WriteLimitCounter {
+
+    private final int writeLimit;
+
+    //used if there is a write limit
+    private final AtomicInteger written = new AtomicInteger(0);
+
+    //used if there is no write limit
+    private final LongAdder unlimited = new LongAdder();
+
+    private volatile boolean writeLimitReached = false;
+
+    /**
+     * @param writeLimit maximum number of characters to write, or -1 for no limit
+     */
+    public WriteLimitCounter(int writeLimit) {
+        this.writeLimit = writeLimit;
+    }
+
+    /**
+     * Counts as many of the given characters as the write limit allows.
+     * If fewer than <code>length</code> characters are available, the write
+     * limit is marked as reached.
+     *
+     * @param length number of characters that a handler wants to write
+     * @return number of characters that the handler may write
+     */
+    public int reserve(int length) {
+        if (writeLimit < 0) {
+            unlimited.add(length);
+            return length;
+        }
+        while (true) {
+            int current = written.get();
+            int available = Math.min(writeLimit - current, length);
+            if (available <= 0) {
+                if (length > 0) {
+                    writeLimitReached = true;
+                }
+                return 0;
+            }
+            if (written.compareAndSet(current, current + available)) {
+                if (available < length) {
+                    writeLimitReached = true;
+                }
+                return available;
+            }
+        }
+    }
+
+    /**
+     * @return the write limit, or -1 if there is no limit
+     */
+    public int getWriteLimit() {
+        return writeLimit;
+    }
+
+    /**
+     * @return number of characters written so far
+     */
+    public long getCharsWritten() {
+        return writeLimit < 0 ? unlimited.sum() : written.get();
+    }
+
+    /**
+     * @return whether a handler has asked for more characters than were available
+     */
+    public boolean isWriteLimitReached() {
+        return writeLimitReached;
+    }
+}
@@ -50,6 +50,11 @@ public class WriteOutContentHandler extends ContentHandlerDecorator {
 
     private boolean writeLimitReached;
 
+    /**
+     * Counter shared with other handlers of the same request, or null.
+     */
+    private final WriteLimitCounter sharedCounter;
+
     /**
      * Creates a content handler that writes content up to the given
      * write limit to the given content handler.
@@ -61,6 +66,7 @@ public class WriteOutContentHandler extends ContentHandlerDecorator {
     public WriteOutContentHandler(ContentHandler handler, int writeLimit) {
         super(handler);
         this.writeLimit = writeLimit;
+        this.sharedCounter = null;
     }
 
     /**
@@ -131,6 +137,28 @@ public class WriteOutContentHandler extends ContentHandlerDecorator {
         this.writeLimit = writeLimit;
         this.throwOnWriteLimitReached = throwOnWriteLimitReached;
         this.parseContext = parseContext;
+        this.sharedCounter = null;
+    }
+
+    /**
+     * Creates a content handler whose write limit is shared with other
+     * handlers, e.g. those of the embedded documents of a container.
+     * The counter may be read at any time for the total number of
+     * characters written by all of these handlers.
+     *
+     * @param handler                  content handler to be decorated
+     * @param counter                  shared counter
+     * @param throwOnWriteLimitReached whether to throw a {@link WriteLimitReachedException}
+     * @param parseContext             context with the {@link ParseRecord}, if not throwing
+     * @since Apache Tika 4.0.0
+     */
+    public WriteOutContentHandler(ContentHandler handler, WriteLimitCounter counter,
+                                  boolean throwOnWriteLimitReached, ParseContext parseContext) {
+        super(handler);
+        this.writeLimit = counter.getWriteLimit();
+        this.throwOnWriteLimitReached = throwOnWriteLimitReached;
+        this.parseContext = parseContext;
+        this.sharedCounter = counter;
     }
 
     /**
@@ -141,11 +169,11 @@ public class WriteOutContentHandler extends ContentHandlerDecorator {
         if (writeLimitReached) {
             return;
         }
-        if (writeLimit == -1 || writeCount + length <= writeLimit) {
-            super.characters(ch, start, length);
-            writeCount += length;
-        } else {
-            super.characters(ch, start, writeLimit - writeCount);
+        int available = reserve(length);
+        if (available > 0) {
+            super.characters(ch, start, available);
+        }
+        if (available < length) {
             handleWriteLimitReached();
         }
     }
@@ -155,18 +183,51 @@ public class WriteOutContentHandler extends ContentHandlerDecorator {
         if (writeLimitReached) {
             return;
         }
-        if (writeLimit == -1 || writeCount + length <= writeLimit) {
-            super.ignorableWhitespace(ch, start, length);
-            writeCount += length;
-        } else {
-            super.ignorableWhitespace(ch, start, writeLimit - writeCount);
+        int available = reserve(length);
+        if (available > 0) {
+            super.ignorableWhitespace(ch, start, available);
+        }
+        if (available < length) {
             handleWriteLimitReached();
         }
     }
 
+    /**
+     * Counts a whole chunk of characters at once.
+     *
+     * @return how many of the <code>length</code> characters may be written
+     */
+    private int reserve(int length) {
+        int available;
+        if (sharedCounter != null) {
+            available = sharedCounter.reserve(length);
+        } else if (writeLimit < 0) {
+            available = length;
+        } else {
+            available = Math.min(writeLimit - writeCount, length);
+        }
+        writeCount += available;
+        return available;
+    }
+
+    /**
+     * @return number of characters written by this handler
+     * @since Apache Tika 4.0.0
+     */
+    public int getWriteCount() {
+        return writeCount;
+    }
+
+    /**
+     * @return whether this handler has stopped writing because of the write limit
+     * @since Apache Tika 4.0.0
+     */
+    public boolean isWriteLimitReached() {
+        return writeLimitReached;
+    }
+
     private void handleWriteLimitReached() throws WriteLimitReachedException {
         writeLimitReached = true;
-        writeCount = writeLimit;
         if (throwOnWriteLimitReached) {
             throw new WriteLimitReachedException(writeLimit);
         } else {
@@ -16,7 +16,9 @@
  */
 package org.apache.tika.utils;
 
+import java.lang.reflect.InvocationTargetException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
 
@@ -52,4 +54,27 @@ public class ConcurrentUtils {
 
         return future;
     }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task.
+     * <p>
+     * Tika still compiles against Java 17, so this looks up
+     * <code>Executors.newVirtualThreadPerTaskExecutor()</code> reflectively.
+     *
+     * @return the executor, or <code>null</code> if this JVM doesn't support
+     * virtual threads (before Java 21)
+     * @since Apache Tika 4.0.0
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (Runtime.version().feature() < 21) {
+            return null;
+        }
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException |
+                 InvocationTargetException e) {
+            return null;
+        }
+    }
 }
@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.utils;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.tika.exception.TikaException;
+
+/**
+ * Pool of SAX parsers or DOM builders behind {@link XMLReaderUtils}.
+ * <p>
+ * Acquiring and releasing never block. Each item carries its own state, and
+ * a thread claims an idle item with a compare-and-set. A thread first tries
+ * the item that it released last, and only then scans the shared list.
+ * If no item is idle, the pool grows by one item, up to its maximum size.
+ * Beyond that, callers get an item that is not pooled and that is dropped
+ * when it is released.
+ * <p>
+ * Items that have been idle for longer than the idle timeout are evicted
+ * until the pool is back at its minimum size. There is no background thread:
+ * eviction runs on acquire and release, at most every half idle timeout.
+ */
+class XMLParserPool<T extends XMLParserPool.Item> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(XMLParserPool.class);
+
+    private static final long LOG_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    private static final int IDLE = 0;
+
+    private static final int IN_USE = 1;
+
+    private static final int EVICTED = 2;
+
+    /**
+     * Something that can be pooled. Subclasses wrap the actual parser.
+     */
+    abstract static class Item {
+        final int poolGeneration;
+        final AtomicInteger state = new AtomicInteger(IN_USE);
+        volatile long lastReleased;
+        boolean pooled = false;
+
+        Item(int poolGeneration) {
+            this.poolGeneration = poolGeneration;
+        }
+
+        int getPoolGeneration() {
+            return poolGeneration;
+        }
+
+        boolean claim() {
+            return state.get() == IDLE && state.compareAndSet(IDLE, IN_USE);
+        }
+    }
+
+    interface ItemFactory<T> {
+        T create(int poolGeneration) throws TikaException;
+    }
+
+    private final String name;
+    private final int generation;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutNanos;
+    private final ItemFactory<T> factory;
+
+    private final CopyOnWriteArrayList<T> items = new CopyOnWriteArrayList<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final ThreadLocal<WeakReference<T>> lastReleased = new ThreadLocal<>();
+    private final AtomicLong lastEviction = new AtomicLong(System.nanoTime());
+    private final AtomicLong lastOverflowLog = new AtomicLong(System.nanoTime() - LOG_INTERVAL_NANOS);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder overflows = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+
+    /**
+     * @param name             name of the pooled items for log messages
+     * @param generation       generation of this pool; items of other generations
+     *                         are not taken back
+     * @param minSize          number of items created up front and kept while idle
+     * @param maxSize          maximum number of pooled items
+     * @param idleTimeoutMillis how long an item can be idle before it is evicted;
+     *                         <code>-1</code> to never evict
+     * @param factory          creates new items
+     */
+    XMLParserPool(String name, int generation, int minSize, int maxSize,
+                  long idleTimeoutMillis, ItemFactory<T> factory) throws TikaException {
+        this.name = name;
+        this.generation = generation;
+        this.minSize = minSize;
+        this.maxSize = Math.max(minSize, maxSize);
+        this.idleTimeoutNanos =
+                idleTimeoutMillis < 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.factory = factory;
+        long now = System.nanoTime();
+        for (int i = 0; i < minSize; i++) {
+            T item = factory.create(generation);
+            item.pooled = true;
+            item.lastReleased = now;
+            item.state.set(IDLE);
+            items.add(item);
+        }
+        size.set(minSize);
+    }
+
+    /**
+     * @return an item that the caller must {@link #release(Item)}; never <code>null</code>
+     */
+    T acquire() throws TikaException {
+        long start = System.nanoTime();
+        try {
+            evictIdle(start);
+            WeakReference<T> ref = lastReleased.get();
+            T item = ref == null ? null : ref.get();
+            if (item != null && item.claim()) {
+                hits.increment();
+                return item;
+            }
+            for (T candidate : items) {
+                if (candidate.claim()) {
+                    hits.increment();
+                    return candidate;
+                }
+            }
+            misses.increment();
+            return grow();
+        } finally {
+            waitNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Takes an item back. Items that are not pooled or that belong to
+     * another generation are dropped.
+     */
+    void release(T item) {
+        if (!item.pooled || item.poolGeneration != generation) {
+            return;
+        }
+        long now = System.nanoTime();
+        item.lastReleased = now;
+        item.state.set(IDLE);
+        WeakReference<T> ref = lastReleased.get();
+        if (ref == null || ref.get() != item) {
+            lastReleased.set(new WeakReference<>(item));
+        }
+        evictIdle(now);
+    }
+
+    int getGeneration() {
+        return generation;
+    }
+
+    XMLReaderUtils.PoolMetrics getMetrics() {
+        int idle = 0;
+        for (T item : items) {
+            if (item.state.get() == IDLE) {
+                idle++;
+            }
+        }
+        return new XMLReaderUtils.PoolMetrics(size.get(), idle, maxSize, hits.sum(),
+                misses.sum(), overflows.sum(), evictions.sum(), waitNanos.sum());
+    }
+
+    private T grow() throws TikaException {
+        int current;
+        do {
+            current = size.get();
+            if (current >= maxSize) {
+                overflows.increment();
+                logOverflow();
+                return factory.create(generation);
+            }
+        } while (!size.compareAndSet(current, current + 1));
+
+        T item;
+        try {
+            item = factory.create(generation);
+        } catch (TikaException | RuntimeException e) {
+            size.decrementAndGet();
+            throw e;
+        }
+        item.pooled = true;
+        items.add(item);
+        return item;
+    }
+
+    private void evictIdle(long now) {
+        if (idleTimeoutNanos < 0) {
+            return;
+        }
+        long last = lastEviction.get();
+        if (now - last < idleTimeoutNanos / 2 || !lastEviction.compareAndSet(last, now)) {
+            return;
+        }
+        //only one thread gets here at a time, and the pool can only grow concurrently,
+        //so this never shrinks the pool below its minimum size
+        for (T item : items) {
+            if (size.get() <= minSize) {
+                return;
+            }
+            if (now - item.lastReleased > idleTimeoutNanos &&
+                    item.state.compareAndSet(IDLE, EVICTED)) {
+                items.remove(item);
+                size.decrementAndGet();
+                evictions.increment();
+            }
+        }
+    }
+
+    private void logOverflow() {
+        long now = System.nanoTime();
+        long last = lastOverflowLog.get();
+        if (now - last > LOG_INTERVAL_NANOS && lastOverflowLog.compareAndSet(last, now)) {
+            LOG.warn("All {} {}s are in use; creating one that is not pooled. " +
+                    "Consider increasing the XMLReaderUtils.MAX_POOL_SIZE " +
+                    "[log suppressed for 5 minutes]", maxSize, name);
+        }
+    }
+}
@@ -25,11 +25,9 @@ import java.io.StringReader;
 import java.lang.reflect.Method;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import javax.xml.XMLConstants;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -72,6 +70,15 @@ public class XMLReaderUtils implements Serializable {
      * and the pool of DOM builders
      */
     public static final int DEFAULT_POOL_SIZE = 10;
+    /**
+     * Default ceiling up to which the pools grow under contention
+     */
+    public static final int DEFAULT_MAX_POOL_SIZE =
+            Math.max(DEFAULT_POOL_SIZE, 2 * Runtime.getRuntime().availableProcessors());
+    /**
+     * Default time after which idle parsers beyond the pool size are evicted
+     */
+    public static final long DEFAULT_POOL_IDLE_TIMEOUT_MILLIS = 60000;
     public static final int DEFAULT_MAX_ENTITY_EXPANSIONS = 20;
     /**
      * Serial version UID
@@ -114,11 +121,6 @@ public class XMLReaderUtils implements Serializable {
         }
     };
     private static final String JAXP_ENTITY_EXPANSION_LIMIT_KEY = "jdk.xml.entityExpansionLimit";
-    //TODO: figure out if the rw lock is any better than a simple lock
-    //these lock the pool arrayblocking queues so that there isn't a race condition
-    //of trying to acquire a parser while the pool is being resized
-    private static final ReentrantReadWriteLock SAX_POOL_LOCK = new ReentrantReadWriteLock();
-    private static final ReentrantReadWriteLock DOM_POOL_LOCK = new ReentrantReadWriteLock();
     private static final AtomicInteger POOL_GENERATION = new AtomicInteger();
     private static final EntityResolver IGNORING_SAX_ENTITY_RESOLVER =
             (publicId, systemId) -> new InputSource(new StringReader(""));
@@ -128,12 +130,13 @@ public class XMLReaderUtils implements Serializable {
      * Parser pool size
      */
     private static int POOL_SIZE = DEFAULT_POOL_SIZE;
+    private static int MAX_POOL_SIZE = DEFAULT_MAX_POOL_SIZE;
+    private static long POOL_IDLE_TIMEOUT_MILLIS = DEFAULT_POOL_IDLE_TIMEOUT_MILLIS;
     private static long LAST_LOG = -1;
     private static volatile int MAX_ENTITY_EXPANSIONS = determineMaxEntityExpansions();
-    private static ArrayBlockingQueue<PoolSAXParser> SAX_PARSERS =
-            new ArrayBlockingQueue<>(POOL_SIZE);
-    private static ArrayBlockingQueue<PoolDOMBuilder> DOM_BUILDERS =
-            new ArrayBlockingQueue<>(POOL_SIZE);
+    //swapped as a whole when the pools are resized, so acquiring and releasing need no lock
+    private static volatile XMLParserPool<PoolSAXParser> SAX_PARSERS;
+    private static volatile XMLParserPool<PoolDOMBuilder> DOM_BUILDERS;
 
     static {
         try {
@@ -401,11 +404,7 @@ public class XMLReaderUtils implements Serializable {
         PoolDOMBuilder poolBuilder = null;
         if (builder == null) {
             poolBuilder = acquireDOMBuilder();
-            if (poolBuilder != null) {
-                builder = poolBuilder.getDocumentBuilder();
-            } else {
-                builder = getDocumentBuilder();
-            }
+            builder = poolBuilder.getDocumentBuilder();
         }
 
         try {
@@ -523,11 +522,7 @@ public class XMLReaderUtils implements Serializable {
         PoolSAXParser poolSAXParser = null;
         if (saxParser == null) {
             poolSAXParser = acquireSAXParser();
-            if (poolSAXParser != null) {
-                saxParser = poolSAXParser.getSAXParser();
-            } else {
-                saxParser = getSAXParser();
-            }
+            saxParser = poolSAXParser.getSAXParser();
         }
         try {
             saxParser.parse(is, new OfflineContentHandler(contentHandler));
@@ -559,11 +554,7 @@ public class XMLReaderUtils implements Serializable {
         PoolSAXParser poolSAXParser = null;
         if (saxParser == null) {
             poolSAXParser = acquireSAXParser();
-            if (poolSAXParser != null) {
-                saxParser = poolSAXParser.getSAXParser();
-            } else {
-                saxParser = getSAXParser();
-            }
+            saxParser = poolSAXParser.getSAXParser();
         }
         try {
             saxParser.parse(new InputSource(reader), new OfflineContentHandler(contentHandler));
@@ -579,28 +570,11 @@ public class XMLReaderUtils implements Serializable {
      * {@link #releaseDOMBuilder(PoolDOMBuilder)} in
      * a <code>finally</code> block every time you call this.
      *
-     * @return a DocumentBuilder or null if no DOMBuilders are available
+     * @return a DocumentBuilder; if the pool is exhausted, one that isn't pooled
      * @throws TikaException
      */
     private static PoolDOMBuilder acquireDOMBuilder() throws TikaException {
-
-        PoolDOMBuilder builder = null;
-        DOM_POOL_LOCK
-                .readLock()
-                .lock();
-        try {
-            builder = DOM_BUILDERS.poll();
-        } finally {
-            DOM_POOL_LOCK
-                    .readLock()
-                    .unlock();
-        }
-        if (builder == null) {
-            LOG.warn("Contention waiting for a DOMBuilder. " +
-                    "Consider increasing the XMLReaderUtils.POOL_SIZE");
-
-        }
-        return builder;
+        return DOM_BUILDERS.acquire();
     }
 
     /**
@@ -609,7 +583,9 @@ public class XMLReaderUtils implements Serializable {
      * @param builder builder to return
      */
     private static void releaseDOMBuilder(PoolDOMBuilder builder) {
-        if (builder.getPoolGeneration() != POOL_GENERATION.get()) {
+        XMLParserPool<PoolDOMBuilder> pool = DOM_BUILDERS;
+        //if this is a different generation, don't put it back in the pool
+        if (builder.getPoolGeneration() != pool.getGeneration()) {
             return;
         }
         try {
@@ -617,22 +593,7 @@ public class XMLReaderUtils implements Serializable {
         } catch (UnsupportedOperationException e) {
             //ignore
         }
-        DOM_POOL_LOCK
-                .readLock().lock();
-        try {
-            //if there are extra parsers (e.g. after a reset of the pool to a smaller size),
-            // this parser will not be added and will then be gc'd
-            boolean success = DOM_BUILDERS.offer(builder);
-            if (!success) {
-                LOG.warn(
-                        "DocumentBuilder not taken back into pool.  If you haven't resized the " +
-                                "pool, this could be a sign that there are more calls to " +
-                                "'acquire' than to 'release'");
-            }
-        } finally {
-            DOM_POOL_LOCK
-                    .readLock().unlock();
-        }
+        pool.release(builder);
     }
 
     /**
@@ -640,29 +601,11 @@ public class XMLReaderUtils implements Serializable {
      * {@link #releaseParser(PoolSAXParser)} in
      * a <code>finally</code> block every time you call this.
      *
-     * @return a SAXParser or null if a parser is not available
+     * @return a SAXParser; if the pool is exhausted, one that isn't pooled
      * @throws TikaException
      */
     private static PoolSAXParser acquireSAXParser() throws TikaException {
-        PoolSAXParser parser = null;
-
-        //this locks around the pool so that there's
-        //no race condition with it being resized
-        SAX_POOL_LOCK
-                .readLock()
-                .lock();
-        try {
-            parser = SAX_PARSERS.poll();
-        } finally {
-            SAX_POOL_LOCK
-                    .readLock()
-                    .unlock();
-        }
-        if (parser == null) {
-            LOG.warn("Contention waiting for a SAXParser. " +
-                    "Consider increasing the XMLReaderUtils.POOL_SIZE");
-        }
-        return parser;
+        return SAX_PARSERS.acquire();
     }
 
     /**
@@ -676,27 +619,7 @@ public class XMLReaderUtils implements Serializable {
         } catch (UnsupportedOperationException e) {
             //TIKA-3009 -- we really shouldn't have to do this... :(
         }
-        //if this is a different generation, don't put it back
-        //in the pool
-        if (parser.getGeneration() != POOL_GENERATION.get()) {
-            return;
-        }
-        SAX_POOL_LOCK
-                .readLock().lock();
-        try {
-            //if there are extra parsers (e.g. after a reset of the pool to a smaller size),
-            // this parser will not be added and will then be gc'd
-            boolean success = SAX_PARSERS.offer(parser);
-            if (!success) {
-                LOG.warn(
-                        "SAXParser not taken back into pool.  If you haven't resized the pool " +
-                                "this could be a sign that there are more calls to 'acquire' " +
-                                "than to 'release'");
-            }
-        } finally {
-            SAX_POOL_LOCK
-                    .readLock().unlock();
-        }
+        SAX_PARSERS.release(parser);
     }
 
     private static void trySetXercesSecurityManager(DocumentBuilderFactory factory) {
@@ -809,56 +732,104 @@ public class XMLReaderUtils implements Serializable {
     }
 
     /**
-     * Set the pool size for cached XML parsers.  This has a side
-     * effect of locking the pool, and rebuilding the pool from
-     * scratch with the most recent settings, such as {@link #MAX_ENTITY_EXPANSIONS}
+     * Set the pool size for cached XML parsers.  This is the number
+     * of parsers that are created up front and that are kept when idle.
+     * This has a side effect of rebuilding the pool from scratch
+     * with the most recent settings, such as {@link #MAX_ENTITY_EXPANSIONS}
      *
      * @param poolSize
      * @since Apache Tika 1.19
      */
-    public static void setPoolSize(int poolSize) throws TikaException {
-        //stop the world with a write lock.
-        //parsers that are currently in use will be offered later (once the lock is released),
-        //but not accepted and will be gc'd.  We have to do this locking and
-        //the read locking in case one thread resizes the pool when the
-        //parsers have already started.  We could have an NPE on SAX_PARSERS
-        //if we didn't lock.
-        SAX_POOL_LOCK
-                .writeLock().lock();
-        try {
-            //free up any resources before emptying SAX_PARSERS
-            for (PoolSAXParser parser : SAX_PARSERS) {
-                parser.reset();
-            }
-            SAX_PARSERS.clear();
-            SAX_PARSERS = new ArrayBlockingQueue<>(poolSize);
-            int generation = POOL_GENERATION.incrementAndGet();
-            for (int i = 0; i < poolSize; i++) {
-                try {
-                    SAX_PARSERS.offer(buildPoolParser(generation,
-                            getSAXParserFactory().newSAXParser()));
-                } catch (SAXException | ParserConfigurationException e) {
-                    throw new TikaException("problem creating sax parser", e);
-                }
-            }
-        } finally {
-            SAX_POOL_LOCK
-                    .writeLock().unlock();
-        }
+    public static synchronized void setPoolSize(int poolSize) throws TikaException {
+        setPoolSettings(poolSize, MAX_POOL_SIZE, POOL_IDLE_TIMEOUT_MILLIS);
+    }
 
-        DOM_POOL_LOCK
-                .writeLock().lock();
-        try {
-            DOM_BUILDERS.clear();
-            DOM_BUILDERS = new ArrayBlockingQueue<>(poolSize);
-            for (int i = 0; i < poolSize; i++) {
-                DOM_BUILDERS.offer(new PoolDOMBuilder(POOL_GENERATION.get(), getDocumentBuilder()));
+    /**
+     * Sets the {@link #setPoolSize(int) pool size}, the
+     * {@link #setMaxPoolSize(int) maximum pool size} and the
+     * {@link #setPoolIdleTimeoutMillis(long) idle timeout} together, and
+     * rebuilds the pools only once.
+     *
+     * @param poolSize              pool size
+     * @param maxPoolSize           maximum pool size
+     * @param poolIdleTimeoutMillis idle timeout; <code>-1</code> to never evict parsers
+     * @since Apache Tika 4.0.0
+     */
+    public static synchronized void setPoolSettings(int poolSize, int maxPoolSize,
+                                                    long poolIdleTimeoutMillis)
+            throws TikaException {
+        //parsers that are currently in use will be released to the new pools,
+        //but they will not be accepted because of their generation and will be gc'd
+        int generation = POOL_GENERATION.incrementAndGet();
+        SAX_PARSERS = new XMLParserPool<>("SAXParser", generation, poolSize,
+                maxPoolSize, poolIdleTimeoutMillis, g -> {
+            try {
+                return buildPoolParser(g, getSAXParserFactory().newSAXParser());
+            } catch (SAXException | ParserConfigurationException e) {
+                throw new TikaException("problem creating sax parser", e);
             }
-        } finally {
-            DOM_POOL_LOCK
-                    .writeLock().unlock();
-        }
+        });
+        DOM_BUILDERS = new XMLParserPool<>("DocumentBuilder", generation, poolSize,
+                maxPoolSize, poolIdleTimeoutMillis,
+                g -> new PoolDOMBuilder(g, getDocumentBuilder()));
         POOL_SIZE = poolSize;
+        MAX_POOL_SIZE = maxPoolSize;
+        POOL_IDLE_TIMEOUT_MILLIS = poolIdleTimeoutMillis;
+    }
+
+    public static int getMaxPoolSize() {
+        return MAX_POOL_SIZE;
+    }
+
+    /**
+     * Set the maximum size up to which the pools grow when all of their
+     * parsers are in use.  Once a pool is at its maximum size, a parser
+     * that isn't pooled is created for every further concurrent call.
+     * If this is smaller than the {@link #setPoolSize(int) pool size},
+     * the pool size is used instead.
+     * <p>
+     * This rebuilds the pools, just like {@link #setPoolSize(int)}.
+     *
+     * @param maxPoolSize
+     * @since Apache Tika 4.0.0
+     */
+    public static synchronized void setMaxPoolSize(int maxPoolSize) throws TikaException {
+        setPoolSettings(POOL_SIZE, maxPoolSize, POOL_IDLE_TIMEOUT_MILLIS);
+    }
+
+    public static long getPoolIdleTimeoutMillis() {
+        return POOL_IDLE_TIMEOUT_MILLIS;
+    }
+
+    /**
+     * Set how long a parser that was created when the pool grew can stay
+     * idle before it is evicted.  The pools never shrink below the
+     * {@link #setPoolSize(int) pool size}.
+     * <p>
+     * This rebuilds the pools, just like {@link #setPoolSize(int)}.
+     *
+     * @param poolIdleTimeoutMillis idle timeout; <code>-1</code> to never evict parsers
+     * @since Apache Tika 4.0.0
+     */
+    public static synchronized void setPoolIdleTimeoutMillis(long poolIdleTimeoutMillis)
+            throws TikaException {
+        setPoolSettings(POOL_SIZE, MAX_POOL_SIZE, poolIdleTimeoutMillis);
+    }
+
+    /**
+     * @return a snapshot of the usage counters of the SAXParser pool
+     * since it was last rebuilt
+     */
+    public static PoolMetrics getSAXParserPoolMetrics() {
+        return SAX_PARSERS.getMetrics();
+    }
+
+    /**
+     * @return a snapshot of the usage counters of the DocumentBuilder pool
+     * since it was last rebuilt
+     */
+    public static PoolMetrics getDOMBuilderPoolMetrics() {
+        return DOM_BUILDERS.getMetrics();
     }
 
     public static int getMaxEntityExpansions() {
@@ -970,19 +941,103 @@ public class XMLReaderUtils implements Serializable {
         reader.setErrorHandler(IGNORING_ERROR_HANDLER);
     }
 
-    private static class PoolDOMBuilder {
-        private final int poolGeneration;
+    /**
+     * Usage counters of one of the parser pools, to help size the pools.
+     */
+    public static final class PoolMetrics {
+        private final int size;
+        private final int idle;
+        private final int maxSize;
+        private final long hits;
+        private final long misses;
+        private final long overflows;
+        private final long evictions;
+        private final long waitNanos;
+
+        PoolMetrics(int size, int idle, int maxSize, long hits, long misses, long overflows,
+                    long evictions, long waitNanos) {
+            this.size = size;
+            this.idle = idle;
+            this.maxSize = maxSize;
+            this.hits = hits;
+            this.misses = misses;
+            this.overflows = overflows;
+            this.evictions = evictions;
+            this.waitNanos = waitNanos;
+        }
+
+        /**
+         * @return number of pooled parsers, whether in use or idle
+         */
+        public int getSize() {
+            return size;
+        }
+
+        /**
+         * @return number of pooled parsers that are idle
+         */
+        public int getIdle() {
+            return idle;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        /**
+         * @return number of acquires that reused an idle parser
+         */
+        public long getHits() {
+            return hits;
+        }
+
+        /**
+         * @return number of acquires that had to create a parser,
+         * including the {@link #getOverflows() overflows}
+         */
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * @return number of acquires that created a parser that isn't pooled
+         * because the pool was at its maximum size
+         */
+        public long getOverflows() {
+            return overflows;
+        }
+
+        /**
+         * @return number of idle parsers that were evicted
+         */
+        public long getEvictions() {
+            return evictions;
+        }
+
+        /**
+         * @return total time that threads spent acquiring parsers,
+         * including the time to create new ones
+         */
+        public long getWaitNanos() {
+            return waitNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "PoolMetrics{" + "size=" + size + ", idle=" + idle + ", maxSize=" + maxSize +
+                    ", hits=" + hits + ", misses=" + misses + ", overflows=" + overflows +
+                    ", evictions=" + evictions + ", waitNanos=" + waitNanos + '}';
+        }
+    }
+
+    private static class PoolDOMBuilder extends XMLParserPool.Item {
         private final DocumentBuilder documentBuilder;
 
         PoolDOMBuilder(int poolGeneration, DocumentBuilder documentBuilder) {
-            this.poolGeneration = poolGeneration;
+            super(poolGeneration);
             this.documentBuilder = documentBuilder;
         }
 
-        public int getPoolGeneration() {
-            return poolGeneration;
-        }
-
         public DocumentBuilder getDocumentBuilder() {
             return documentBuilder;
         }
@@ -994,21 +1049,16 @@ public class XMLReaderUtils implements Serializable {
         }
     }
 
-    private abstract static class PoolSAXParser {
-        final int poolGeneration;
+    private abstract static class PoolSAXParser extends XMLParserPool.Item {
         final SAXParser saxParser;
 
         PoolSAXParser(int poolGeneration, SAXParser saxParser) {
-            this.poolGeneration = poolGeneration;
+            super(poolGeneration);
             this.saxParser = saxParser;
         }
 
         abstract void reset();
 
-        public int getGeneration() {
-            return poolGeneration;
-        }
-
         public SAXParser getSAXParser() {
             return saxParser;
         }
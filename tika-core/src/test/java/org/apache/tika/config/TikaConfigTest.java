@@ -339,12 +339,17 @@ public class TikaConfigTest extends AbstractTikaConfigTest {
         TikaConfig tikaConfig = getConfig("TIKA-2732-xmlreaderutils.xml");
         try {
             assertEquals(33, XMLReaderUtils.getPoolSize());
+            assertEquals(40, XMLReaderUtils.getMaxPoolSize());
+            assertEquals(30000, XMLReaderUtils.getPoolIdleTimeoutMillis());
+            assertEquals(40, XMLReaderUtils.getSAXParserPoolMetrics().getMaxSize());
             assertEquals(5, XMLReaderUtils.getMaxEntityExpansions());
             //make sure that there's actually a change in behavior
             assertEquals("text/plain", detect("test-difficult-rdf1.xml", tikaConfig).toString());
         } finally {
             XMLReaderUtils.setMaxEntityExpansions(XMLReaderUtils.DEFAULT_MAX_ENTITY_EXPANSIONS);
-            XMLReaderUtils.setPoolSize(XMLReaderUtils.DEFAULT_POOL_SIZE);
+            XMLReaderUtils.setPoolSettings(XMLReaderUtils.DEFAULT_POOL_SIZE,
+                    XMLReaderUtils.DEFAULT_MAX_POOL_SIZE,
+                    XMLReaderUtils.DEFAULT_POOL_IDLE_TIMEOUT_MILLIS);
         }
     }
 
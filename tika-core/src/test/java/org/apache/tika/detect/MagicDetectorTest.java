@@ -16,6 +16,7 @@
  */
 package org.apache.tika.detect;
 
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
 import static java.nio.charset.StandardCharsets.US_ASCII;
 import static java.nio.charset.StandardCharsets.UTF_16BE;
 import static java.nio.charset.StandardCharsets.UTF_16LE;
@@ -205,6 +206,39 @@ public class MagicDetectorTest {
         assertDetect(detector, testMT, data.getBytes(US_ASCII));
     }
 
+    @Test
+    public void testLiteral() throws Exception {
+        MediaType type = MediaType.parse("application/x-test");
+        assertLiteral("abc", 0, MagicDetector.parse(type, "string", "0", "abc", null));
+        assertLiteral("ab", 0,
+                MagicDetector.parse(type, "string", "0", "abcd", "0xFFFF00FF"));
+        assertLiteral("bcdefg", 0,
+                MagicDetector.parse(type, "stringignorecase", "0", "BcDeFg", null));
+
+        assertLiteral("%ai5_file", 1, regex("[\\r\\n]%AI5_File", true));
+        assertLiteral("<!doctype", 0, regex("(?s)^<!DOCTYPE\\s+html", true));
+        assertLiteral("ab", 2, regex("..ab.c", false));
+        assertLiteral("PK\u0003\u0004", 0, regex("\\x50\\x4B\\x03\\x04", false));
+        assertLiteral("a.b", 0, regex("a\\.b+c", false));
+        assertLiteral("aaa", 0, regex("a{3}b?", false));
+        assertLiteral("", 0, regex("abc|def", false));
+        assertLiteral("", 0, regex("(?i)abc", false));
+        assertLiteral("", 0, regex("(abc)", false));
+        assertLiteral("", 0, regex(".*abc", false));
+        assertLiteral("", 0, regex("\\Aabc", false));
+        assertLiteral("", 0, regex("[ab]+c", false));
+    }
+
+    private static MagicDetector regex(String pattern, boolean ignoreCase) {
+        return new MagicDetector(MediaType.parse("application/x-test"),
+                pattern.getBytes(US_ASCII), null, true, ignoreCase, 0, 0);
+    }
+
+    private static void assertLiteral(String expected, int offset, MagicDetector detector) {
+        assertEquals(expected, new String(detector.getLiteral(), ISO_8859_1));
+        assertEquals(offset, detector.getLiteralOffset());
+    }
+
     private void assertDetect(Detector detector, MediaType type, String data) {
         byte[] bytes = data.getBytes(US_ASCII);
         assertDetect(detector, type, bytes);
@@ -214,6 +248,11 @@ public class MagicDetectorTest {
         try {
             InputStream stream = new ByteArrayInputStream(bytes);
             assertEquals(type, detector.detect(stream, new Metadata()));
+            if (detector instanceof MagicDetector) {
+                // the in-memory check has to agree with the stream based one
+                assertEquals(!MediaType.OCTET_STREAM.equals(type),
+                        ((MagicDetector) detector).matches(bytes));
+            }
 
             // Test that the stream has been reset
             for (byte aByte : bytes) {
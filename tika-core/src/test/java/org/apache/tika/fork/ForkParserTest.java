@@ -192,6 +192,40 @@ public class ForkParserTest extends TikaTest {
         }
     }
 
+    @Test
+    public void testWarmUpAndRecycling() throws Exception {
+        try (ForkParser parser = new ForkParser(ForkParserTest.class.getClassLoader(),
+                new ForkTestParser())) {
+            parser.setPoolSize(2);
+            parser.warmUp(2);
+            assertEquals(2, parser.getServersStarted());
+            assertEquals(2, parser.getIdleServers());
+
+            parser.setMaxFilesProcessedPerServer(3);
+            ParseContext context = new ParseContext();
+            for (int i = 0; i < 6; i++) {
+                ContentHandler output = new BodyContentHandler();
+                parser.parse(new ByteArrayInputStream(new byte[0]), output, new Metadata(),
+                        context);
+                assertEquals("Hello, World!", output.toString().trim());
+            }
+            //serial parses reuse the most recently used server until it is recycled
+            assertEquals(2, parser.getServersRecycled());
+            assertEquals(2, parser.getServersStarted());
+            assertEquals(6, parser.getAcquisitions());
+            assertEquals(0, parser.getServersLost());
+            assertEquals(0, parser.getLiveServers());
+
+            parser.setMaxFilesProcessedPerServer(-1);
+            parser.setMaxHeapBytesPerServer(1);
+            parser.parse(new ByteArrayInputStream(new byte[0]), new BodyContentHandler(),
+                    new Metadata(), context);
+            assertEquals(3, parser.getServersStarted());
+            assertEquals(3, parser.getServersRecycled());
+            assertEquals(0, parser.getLiveServers());
+        }
+    }
+
     @Test
     public void testPulseAndTimeouts() throws Exception {
 
@@ -21,11 +21,15 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -129,4 +133,98 @@ public class TikaInputStreamTest {
                 metadata.get(Metadata.CONTENT_LENGTH));
     }
 
+    @Test
+    public void testSeekableByteChannel() throws Exception {
+        //small stream: kept in memory
+        try (TikaInputStream stream = TikaInputStream.get(
+                IOUtils.toInputStream("Hello, World!", UTF_8))) {
+            SeekableByteChannel channel = stream.getSeekableByteChannel();
+            assertFalse(stream.hasFile());
+            assertEquals(13, channel.size());
+            assertEquals("World", readChannel(channel, 7, 5));
+            assertEquals("Hello", readChannel(channel, 0, 5));
+            assertEquals("World", UTF_8.decode(stream.getByteBuffer(7, 5)).toString());
+            assertEquals(13, stream.getLength());
+            assertFalse(stream.hasFile());
+            //the stream itself still reads from the start
+            assertEquals("Hello, World!", readStream(stream));
+        }
+
+        //larger stream: spooled to a file
+        try (TikaInputStream stream = TikaInputStream.get(
+                IOUtils.toInputStream("Hello, World!", UTF_8))) {
+            stream.setMemoryThreshold(12);
+            SeekableByteChannel channel = stream.getSeekableByteChannel();
+            assertTrue(stream.hasFile());
+            assertTrue(channel instanceof FileChannel);
+            assertEquals("World", readChannel(channel, 7, 5));
+            assertEquals("Hello, World!", readStream(stream));
+        }
+
+        //byte array: no copy
+        try (TikaInputStream stream = TikaInputStream.get("Hello, World!".getBytes(UTF_8))) {
+            assertTrue(stream.getSeekableByteChannel() instanceof ByteArraySeekableByteChannel);
+            assertFalse(stream.hasFile());
+        }
+
+        //file: memory mapped
+        Path path = createTempFile("Hello, World!");
+        try (TikaInputStream stream = TikaInputStream.get(path)) {
+            assertEquals("World", UTF_8.decode(stream.getByteBuffer(7, 5)).toString());
+            assertEquals("World", readChannel(stream.getSeekableByteChannel(), 7, 5));
+            assertThrows(IOException.class, () -> stream.getByteBuffer(10, 5));
+        }
+
+        try (TikaInputStream stream = TikaInputStream.get(
+                IOUtils.toInputStream("Hello, World!", UTF_8))) {
+            stream.read();
+            assertThrows(IOException.class, stream::getSeekableByteChannel);
+        }
+    }
+
+    @Test
+    public void testRangeAndFactoryChannels() throws Exception {
+        Path path = createTempFile("xxHello, World!yy");
+        try (FileChannel file = FileChannel.open(path);
+                TikaInputStream stream = TikaInputStream.get(file, 2, 13,
+                        new TemporaryResources(), new Metadata())) {
+            assertTrue(stream.hasRandomAccess());
+            assertFalse(stream.hasFile());
+            SeekableByteChannel channel = stream.getSeekableByteChannel();
+            assertTrue(channel instanceof RangeSeekableByteChannel);
+            assertEquals(13, channel.size());
+            assertEquals("World", readChannel(channel, 7, 5));
+            assertEquals("Hello", UTF_8.decode(stream.getByteBuffer(0, 5)).toString());
+            assertThrows(IOException.class, () -> stream.getByteBuffer(10, 5));
+            assertEquals("Hello, World!", readStream(stream));
+            //the channel has its own position
+            assertEquals("World", readChannel(channel, 7, 5));
+            assertTrue(file.isOpen());
+        }
+
+        InputStreamFactory factory = () -> IOUtils.toInputStream("Hello, World!", UTF_8);
+        try (TikaInputStream stream = TikaInputStream.get(factory, 13,
+                new TemporaryResources(), new Metadata())) {
+            assertFalse(stream.hasRandomAccess());
+            stream.setMemoryThreshold(12);
+            SeekableByteChannel channel = stream.getSeekableByteChannel();
+            assertTrue(channel instanceof ReopeningSeekableByteChannel);
+            assertEquals("World", readChannel(channel, 7, 5));
+            assertEquals("Hello", readChannel(channel, 0, 5));
+            assertEquals("Hello, World!", readStream(stream));
+            assertFalse(stream.hasFile());
+        }
+    }
+
+    private String readChannel(SeekableByteChannel channel, long position, int length)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        channel.position(position);
+        while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+            //keep reading
+        }
+        buffer.flip();
+        return UTF_8.decode(buffer).toString();
+    }
+
 }
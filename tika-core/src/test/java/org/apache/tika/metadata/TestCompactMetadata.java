@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.metadata;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.apache.tika.config.TikaConfig;
+import org.apache.tika.metadata.writefilter.StandardWriteFilterFactory;
+
+/**
+ * Runs all of {@link TestMetadata} against {@link Metadata.STORAGE#COMPACT},
+ * plus tests that are specific to that storage.
+ */
+public class TestCompactMetadata extends TestMetadata {
+
+    @BeforeEach
+    public void setCompact() {
+        Metadata.setDefaultStorage(Metadata.STORAGE.COMPACT);
+    }
+
+    @AfterEach
+    public void resetStorage() {
+        Metadata.setDefaultStorage(Metadata.STORAGE.HASH_MAP);
+    }
+
+    @Test
+    public void testManyKeysAndValues() {
+        Metadata compact = new Metadata();
+        Metadata hashMap = new Metadata(Metadata.STORAGE.HASH_MAP);
+        for (int i = 0; i < 200; i++) {
+            for (int j = 0; j <= i % 5; j++) {
+                compact.add("key-" + i, "value-" + j);
+                hashMap.add("key-" + i, "value-" + j);
+            }
+        }
+        assertEquals(hashMap, compact);
+        assertEquals(compact, hashMap);
+        assertEquals(hashMap.hashCode(), compact.hashCode());
+        assertEquals(200, compact.size());
+        assertEquals("key-0", compact.names()[0]);
+        assertEquals("key-199", compact.names()[199]);
+        assertArrayEquals(new String[]{"value-0", "value-1", "value-2"},
+                compact.getValues("key-7"));
+        assertTrue(compact.isMultiValued("key-7"));
+        assertFalse(compact.isMultiValued("key-5"));
+
+        for (int i = 0; i < 200; i += 2) {
+            compact.remove("key-" + i);
+            hashMap.remove("key-" + i);
+        }
+        assertEquals(hashMap, compact);
+        assertNull(compact.get("key-10"));
+        assertEquals("value-0", compact.get("key-11"));
+    }
+
+    @Test
+    public void testValuesAreNotModifiedByLaterAdds() {
+        Metadata m = new Metadata();
+        m.add("k", "a");
+        m.add("k", "b");
+        String[] values = m.getValues("k");
+        m.add("k", "c");
+        assertArrayEquals(new String[]{"a", "b"}, values);
+        assertArrayEquals(new String[]{"a", "b", "c"}, m.getValues("k"));
+        assertSame(m.getValues("k"), m.getValues("k"));
+    }
+
+    @Test
+    public void testPropertyNamesAreShared() {
+        Metadata m = new Metadata();
+        m.set(new String(TikaCoreProperties.TITLE.getName().toCharArray()), "title");
+        assertSame(TikaCoreProperties.TITLE.getName(), m.names()[0]);
+        assertEquals("title", m.get(TikaCoreProperties.TITLE));
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        Metadata m = new Metadata();
+        for (int i = 0; i < 20; i++) {
+            m.add("key-" + i, "value");
+            m.add("key-" + i, "value-" + i);
+        }
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+            oos.writeObject(m);
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(
+                new ByteArrayInputStream(bos.toByteArray()))) {
+            Metadata copy = (Metadata) ois.readObject();
+            assertEquals(m, copy);
+            copy.add("key-3", "more");
+            assertEquals(3, copy.getValues("key-3").length);
+        }
+    }
+
+    @Test
+    public void testEntrySetRemove() {
+        CompactMetadataMap map = new CompactMetadataMap();
+        for (int i = 0; i < 20; i++) {
+            map.put("key-" + i, new String[]{"v" + i});
+        }
+        Iterator<Map.Entry<String, String[]>> it = map.entrySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().getKey().endsWith("5")) {
+                it.remove();
+            }
+        }
+        assertEquals(18, map.size());
+        assertFalse(map.containsKey("key-15"));
+        assertArrayEquals(new String[]{"v16"}, map.get("key-16"));
+    }
+
+    @Test
+    public void testWriteFilter() throws Exception {
+        StandardWriteFilterFactory factory = new StandardWriteFilterFactory();
+        factory.setMaxValuesPerField(2);
+        Metadata m = new Metadata();
+        m.setMetadataWriteFilter(factory.newInstance());
+        m.add("k", "a");
+        m.add("k", "b");
+        m.add("k", "c");
+        assertEquals(2, m.getValues("k").length);
+    }
+
+    @Test
+    public void testConfig() throws Exception {
+        Metadata.setDefaultStorage(Metadata.STORAGE.HASH_MAP);
+        String xml = "<properties><metadata storage=\"compact\"/></properties>";
+        try (InputStream is = new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8))) {
+            new TikaConfig(is);
+        }
+        assertEquals(Metadata.STORAGE.COMPACT, Metadata.getDefaultStorage());
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.mime;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.apache.tika.config.TikaConfig;
+import org.apache.tika.detect.MagicDetector;
+
+public class MagicIndexTest {
+
+    private List<Magic> magics;
+
+    private MagicIndex index;
+
+    @SuppressWarnings("unchecked")
+    @BeforeEach
+    public void setUp() throws Exception {
+        MimeTypes mimeTypes = TikaConfig.getDefaultConfig().getMimeRepository();
+        Field magicsField = MimeTypes.class.getDeclaredField("magics");
+        magicsField.setAccessible(true);
+        magics = (List<Magic>) magicsField.get(mimeTypes);
+        index = new MagicIndex(magics);
+    }
+
+    /**
+     * For every literal match in the registry, build data that contains it and
+     * check that no magic which evaluates to true was filtered out.
+     */
+    @Test
+    public void testNoFalseNegatives() {
+        List<byte[]> samples = new ArrayList<>();
+        for (Magic magic : magics) {
+            collectSamples(magic.getClause(), samples);
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 20; i++) {
+            byte[] bytes = new byte[1 + random.nextInt(4096)];
+            random.nextBytes(bytes);
+            samples.add(bytes);
+        }
+        samples.add(new byte[]{0});
+        samples.add("<?xml version=\"1.0\"?><html></html>".getBytes(StandardCharsets.US_ASCII));
+        samples.add("%PDF-1.4".getBytes(StandardCharsets.US_ASCII));
+
+        for (byte[] data : samples) {
+            BitSet candidates = index.candidates(data);
+            for (int i = 0; i < magics.size(); i++) {
+                if (magics.get(i).eval(data)) {
+                    assertTrue(index.mayMatch(i, candidates),
+                            "index filtered out matching magic " + magics.get(i));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSelective() {
+        byte[] bytes = new byte[8192];
+        new Random(42).nextBytes(bytes);
+        BitSet candidates = index.candidates(bytes);
+        int toEvaluate = 0;
+        for (int i = 0; i < magics.size(); i++) {
+            if (index.mayMatch(i, candidates)) {
+                toEvaluate++;
+            }
+        }
+        assertTrue(toEvaluate < magics.size() / 4,
+                "expected most magics to be filtered, evaluating " + toEvaluate + " of " +
+                        magics.size());
+    }
+
+    private static void collectSamples(Clause clause, List<byte[]> samples) {
+        if (clause instanceof MagicMatch) {
+            MagicDetector detector = ((MagicMatch) clause).getDetector();
+            byte[] prefix = detector.getLiteral();
+            if (prefix.length > 0 && !detector.isRegex()) {
+                byte[] data = new byte[detector.getOffsetRangeEnd() + detector.getLength() + 16];
+                System.arraycopy(prefix, 0, data, detector.getOffsetRangeEnd(), prefix.length);
+                samples.add(data);
+                //and truncated, to exercise the zero padding
+                byte[] shorter = new byte[detector.getOffsetRangeBegin() + prefix.length];
+                System.arraycopy(prefix, 0, shorter, detector.getOffsetRangeBegin(),
+                        prefix.length);
+                samples.add(shorter);
+                if (detector.isStringIgnoreCase()) {
+                    byte[] upper = new String(data, StandardCharsets.ISO_8859_1)
+                            .toUpperCase(Locale.ROOT).getBytes(StandardCharsets.ISO_8859_1);
+                    samples.add(upper);
+                }
+            }
+        } else if (clause instanceof AndClause) {
+            for (Clause child : ((AndClause) clause).getClauses()) {
+                collectSamples(child, samples);
+            }
+        } else if (clause instanceof OrClause) {
+            for (Clause child : ((OrClause) clause).getClauses()) {
+                collectSamples(child, samples);
+            }
+        } else if (clause instanceof MinShouldMatchClause) {
+            for (Clause child : ((MinShouldMatchClause) clause).getClauses()) {
+                collectSamples(child, samples);
+            }
+        }
+    }
+}
@@ -19,6 +19,8 @@ package org.apache.tika.mime;
 import static java.util.Collections.singletonMap;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.HashMap;
@@ -186,4 +188,32 @@ public class MediaTypeTest {
                 MediaType.parse("text/html;; charset=\"UTF-8").toString());
     }
 
+    @Test
+    public void testParseForms() {
+        assertEquals("text/html; charset=utf-8",
+                MediaType.parse(" Text / HTML ;charset=utf-8 ").toString());
+        assertEquals("text/html", MediaType.parse("text/html ;").toString());
+        assertEquals("text/html; charset=utf-8",
+                MediaType.parse("charset=utf-8; text/html").toString());
+        //non-ASCII and control characters are handled by the patterns
+        assertEquals("application/x-t\u00e9st", MediaType.parse("application/x-t\u00e9st").toString());
+        assertEquals("text/plain; a=b", MediaType.parse("text/plain\n; a=b").toString());
+        assertNull(MediaType.parse("text/html x"));
+        assertNull(MediaType.parse("text/"));
+        assertNull(MediaType.parse("/html"));
+        assertNull(MediaType.parse("text"));
+        assertNull(MediaType.parse("text/html/x"));
+    }
+
+    @Test
+    public void testInterning() {
+        assertSame(MediaType.TEXT_PLAIN, MediaType.parse("text/plain"));
+        assertSame(MediaType.parse("text/plain; charset=UTF-8"),
+                MediaType.parse("text/plain; charset=UTF-8"));
+        assertSame(MediaType.TEXT_PLAIN, MediaType.parse("text/plain; charset=UTF-8").getBaseType());
+        //types of the registry are interned
+        MediaType registered = new MediaType("application", "x-tika-interned");
+        new MediaTypeRegistry().addType(registered);
+        assertSame(registered, MediaType.parse("application/x-tika-interned"));
+    }
 }
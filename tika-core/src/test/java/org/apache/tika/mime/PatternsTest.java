@@ -17,6 +17,7 @@
 package org.apache.tika.mime;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -85,6 +86,38 @@ public class PatternsTest {
         assertEquals(".doc", doc.getExtension());
     }
 
+    @Test
+    public void testMatchOrder() throws MimeTypeException {
+        MimeType gzip = types.forName("application/gzip");
+        MimeType tgz = types.forName("application/x-gtar");
+        MimeType readme = types.forName("text/x-readme");
+        MimeType makefile = types.forName("text/x-makefile");
+        patterns.add("*.gz", gzip);
+        patterns.add("*.tar.gz", tgz);
+        patterns.add("README*", readme);
+        patterns.add("Makefile.*", makefile);
+        patterns.add("makefile.gz", makefile);
+
+        assertEquals(gzip, patterns.matches("a.gz"));
+        assertEquals(gzip, patterns.matches(".gz"));
+        assertEquals(tgz, patterns.matches("a.tar.gz"));
+        assertEquals(gzip, patterns.matches("a.ar.gz"));
+        assertNull(patterns.matches("gz"));
+        assertNull(patterns.matches("a.GZ"));
+        assertEquals(readme, patterns.matches("README.md"));
+        assertEquals(makefile, patterns.matches("Makefile.am"));
+        //names before extensions before globs
+        assertEquals(makefile, patterns.matches("makefile.gz"));
+        assertEquals(gzip, patterns.matches("Makefile.gz"));
+        assertEquals(gzip, patterns.matches("README.gz"));
+        assertNull(patterns.matches("readme"));
+
+        //globs added after the first match are picked up
+        MimeType text = types.forName("text/plain");
+        patterns.add("*.txt.*", text);
+        assertEquals(text, patterns.matches("a.txt.bak"));
+    }
+
     @Test
     public void testExtensions() throws Exception {
         MimeType jpeg = fullTypes.forName("image/jpeg");
@@ -18,6 +18,7 @@ package org.apache.tika.parser;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 import java.io.ByteArrayInputStream;
 import java.util.Collections;
@@ -26,6 +27,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.Test;
 import org.xml.sax.ContentHandler;
@@ -69,6 +71,74 @@ public class CompositeParserTest {
         assertEquals(b, parsers.get(1));
     }
 
+    @Test
+    @SuppressWarnings("serial")
+    public void testDispatchIndex() {
+        AtomicInteger calls = new AtomicInteger();
+        //supports text/plain, unless the context says otherwise
+        Parser text = new EmptyParser() {
+            public Set<MediaType> getSupportedTypes(ParseContext context) {
+                calls.incrementAndGet();
+                return context.get(EmptyParser.class) == null ?
+                        new HashSet<>(Collections.singleton(MediaType.TEXT_PLAIN)) :
+                        Collections.emptySet();
+            }
+        };
+        Parser fallback = new EmptyParser();
+        CompositeParser composite =
+                new CompositeParser(MediaTypeRegistry.getDefaultRegistry(), text);
+        composite.setFallback(fallback);
+        ParseContext context = new ParseContext();
+        ParseContext disabled = new ParseContext();
+        disabled.set(EmptyParser.class, new EmptyParser());
+
+        Metadata csv = new Metadata();
+        csv.set(Metadata.CONTENT_TYPE, "text/csv; charset=UTF-8");
+        //found through the supertype
+        assertSame(text, composite.getParser(csv, context));
+        assertSame(fallback, composite.getParser(csv, disabled));
+        assertSame(text, composite.getParser(csv, context));
+        //the index is reused, also for other contexts with the same EmptyParser
+        assertSame(composite.getSupportedTypes(context), composite.getSupportedTypes(context));
+        assertEquals(0, composite.getSupportedTypes(disabled).size());
+        ParseContext other = new ParseContext();
+        other.set(Metadata.class, new Metadata());
+        assertSame(text, composite.getParser(csv, other));
+        assertEquals(2, calls.get());
+
+        //the index is rebuilt if the parsers change
+        Parser csvParser = new EmptyParser();
+        Map<MediaType, Parser> parsers = new HashMap<>();
+        parsers.put(MediaType.parse("text/csv"), csvParser);
+        composite.setParsers(parsers);
+        assertSame(csvParser,
+                ((ParserDecorator) composite.getParser(csv, context)).getWrappedParser());
+    }
+
+    @Test
+    @SuppressWarnings("serial")
+    public void testOverriddenGetParsers() {
+        Parser text = new EmptyParser() {
+            public Set<MediaType> getSupportedTypes(ParseContext context) {
+                return Collections.singleton(MediaType.TEXT_PLAIN);
+            }
+        };
+        Parser csvParser = new EmptyParser();
+        CompositeParser composite =
+                new CompositeParser(MediaTypeRegistry.getDefaultRegistry(), text) {
+                    @Override
+                    public Map<MediaType, Parser> getParsers(ParseContext context) {
+                        Map<MediaType, Parser> map = super.getParsers(context);
+                        map.put(MediaType.parse("text/csv"), csvParser);
+                        return map;
+                    }
+                };
+        Metadata csv = new Metadata();
+        csv.set(Metadata.CONTENT_TYPE, "text/csv; charset=UTF-8");
+        assertSame(csvParser, composite.getParser(csv, new ParseContext()));
+        assertEquals(2, composite.getSupportedTypes(new ParseContext()).size());
+    }
+
     @Test
     public void testDefaultParser() throws Exception {
         TikaConfig config = TikaConfig.getDefaultConfig();
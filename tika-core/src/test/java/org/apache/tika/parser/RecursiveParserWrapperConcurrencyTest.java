@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.parser;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import org.apache.tika.TikaTest;
+import org.apache.tika.config.TikaTaskTimeout;
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.sax.AbstractRecursiveParserWrapperHandler;
+import org.apache.tika.sax.BasicContentHandlerFactory;
+import org.apache.tika.sax.RecursiveParserWrapperHandler;
+import org.apache.tika.sax.WriteLimitCounter;
+
+public class RecursiveParserWrapperConcurrencyTest extends TikaTest {
+
+    private static final String[] COMPARED = new String[]{
+            TikaCoreProperties.RESOURCE_NAME_KEY, TikaCoreProperties.EMBEDDED_ID.getName(),
+            TikaCoreProperties.EMBEDDED_ID_PATH.getName(),
+            TikaCoreProperties.EMBEDDED_RESOURCE_PATH.getName(),
+            TikaCoreProperties.FINAL_EMBEDDED_RESOURCE_PATH.getName(),
+            TikaCoreProperties.EMBEDDED_DEPTH.getName(), TikaCoreProperties.TIKA_CONTENT.getName()};
+
+    private static ExecutorService EXECUTOR;
+
+    @BeforeAll
+    public static void setUp() {
+        EXECUTOR = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        EXECUTOR.shutdownNow();
+    }
+
+    @Test
+    public void testSameResultsAsSerial() throws Exception {
+        String xml = container(20, "");
+        List<Metadata> serial = parse(xml, null, -1, -1, new ParseContext());
+        List<Metadata> concurrent = parse(xml, EXECUTOR, -1, -1, new ParseContext());
+        //the container, 20 children and 10 grandchildren
+        assertEquals(31, serial.size());
+        assertEquals(serial.size(), concurrent.size());
+        for (int i = 0; i < serial.size(); i++) {
+            for (String name : COMPARED) {
+                assertEquals(serial.get(i).get(name), concurrent.get(i).get(name), i + " " + name);
+            }
+        }
+        assertEquals("/child2.xml/grand2.xml",
+                concurrent.get(2).get(TikaCoreProperties.FINAL_EMBEDDED_RESOURCE_PATH));
+        assertEquals("/2/3", concurrent.get(2).get(TikaCoreProperties.EMBEDDED_ID_PATH));
+    }
+
+    @Test
+    public void testMaxEmbeddedResources() throws Exception {
+        List<Metadata> metadataList = parse(container(20, ""), EXECUTOR, 5, -1, new ParseContext());
+        assertEquals(6, metadataList.size());
+        assertEquals("true", metadataList.get(0)
+                .get(AbstractRecursiveParserWrapperHandler.EMBEDDED_RESOURCE_LIMIT_REACHED));
+    }
+
+    @Test
+    public void testWriteLimit() throws Exception {
+        ParseContext context = new ParseContext();
+        List<Metadata> metadataList = parse(container(20, ""), EXECUTOR, -1, 100, context);
+        assertEquals("true", metadataList.get(0).get(TikaCoreProperties.WRITE_LIMIT_REACHED));
+        int chars = 0;
+        for (Metadata m : metadataList) {
+            String content = m.get(TikaCoreProperties.TIKA_CONTENT);
+            chars += content == null ? 0 : content.length();
+        }
+        assertTrue(chars <= 100, "wrote " + chars);
+        WriteLimitCounter counter = context.get(WriteLimitCounter.class);
+        assertTrue(counter.isWriteLimitReached());
+        assertEquals(100, counter.getCharsWritten());
+    }
+
+    @Test
+    public void testUnnamedWithWriteLimit() throws Exception {
+        //the first child finishes last, the generated names still follow document order
+        String xml = container(20, "", false);
+        List<Metadata> serial = parse(xml, null, -1, 100, new ParseContext());
+        List<Metadata> concurrent = parse(xml, EXECUTOR, -1, 100, new ParseContext());
+        assertEquals(31, serial.size());
+        assertEquals(serial.size(), concurrent.size());
+        int chars = 0;
+        for (int i = 0; i < serial.size(); i++) {
+            for (String name : new String[]{TikaCoreProperties.EMBEDDED_ID_PATH.getName(),
+                    TikaCoreProperties.EMBEDDED_RESOURCE_PATH.getName(),
+                    TikaCoreProperties.FINAL_EMBEDDED_RESOURCE_PATH.getName()}) {
+                assertEquals(serial.get(i).get(name), concurrent.get(i).get(name), i + " " + name);
+            }
+            String content = concurrent.get(i).get(TikaCoreProperties.TIKA_CONTENT);
+            chars += content == null ? 0 : content.length();
+        }
+        assertEquals("/embedded-2/embedded-3",
+                concurrent.get(2).get(TikaCoreProperties.EMBEDDED_RESOURCE_PATH));
+        assertEquals("/embedded-29", concurrent.get(30).get(TikaCoreProperties.EMBEDDED_RESOURCE_PATH));
+        assertEquals("true", concurrent.get(0).get(TikaCoreProperties.WRITE_LIMIT_REACHED));
+        assertTrue(chars <= 100, "wrote " + chars);
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        ParseContext context = new ParseContext();
+        context.set(TikaTaskTimeout.class, new TikaTaskTimeout(500));
+        String xml = container(4, "<hang millis=\"30000\" heavy=\"false\" interruptible=\"true\"/>");
+        long start = System.currentTimeMillis();
+        assertThrows(TikaException.class, () -> parse(xml, EXECUTOR, -1, -1, context));
+        assertTrue(System.currentTimeMillis() - start < 20000);
+    }
+
+    private List<Metadata> parse(String xml, ExecutorService executor, int maxEmbedded,
+                                 int writeLimit, ParseContext context) throws Exception {
+        RecursiveParserWrapper wrapper = new RecursiveParserWrapper(AUTO_DETECT_PARSER);
+        wrapper.setEmbeddedExecutor(executor);
+        wrapper.setMaxPendingEmbedded(3);
+        RecursiveParserWrapperHandler handler = new RecursiveParserWrapperHandler(
+                new BasicContentHandlerFactory(BasicContentHandlerFactory.HANDLER_TYPE.TEXT,
+                        writeLimit, false, context), maxEmbedded);
+        Metadata metadata = new Metadata();
+        metadata.set(Metadata.CONTENT_TYPE, "application/mock+xml");
+        wrapper.parse(new ByteArrayInputStream(xml.getBytes(UTF_8)), handler, metadata, context);
+        return handler.getMetadataList();
+    }
+
+    private static String container(int children, String childAction) {
+        return container(children, childAction, true);
+    }
+
+    /**
+     * @param named whether the embedded documents have names; if not, the
+     *              first child is slow
+     */
+    private static String container(int children, String childAction, boolean named) {
+        StringBuilder sb = new StringBuilder("<mock><write element=\"p\">main</write>");
+        for (int i = 1; i <= children; i++) {
+            StringBuilder child = new StringBuilder("<mock>").append(childAction);
+            if (!named && i == 1) {
+                child.append("<hang millis=\"500\" heavy=\"false\" interruptible=\"true\"/>");
+            }
+            child.append("<write element=\"p\">child").append(i).append("</write>");
+            if (i % 2 == 0) {
+                child.append(embedded(named ? "grand" + i + ".xml" : null,
+                        "<mock><write element=\"p\">grand" + i + "</write></mock>"));
+            }
+            child.append("</mock>");
+            sb.append(embedded(named ? "child" + i + ".xml" : null, child.toString()));
+        }
+        return sb.append("</mock>").toString();
+    }
+
+    private static String embedded(String name, String xml) {
+        return "<embedded" + (name == null ? "" : " filename=\"" + name + "\"") +
+                " content-type=\"application/mock+xml\">" +
+                xml.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;")
+                        .replace("\"", "&quot;") + "</embedded>";
+    }
+}
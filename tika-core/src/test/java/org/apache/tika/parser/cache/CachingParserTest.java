@@ -0,0 +1,282 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.parser.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.mime.MediaType;
+import org.apache.tika.parser.AbstractParser;
+import org.apache.tika.parser.DigestingParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
+import org.apache.tika.parser.digest.InputStreamDigester;
+import org.apache.tika.sax.ToXMLContentHandler;
+import org.apache.tika.sax.XHTMLContentHandler;
+
+public class CachingParserTest {
+
+    @TempDir
+    private Path tmp;
+
+    @Test
+    public void testCacheHit() throws Exception {
+        CountingParser counting = new CountingParser();
+        FileSystemParseResultCache cache = new FileSystemParseResultCache(tmp, 1000000, 100);
+        Parser parser = digesting(new CachingParser(counting, cache, "test"));
+
+        Metadata first = new Metadata();
+        first.set(TikaCoreProperties.RESOURCE_NAME_KEY, "a.txt");
+        String firstXml = parse(parser, "hello world", first);
+        assertEquals(1, counting.count.get());
+        assertEquals(1, cache.size());
+
+        Metadata second = new Metadata();
+        second.set(TikaCoreProperties.RESOURCE_NAME_KEY, "b.txt");
+        String secondXml = parse(parser, "hello world", second);
+        assertEquals(1, counting.count.get());
+        assertEquals(firstXml, secondXml);
+        assertEquals("b.txt", second.get(TikaCoreProperties.RESOURCE_NAME_KEY));
+        assertEquals("11", second.get("length"));
+        assertEquals(2, second.getValues("multi").length);
+
+        parse(parser, "something else", new Metadata());
+        assertEquals(2, counting.count.get());
+
+        //same document, but different configuration
+        parse(digesting(new CachingParser(counting, cache, "other")), "hello world",
+                new Metadata());
+        assertEquals(3, counting.count.get());
+
+        //a new instance on the same directory picks up the cached results
+        cache = new FileSystemParseResultCache(tmp, 1000000, 100);
+        assertEquals(3, cache.size());
+        parse(digesting(new CachingParser(counting, cache, "test")), "hello world",
+                new Metadata());
+        assertEquals(3, counting.count.get());
+    }
+
+    @Test
+    public void testNoDigest() throws Exception {
+        CountingParser counting = new CountingParser();
+        FileSystemParseResultCache cache = new FileSystemParseResultCache(tmp, 1000000, 100);
+        Parser parser = new CachingParser(counting, cache, "test");
+        parse(parser, "hello world", new Metadata());
+        parse(parser, "hello world", new Metadata());
+        assertEquals(2, counting.count.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        CountingParser counting = new CountingParser();
+        FileSystemParseResultCache cache = new FileSystemParseResultCache(tmp, 1000000, 2);
+        Parser parser = digesting(new CachingParser(counting, cache, "test"));
+        parse(parser, "one", new Metadata());
+        parse(parser, "two", new Metadata());
+        //touch "one", so that "two" is evicted
+        parse(parser, "one", new Metadata());
+        parse(parser, "three", new Metadata());
+        assertEquals(3, counting.count.get());
+        assertEquals(2, cache.size());
+
+        parse(parser, "one", new Metadata());
+        assertEquals(3, counting.count.get());
+        parse(parser, "two", new Metadata());
+        assertEquals(4, counting.count.get());
+    }
+
+    @Test
+    public void testTooLarge() throws Exception {
+        CountingParser counting = new CountingParser();
+        FileSystemParseResultCache cache = new FileSystemParseResultCache(tmp, 1000000, 100);
+        CachingParser cachingParser = new CachingParser(counting, cache, "test");
+        cachingParser.setMaxResultBytes(10);
+        Parser parser = digesting(cachingParser);
+        parse(parser, "hello world", new Metadata());
+        parse(parser, "hello world", new Metadata());
+        assertEquals(2, counting.count.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testContextValues() throws Exception {
+        CountingParser counting = new CountingParser();
+        FileSystemParseResultCache cache = new FileSystemParseResultCache(tmp, 1000000, 100);
+        Parser parser = digesting(new CachingParser(counting, cache, "test"));
+
+        //same document, parsed with two different configurations
+        parse(parser, "hello world", new Metadata(), context(new OCRConfig("eng")));
+        parse(parser, "hello world", new Metadata(), context(new OCRConfig("fra")));
+        assertEquals(2, counting.count.get());
+        assertEquals(2, cache.size());
+
+        //an equal configuration in a new instance hits the cache
+        parse(parser, "hello world", new Metadata(), context(new OCRConfig("eng")));
+        assertEquals(2, counting.count.get());
+
+        //values that can't be fingerprinted turn off caching
+        ParseContext context = new ParseContext();
+        context.set(Runnable.class, () -> {
+        });
+        parse(parser, "hello world", new Metadata(), context);
+        parse(parser, "hello world", new Metadata(), context);
+        assertEquals(4, counting.count.get());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        StringBuilder longText = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            longText.append("é😀");
+        }
+        FileSystemParseResultCache cache = new FileSystemParseResultCache(tmp, 10000000, 100);
+        CountingParser counting = new CountingParser();
+        Parser parser = digesting(new CachingParser(counting, cache, "test"));
+        String xml = parse(parser, longText.toString(), new Metadata());
+        assertEquals(xml, parse(parser, longText.toString(), new Metadata()));
+        assertEquals(1, counting.count.get());
+        assertNotNull(cache.get(
+                new CachingParser(counting, cache, "test").getKey(digest(longText.toString()),
+                        new ParseContext())));
+        assertNull(cache.get("missing"));
+    }
+
+    @Test
+    public void testParserRoundTrip() throws Exception {
+        FileSystemParseResultCache cache = new FileSystemParseResultCache(tmp, 1000000, 100);
+        CachingParser cachingParser = new CachingParser(new CountingParser(), cache, "test");
+        String xml = parse(digesting(cachingParser), "hello world", new Metadata());
+        assertEquals(1, cache.size());
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+            oos.writeObject(cachingParser);
+        }
+        CachingParser copy;
+        try (ObjectInputStream ois = new ObjectInputStream(
+                new ByteArrayInputStream(bos.toByteArray()))) {
+            copy = (CachingParser) ois.readObject();
+        }
+        //the copy has no cache, so it parses every document; its count was copied at 1
+        CountingParser counting = (CountingParser) copy.getWrappedParser();
+        assertEquals(xml, parse(digesting(copy), "hello world", new Metadata()));
+        assertEquals(xml, parse(digesting(copy), "hello world", new Metadata()));
+        assertEquals(3, counting.count.get());
+        assertEquals(1, cache.size());
+    }
+
+    private static Metadata digest(String content) throws IOException {
+        Metadata metadata = new Metadata();
+        try (TikaInputStream tis = TikaInputStream.get(content.getBytes(StandardCharsets.UTF_8))) {
+            new InputStreamDigester(1000000, "SHA-256", "SHA256", HexFormat.of()::formatHex)
+                    .digest(tis, metadata, new ParseContext());
+        }
+        metadata.set(Metadata.CONTENT_TYPE, "text/plain");
+        return metadata;
+    }
+
+    private static Parser digesting(Parser parser) {
+        return new DigestingParser(parser,
+                new InputStreamDigester(1000000, "SHA-256", "SHA256", HexFormat.of()::formatHex),
+                false);
+    }
+
+    private static ParseContext context(OCRConfig config) {
+        ParseContext context = new ParseContext();
+        context.set(OCRConfig.class, config);
+        return context;
+    }
+
+    private static String parse(Parser parser, String content, Metadata metadata)
+            throws Exception {
+        return parse(parser, content, metadata, new ParseContext());
+    }
+
+    private static String parse(Parser parser, String content, Metadata metadata,
+                                ParseContext context) throws Exception {
+        metadata.set(Metadata.CONTENT_TYPE, "text/plain");
+        ToXMLContentHandler handler = new ToXMLContentHandler();
+        try (InputStream is = new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8))) {
+            parser.parse(is, handler, metadata, context);
+        }
+        return handler.toString();
+    }
+
+    private static class OCRConfig implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String language;
+
+        private OCRConfig(String language) {
+            this.language = language;
+        }
+    }
+
+    private static class CountingParser extends AbstractParser {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Set<MediaType> getSupportedTypes(ParseContext context) {
+            return Collections.singleton(MediaType.TEXT_PLAIN);
+        }
+
+        @Override
+        public void parse(InputStream stream, ContentHandler handler, Metadata metadata,
+                          ParseContext context) throws IOException, SAXException, TikaException {
+            count.incrementAndGet();
+            String text = new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+            metadata.set("length", Integer.toString(text.length()));
+            metadata.add("multi", "a");
+            metadata.add("multi", "b");
+            XHTMLContentHandler xhtml = new XHTMLContentHandler(handler, metadata);
+            xhtml.startDocument();
+            xhtml.element("p", text);
+            xhtml.startElement("a", "href", "http://tika.apache.org/");
+            xhtml.characters("link");
+            xhtml.endElement("a");
+            xhtml.endDocument();
+        }
+    }
+}
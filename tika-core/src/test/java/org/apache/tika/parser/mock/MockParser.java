@@ -245,7 +245,7 @@ public class MockParser implements Parser {
 
     private void handleEmbedded(Node action, XHTMLContentHandler handler, ParseContext context)
             throws TikaException, SAXException, IOException {
-        String fileName = "";
+        String fileName = null;
         String contentType = "";
         NamedNodeMap attrs = action.getAttributes();
         if (attrs != null) {
@@ -263,7 +263,9 @@ public class MockParser implements Parser {
         EmbeddedDocumentExtractor extractor = EmbeddedDocumentUtil.getEmbeddedDocumentExtractor(context);
 
         Metadata m = new Metadata();
-        m.set(TikaCoreProperties.RESOURCE_NAME_KEY, fileName);
+        if (fileName != null) {
+            m.set(TikaCoreProperties.RESOURCE_NAME_KEY, fileName);
+        }
         if (!"".equals(contentType)) {
             m.set(Metadata.CONTENT_TYPE, contentType);
         }
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.pipes;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.pipes.emitter.EmitData;
+import org.apache.tika.pipes.emitter.EmitKey;
+import org.apache.tika.pipes.fetcher.FetchKey;
+import org.apache.tika.sax.BasicContentHandlerFactory;
+
+public class BinaryPipesCodecTest {
+
+    @Test
+    public void testFetchEmitTuple() throws Exception {
+        Metadata metadata = new Metadata();
+        metadata.add("k1", "v1");
+        metadata.add("k1", "v2");
+        ParseContext parseContext = new ParseContext();
+        parseContext.set(HandlerConfig.class,
+                new HandlerConfig(BasicContentHandlerFactory.HANDLER_TYPE.XML,
+                        HandlerConfig.PARSE_MODE.CONCATENATE, 1000, 10, false));
+        FetchEmitTuple t = new FetchEmitTuple("id", new FetchKey("fs", "path/é.txt", 10, 20),
+                new EmitKey("emitter", "key"), metadata, parseContext,
+                FetchEmitTuple.ON_PARSE_EXCEPTION.SKIP);
+
+        PipesCodec codec = PipesCodec.newInstance(PipesCodec.PROTOCOL.BINARY, -1);
+        assertEquals(t, codec.deserializeFetchEmitTuple(ByteBuffer.wrap(codec.serialize(t))));
+
+        FetchEmitTuple minimal = new FetchEmitTuple("id", new FetchKey("fs", "path"),
+                EmitKey.NO_EMIT);
+        assertEquals(minimal, codec.deserializeFetchEmitTuple(ByteBuffer.wrap(codec.serialize(minimal))));
+    }
+
+    @Test
+    public void testEmitData() throws Exception {
+        List<Metadata> metadataList = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Metadata m = new Metadata();
+            m.set(TikaCoreProperties.RESOURCE_NAME_KEY, "file-" + i);
+            m.set(TikaCoreProperties.TIKA_CONTENT, content(i * 1000));
+            m.add("multi", "a");
+            m.add("multi", "b");
+            metadataList.add(m);
+        }
+        EmitData emitData = new EmitData(new EmitKey("e", "k"), metadataList, "stack");
+
+        for (int threshold : new int[]{-1, 0, 100, 100000}) {
+            PipesCodec codec = PipesCodec.newInstance(PipesCodec.PROTOCOL.BINARY, threshold);
+            EmitData copy = codec.deserializeEmitData(ByteBuffer.wrap(codec.serialize(emitData)));
+            assertEquals(emitData.getEmitKey(), copy.getEmitKey());
+            assertEquals(metadataList, copy.getMetadataList());
+            assertEquals("stack", copy.getContainerStackTrace());
+            assertTrue(copy.getParseContext().isEmpty());
+            //keys are shared between metadata objects and documents
+            assertSame(copy.getMetadataList().get(0).names()[0].intern(),
+                    copy.getMetadataList().get(0).names()[0]);
+        }
+    }
+
+    @Test
+    public void testSmallerThanJava() throws Exception {
+        List<Metadata> metadataList = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Metadata m = new Metadata();
+            m.set(TikaCoreProperties.RESOURCE_NAME_KEY, "file-" + i);
+            m.set(TikaCoreProperties.TIKA_CONTENT, content(10000));
+            metadataList.add(m);
+        }
+        EmitData emitData = new EmitData(new EmitKey("e", "k"), metadataList, null);
+        int java = PipesCodec.newInstance(PipesCodec.PROTOCOL.JAVA, -1)
+                .serialize(emitData).length;
+        int binary = PipesCodec.newInstance(PipesCodec.PROTOCOL.BINARY, -1)
+                .serialize(emitData).length;
+        int compressed = PipesCodec.newInstance(PipesCodec.PROTOCOL.BINARY, 1000)
+                .serialize(emitData).length;
+        assertTrue(binary < java, binary + " should be smaller than " + java);
+        assertTrue(compressed < binary / 2, compressed + " should be much smaller than " + binary);
+    }
+
+    @Test
+    public void testMetadata() throws Exception {
+        PipesCodec codec = PipesCodec.newInstance(PipesCodec.PROTOCOL.BINARY, 5);
+        Metadata metadata = new Metadata();
+        metadata.set("empty", "");
+        metadata.set("unicode", "ü中😀");
+        metadata.set("long", content(100));
+        Metadata copy = codec.deserializeMetadata(ByteBuffer.wrap(codec.serialize(metadata)));
+        assertEquals(metadata, copy);
+        assertArrayEquals(metadata.getValues("unicode"), copy.getValues("unicode"));
+    }
+
+    @Test
+    public void testCorrupt() throws Exception {
+        PipesCodec codec = PipesCodec.newInstance(PipesCodec.PROTOCOL.BINARY, -1);
+        Metadata metadata = new Metadata();
+        metadata.set("k", "v");
+        byte[] bytes = codec.serialize(metadata);
+
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 1);
+        assertThrows(IOException.class, () -> codec.deserializeMetadata(ByteBuffer.wrap(truncated)));
+
+        bytes[0] = BinaryPipesCodec.VERSION + 1;
+        assertThrows(IOException.class, () -> codec.deserializeMetadata(ByteBuffer.wrap(bytes)));
+    }
+
+    @Test
+    public void testParseProtocol() {
+        assertEquals(PipesCodec.PROTOCOL.BINARY, PipesCodec.PROTOCOL.parse("binary"));
+        assertEquals(PipesCodec.PROTOCOL.JAVA, PipesCodec.PROTOCOL.parse("JAVA"));
+        assertThrows(IllegalArgumentException.class, () -> PipesCodec.PROTOCOL.parse("xml"));
+    }
+
+    private static String content(int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            sb.append("word").append(i % 50).append(' ');
+        }
+        return sb.toString();
+    }
+}
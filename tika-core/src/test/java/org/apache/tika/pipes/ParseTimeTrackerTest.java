@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.pipes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import org.apache.tika.metadata.Metadata;
+
+public class ParseTimeTrackerTest {
+
+    @Test
+    public void testTimeouts() {
+        ParseTimeTracker tracker = new ParseTimeTracker(1000, 60000, 4.0, 10);
+        Metadata smallPdf = metadata("application/pdf", 1000);
+        Metadata largePdf = metadata("application/pdf; version=1.7", 50_000_000);
+        //not enough samples yet
+        for (int i = 0; i < 9; i++) {
+            tracker.record(smallPdf, PipesResult.STATUS.PARSE_SUCCESS, 100);
+        }
+        assertEquals(60000, tracker.getTimeoutMillis(smallPdf));
+        tracker.record(smallPdf, PipesResult.STATUS.EMIT_SUCCESS, 100);
+        //p99 <= 128 ms, but never less than the minimum
+        assertEquals(1000, tracker.getTimeoutMillis(smallPdf));
+
+        for (int i = 0; i < 10; i++) {
+            tracker.record(largePdf, PipesResult.STATUS.PARSE_SUCCESS, 3000);
+        }
+        //p99 <= 4096 ms
+        assertEquals(4 * 4096, tracker.getTimeoutMillis(largePdf));
+        //crashes say nothing about parse times
+        tracker.record(largePdf, PipesResult.STATUS.OOM, 100000);
+        assertEquals(4 * 4096, tracker.getTimeoutMillis(largePdf));
+        //never more than the configured timeout
+        for (int i = 0; i < 10; i++) {
+            tracker.record(largePdf, PipesResult.STATUS.TIMEOUT, 50000);
+        }
+        assertEquals(60000, tracker.getTimeoutMillis(largePdf));
+        //unknown types and sizes get the configured timeout
+        assertEquals(60000, tracker.getTimeoutMillis(metadata("text/plain", 1000)));
+        assertEquals(60000, tracker.getTimeoutMillis(null));
+    }
+
+    @Test
+    public void testDistributions() {
+        ParseTimeTracker tracker = new ParseTimeTracker(1000, 60000, 4.0, 10);
+        tracker.record(metadata("text/plain", 10), PipesResult.STATUS.PARSE_SUCCESS, 5);
+        tracker.record(metadata("application/pdf", 5000), PipesResult.STATUS.PARSE_SUCCESS, 900);
+        tracker.record(metadata("application/pdf", 6000), PipesResult.STATUS.TIMEOUT, 60000);
+
+        List<ParseTimeTracker.Distribution> distributions = tracker.getDistributions();
+        assertEquals(2, distributions.size());
+        ParseTimeTracker.Distribution pdf = distributions.get(0);
+        assertEquals("application/pdf", pdf.getMediaType());
+        assertEquals(2, pdf.getCount());
+        assertEquals(1, pdf.getTimeouts());
+        assertEquals(60900, pdf.getTotalMillis());
+        assertEquals(60000, pdf.getMaxMillis());
+        assertEquals(1024, pdf.getP50Millis());
+        assertEquals(8192, pdf.getMaxLength());
+        assertEquals("text/plain", distributions.get(1).getMediaType());
+    }
+
+    private static Metadata metadata(String mediaType, long length) {
+        Metadata metadata = new Metadata();
+        metadata.set(Metadata.CONTENT_TYPE, mediaType);
+        metadata.set(Metadata.CONTENT_LENGTH, Long.toString(length));
+        return metadata;
+    }
+}
@@ -17,14 +17,17 @@
 package org.apache.tika.pipes;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
+import java.util.stream.Stream;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.xml.sax.SAXException;
 
 import org.apache.tika.exception.TikaConfigException;
@@ -43,6 +46,8 @@ public class PipesClientTest {
     String fetcherName = "fs";
     String testPdfFile = "testOverlappingText.pdf";
 
+    private PipesConfig pipesConfig;
+
     private PipesClient pipesClient;
 
     @BeforeEach
@@ -51,7 +56,7 @@ public class PipesClientTest {
         Path tikaConfigPath =
                 Paths.get("src", "test", "resources", "org", "apache", "tika", "pipes",
                         "tika-sample-config.xml");
-        PipesConfig pipesConfig = PipesConfig.load(tikaConfigPath);
+        pipesConfig = PipesConfig.load(tikaConfigPath);
         pipesClient = new PipesClient(pipesConfig);
     }
 
@@ -93,4 +98,63 @@ public class PipesClientTest {
         Metadata metadata = pipesResult.getEmitData().getMetadataList().get(0);
         Assertions.assertEquals(4, Integer.parseInt(metadata.get("X-TIKA:attachment_count")));
     }
+
+    @Test
+    public void testBinaryProtocol() throws IOException, InterruptedException {
+        pipesConfig.setProtocol("binary");
+        pipesConfig.setCompressThresholdBytes(10);
+        ParseContext parseContext = new ParseContext();
+        parseContext.set(MetadataFilter.class,
+                new CompositeMetadataFilter(List.of(new MockUpperCaseFilter())));
+        try (PipesClient binaryClient = new PipesClient(pipesConfig)) {
+            PipesResult pipesResult = binaryClient.process(
+                    new FetchEmitTuple(testPdfFile, new FetchKey(fetcherName, testPdfFile),
+                            new EmitKey(), new Metadata(), parseContext,
+                            FetchEmitTuple.ON_PARSE_EXCEPTION.SKIP));
+            Assertions.assertEquals(1, pipesResult.getEmitData().getMetadataList().size());
+            Metadata metadata = pipesResult.getEmitData().getMetadataList().get(0);
+            Assertions.assertEquals("TESTOVERLAPPINGTEXT.PDF", metadata.get("resourceName"));
+        }
+    }
+
+    @Test
+    public void testAdaptiveTimeouts() throws IOException, InterruptedException {
+        ParseTimeTracker tracker = new ParseTimeTracker(1000, 60000, 4.0, 1);
+        try (PipesClient adaptiveClient = new PipesClient(pipesConfig, tracker)) {
+            for (int i = 0; i < 2; i++) {
+                PipesResult pipesResult = adaptiveClient.process(
+                        new FetchEmitTuple(testPdfFile, new FetchKey(fetcherName, testPdfFile),
+                                new EmitKey(), new Metadata(), new ParseContext(),
+                                FetchEmitTuple.ON_PARSE_EXCEPTION.SKIP));
+                Assertions.assertEquals(1, pipesResult.getEmitData().getMetadataList().size());
+            }
+        }
+        List<ParseTimeTracker.Distribution> distributions = tracker.getDistributions();
+        Assertions.assertEquals(1, distributions.size());
+        Assertions.assertEquals(2, distributions.get(0).getCount());
+        Assertions.assertEquals(0, distributions.get(0).getTimeouts());
+    }
+
+    @Test
+    public void testMemoryMappedResults(@TempDir Path tmp) throws IOException, InterruptedException {
+        pipesConfig.setMemoryMappedResultsThresholdBytes(0);
+        pipesConfig.setMemoryMappedResultsDirectory(tmp);
+        try (PipesClient mappedClient = new PipesClient(pipesConfig)) {
+            for (int i = 0; i < 2; i++) {
+                PipesResult pipesResult = mappedClient.process(
+                        new FetchEmitTuple(testPdfFile, new FetchKey(fetcherName, testPdfFile),
+                                new EmitKey(), new Metadata(), new ParseContext(),
+                                FetchEmitTuple.ON_PARSE_EXCEPTION.SKIP));
+                Assertions.assertEquals(1, pipesResult.getEmitData().getMetadataList().size());
+                Metadata metadata = pipesResult.getEmitData().getMetadataList().get(0);
+                Assertions.assertEquals("testOverlappingText.pdf", metadata.get("resourceName"));
+            }
+            try (Stream<Path> files = Files.list(tmp)) {
+                Assertions.assertEquals(1, files.count());
+            }
+        }
+        try (Stream<Path> files = Files.list(tmp)) {
+            Assertions.assertEquals(0, files.count());
+        }
+    }
 }
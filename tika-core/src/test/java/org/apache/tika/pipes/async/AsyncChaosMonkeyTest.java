@@ -17,6 +17,7 @@
 package org.apache.tika.pipes.async;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
@@ -30,6 +31,7 @@ import java.util.Set;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import org.apache.tika.exception.TikaConfigException;
 import org.apache.tika.metadata.Metadata;
 import org.apache.tika.metadata.TikaCoreProperties;
 import org.apache.tika.pipes.FetchEmitTuple;
@@ -74,6 +76,11 @@ public class AsyncChaosMonkeyTest {
 
 
     public Path setUp(boolean emitIntermediateResults) throws SQLException, IOException {
+        return setUp(emitIntermediateResults, false);
+    }
+
+    public Path setUp(boolean emitIntermediateResults, boolean virtualThreads)
+            throws SQLException, IOException {
         ok = 0;
         oom = 0;
         timeouts = 0;
@@ -95,6 +102,7 @@ public class AsyncChaosMonkeyTest {
                 "<async><pipesReporter class=\"org.apache.tika.pipes.async.MockReporter\"/>" +
                         "<emitIntermediateResults>" + emitIntermediateResults +
                         "</emitIntermediateResults>" +
+                        "<virtualThreads>" + virtualThreads + "</virtualThreads>" +
                         "<tikaConfig>" +
                         ProcessUtils.escapeCommandLine(tikaConfigPath.toAbsolutePath().toString()) +
                         "</tikaConfig><forkedJvmArgs><arg>-Xmx512m</arg" +
@@ -140,7 +148,21 @@ public class AsyncChaosMonkeyTest {
 
     @Test
     public void testBasic() throws Exception {
-        AsyncProcessor processor = new AsyncProcessor(setUp(false));
+        runBasic(false);
+    }
+
+    @Test
+    public void testVirtualThreads() throws Exception {
+        if (Runtime.version().feature() < 21) {
+            //there's no fallback to platform threads
+            assertThrows(TikaConfigException.class, () -> new AsyncProcessor(setUp(false, true)));
+            return;
+        }
+        runBasic(true);
+    }
+
+    private void runBasic(boolean virtualThreads) throws Exception {
+        AsyncProcessor processor = new AsyncProcessor(setUp(false, virtualThreads));
         for (int i = 0; i < totalFiles; i++) {
             FetchEmitTuple t = new FetchEmitTuple("myId-" + i,
                     new FetchKey("mock", i + ".xml"),
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.sax;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import org.apache.tika.exception.WriteLimitReachedException;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.ParseRecord;
+
+/**
+ * Test cases for the {@link WriteOutContentHandler} class.
+ */
+public class WriteOutContentHandlerTest {
+
+    @Test
+    public void testWriteLimit() throws Exception {
+        WriteOutContentHandler handler = new WriteOutContentHandler(10);
+        write(handler, "abcdef");
+        assertThrows(WriteLimitReachedException.class, () -> write(handler, "ghijkl"));
+        assertEquals("abcdefghij", handler.toString());
+        assertEquals(10, handler.getWriteCount());
+        assertTrue(handler.isWriteLimitReached());
+        //nothing more is written
+        write(handler, "mnop");
+        assertEquals("abcdefghij", handler.toString());
+    }
+
+    @Test
+    public void testSharedCounter() throws Exception {
+        WriteLimitCounter counter = new WriteLimitCounter(10);
+        ParseContext context = new ParseContext();
+        ParseRecord parseRecord = new ParseRecord();
+        context.set(ParseRecord.class, parseRecord);
+        WriteOutContentHandler first =
+                new WriteOutContentHandler(new ToTextContentHandler(), counter, false, context);
+        WriteOutContentHandler second =
+                new WriteOutContentHandler(new ToTextContentHandler(), counter, false, context);
+        write(first, "abcdef");
+        write(second, "ghijkl");
+        write(first, "mnop");
+        assertEquals("abcdef", first.toString());
+        assertEquals("ghij", second.toString());
+        assertEquals(6, first.getWriteCount());
+        assertEquals(4, second.getWriteCount());
+        assertEquals(10, counter.getCharsWritten());
+        assertTrue(counter.isWriteLimitReached());
+        assertTrue(parseRecord.isWriteLimitReached());
+    }
+
+    @Test
+    public void testUnlimitedCounter() throws Exception {
+        WriteLimitCounter counter = new WriteLimitCounter(-1);
+        WriteOutContentHandler handler =
+                new WriteOutContentHandler(new ToTextContentHandler(), counter, true, null);
+        for (int i = 0; i < 100; i++) {
+            write(handler, "abcdefghij");
+        }
+        assertEquals(1000, counter.getCharsWritten());
+        assertEquals(1000, handler.toString().length());
+        assertFalse(counter.isWriteLimitReached());
+    }
+
+    private static void write(WriteOutContentHandler handler, String s) throws Exception {
+        handler.characters(s.toCharArray(), 0, s.length());
+    }
+}
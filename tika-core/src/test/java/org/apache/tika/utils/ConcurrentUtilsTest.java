@@ -16,6 +16,8 @@
  */
 package org.apache.tika.utils;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
 import java.util.concurrent.ExecutorService;
@@ -52,4 +54,20 @@ public class ConcurrentUtilsTest {
         assertNull(result.get());
     }
 
+    @Test
+    public void testVirtualThreadPerTaskExecutor() throws Exception {
+        ExecutorService executorService = ConcurrentUtils.newVirtualThreadPerTaskExecutor();
+        if (Runtime.version().feature() < 21) {
+            assertNull(executorService);
+            return;
+        }
+        assertNotNull(executorService);
+        try {
+            Future<Boolean> isVirtual = executorService.submit(() ->
+                    (Boolean) Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()));
+            assertEquals(Boolean.TRUE, isVirtual.get());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
 }
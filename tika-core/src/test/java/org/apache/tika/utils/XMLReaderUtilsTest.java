@@ -16,14 +16,21 @@
  */
 package org.apache.tika.utils;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.net.ConnectException;
 import java.nio.charset.StandardCharsets;
 
 import org.junit.jupiter.api.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
 
+import org.apache.tika.exception.TikaException;
 import org.apache.tika.parser.ParseContext;
 import org.apache.tika.sax.ToTextContentHandler;
 
@@ -52,4 +59,71 @@ public class XMLReaderUtilsTest {
             fail("Parser tried to access the external DTD:" + e);
         }
     }
+
+    @Test
+    public void testPoolGrowsAndShrinks() throws Exception {
+        try {
+            XMLReaderUtils.setPoolSettings(1, 2, 100);
+
+            //three parsers in use at the same time: one from the pool,
+            //one that the pool grows by and one beyond the maximum size
+            parseNested(3);
+            XMLReaderUtils.PoolMetrics metrics = XMLReaderUtils.getSAXParserPoolMetrics();
+            assertEquals(2, metrics.getSize());
+            assertEquals(2, metrics.getIdle());
+            assertEquals(1, metrics.getHits());
+            assertEquals(2, metrics.getMisses());
+            assertEquals(1, metrics.getOverflows());
+            assertTrue(metrics.getWaitNanos() > 0);
+
+            //the same thread gets its parser back
+            parseNested(1);
+            metrics = XMLReaderUtils.getSAXParserPoolMetrics();
+            assertEquals(2, metrics.getHits());
+            assertEquals(2, metrics.getMisses());
+
+            //and once idle, the pool shrinks back to its size
+            Thread.sleep(250);
+            parseNested(1);
+            metrics = XMLReaderUtils.getSAXParserPoolMetrics();
+            assertEquals(1, metrics.getSize());
+            assertEquals(1, metrics.getEvictions());
+            assertEquals(3, metrics.getHits());
+        } finally {
+            XMLReaderUtils.setPoolSettings(XMLReaderUtils.DEFAULT_POOL_SIZE,
+                    XMLReaderUtils.DEFAULT_MAX_POOL_SIZE,
+                    XMLReaderUtils.DEFAULT_POOL_IDLE_TIMEOUT_MILLIS);
+        }
+    }
+
+    @Test
+    public void testDOMBuilderPool() throws Exception {
+        XMLReaderUtils.setPoolSize(XMLReaderUtils.DEFAULT_POOL_SIZE);
+        for (int i = 0; i < 5; i++) {
+            XMLReaderUtils.buildDOM(new ByteArrayInputStream(
+                    "<foo/>".getBytes(StandardCharsets.UTF_8)));
+        }
+        XMLReaderUtils.PoolMetrics metrics = XMLReaderUtils.getDOMBuilderPoolMetrics();
+        assertEquals(XMLReaderUtils.DEFAULT_POOL_SIZE, metrics.getSize());
+        assertEquals(XMLReaderUtils.DEFAULT_POOL_SIZE, metrics.getIdle());
+        assertEquals(5, metrics.getHits());
+        assertEquals(0, metrics.getMisses());
+    }
+
+    private static void parseNested(int depth) throws IOException, TikaException, SAXException {
+        XMLReaderUtils.parseSAX(new ByteArrayInputStream("<foo/>".getBytes(StandardCharsets.UTF_8)),
+                new DefaultHandler() {
+                    @Override
+                    public void startElement(String uri, String localName, String qName,
+                                             Attributes atts) throws SAXException {
+                        if (depth > 1) {
+                            try {
+                                parseNested(depth - 1);
+                            } catch (IOException | TikaException e) {
+                                throw new SAXException(e);
+                            }
+                        }
+                    }
+                }, new ParseContext());
+    }
 }
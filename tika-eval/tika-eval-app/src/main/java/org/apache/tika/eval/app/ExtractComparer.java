@@ -101,6 +101,9 @@ public class ExtractComparer extends AbstractProfiler {
                 .addOption("db", true, "db file to which to write results")
                 .addOption("jdbc", true, "EXPERT: full jdbc connection string. Must specify this or -db <h2db>")
                 .addOption("jdbcDriver", true, "EXPERT: jdbc driver, or specify via -Djdbc.driver")
+                .addOption("dbBatchSize", true, "EXPERT: number of rows per table to batch before sending to the db, default=1000")
+                .addOption("dbCommitEveryXRows", true, "EXPERT: number of rows each writer sends before committing, default=10000")
+                .addOption("dbWriterConnections", true, "EXPERT: number of db connections to share among the writers, default=1")
                 .addOption("tablePrefixA", true, "EXPERT: optional prefix for table names for A")
                 .addOption("tablePrefixB", true, "EXPERT: optional prefix for table names for B")
                 .addOption("drop", false, "drop tables if they exist")
@@ -34,12 +34,14 @@ import org.apache.tika.eval.app.db.TableInfo;
 
 public class DBConsumersManager extends ConsumersManager {
 
+    private final JDBCUtil dbUtil;
     private final Connection conn;
     private final MimeBuffer mimeBuffer;
     private final List<LogTablePair> errorLogs = new ArrayList<>();
 
     public DBConsumersManager(JDBCUtil dbUtil, MimeBuffer mimeBuffer, List<FileResourceConsumer> consumers) throws SQLException {
         super(consumers);
+        this.dbUtil = dbUtil;
         this.conn = dbUtil.getConnection();
         this.mimeBuffer = mimeBuffer;
     }
@@ -58,6 +60,12 @@ public class DBConsumersManager extends ConsumersManager {
             }
         }
 
+        try {
+            dbUtil.closeWriterConnections();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+
         try {
             mimeBuffer.close();
         } catch (SQLException e) {
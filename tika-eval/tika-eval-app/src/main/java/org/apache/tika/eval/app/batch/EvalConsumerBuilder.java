@@ -153,8 +153,11 @@ public abstract class EvalConsumerBuilder {
     }
 
     protected IDBWriter getDBWriter(List<TableInfo> tableInfos) throws IOException, SQLException {
-        Connection conn = dbUtil.getConnection();
-        return new DBWriter(conn, tableInfos, dbUtil, mimeBuffer);
+        Connection conn = dbUtil.getWriterConnection();
+        DBWriter writer = new DBWriter(conn, tableInfos, dbUtil, mimeBuffer);
+        writer.setBatchSize(PropsUtil.getInt(localAttrs.get("dbBatchSize"), DBWriter.DEFAULT_BATCH_SIZE));
+        writer.setCommitEveryXRows(PropsUtil.getLong(localAttrs.get("dbCommitEveryXRows"), DBWriter.DEFAULT_COMMIT_EVERY_X_ROWS));
+        return writer;
     }
 
     ExtractReader.ALTER_METADATA_LIST getAlterMetadata(Map<String, String> localAttrs) {
@@ -76,6 +76,7 @@ public class EvalConsumersBuilder extends AbstractConsumersBuilder {
         } else {
             throw new RuntimeException("Must specify: -db or -jdbc");
         }
+        jdbcUtil.setNumWriterConnections(PropsUtil.getInt(localAttrs.get("dbWriterConnections"), 1));
         EvalConsumerBuilder consumerBuilder = ClassLoaderUtil.buildClass(EvalConsumerBuilder.class, PropsUtil.getString(localAttrs.get("consumerBuilderClass"), null));
         if (consumerBuilder == null) {
             throw new RuntimeException("Must specify consumerBuilderClass in config file");
@@ -28,6 +28,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
@@ -45,6 +46,10 @@ public class JDBCUtil {
     private final String connectionString;
     private String driverClass;
     private Connection connection = null;
+    //connections handed out to the db writers, round robin
+    private final List<Connection> writerConnections = new ArrayList<>();
+    private int numWriterConnections = 1;
+    private int nextWriterConnection = 0;
 
     public JDBCUtil(String connectionString, String driverClass) {
         this.connectionString = connectionString;
@@ -154,7 +159,65 @@ public class JDBCUtil {
         if (connection != null) {
             return connection;
         }
-        String connectionString = getConnectionString();
+        connection = openConnection();
+        return connection;
+    }
+
+    /**
+     * Number of connections to share among the db writers.  If this is 1 (default),
+     * the writers all use {@link #getConnection()}.
+     *
+     * @param numWriterConnections
+     */
+    public void setNumWriterConnections(int numWriterConnections) {
+        this.numWriterConnections = numWriterConnections;
+    }
+
+    /**
+     * Returns one of the connections that are shared by the db writers.  These
+     * are opened as needed up to {@link #setNumWriterConnections(int)}, and then
+     * handed out round robin.
+     *
+     * @return connection for a db writer
+     * @throws SQLException
+     */
+    public synchronized Connection getWriterConnection() throws SQLException {
+        if (numWriterConnections <= 1) {
+            return getConnection();
+        }
+        if (writerConnections.size() < numWriterConnections) {
+            Connection c = openConnection();
+            writerConnections.add(c);
+            return c;
+        }
+        return writerConnections.get(nextWriterConnection++ % writerConnections.size());
+    }
+
+    /**
+     * Commits and closes the connections opened by {@link #getWriterConnection()}.
+     * This does not close {@link #getConnection()}.  Call this after the writers
+     * have been closed.
+     *
+     * @throws SQLException
+     */
+    public synchronized void closeWriterConnections() throws SQLException {
+        SQLException ex = null;
+        for (Connection c : writerConnections) {
+            try {
+                c.commit();
+                c.close();
+            } catch (SQLException e) {
+                ex = e;
+            }
+        }
+        writerConnections.clear();
+        if (ex != null) {
+            throw ex;
+        }
+    }
+
+    private Connection openConnection() throws SQLException {
+        String connectionString = addBatchParams(getConnectionString());
         String jdbcDriver = getJDBCDriverClass();
         if (jdbcDriver != null) {
             try {
@@ -163,12 +226,32 @@ public class JDBCUtil {
                 throw new RuntimeException(e);
             }
         }
-        connection = DriverManager.getConnection(connectionString);
+        Connection connection = DriverManager.getConnection(connectionString);
         connection.setAutoCommit(false);
 
         return connection;
     }
 
+    /**
+     * PostgreSQL and MySQL only send batches as single multi-row inserts
+     * if asked to.  This turns that on unless the connection string already
+     * sets it.
+     */
+    public static String addBatchParams(String connectionString) {
+        String param;
+        if (connectionString.startsWith("jdbc:postgresql:")) {
+            param = "reWriteBatchedInserts";
+        } else if (connectionString.startsWith("jdbc:mysql:")) {
+            param = "rewriteBatchedStatements";
+        } else {
+            return connectionString;
+        }
+        if (connectionString.contains(param + "=")) {
+            return connectionString;
+        }
+        return connectionString + (connectionString.contains("?") ? "&" : "?") + param + "=true";
+    }
+
     /**
      * JDBC driver class.  Override as necessary.
      *
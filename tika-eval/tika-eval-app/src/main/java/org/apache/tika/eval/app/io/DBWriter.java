@@ -43,17 +43,25 @@ import org.apache.tika.eval.app.db.TableInfo;
  * <p>
  * Each thread must construct its own DBWriter because each
  * DBWriter creates its own PreparedStatements at initialization.
+ * <p>
+ * Rows are added to a per-table batch that is sent to the db every
+ * {@link #setBatchSize(int)} rows; the connection is committed once
+ * {@link #setCommitEveryXRows(long)} rows have been sent since the last commit.
  */
 public class DBWriter implements IDBWriter {
 
     private static final Logger LOG = LoggerFactory.getLogger(DBWriter.class);
 
     private static final AtomicInteger WRITER_ID = new AtomicInteger();
-    private final Long commitEveryXRows = 10000L;
-    //private final Long commitEveryXMS = 60000L;
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    public static final long DEFAULT_COMMIT_EVERY_X_ROWS = 10000L;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private long commitEveryXRows = DEFAULT_COMMIT_EVERY_X_ROWS;
+    private long rowsSinceCommit = 0;
+    private long lastCommit = System.currentTimeMillis();
 
     private final Connection conn;
-    private final JDBCUtil dbUtil;
     private final MimeBuffer mimeBuffer;
     private final int myId = WRITER_ID.getAndIncrement();
 
@@ -65,7 +73,6 @@ public class DBWriter implements IDBWriter {
 
         this.conn = connection;
         this.mimeBuffer = mimeBuffer;
-        this.dbUtil = dbUtil;
         for (TableInfo tableInfo : tableInfos) {
             try {
                 PreparedStatement st = createPreparedInsert(tableInfo);
@@ -110,6 +117,20 @@ public class DBWriter implements IDBWriter {
     }
 
 
+    /**
+     * @param batchSize number of rows to batch per table before sending them to the db
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param commitEveryXRows number of rows, over all tables, to send before committing
+     */
+    public void setCommitEveryXRows(long commitEveryXRows) {
+        this.commitEveryXRows = commitEveryXRows;
+    }
+
     @Override
     public void writeRow(TableInfo table, Map<Cols, String> data) throws IOException {
         try {
@@ -117,17 +138,21 @@ public class DBWriter implements IDBWriter {
             if (p == null) {
                 throw new RuntimeException("Failed to create prepared statement for: " + table.getName());
             }
-            dbUtil.batchInsert(p, table, data);
+            JDBCUtil.batchInsert(p, table, data);
             LastInsert lastInsert = lastInsertMap.get(table.getName());
             lastInsert.rowCount++;
-            long elapsed = System.currentTimeMillis() - lastInsert.lastInsert;
-            if (
-                //elapsed > commitEveryXMS ||
-                    lastInsert.rowCount % commitEveryXRows == 0) {
-                LOG.info("writer ({}) on table ({}) is committing after {} rows and {} ms", myId, table.getName(), lastInsert.rowCount, elapsed);
+            lastInsert.pending++;
+            if (lastInsert.pending >= batchSize) {
                 p.executeBatch();
-                conn.commit();
-                lastInsert.lastInsert = System.currentTimeMillis();
+                rowsSinceCommit += lastInsert.pending;
+                lastInsert.pending = 0;
+                if (rowsSinceCommit >= commitEveryXRows) {
+                    LOG.info("writer ({}) is committing after {} rows ({} in {}) and {} ms", myId, rowsSinceCommit,
+                            lastInsert.rowCount, table.getName(), System.currentTimeMillis() - lastCommit);
+                    conn.commit();
+                    rowsSinceCommit = 0;
+                    lastCommit = System.currentTimeMillis();
+                }
             }
         } catch (SQLException e) {
             throw new IOException(e);
@@ -144,6 +169,7 @@ public class DBWriter implements IDBWriter {
         for (PreparedStatement p : inserts.values()) {
             try {
                 p.executeBatch();
+                p.close();
             } catch (SQLException e) {
                 throw new IOException(e);
             }
@@ -156,7 +182,8 @@ public class DBWriter implements IDBWriter {
     }
 
     private static class LastInsert {
-        private long lastInsert = System.currentTimeMillis();
         private long rowCount = 0;
+        //rows added to the batch, but not yet sent
+        private int pending = 0;
     }
 }
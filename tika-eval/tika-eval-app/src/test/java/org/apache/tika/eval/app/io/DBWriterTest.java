@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.eval.app.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.apache.tika.eval.app.db.ColInfo;
+import org.apache.tika.eval.app.db.Cols;
+import org.apache.tika.eval.app.db.H2Util;
+import org.apache.tika.eval.app.db.JDBCUtil;
+import org.apache.tika.eval.app.db.TableInfo;
+
+public class DBWriterTest {
+
+    private static final TableInfo TABLE = new TableInfo("db_writer_test",
+            new ColInfo(Cols.ID, Types.INTEGER), new ColInfo(Cols.FILE_NAME, Types.VARCHAR, 64));
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    public void testBatchAndCommit() throws Exception {
+        JDBCUtil dbUtil = new H2Util(tmp.resolve("test-db"));
+        dbUtil.createTables(Collections.singletonList(TABLE), JDBCUtil.CREATE_TABLE.DROP_IF_EXISTS);
+        dbUtil.setNumWriterConnections(2);
+        Connection writerConnection = dbUtil.getWriterConnection();
+        assertNotSame(dbUtil.getConnection(), writerConnection);
+
+        DBWriter writer = new DBWriter(writerConnection, Collections.singletonList(TABLE), dbUtil, null);
+        writer.setBatchSize(2);
+        writer.setCommitEveryXRows(4);
+        Map<Cols, String> data = new HashMap<>();
+        for (int i = 0; i < 5; i++) {
+            data.put(Cols.ID, Integer.toString(i));
+            data.put(Cols.FILE_NAME, "file" + i);
+            writer.writeRow(TABLE, data);
+            //only committed rows are visible to the other connection
+            assertEquals(i < 3 ? 0 : 4, countRows(dbUtil.getConnection()));
+        }
+        writer.close();
+        assertEquals(5, countRows(dbUtil.getConnection()));
+        dbUtil.closeWriterConnections();
+    }
+
+    @Test
+    public void testBatchParams() {
+        assertEquals("jdbc:postgresql://localhost/eval?reWriteBatchedInserts=true",
+                JDBCUtil.addBatchParams("jdbc:postgresql://localhost/eval"));
+        assertEquals("jdbc:postgresql://localhost/eval?user=a&reWriteBatchedInserts=true",
+                JDBCUtil.addBatchParams("jdbc:postgresql://localhost/eval?user=a"));
+        assertEquals("jdbc:postgresql://localhost/eval?reWriteBatchedInserts=false",
+                JDBCUtil.addBatchParams("jdbc:postgresql://localhost/eval?reWriteBatchedInserts=false"));
+        assertEquals("jdbc:mysql://localhost/eval?rewriteBatchedStatements=true",
+                JDBCUtil.addBatchParams("jdbc:mysql://localhost/eval"));
+        assertEquals("jdbc:h2:file:/tmp/eval", JDBCUtil.addBatchParams("jdbc:h2:file:/tmp/eval"));
+    }
+
+    private int countRows(Connection connection) throws SQLException {
+        try (Statement st = connection.createStatement();
+                ResultSet rs = st.executeQuery("select count(1) from " + TABLE.getName())) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
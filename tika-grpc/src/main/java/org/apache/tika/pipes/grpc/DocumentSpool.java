@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.pipes.grpc;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.google.protobuf.ByteString;
+
+/**
+ * Spools the chunks of one uploaded document. Chunks are held in memory
+ * until the document grows past the memory threshold, after that they are
+ * written to a file in the spool directory as they arrive. The forked
+ * PipesServer reads the document from that file, so {@link #finish()} writes
+ * small documents out in one go. {@link #close()} deletes the file.
+ */
+class DocumentSpool implements Closeable {
+
+    private final Path directory;
+    private final String suffix;
+    private final int memoryThresholdBytes;
+    private final long maxBytes;
+
+    private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+    private Path file;
+    private OutputStream fileStream;
+    private long length = 0;
+
+    /**
+     * @param directory            directory for the spool file
+     * @param suffix               suffix of the spool file, such as the extension of the
+     *                             document's name, so that it can help detection
+     * @param memoryThresholdBytes documents up to this length are held in memory
+     * @param maxBytes             maximum length of the document, -1 for no limit
+     */
+    DocumentSpool(Path directory, String suffix, int memoryThresholdBytes, long maxBytes) {
+        this.directory = directory;
+        this.suffix = suffix;
+        this.memoryThresholdBytes = memoryThresholdBytes;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return false, without writing anything, if the chunk would make the
+     * document longer than the maximum length
+     */
+    boolean write(ByteString chunk) throws IOException {
+        if (maxBytes > -1 && length + chunk.size() > maxBytes) {
+            return false;
+        }
+        length += chunk.size();
+        if (fileStream == null && length > memoryThresholdBytes) {
+            fileStream = new BufferedOutputStream(Files.newOutputStream(createFile()));
+            memory.writeTo(fileStream);
+            memory = null;
+        }
+        chunk.writeTo(fileStream != null ? fileStream : memory);
+        return true;
+    }
+
+    /**
+     * Writes what is left of the document to the spool file.
+     *
+     * @return the spool file
+     */
+    Path finish() throws IOException {
+        if (fileStream == null) {
+            Files.write(createFile(), memory.toByteArray());
+            memory = null;
+        } else {
+            fileStream.close();
+            fileStream = null;
+        }
+        return file;
+    }
+
+    long getLength() {
+        return length;
+    }
+
+    private Path createFile() throws IOException {
+        file = Files.createTempFile(directory, "upload-", suffix);
+        return file;
+    }
+
+    @Override
+    public void close() throws IOException {
+        memory = null;
+        try {
+            if (fileStream != null) {
+                fileStream.close();
+                fileStream = null;
+            }
+        } finally {
+            if (file != null) {
+                Files.deleteIfExists(file);
+                file = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.pipes.grpc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.tika.GetPipesClientPoolStatsReply;
+import org.apache.tika.pipes.FetchEmitTuple;
+import org.apache.tika.pipes.ParseTimeTracker;
+import org.apache.tika.pipes.PipesClient;
+import org.apache.tika.pipes.PipesConfig;
+import org.apache.tika.pipes.PipesResult;
+
+/**
+ * Pool of {@link PipesClient}s, each with its own forked process, shared by all
+ * calls to the gRPC service. This works like the client queue of
+ * {@link org.apache.tika.pipes.PipesParser}, and also counts how busy the
+ * clients are.
+ */
+class PipesClientPool implements Closeable {
+
+    private final PipesConfig pipesConfig;
+    private final List<PipesClient> clients = new ArrayList<>();
+    private final ArrayBlockingQueue<PipesClient> clientQueue;
+    //null unless adaptive timeouts are configured
+    private final ParseTimeTracker parseTimeTracker;
+
+    private final AtomicInteger busyClients = new AtomicInteger();
+    private final AtomicInteger waitingRequests = new AtomicInteger();
+    private final LongAdder completedRequests = new LongAdder();
+    private final LongAdder clientUnavailable = new LongAdder();
+    private final LongAdder totalWaitMillis = new LongAdder();
+    private final LongAdder totalProcessMillis = new LongAdder();
+
+    PipesClientPool(PipesConfig pipesConfig) {
+        this.pipesConfig = pipesConfig;
+        this.clientQueue = new ArrayBlockingQueue<>(pipesConfig.getNumClients());
+        this.parseTimeTracker = pipesConfig.isAdaptiveTimeouts() ?
+                new ParseTimeTracker(pipesConfig) : null;
+        for (int i = 0; i < pipesConfig.getNumClients(); i++) {
+            PipesClient client = new PipesClient(pipesConfig, parseTimeTracker);
+            clientQueue.offer(client);
+            clients.add(client);
+        }
+    }
+
+    /**
+     * Processes the tuple with the next free client.
+     *
+     * @return the result, or {@link PipesResult#CLIENT_UNAVAILABLE_WITHIN_MS} if no
+     * client became free within {@link PipesConfig#getMaxWaitForClientMillis()}
+     */
+    PipesResult process(FetchEmitTuple t) throws InterruptedException, IOException {
+        PipesClient client = null;
+        long start = System.currentTimeMillis();
+        waitingRequests.incrementAndGet();
+        try {
+            client = clientQueue.poll(pipesConfig.getMaxWaitForClientMillis(),
+                    TimeUnit.MILLISECONDS);
+        } finally {
+            waitingRequests.decrementAndGet();
+            totalWaitMillis.add(System.currentTimeMillis() - start);
+        }
+        if (client == null) {
+            clientUnavailable.increment();
+            return PipesResult.CLIENT_UNAVAILABLE_WITHIN_MS;
+        }
+        busyClients.incrementAndGet();
+        long processStart = System.currentTimeMillis();
+        try {
+            return client.process(t);
+        } finally {
+            totalProcessMillis.add(System.currentTimeMillis() - processStart);
+            completedRequests.increment();
+            busyClients.decrementAndGet();
+            clientQueue.offer(client);
+        }
+    }
+
+    int getNumClients() {
+        return clients.size();
+    }
+
+    GetPipesClientPoolStatsReply getStats() {
+        return GetPipesClientPoolStatsReply.newBuilder()
+                .setNumClients(clients.size())
+                .setBusyClients(busyClients.get())
+                .setWaitingRequests(waitingRequests.get())
+                .setCompletedRequests(completedRequests.sum())
+                .setClientUnavailable(clientUnavailable.sum())
+                .setTotalWaitMillis(totalWaitMillis.sum())
+                .setTotalProcessMillis(totalProcessMillis.sum())
+                .build();
+    }
+
+    /**
+     * @return the parse times of the documents processed so far, or null
+     * if adaptive timeouts are not configured
+     */
+    ParseTimeTracker getParseTimeTracker() {
+        return parseTimeTracker;
+    }
+
+    @Override
+    public void close() throws IOException {
+        List<IOException> exceptions = new ArrayList<>();
+        for (PipesClient pipesClient : clients) {
+            try {
+                pipesClient.close();
+            } catch (IOException e) {
+                exceptions.add(e);
+            }
+        }
+        if (exceptions.size() > 0) {
+            throw exceptions.get(0);
+        }
+    }
+}
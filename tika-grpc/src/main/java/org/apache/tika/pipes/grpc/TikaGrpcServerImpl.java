@@ -16,16 +16,24 @@
  */
 package org.apache.tika.pipes.grpc;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.Transformer;
@@ -42,6 +50,7 @@ import com.fasterxml.jackson.module.jsonSchema.JsonSchema;
 import com.fasterxml.jackson.module.jsonSchema.JsonSchemaGenerator;
 import com.google.rpc.Status;
 import io.grpc.protobuf.StatusProto;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -59,8 +68,11 @@ import org.apache.tika.GetFetcherConfigJsonSchemaReply;
 import org.apache.tika.GetFetcherConfigJsonSchemaRequest;
 import org.apache.tika.GetFetcherReply;
 import org.apache.tika.GetFetcherRequest;
+import org.apache.tika.GetPipesClientPoolStatsReply;
+import org.apache.tika.GetPipesClientPoolStatsRequest;
 import org.apache.tika.ListFetchersReply;
 import org.apache.tika.ListFetchersRequest;
+import org.apache.tika.ParseBytesRequest;
 import org.apache.tika.SaveFetcherReply;
 import org.apache.tika.SaveFetcherRequest;
 import org.apache.tika.TikaGrpc;
@@ -68,9 +80,9 @@ import org.apache.tika.config.Initializable;
 import org.apache.tika.config.Param;
 import org.apache.tika.exception.TikaConfigException;
 import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
 import org.apache.tika.parser.ParseContext;
 import org.apache.tika.pipes.FetchEmitTuple;
-import org.apache.tika.pipes.PipesClient;
 import org.apache.tika.pipes.PipesConfig;
 import org.apache.tika.pipes.PipesResult;
 import org.apache.tika.pipes.emitter.EmitKey;
@@ -78,21 +90,34 @@ import org.apache.tika.pipes.fetcher.AbstractFetcher;
 import org.apache.tika.pipes.fetcher.FetchKey;
 import org.apache.tika.pipes.fetcher.config.AbstractConfig;
 import org.apache.tika.pipes.fetcher.config.FetcherConfigContainer;
+import org.apache.tika.pipes.fetcher.fs.FileSystemFetcher;
 
-class TikaGrpcServerImpl extends TikaGrpc.TikaImplBase {
+class TikaGrpcServerImpl extends TikaGrpc.TikaImplBase implements Closeable {
     private static final Logger LOG = LoggerFactory.getLogger(TikaGrpcServerImpl.class);
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
     static {
         OBJECT_MAPPER.setSerializationInclusion(JsonInclude.Include.NON_NULL);
     }
     public static final JsonSchemaGenerator JSON_SCHEMA_GENERATOR = new JsonSchemaGenerator(OBJECT_MAPPER);
+    /**
+     * Name of the fetcher that reads documents uploaded with ParseBytes from the spool directory.
+     */
+    static final String SPOOL_FETCHER_NAME = "tika-grpc-spool";
+    private static final Pattern SPOOL_SUFFIX = Pattern.compile("\\.[A-Za-z0-9]{1,16}");
 
     /**
      * FetcherID is key, The pair is the Fetcher object and the Metadata
      */
     PipesConfig pipesConfig;
-    PipesClient pipesClient;
+    PipesClientPool pipesClientPool;
+    /**
+     * Runs the requests of bi-directional streams, so that a stream can have
+     * as many requests in flight as there are pipes clients.
+     */
+    ExecutorService streamExecutor;
     ExpiringFetcherStore expiringFetcherStore;
+    Path spoolDirectory;
+    private boolean deleteSpoolDirectory;
 
     String tikaConfigPath;
 
@@ -110,10 +135,22 @@ class TikaGrpcServerImpl extends TikaGrpc.TikaImplBase {
             tikaConfigPath = tikaConfigFile.getAbsolutePath();
         }
         pipesConfig = PipesConfig.load(tikaConfigFile.toPath());
-        pipesClient = new PipesClient(pipesConfig);
+        pipesClientPool = new PipesClientPool(pipesConfig);
+        AtomicInteger threadCount = new AtomicInteger();
+        streamExecutor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "tika-grpc-stream-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
 
         expiringFetcherStore = new ExpiringFetcherStore(pipesConfig.getStaleFetcherTimeoutSeconds(),
                 pipesConfig.getStaleFetcherDelaySeconds());
+        if (pipesConfig.getSpoolDirectory() != null) {
+            spoolDirectory = Files.createDirectories(pipesConfig.getSpoolDirectory());
+        } else {
+            spoolDirectory = Files.createTempDirectory("tika-grpc-spool");
+            deleteSpoolDirectory = true;
+        }
         this.tikaConfigPath = tikaConfigPath;
         updateTikaConfig();
     }
@@ -128,8 +165,8 @@ class TikaGrpcServerImpl extends TikaGrpc.TikaImplBase {
             fetchersElement = tikaConfigDoc.createElement("fetchers");
             tikaConfigDoc.getDocumentElement().appendChild(fetchersElement);
         }
-        for (int i = 0; i < fetchersElement.getChildNodes().getLength(); ++i) {
-            fetchersElement.removeChild(fetchersElement.getChildNodes().item(i));
+        while (fetchersElement.hasChildNodes()) {
+            fetchersElement.removeChild(fetchersElement.getFirstChild());
         }
         for (var fetcherEntry : expiringFetcherStore.getFetchers().entrySet()) {
             AbstractFetcher fetcherObject = fetcherEntry.getValue();
@@ -145,6 +182,7 @@ class TikaGrpcServerImpl extends TikaGrpc.TikaImplBase {
             populateFetcherConfigs(fetcherConfigParams, tikaConfigDoc, fetcher);
             fetchersElement.appendChild(fetcher);
         }
+        fetchersElement.appendChild(createSpoolFetcherElement(tikaConfigDoc));
         DOMSource source = new DOMSource(tikaConfigDoc);
         FileWriter writer = new FileWriter(tikaConfigPath, StandardCharsets.UTF_8);
         StreamResult result = new StreamResult(writer);
@@ -154,6 +192,22 @@ class TikaGrpcServerImpl extends TikaGrpc.TikaImplBase {
         transformer.transform(source, result);
     }
 
+    /**
+     * The forked PipesServer loads its fetchers from the tika config, so the
+     * fetcher for uploaded documents is always written to it.
+     */
+    private Element createSpoolFetcherElement(Document tikaConfigDoc) {
+        Element fetcher = tikaConfigDoc.createElement("fetcher");
+        fetcher.setAttribute("class", FileSystemFetcher.class.getName());
+        Element fetcherName = tikaConfigDoc.createElement("name");
+        fetcherName.setTextContent(SPOOL_FETCHER_NAME);
+        fetcher.appendChild(fetcherName);
+        Element basePath = tikaConfigDoc.createElement("basePath");
+        basePath.setTextContent(spoolDirectory.toAbsolutePath().toString());
+        fetcher.appendChild(basePath);
+        return fetcher;
+    }
+
     private void populateFetcherConfigs(Map<String, Object> fetcherConfigParams,
                                         Document tikaConfigDoc, Element fetcher) {
         for (var configParam : fetcherConfigParams.entrySet()) {
@@ -182,22 +236,8 @@ class TikaGrpcServerImpl extends TikaGrpc.TikaImplBase {
     @Override
     public StreamObserver<FetchAndParseRequest> fetchAndParseBiDirectionalStreaming(
             StreamObserver<FetchAndParseReply> responseObserver) {
-        return new StreamObserver<>() {
-            @Override
-            public void onNext(FetchAndParseRequest fetchAndParseRequest) {
-                fetchAndParseImpl(fetchAndParseRequest, responseObserver);
-            }
-
-            @Override
-            public void onError(Throwable throwable) {
-                LOG.error("Parse error occurred", throwable);
-            }
-
-            @Override
-            public void onCompleted() {
-                responseObserver.onCompleted();
-            }
-        };
+        return new BiDirectionalStream(
+                (ServerCallStreamObserver<FetchAndParseReply>) responseObserver);
     }
 
     @Override
@@ -210,6 +250,17 @@ class TikaGrpcServerImpl extends TikaGrpc.TikaImplBase {
 
     private void fetchAndParseImpl(FetchAndParseRequest request,
                                    StreamObserver<FetchAndParseReply> responseObserver) {
+        try {
+            responseObserver.onNext(fetchAndParse(request));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private FetchAndParseReply fetchAndParse(FetchAndParseRequest request)
+            throws IOException, InterruptedException {
         AbstractFetcher fetcher =
                 expiringFetcherStore.getFetcherAndLogAccess(request.getFetcherId());
         if (fetcher == null) {
@@ -217,44 +268,72 @@ class TikaGrpcServerImpl extends TikaGrpc.TikaImplBase {
                     "Could not find fetcher with name " + request.getFetcherId());
         }
         Metadata tikaMetadata = new Metadata();
-        try {
-            ParseContext parseContext = new ParseContext();
-            String additionalFetchConfigJson = request.getAdditionalFetchConfigJson();
-            if (StringUtils.isNotBlank(additionalFetchConfigJson)) {
-                // The fetch and parse has the option to specify additional configuration
-                AbstractConfig abstractConfig = expiringFetcherStore
-                        .getFetcherConfigs()
-                        .get(fetcher.getName());
-                parseContext.set(FetcherConfigContainer.class, new FetcherConfigContainer()
-                        .setConfigClassName(abstractConfig
-                                .getClass().getName())
-                        .setJson(additionalFetchConfigJson));
-            }
-            PipesResult pipesResult = pipesClient.process(new FetchEmitTuple(request.getFetchKey(),
-                    new FetchKey(fetcher.getName(), request.getFetchKey()), new EmitKey(), tikaMetadata, parseContext, FetchEmitTuple.ON_PARSE_EXCEPTION.SKIP));
-            FetchAndParseReply.Builder fetchReplyBuilder =
-                    FetchAndParseReply.newBuilder()
-                                      .setFetchKey(request.getFetchKey())
-                            .setStatus(pipesResult.getStatus().name());
-            if (pipesResult.getStatus().equals(PipesResult.STATUS.FETCH_EXCEPTION)) {
-                fetchReplyBuilder.setErrorMessage(pipesResult.getMessage());
-            }
-            if (pipesResult.getEmitData() != null && pipesResult.getEmitData().getMetadataList() != null) {
-                for (Metadata metadata : pipesResult.getEmitData().getMetadataList()) {
-                    for (String name : metadata.names()) {
-                        String value = metadata.get(name);
-                        if (value != null) {
-                            fetchReplyBuilder.putFields(name, value);
-                        }
+        ParseContext parseContext = new ParseContext();
+        String additionalFetchConfigJson = request.getAdditionalFetchConfigJson();
+        if (StringUtils.isNotBlank(additionalFetchConfigJson)) {
+            // The fetch and parse has the option to specify additional configuration
+            AbstractConfig abstractConfig = expiringFetcherStore
+                    .getFetcherConfigs()
+                    .get(fetcher.getName());
+            parseContext.set(FetcherConfigContainer.class, new FetcherConfigContainer()
+                    .setConfigClassName(abstractConfig
+                            .getClass().getName())
+                    .setJson(additionalFetchConfigJson));
+        }
+        PipesResult pipesResult = pipesClientPool.process(new FetchEmitTuple(request.getFetchKey(),
+                new FetchKey(fetcher.getName(), request.getFetchKey()), new EmitKey(), tikaMetadata, parseContext, FetchEmitTuple.ON_PARSE_EXCEPTION.SKIP));
+        return toReply(request.getFetchKey(), pipesResult);
+    }
+
+    private static FetchAndParseReply toReply(String fetchKey, PipesResult pipesResult) {
+        FetchAndParseReply.Builder fetchReplyBuilder =
+                FetchAndParseReply.newBuilder()
+                                  .setFetchKey(fetchKey)
+                        .setStatus(pipesResult.getStatus().name());
+        if (pipesResult.getStatus().equals(PipesResult.STATUS.FETCH_EXCEPTION)) {
+            fetchReplyBuilder.setErrorMessage(pipesResult.getMessage());
+        }
+        if (pipesResult.getEmitData() != null && pipesResult.getEmitData().getMetadataList() != null) {
+            for (Metadata metadata : pipesResult.getEmitData().getMetadataList()) {
+                for (String name : metadata.names()) {
+                    String value = metadata.get(name);
+                    if (value != null) {
+                        fetchReplyBuilder.putFields(name, value);
                     }
                 }
             }
-            responseObserver.onNext(fetchReplyBuilder.build());
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
         }
+        return fetchReplyBuilder.build();
+    }
+
+    @Override
+    public StreamObserver<ParseBytesRequest> parseBytes(
+            StreamObserver<FetchAndParseReply> responseObserver) {
+        return new ParseBytesStream(
+                (ServerCallStreamObserver<FetchAndParseReply>) responseObserver);
+    }
+
+    /**
+     * @return the extension of the file name, if it is a plausible one, so that
+     * the spool file's name can help detection
+     */
+    static String getSpoolSuffix(String fileName) {
+        int slash = Math.max(fileName.lastIndexOf('/'), fileName.lastIndexOf('\\'));
+        int dot = fileName.lastIndexOf('.');
+        if (dot > slash) {
+            String suffix = fileName.substring(dot);
+            if (SPOOL_SUFFIX.matcher(suffix).matches()) {
+                return suffix;
+            }
+        }
+        return "";
+    }
+
+    @Override
+    public void getPipesClientPoolStats(GetPipesClientPoolStatsRequest request,
+                                        StreamObserver<GetPipesClientPoolStatsReply> responseObserver) {
+        responseObserver.onNext(pipesClientPool.getStats());
+        responseObserver.onCompleted();
     }
 
     @SuppressWarnings("raw")
@@ -276,6 +355,9 @@ class TikaGrpcServerImpl extends TikaGrpc.TikaImplBase {
     }
 
     private void saveFetcher(String name, String fetcherClassName, Map<String, Object> paramsMap, Map<String, Param> tikaParamsMap) {
+        if (SPOOL_FETCHER_NAME.equals(name)) {
+            throw new IllegalArgumentException("The fetcher name " + name + " is reserved");
+        }
         try {
             if (paramsMap == null) {
                 paramsMap = new LinkedHashMap<>();
@@ -412,4 +494,209 @@ class TikaGrpcServerImpl extends TikaGrpc.TikaImplBase {
     private boolean deleteFetcher(String fetcherName) {
         return expiringFetcherStore.deleteFetcher(fetcherName);
     }
+
+    @Override
+    public void close() throws IOException {
+        streamExecutor.shutdownNow();
+        if (pipesClientPool.getParseTimeTracker() != null) {
+            LOG.info("Parse times: {}", pipesClientPool.getParseTimeTracker());
+        }
+        try {
+            pipesClientPool.close();
+        } finally {
+            if (deleteSpoolDirectory) {
+                FileUtils.deleteDirectory(spoolDirectory.toFile());
+            }
+        }
+    }
+
+    /**
+     * A document uploaded in chunks. Each chunk is spooled before the next
+     * one is requested, so gRPC flow control keeps a fast client from
+     * running ahead of the spool. Once the client completes the stream,
+     * the document is parsed by the next free pipes client.
+     */
+    private class ParseBytesStream implements StreamObserver<ParseBytesRequest> {
+        private final ServerCallStreamObserver<FetchAndParseReply> responseObserver;
+        private DocumentSpool spool;
+        private String fileName = "";
+        private boolean failed = false;
+
+        ParseBytesStream(ServerCallStreamObserver<FetchAndParseReply> responseObserver) {
+            this.responseObserver = responseObserver;
+            responseObserver.disableAutoRequest();
+            responseObserver.request(1);
+        }
+
+        @Override
+        public void onNext(ParseBytesRequest parseBytesRequest) {
+            if (failed) {
+                return;
+            }
+            try {
+                if (spool == null) {
+                    fileName = parseBytesRequest.getFileName();
+                    spool = createSpool();
+                }
+                if (!spool.write(parseBytesRequest.getContent())) {
+                    fail(io.grpc.Status.RESOURCE_EXHAUSTED.withDescription(
+                            "Document is longer than maxSpoolBytes=" +
+                                    pipesConfig.getMaxSpoolBytes()));
+                    return;
+                }
+            } catch (IOException e) {
+                fail(io.grpc.Status.INTERNAL.withDescription(e.getMessage()).withCause(e));
+                return;
+            }
+            responseObserver.request(1);
+        }
+
+        private DocumentSpool createSpool() {
+            return new DocumentSpool(spoolDirectory, getSpoolSuffix(fileName),
+                    pipesConfig.getSpoolMemoryThresholdBytes(), pipesConfig.getMaxSpoolBytes());
+        }
+
+        private void parse() {
+            try {
+                Path path = spool.finish();
+                String spoolKey = path.getFileName().toString();
+                Metadata tikaMetadata = new Metadata();
+                if (StringUtils.isNotBlank(fileName)) {
+                    tikaMetadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, fileName);
+                }
+                PipesResult pipesResult = pipesClientPool.process(new FetchEmitTuple(spoolKey,
+                        new FetchKey(SPOOL_FETCHER_NAME, spoolKey), new EmitKey(), tikaMetadata,
+                        new ParseContext(), FetchEmitTuple.ON_PARSE_EXCEPTION.SKIP));
+                responseObserver.onNext(toReply(fileName, pipesResult));
+                responseObserver.onCompleted();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(io.grpc.Status.CANCELLED.withCause(e));
+            } catch (IOException e) {
+                fail(io.grpc.Status.INTERNAL.withDescription(e.getMessage()).withCause(e));
+            } finally {
+                closeSpool();
+            }
+        }
+
+        private void fail(io.grpc.Status status) {
+            LOG.warn("Could not parse uploaded document {}: {}", fileName, status);
+            failed = true;
+            closeSpool();
+            responseObserver.onError(status.asRuntimeException());
+        }
+
+        private void closeSpool() {
+            if (spool == null) {
+                return;
+            }
+            try {
+                spool.close();
+            } catch (IOException e) {
+                LOG.warn("Could not delete spooled document {}", fileName, e);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            LOG.warn("Upload of {} failed", fileName, throwable);
+            failed = true;
+            closeSpool();
+        }
+
+        @Override
+        public void onCompleted() {
+            if (failed) {
+                return;
+            }
+            if (spool == null) {
+                //nothing was sent: parse an empty document
+                spool = createSpool();
+            }
+            streamExecutor.execute(this::parse);
+        }
+    }
+
+    /**
+     * Requests of a bi-directional stream. Up to one request per pipes client
+     * is in flight at a time; gRPC flow control holds back further requests
+     * until one of them is done. Replies are sent as they complete, so they
+     * may be out of order, and carry the fetch key of their request.
+     */
+    private class BiDirectionalStream implements StreamObserver<FetchAndParseRequest> {
+        private final ServerCallStreamObserver<FetchAndParseReply> responseObserver;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+        private volatile boolean requestsCompleted = false;
+
+        BiDirectionalStream(ServerCallStreamObserver<FetchAndParseReply> responseObserver) {
+            this.responseObserver = responseObserver;
+            responseObserver.disableAutoRequest();
+            responseObserver.setOnCancelHandler(() -> closed.set(true));
+            responseObserver.request(pipesClientPool.getNumClients());
+        }
+
+        @Override
+        public void onNext(FetchAndParseRequest fetchAndParseRequest) {
+            inFlight.incrementAndGet();
+            streamExecutor.execute(() -> process(fetchAndParseRequest));
+        }
+
+        private void process(FetchAndParseRequest fetchAndParseRequest) {
+            try {
+                FetchAndParseReply reply = fetchAndParse(fetchAndParseRequest);
+                //the response observer is not thread safe
+                synchronized (responseObserver) {
+                    if (!closed.get()) {
+                        responseObserver.onNext(reply);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            } catch (Exception e) {
+                fail(e);
+            } finally {
+                if (inFlight.decrementAndGet() == 0 && requestsCompleted) {
+                    complete();
+                } else if (!closed.get()) {
+                    responseObserver.request(1);
+                }
+            }
+        }
+
+        private void fail(Exception e) {
+            LOG.error("Parse error occurred", e);
+            synchronized (responseObserver) {
+                if (closed.compareAndSet(false, true)) {
+                    responseObserver.onError(io.grpc.Status.INTERNAL
+                            .withDescription(e.getMessage())
+                            .withCause(e)
+                            .asRuntimeException());
+                }
+            }
+        }
+
+        private void complete() {
+            synchronized (responseObserver) {
+                if (closed.compareAndSet(false, true)) {
+                    responseObserver.onCompleted();
+                }
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            LOG.error("Parse error occurred", throwable);
+            closed.set(true);
+        }
+
+        @Override
+        public void onCompleted() {
+            requestsCompleted = true;
+            if (inFlight.get() == 0) {
+                complete();
+            }
+        }
+    }
 }
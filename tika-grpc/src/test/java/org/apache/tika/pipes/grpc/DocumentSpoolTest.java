@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.pipes.grpc;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.google.protobuf.ByteString;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DocumentSpoolTest {
+
+    @TempDir
+    Path spoolDir;
+
+    @Test
+    public void testSmallDocumentStaysInMemory() throws Exception {
+        try (DocumentSpool spool = new DocumentSpool(spoolDir, ".txt", 100, 1000)) {
+            assertTrue(spool.write(chunk("hello ")));
+            assertTrue(spool.write(chunk("world")));
+            assertEquals(0, countFiles());
+            Path path = spool.finish();
+            assertTrue(path.getFileName().toString().endsWith(".txt"));
+            assertEquals("hello world", Files.readString(path, StandardCharsets.UTF_8));
+            assertEquals(11, spool.getLength());
+        }
+        assertEquals(0, countFiles());
+    }
+
+    @Test
+    public void testLargeDocumentSpillsToDisk() throws Exception {
+        byte[] expected = new byte[500];
+        try (DocumentSpool spool = new DocumentSpool(spoolDir, "", 100, -1)) {
+            for (int i = 0; i < 10; i++) {
+                byte[] bytes = new byte[50];
+                for (int j = 0; j < bytes.length; j++) {
+                    bytes[j] = (byte) (i * 50 + j);
+                }
+                System.arraycopy(bytes, 0, expected, i * 50, 50);
+                assertTrue(spool.write(ByteString.copyFrom(bytes)));
+                assertEquals(i < 2 ? 0 : 1, countFiles());
+            }
+            assertArrayEquals(expected, Files.readAllBytes(spool.finish()));
+        }
+        assertEquals(0, countFiles());
+    }
+
+    @Test
+    public void testMaxBytes() throws Exception {
+        try (DocumentSpool spool = new DocumentSpool(spoolDir, "", 5, 10)) {
+            assertTrue(spool.write(chunk("abcdef")));
+            assertFalse(spool.write(chunk("ghijk")));
+            assertEquals(6, spool.getLength());
+            assertTrue(spool.write(chunk("ghij")));
+            assertEquals("abcdefghij", Files.readString(spool.finish(), StandardCharsets.UTF_8));
+        }
+        assertEquals(0, countFiles());
+    }
+
+    @Test
+    public void testSpoolSuffix() {
+        assertEquals(".pdf", TikaGrpcServerImpl.getSpoolSuffix("report.pdf"));
+        assertEquals(".docx", TikaGrpcServerImpl.getSpoolSuffix("dir.v2/report.docx"));
+        assertEquals("", TikaGrpcServerImpl.getSpoolSuffix("dir.v2/report"));
+        assertEquals("", TikaGrpcServerImpl.getSpoolSuffix("report.p/../df"));
+        assertEquals("", TikaGrpcServerImpl.getSpoolSuffix(""));
+    }
+
+    private long countFiles() throws Exception {
+        try (var files = Files.list(spoolDir)) {
+            return files.count();
+        }
+    }
+
+    private static ByteString chunk(String s) {
+        return ByteString.copyFrom(s, StandardCharsets.UTF_8);
+    }
+}
@@ -33,12 +33,16 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.asarkar.grpc.test.GrpcCleanupExtension;
 import com.asarkar.grpc.test.Resources;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableMap;
+import com.google.protobuf.ByteString;
 import io.grpc.ManagedChannel;
 import io.grpc.Server;
 import io.grpc.Status;
@@ -61,6 +65,9 @@ import org.apache.tika.FetchAndParseReply;
 import org.apache.tika.FetchAndParseRequest;
 import org.apache.tika.GetFetcherReply;
 import org.apache.tika.GetFetcherRequest;
+import org.apache.tika.GetPipesClientPoolStatsReply;
+import org.apache.tika.GetPipesClientPoolStatsRequest;
+import org.apache.tika.ParseBytesRequest;
 import org.apache.tika.SaveFetcherReply;
 import org.apache.tika.SaveFetcherRequest;
 import org.apache.tika.TikaGrpc;
@@ -219,6 +226,7 @@ public class TikaGrpcServerTest {
         List<FetchAndParseReply> successes = Collections.synchronizedList(new ArrayList<>());
         List<FetchAndParseReply> errors = Collections.synchronizedList(new ArrayList<>());
         AtomicBoolean finished = new AtomicBoolean(false);
+        CountDownLatch done = new CountDownLatch(1);
 
         StreamObserver<FetchAndParseReply> replyStreamObserver = new StreamObserver<>() {
             @Override
@@ -233,6 +241,7 @@ public class TikaGrpcServerTest {
 
             @Override
             public void onError(Throwable throwable) {
+                done.countDown();
                 fail(throwable);
             }
 
@@ -240,6 +249,7 @@ public class TikaGrpcServerTest {
             public void onCompleted() {
                 LOG.info("Stream completed");
                 finished.set(true);
+                done.countDown();
             }
         };
 
@@ -270,11 +280,99 @@ public class TikaGrpcServerTest {
                     .setFetchKey("does not exist")
                     .build());
             requestStreamObserver.onCompleted();
+            //requests are processed concurrently, so replies arrive asynchronously
+            assertTrue(done.await(2, TimeUnit.MINUTES));
             assertEquals(NUM_TEST_DOCS, successes.size());
             assertEquals(1, errors.size());
             assertTrue(finished.get());
+
+            GetPipesClientPoolStatsReply stats = blockingStub.getPipesClientPoolStats(
+                    GetPipesClientPoolStatsRequest.newBuilder().build());
+            assertEquals(2, stats.getNumClients());
+            assertEquals(0, stats.getBusyClients());
+            assertEquals(0, stats.getWaitingRequests());
+            assertEquals(NUM_TEST_DOCS + 1, stats.getCompletedRequests());
+            assertEquals(0, stats.getClientUnavailable());
         } finally {
             FileUtils.deleteDirectory(testDocumentFolder);
         }
     }
+
+    @Test
+    public void testParseBytes(Resources resources) throws Exception {
+        String serverName = InProcessServerBuilder.generateName();
+
+        Server server = InProcessServerBuilder
+                .forName(serverName)
+                .directExecutor()
+                .addService(new TikaGrpcServerImpl(tikaConfigXml.getAbsolutePath()))
+                .build()
+                .start();
+        resources.register(server, Duration.ofSeconds(10));
+
+        ManagedChannel channel = InProcessChannelBuilder
+                .forName(serverName)
+                .directExecutor()
+                .build();
+        resources.register(channel, Duration.ofSeconds(10));
+        TikaGrpc.TikaStub tikaStub = TikaGrpc.newStub(channel);
+
+        //longer than the spool's memory threshold, so it goes to disk chunk by chunk
+        StringBuilder html = new StringBuilder("<html><body>");
+        for (int i = 0; i < 200; i++) {
+            html.append("<p>paragraph ").append(i).append("</p>");
+        }
+        html.append("</body></html>");
+        byte[] bytes = html.toString().getBytes(StandardCharsets.UTF_8);
+
+        AtomicReference<FetchAndParseReply> reply = new AtomicReference<>();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        parseBytes(tikaStub, "upload.html", bytes, 512, reply, error);
+        assertEquals(null, error.get());
+        assertEquals("upload.html", reply.get().getFetchKey());
+        assertEquals(PipesResult.STATUS.PARSE_SUCCESS.name(), reply.get().getStatus());
+        assertTrue(reply.get().getFieldsMap().get("Content-Type").startsWith("text/html"));
+        assertEquals("upload.html", reply.get().getFieldsMap().get("resourceName"));
+
+        //longer than maxSpoolBytes
+        reply.set(null);
+        parseBytes(tikaStub, "too-long.bin", new byte[150000], 10000, reply, error);
+        assertEquals(null, reply.get());
+        assertEquals(Status.RESOURCE_EXHAUSTED.getCode(), Status.fromThrowable(error.get()).getCode());
+    }
+
+    private static void parseBytes(TikaGrpc.TikaStub tikaStub, String fileName, byte[] bytes,
+                                   int chunkSize, AtomicReference<FetchAndParseReply> reply,
+                                   AtomicReference<Throwable> error) throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        StreamObserver<ParseBytesRequest> requestObserver = tikaStub.parseBytes(new StreamObserver<>() {
+            @Override
+            public void onNext(FetchAndParseReply fetchAndParseReply) {
+                reply.set(fetchAndParseReply);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                error.set(throwable);
+                done.countDown();
+            }
+
+            @Override
+            public void onCompleted() {
+                done.countDown();
+            }
+        });
+        for (int offset = 0; offset < bytes.length; offset += chunkSize) {
+            ParseBytesRequest.Builder request = ParseBytesRequest
+                    .newBuilder()
+                    .setContent(ByteString.copyFrom(bytes, offset,
+                            Math.min(chunkSize, bytes.length - offset)));
+            if (offset == 0) {
+                request.setFileName(fileName);
+            }
+            requestObserver.onNext(request.build());
+        }
+        requestObserver.onCompleted();
+        assertTrue(done.await(2, TimeUnit.MINUTES));
+    }
 }
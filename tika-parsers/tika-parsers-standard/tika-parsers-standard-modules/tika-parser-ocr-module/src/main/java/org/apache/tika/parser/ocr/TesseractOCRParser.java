@@ -22,6 +22,7 @@ import static org.apache.tika.sax.XHTMLContentHandler.XHTML;
 import java.awt.Image;
 import java.awt.image.BufferedImage;
 import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -94,7 +95,8 @@ import org.apache.tika.utils.XMLReaderUtils;
  * parseContext.set(TesseractOCRConfig.class, config);<br>
  * </p>
  */
-public class TesseractOCRParser extends AbstractExternalProcessParser implements Initializable {
+public class TesseractOCRParser extends AbstractExternalProcessParser
+        implements Initializable, Closeable {
 
     public static final String TESS_META = "tess:";
     public static final Property IMAGE_ROTATION = Property.externalRealSeq(TESS_META + "rotation");
@@ -147,6 +149,13 @@ public class TesseractOCRParser extends AbstractExternalProcessParser implements
     private boolean hasTesseract;
     private boolean hasImageMagick;
     private ImagePreprocessor imagePreprocessor;
+    //if set, images are sent to pooled, long-lived worker processes
+    //instead of a new tesseract process per image
+    private String workerCommand = "";
+    private int maxWorkers = 2;
+    private int maxPagesPerWorker = 1000;
+    private long workerIdleTimeoutMillis = 60000;
+    private transient TesseractWorkerPool workerPool;
 
     public static String getImageMagickProg() {
         return System.getProperty("os.name").startsWith("Windows") ? "magick" : "convert";
@@ -403,7 +412,8 @@ public class TesseractOCRParser extends AbstractExternalProcessParser implements
     }
 
     /**
-     * Run external tesseract-ocr process.
+     * Run external tesseract-ocr process, or send the image to a pooled
+     * worker if a worker command is configured.
      *
      * @param input  File to be ocred
      * @param output File to collect ocr result
@@ -415,8 +425,8 @@ public class TesseractOCRParser extends AbstractExternalProcessParser implements
             throws IOException, TikaException {
 
         ArrayList<String> cmd = new ArrayList<>(
-                Arrays.asList(getTesseractPath() + getTesseractProg(), input.getPath(),
-                        output.getPath(), "--psm", config.getPageSegMode()));
+                Arrays.asList(input.getPath(), output.getPath(), "--psm",
+                        config.getPageSegMode()));
         //if --psm == 0, don't add anything else to the command line
         if (! "0".equals(config.getPageSegMode())) {
             if (!StringUtils.isBlank(config.getLanguage())) {
@@ -432,6 +442,16 @@ public class TesseractOCRParser extends AbstractExternalProcessParser implements
                             "preserve_interword_spaces=0",
                     config.getOutputType().name().toLowerCase(Locale.US)));
         }
+        long timeoutMillis = TikaTaskTimeout.getTimeoutMillis(parseContext,
+                config.getTimeoutSeconds() * 1000);
+        TesseractWorkerPool pool = getWorkerPool();
+        if (pool != null) {
+            LOG.debug("Tesseract worker args: " + String.join(" ", cmd));
+            pool.ocr(StringUtils.isBlank(config.getLanguage()) ? "" : config.getLanguage(),
+                    cmd, timeoutMillis);
+            return;
+        }
+        cmd.add(0, getTesseractPath() + getTesseractProg());
         LOG.debug("Tesseract command: " + String.join(" ", cmd));
 
         ProcessBuilder pb = new ProcessBuilder(cmd);
@@ -439,8 +459,6 @@ public class TesseractOCRParser extends AbstractExternalProcessParser implements
 
         Process process = null;
         String id = null;
-        long timeoutMillis = TikaTaskTimeout.getTimeoutMillis(parseContext,
-                config.getTimeoutSeconds() * 1000);
         try {
             process = pb.start();
             id = register(process);
@@ -455,6 +473,42 @@ public class TesseractOCRParser extends AbstractExternalProcessParser implements
         }
     }
 
+    private synchronized TesseractWorkerPool getWorkerPool() {
+        if (workerPool == null && !StringUtils.isBlank(workerCommand)) {
+            workerPool = new TesseractWorkerPool(maxWorkers, maxPagesPerWorker,
+                    workerIdleTimeoutMillis, this::startWorker);
+        }
+        return workerPool;
+    }
+
+    /**
+     * Closes the worker processes, if {@link #setWorkerCommand(String)} is
+     * set. Workers that are in use are closed once their image is done.
+     * The parser can still be used afterwards, it then starts new workers.
+     */
+    @Override
+    public synchronized void close() {
+        if (workerPool != null) {
+            workerPool.close();
+            workerPool = null;
+        }
+    }
+
+    private TesseractWorker startWorker(String language) throws IOException {
+        List<String> cmd = new ArrayList<>();
+        cmd.add(workerCommand);
+        if (!StringUtils.isBlank(language)) {
+            cmd.add("-l");
+            cmd.add(language);
+        }
+        LOG.debug("Starting tesseract worker: " + String.join(" ", cmd));
+        ProcessBuilder pb = new ProcessBuilder(cmd);
+        setEnv(pb);
+        Process process = pb.start();
+        String id = register(process);
+        return new TesseractWorker(process, () -> release(id));
+    }
+
     private void runOCRProcess(Process process, long timeoutMillis) throws IOException,
             TikaException {
         process.getOutputStream().close();
@@ -562,7 +616,14 @@ public class TesseractOCRParser extends AbstractExternalProcessParser implements
 
     @Override
     public void initialize(Map<String, Param> params) throws TikaConfigException {
-        hasTesseract = hasTesseract();
+        if (maxWorkers < 1 || maxPagesPerWorker < 1) {
+            throw new TikaConfigException("maxWorkers and maxPagesPerWorker must be > 0");
+        }
+        if (workerIdleTimeoutMillis < -1) {
+            throw new TikaConfigException("workerIdleTimeoutMillis must be >= -1");
+        }
+        //a configured worker takes the place of the tesseract executable
+        hasTesseract = !StringUtils.isBlank(workerCommand) || hasTesseract();
         if (isEnableImagePreprocessing()) {
             hasImageMagick = hasImageMagick();
         } else {
@@ -690,6 +751,76 @@ public class TesseractOCRParser extends AbstractExternalProcessParser implements
         this.imageMagickPath = imageMagickPath;
     }
 
+    public String getWorkerCommand() {
+        return workerCommand;
+    }
+
+    /**
+     * Path to a program that keeps a Tesseract engine loaded and processes
+     * one image per line on its standard input; see {@link TesseractWorker}
+     * for the protocol. If set, images are sent to a pool of these workers
+     * instead of starting a new tesseract process for each image, which
+     * saves process startup and loading the language models every time.
+     * Tika does not ship such a program.
+     * <p>
+     * If not set (the default), tesseract is run once per image.
+     *
+     * @param workerCommand
+     */
+    @Field
+    public void setWorkerCommand(String workerCommand) {
+        this.workerCommand = workerCommand;
+    }
+
+    public int getMaxWorkers() {
+        return maxWorkers;
+    }
+
+    /**
+     * Maximum number of worker processes per language set. Only used with
+     * {@link #setWorkerCommand(String)}.
+     *
+     * @param maxWorkers
+     */
+    @Field
+    public void setMaxWorkers(int maxWorkers) {
+        this.maxWorkers = maxWorkers;
+    }
+
+    public int getMaxPagesPerWorker() {
+        return maxPagesPerWorker;
+    }
+
+    /**
+     * A worker process is replaced after it has processed this many images,
+     * to bound the effect of any leaks in the engine. Only used with
+     * {@link #setWorkerCommand(String)}.
+     *
+     * @param maxPagesPerWorker
+     */
+    @Field
+    public void setMaxPagesPerWorker(int maxPagesPerWorker) {
+        this.maxPagesPerWorker = maxPagesPerWorker;
+    }
+
+    public long getWorkerIdleTimeoutMillis() {
+        return workerIdleTimeoutMillis;
+    }
+
+    /**
+     * A worker process that has been idle for longer than this is closed
+     * when the parser next runs OCR, so that language sets that are no
+     * longer used don't keep their workers. The default is one minute;
+     * <code>-1</code> keeps idle workers until {@link #close()}. Only used
+     * with {@link #setWorkerCommand(String)}.
+     *
+     * @param workerIdleTimeoutMillis
+     */
+    @Field
+    public void setWorkerIdleTimeoutMillis(long workerIdleTimeoutMillis) {
+        this.workerIdleTimeoutMillis = workerIdleTimeoutMillis;
+    }
+
     @Field
     public void setOtherTesseractSettings(List<String> settings) throws TikaConfigException {
         for (String s : settings) {
@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.parser.ocr;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+
+import org.apache.tika.exception.TikaException;
+
+/**
+ * A long-lived OCR worker process that keeps its Tesseract engine and
+ * language models loaded between images.
+ * <p>
+ * The worker is started as <code>workerCommand -l langs</code> (without
+ * <code>-l</code> if no language is configured). For each image, it is sent
+ * one line on its standard input: the arguments that the tesseract
+ * command line would get after the program name, separated by tabs, e.g.
+ * <code>input.png&#9;output&#9;--psm&#9;1&#9;-c&#9;page_separator=&#9;txt</code>.
+ * The worker writes its output where tesseract would, and then answers
+ * with one line on its standard output: <code>OK</code>, or
+ * <code>ERROR</code> followed by a message. The worker should exit when its
+ * standard input is closed.
+ */
+class TesseractWorker implements Closeable {
+
+    private static final int MAX_STDERR_CHARS = 10000;
+
+    private final Process process;
+    private final Runnable onClose;
+    private final Writer stdin;
+    //an empty line means that the worker closed its stdout
+    private final BlockingQueue<String> replies = new LinkedBlockingQueue<>();
+    private final StringBuilder stderr = new StringBuilder();
+    private int pagesProcessed = 0;
+    private volatile boolean usable = true;
+
+    /**
+     * @param process the started worker process
+     * @param onClose called once the process has been destroyed
+     */
+    TesseractWorker(Process process, Runnable onClose) {
+        this.process = process;
+        this.onClose = onClose;
+        this.stdin = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), UTF_8));
+        startDaemon(this::readReplies, "tesseract-worker-stdout");
+        startDaemon(this::readStderr, "tesseract-worker-stderr");
+    }
+
+    /**
+     * Runs OCR on one image.
+     *
+     * @param args          the tesseract command line arguments, without the program
+     * @param timeoutMillis how long to wait for the worker's reply
+     * @throws TikaException if the worker reports an error, times out or dies;
+     *                       in the latter two cases, the worker is no longer usable
+     */
+    void ocr(List<String> args, long timeoutMillis) throws TikaException {
+        pagesProcessed++;
+        try {
+            stdin.write(String.join("\t", args));
+            stdin.write('\n');
+            stdin.flush();
+        } catch (IOException e) {
+            usable = false;
+            throw new TikaException("TesseractOCRParser worker died; err msg: " + getStderr(), e);
+        }
+        String reply;
+        try {
+            reply = replies.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            usable = false;
+            Thread.currentThread().interrupt();
+            throw new TikaException("TesseractOCRParser interrupted", e);
+        }
+        if (reply == null) {
+            usable = false;
+            throw new TikaException("TesseractOCRParser timeout");
+        }
+        if (reply.equals("OK")) {
+            return;
+        }
+        if (reply.startsWith("ERROR")) {
+            throw new TikaException("TesseractOCRParser worker error: " +
+                    reply.substring("ERROR".length()).trim());
+        }
+        usable = false;
+        if (reply.isEmpty()) {
+            throw new TikaException("TesseractOCRParser worker exited; err msg: " + getStderr());
+        }
+        throw new TikaException("TesseractOCRParser unexpected reply from worker: " + reply);
+    }
+
+    /**
+     * @return number of images that have been sent to this worker
+     */
+    int getPagesProcessed() {
+        return pagesProcessed;
+    }
+
+    boolean isUsable() {
+        return usable && process.isAlive();
+    }
+
+    private void readReplies() {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), UTF_8))) {
+            String line = reader.readLine();
+            while (line != null) {
+                if (!line.isEmpty()) {
+                    replies.add(line);
+                }
+                line = reader.readLine();
+            }
+        } catch (IOException e) {
+            //swallow
+        } finally {
+            replies.add("");
+        }
+    }
+
+    private void readStderr() {
+        InputStream stream = process.getErrorStream();
+        try (Reader reader = new InputStreamReader(stream, UTF_8)) {
+            char[] buffer = new char[1024];
+            for (int n = reader.read(buffer); n != -1; n = reader.read(buffer)) {
+                synchronized (stderr) {
+                    stderr.append(buffer, 0, n);
+                    if (stderr.length() > MAX_STDERR_CHARS) {
+                        stderr.delete(0, stderr.length() - MAX_STDERR_CHARS);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            //swallow
+        }
+    }
+
+    private String getStderr() {
+        synchronized (stderr) {
+            return stderr.toString();
+        }
+    }
+
+    private static void startDaemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void close() {
+        usable = false;
+        IOUtils.closeQuietly(stdin);
+        try {
+            process.destroyForcibly();
+        } finally {
+            onClose.run();
+        }
+    }
+}
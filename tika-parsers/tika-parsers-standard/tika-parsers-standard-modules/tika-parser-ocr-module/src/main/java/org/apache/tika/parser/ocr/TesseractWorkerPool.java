@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.parser.ocr;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.tika.exception.TikaException;
+
+/**
+ * Pools {@link TesseractWorker}s per language set, so that the language
+ * models are loaded once per worker rather than once per image. Each
+ * language set has at most <code>maxWorkers</code> workers, and a worker
+ * is replaced after <code>maxPagesPerWorker</code> images, or as soon as
+ * it times out or dies.
+ * <p>
+ * Workers that have been idle for longer than <code>idleTimeoutMillis</code>
+ * are closed on the next call to {@link #ocr(String, List, long)}, and a
+ * language set without any workers left is dropped. {@link #close()} closes
+ * all workers.
+ */
+class TesseractWorkerPool implements Closeable {
+
+    interface WorkerFactory {
+        TesseractWorker start(String language) throws IOException;
+    }
+
+    private final int maxWorkers;
+    private final int maxPagesPerWorker;
+    private final long idleTimeoutMillis;
+    private final WorkerFactory workerFactory;
+    private final ConcurrentMap<String, Workers> workers = new ConcurrentHashMap<>();
+    private volatile boolean closed = false;
+
+    /**
+     * @param idleTimeoutMillis how long a worker may be idle before it is closed,
+     *                          <code>-1</code> to keep idle workers until {@link #close()}
+     */
+    TesseractWorkerPool(int maxWorkers, int maxPagesPerWorker, long idleTimeoutMillis,
+                        WorkerFactory workerFactory) {
+        this.maxWorkers = maxWorkers;
+        this.maxPagesPerWorker = maxPagesPerWorker;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.workerFactory = workerFactory;
+    }
+
+    /**
+     * Runs OCR on one image with a worker for the given language set.
+     *
+     * @param language      the language set, e.g. <code>eng+fra</code>; may be empty
+     * @param args          the tesseract command line arguments, without the program
+     * @param timeoutMillis how long to wait for a free worker, and then for its reply
+     */
+    void ocr(String language, List<String> args, long timeoutMillis)
+            throws IOException, TikaException {
+        evictIdle();
+        Workers languageWorkers;
+        TesseractWorker worker = null;
+        do {
+            if (closed) {
+                throw new TikaException("TesseractOCRParser worker pool is closed");
+            }
+            languageWorkers = workers.computeIfAbsent(language, k -> new Workers());
+            worker = languageWorkers.acquire(language, timeoutMillis);
+        } while (worker == null);
+        try {
+            worker.ocr(args, timeoutMillis);
+        } finally {
+            languageWorkers.release(worker);
+        }
+    }
+
+    /**
+     * @return number of live workers, idle or in use
+     */
+    int getLiveWorkers() {
+        int live = 0;
+        for (Workers languageWorkers : workers.values()) {
+            synchronized (languageWorkers) {
+                live += maxWorkers - languageWorkers.permits.availablePermits() +
+                        languageWorkers.idle.size();
+            }
+        }
+        return live;
+    }
+
+    /**
+     * @return number of language sets that have workers
+     */
+    int getLanguageSets() {
+        return workers.size();
+    }
+
+    private void evictIdle() {
+        if (idleTimeoutMillis < 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Workers> e : workers.entrySet()) {
+            Workers languageWorkers = e.getValue();
+            synchronized (languageWorkers) {
+                //the least recently used workers are at the end
+                IdleWorker idle = languageWorkers.idle.peekLast();
+                while (idle != null && now - idle.since > idleTimeoutMillis) {
+                    languageWorkers.idle.removeLast().worker.close();
+                    idle = languageWorkers.idle.peekLast();
+                }
+                if (languageWorkers.idle.isEmpty() &&
+                        languageWorkers.permits.availablePermits() == maxWorkers) {
+                    languageWorkers.retired = true;
+                    workers.remove(e.getKey(), languageWorkers);
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes the idle workers, and the workers in use once they are released.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Workers languageWorkers : workers.values()) {
+            synchronized (languageWorkers) {
+                languageWorkers.retired = true;
+                for (IdleWorker idle : languageWorkers.idle) {
+                    idle.worker.close();
+                }
+                languageWorkers.idle.clear();
+            }
+        }
+        workers.clear();
+    }
+
+    private static class IdleWorker {
+        private final TesseractWorker worker;
+        private final long since = System.currentTimeMillis();
+
+        private IdleWorker(TesseractWorker worker) {
+            this.worker = worker;
+        }
+    }
+
+    private class Workers {
+        //a permit for each worker that may be handed out
+        private final Semaphore permits = new Semaphore(maxWorkers);
+        //most recently used first; guarded by this
+        private final Deque<IdleWorker> idle = new ArrayDeque<>();
+        //set once this has been removed from the pool; guarded by this
+        private boolean retired = false;
+
+        /**
+         * @return the worker, or <code>null</code> if this language set has been
+         * removed from the pool in the meantime
+         */
+        private TesseractWorker acquire(String language, long timeoutMillis)
+                throws IOException, TikaException {
+            try {
+                if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                    throw new TikaException("TesseractOCRParser timeout waiting for a worker");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TikaException("TesseractOCRParser interrupted", e);
+            }
+            synchronized (this) {
+                //evictIdle() only retires language sets without permits in use
+                if (retired) {
+                    permits.release();
+                    return null;
+                }
+                IdleWorker idleWorker = idle.pollFirst();
+                while (idleWorker != null && !idleWorker.worker.isUsable()) {
+                    idleWorker.worker.close();
+                    idleWorker = idle.pollFirst();
+                }
+                if (idleWorker != null) {
+                    return idleWorker.worker;
+                }
+            }
+            try {
+                return workerFactory.start(language);
+            } catch (IOException | RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+
+        private void release(TesseractWorker worker) {
+            try {
+                synchronized (this) {
+                    if (!retired && worker.isUsable() &&
+                            worker.getPagesProcessed() < maxPagesPerWorker) {
+                        idle.addFirst(new IdleWorker(worker));
+                        return;
+                    }
+                }
+                worker.close();
+            } finally {
+                permits.release();
+            }
+        }
+    }
+}
@@ -16,21 +16,30 @@
  */
 package org.apache.tika.parser.ocr;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import org.apache.tika.TikaTest;
 import org.apache.tika.config.TikaConfig;
@@ -268,6 +277,98 @@ public class TesseractOCRParserTest extends TikaTest {
     }
 
 
+    @Test
+    public void testWorkerPool(@TempDir Path tmp) throws Exception {
+        assumeTrue(!System.getProperty("os.name").startsWith("Windows"), "needs sh");
+        TesseractOCRParser parser = new TesseractOCRParser();
+        parser.setWorkerCommand(writeFakeWorker(tmp).toString());
+        parser.setMaxPagesPerWorker(2);
+        parser.initialize(Collections.EMPTY_MAP);
+        String third;
+        String fra;
+        try {
+            String first = ocrWithWorker(parser, "eng");
+            assertTrue(first.startsWith("worker eng "), first);
+            assertEquals(first, ocrWithWorker(parser, "eng"));
+            //the worker is replaced after two pages
+            third = ocrWithWorker(parser, "eng");
+            assertTrue(third.startsWith("worker eng "), third);
+            assertNotEquals(first, third);
+            assertExited(first);
+            //each language set has its own workers
+            fra = ocrWithWorker(parser, "eng+fra");
+            assertTrue(fra.startsWith("worker eng+fra "), fra);
+            assertEquals(third, ocrWithWorker(parser, "eng"));
+        } finally {
+            parser.close();
+        }
+        assertExited(third);
+        assertExited(fra);
+    }
+
+    @Test
+    public void testWorkerIdleTimeout(@TempDir Path tmp) throws Exception {
+        assumeTrue(!System.getProperty("os.name").startsWith("Windows"), "needs sh");
+        TesseractOCRParser parser = new TesseractOCRParser();
+        parser.setWorkerCommand(writeFakeWorker(tmp).toString());
+        parser.setWorkerIdleTimeoutMillis(100);
+        parser.initialize(Collections.EMPTY_MAP);
+        String fra;
+        try {
+            String eng = ocrWithWorker(parser, "eng");
+            Thread.sleep(500);
+            //the next call closes the workers that have been idle for too long
+            fra = ocrWithWorker(parser, "fra");
+            assertExited(eng);
+            assertTrue(isAlive(fra));
+        } finally {
+            parser.close();
+        }
+        assertExited(fra);
+    }
+
+    /**
+     * @return a script that stands in for a worker that keeps tesseract loaded:
+     * instead of running OCR, it writes its language set and process id
+     */
+    private static Path writeFakeWorker(Path tmp) throws IOException {
+        Path worker = tmp.resolve("fake-worker.sh");
+        Files.write(worker, Arrays.asList("#!/bin/sh",
+                "lang=\"$2\"",
+                "while IFS=\"$(printf '\\t')\" read -r input output rest; do",
+                "  echo \"worker $lang $$\" > \"$output.txt\"",
+                "  echo OK",
+                "done"), UTF_8);
+        assertTrue(worker.toFile().setExecutable(true));
+        return worker;
+    }
+
+    private static boolean isAlive(String worker) {
+        return ProcessHandle.of(getPid(worker)).map(ProcessHandle::isAlive).orElse(false);
+    }
+
+    private static void assertExited(String worker) throws Exception {
+        Optional<ProcessHandle> handle = ProcessHandle.of(getPid(worker));
+        if (handle.isPresent()) {
+            handle.get().onExit().get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private static long getPid(String worker) {
+        return Long.parseLong(worker.substring(worker.lastIndexOf(' ') + 1));
+    }
+
+    private String ocrWithWorker(TesseractOCRParser parser, String language) throws Exception {
+        TesseractOCRConfig config = new TesseractOCRConfig();
+        config.setLanguage(language);
+        ParseContext context = new ParseContext();
+        context.set(TesseractOCRConfig.class, config);
+        String xml = getXML("testOCR.jpg", parser, context).xml;
+        Matcher m = Pattern.compile("worker \\S+ \\d+").matcher(xml);
+        assertTrue(m.find(), xml);
+        return m.group();
+    }
+
     //to be used to figure out a) what image media types don't have ocr coverage and
     // b) what ocr media types don't have dedicated image parsers
     //this obv requires that tesseract be installed
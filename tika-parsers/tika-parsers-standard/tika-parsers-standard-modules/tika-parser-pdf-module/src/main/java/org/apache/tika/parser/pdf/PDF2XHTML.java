@@ -32,6 +32,7 @@ import org.apache.pdfbox.cos.COSStream;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDPageTree;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.apache.pdfbox.text.TextPosition;
 import org.apache.pdfbox.util.Matrix;
@@ -73,6 +74,9 @@ class PDF2XHTML extends AbstractPDF2XHTML {
     private Map<COSStream, Integer> processedInlineImages = new HashMap<>();
     private AtomicInteger inlineImageCounter = new AtomicInteger(0);
 
+    //not null if the text of the pages is extracted concurrently
+    private ParallelPageExtractor parallelPageExtractor;
+
     PDF2XHTML(PDDocument document, ContentHandler handler, ParseContext context, Metadata metadata,
               PDFParserConfig config) throws IOException {
         super(document, handler, context, metadata, config);
@@ -91,6 +95,21 @@ class PDF2XHTML extends AbstractPDF2XHTML {
     public static void process(PDDocument document, ContentHandler handler, ParseContext context,
                                Metadata metadata, PDFParserConfig config)
             throws SAXException, TikaException {
+        process(document, handler, context, metadata, config, null);
+    }
+
+    /**
+     * Same as {@link #process(PDDocument, ContentHandler, ParseContext, Metadata, PDFParserConfig)},
+     * but extracts the text of the pages concurrently if
+     * {@link PDFParserConfig#getPageExtractionThreads()} is greater than <code>1</code>.
+     *
+     * @param pageLoader loads a copy of the document for each page extraction thread;
+     *                   if <code>null</code>, pages are extracted sequentially
+     */
+    static void process(PDDocument document, ContentHandler handler, ParseContext context,
+                        Metadata metadata, PDFParserConfig config,
+                        ParallelPageExtractor.DocumentLoader pageLoader)
+            throws SAXException, TikaException {
         PDF2XHTML pdf2XHTML = null;
         try {
             // Extract text using a dummy Writer as we override the
@@ -101,6 +120,11 @@ class PDF2XHTML extends AbstractPDF2XHTML {
                         new AngleDetectingPDF2XHTML(document, handler, context, metadata, config);
             } else {
                 pdf2XHTML = new PDF2XHTML(document, handler, context, metadata, config);
+                if (pageLoader != null &&
+                        ParallelPageExtractor.shouldExtractInParallel(document, config)) {
+                    pdf2XHTML.parallelPageExtractor = new ParallelPageExtractor(pageLoader,
+                            document.getNumberOfPages(), context, config);
+                }
             }
             config.configure(pdf2XHTML);
 
@@ -123,6 +147,10 @@ class PDF2XHTML extends AbstractPDF2XHTML {
             } else {
                 throw new TikaException("Unable to extract PDF content", e);
             }
+        } finally {
+            if (pdf2XHTML != null && pdf2XHTML.parallelPageExtractor != null) {
+                pdf2XHTML.parallelPageExtractor.close();
+            }
         }
         if (!pdf2XHTML.exceptions.isEmpty()) {
             //throw the first
@@ -130,6 +158,78 @@ class PDF2XHTML extends AbstractPDF2XHTML {
         }
     }
 
+    @Override
+    protected void processPages(PDPageTree pages) throws IOException {
+        if (parallelPageExtractor == null) {
+            super.processPages(pages);
+            return;
+        }
+        for (PDPage page : pages) {
+            if (getCurrentPageNo() >= getStartPage() && getCurrentPageNo() <= getEndPage()) {
+                ParallelPageExtractor.PageText pageText =
+                        parallelPageExtractor.take(getCurrentPageNo());
+                if (pageText == null) {
+                    processPage(page);
+                } else {
+                    processPage(page, pageText);
+                }
+            }
+            pageIndex++;
+        }
+    }
+
+    /**
+     * Writes out a page whose text was extracted by the {@link ParallelPageExtractor}.
+     * This replays the recorded calls, so that the output is the same as with
+     * {@link #processPage(PDPage)}.
+     */
+    private void processPage(PDPage page, ParallelPageExtractor.PageText pageText)
+            throws IOException {
+        totalCharsPerPage = pageText.totalChars;
+        unmappedUnicodeCharsPerPage = pageText.unmappedUnicodeChars;
+        totalCharacters += pageText.totalChars;
+        totalUnmappedUnicodeCharacters += pageText.unmappedUnicodeChars;
+        containsDamagedFont |= pageText.containsDamagedFont;
+        containsNonEmbeddedFont |= pageText.containsNonEmbeddedFont;
+        try {
+            startPage(page);
+            for (int i = 0; i < pageText.size(); i++) {
+                switch (pageText.getOp(i)) {
+                    case PARAGRAPH_START:
+                        writeParagraphStart();
+                        break;
+                    case PARAGRAPH_END:
+                        writeParagraphEnd();
+                        break;
+                    case STRING:
+                        writeString((String) pageText.getArg(i));
+                        break;
+                    case WORD_SEPARATOR:
+                        writeWordSeparator();
+                        break;
+                    case LINE_SEPARATOR:
+                        writeLineSeparator();
+                        break;
+                    case EXCEPTION:
+                        handleCatchableIOE((IOException) pageText.getArg(i));
+                        break;
+                    default:
+                        throw new IllegalStateException("Unexpected op: " + pageText.getOp(i));
+                }
+            }
+        } catch (IOException e) {
+            handleCatchableIOE(e);
+        } finally {
+            pageText.clear();
+        }
+        if (pageText.truncated) {
+            metadata.add(TikaCoreProperties.TIKA_META_EXCEPTION_WARNING, "Page " +
+                    getCurrentPageNo() + " has more than " + config.getPageExtractionMaxChars() +
+                    " characters; the rest of its text was skipped");
+        }
+        endPage(page);
+    }
+
     @Override
     public void processPage(PDPage page) throws IOException {
         try {
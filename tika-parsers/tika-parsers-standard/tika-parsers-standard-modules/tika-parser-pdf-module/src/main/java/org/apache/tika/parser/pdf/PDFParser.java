@@ -188,6 +188,17 @@ public class PDFParser implements Parser, RenderingParser, Initializable {
                 memoryUsageSetting = MemoryUsageSetting.setupMainMemoryOnly();
             }
 
+            ParallelPageExtractor.DocumentLoader pageLoader = null;
+            if (localConfig.getPageExtractionThreads() > 1) {
+                //each page extraction thread loads its own copy of the document
+                final Path path = tstream.getPath();
+                final String pagePassword = password;
+                final RandomAccessStreamCache.StreamCacheCreateFunction streamCache =
+                        memoryUsageSetting.streamCache;
+                pageLoader = () -> getPDDocument(path, pagePassword, streamCache,
+                        metadata, context);
+            }
+
             pdfDocument = getPDDocument(stream, tstream, password,
                     memoryUsageSetting.streamCache, metadata, context);
 
@@ -217,7 +228,7 @@ public class PDFParser implements Parser, RenderingParser, Initializable {
                                     localConfig);
                 } else {
                     PDF2XHTML.process(pdfDocument, handler, context, metadata,
-                            localConfig);
+                            localConfig, pageLoader);
                 }
             }
         } catch (InvalidPasswordException e) {
@@ -393,6 +404,9 @@ public class PDFParser implements Parser, RenderingParser, Initializable {
     }
 
     private boolean shouldSpool(PDFParserConfig localConfig) {
+        if (localConfig.getPageExtractionThreads() > 1) {
+            return true;
+        }
         if (localConfig.getImageStrategy() == PDFParserConfig.IMAGE_STRATEGY.RENDER_PAGES_BEFORE_PARSE
                 || localConfig.getImageStrategy() == PDFParserConfig.IMAGE_STRATEGY.RENDER_PAGES_AT_PAGE_END) {
             return true;
@@ -1088,6 +1102,62 @@ public class PDFParser implements Parser, RenderingParser, Initializable {
     public boolean isThrowOnEncryptedPayload() {
         return defaultConfig.isThrowOnEncryptedPayload();
     }
+
+    /**
+     * See {@link PDFParserConfig#setPageExtractionThreads(int)}
+     *
+     * @param pageExtractionThreads
+     */
+    @Field
+    public void setPageExtractionThreads(int pageExtractionThreads) {
+        defaultConfig.setPageExtractionThreads(pageExtractionThreads);
+    }
+
+    public int getPageExtractionThreads() {
+        return defaultConfig.getPageExtractionThreads();
+    }
+
+    /**
+     * See {@link PDFParserConfig#setPageExtractionBatchSize(int)}
+     *
+     * @param pageExtractionBatchSize
+     */
+    @Field
+    public void setPageExtractionBatchSize(int pageExtractionBatchSize) {
+        defaultConfig.setPageExtractionBatchSize(pageExtractionBatchSize);
+    }
+
+    public int getPageExtractionBatchSize() {
+        return defaultConfig.getPageExtractionBatchSize();
+    }
+
+    /**
+     * See {@link PDFParserConfig#setPageExtractionTimeoutMillis(long)}
+     *
+     * @param pageExtractionTimeoutMillis
+     */
+    @Field
+    public void setPageExtractionTimeoutMillis(long pageExtractionTimeoutMillis) {
+        defaultConfig.setPageExtractionTimeoutMillis(pageExtractionTimeoutMillis);
+    }
+
+    public long getPageExtractionTimeoutMillis() {
+        return defaultConfig.getPageExtractionTimeoutMillis();
+    }
+
+    /**
+     * See {@link PDFParserConfig#setPageExtractionMaxChars(int)}
+     *
+     * @param pageExtractionMaxChars
+     */
+    @Field
+    public void setPageExtractionMaxChars(int pageExtractionMaxChars) {
+        defaultConfig.setPageExtractionMaxChars(pageExtractionMaxChars);
+    }
+
+    public int getPageExtractionMaxChars() {
+        return defaultConfig.getPageExtractionMaxChars();
+    }
     /**
      * This is a no-op.  There is no need to initialize multiple fields.
      * The regular field loading should happen without this.
@@ -164,6 +164,14 @@ public class PDFParserConfig implements Serializable {
 
     private boolean throwOnEncryptedPayload = false;
 
+    private int pageExtractionThreads = 1;
+
+    private int pageExtractionBatchSize = 10;
+
+    private long pageExtractionTimeoutMillis = 120000;
+
+    private int pageExtractionMaxChars = 1000000;
+
     /**
      * @return whether or not to extract only inline image metadata and not render the images
      */
@@ -917,6 +925,83 @@ public class PDFParserConfig implements Serializable {
         return throwOnEncryptedPayload;
     }
 
+    public int getPageExtractionThreads() {
+        return pageExtractionThreads;
+    }
+
+    /**
+     * Number of threads that extract the text of pages concurrently.
+     * Each thread loads its own copy of the document and works on
+     * batches of {@link #setPageExtractionBatchSize(int)} pages. The
+     * output is reassembled in page order, and annotations, images, OCR
+     * and embedded files are still handled on the calling thread.
+     * <p>
+     * The default is <code>1</code>, which extracts pages sequentially.
+     * Only documents with more pages than the batch size are extracted
+     * concurrently, and only when extracting text without marked content
+     * and without angle detection.
+     *
+     * @param pageExtractionThreads
+     */
+    public void setPageExtractionThreads(int pageExtractionThreads) {
+        this.pageExtractionThreads = pageExtractionThreads;
+        userConfigured.add("pageExtractionThreads");
+    }
+
+    public int getPageExtractionBatchSize() {
+        return pageExtractionBatchSize;
+    }
+
+    /**
+     * Number of consecutive pages that a page extraction thread works on
+     * at a time. Threads stay at most two batches per thread ahead of the
+     * pages that have been written out. The default is <code>10</code>.
+     *
+     * @param pageExtractionBatchSize
+     */
+    public void setPageExtractionBatchSize(int pageExtractionBatchSize) {
+        if (pageExtractionBatchSize < 1) {
+            throw new IllegalArgumentException("pageExtractionBatchSize must be > 0");
+        }
+        this.pageExtractionBatchSize = pageExtractionBatchSize;
+        userConfigured.add("pageExtractionBatchSize");
+    }
+
+    public long getPageExtractionTimeoutMillis() {
+        return pageExtractionTimeoutMillis;
+    }
+
+    /**
+     * How long to wait for the text of a single page when pages are
+     * extracted concurrently. A page that times out is written out empty
+     * and reported like any other intermediate exception. The rest of its
+     * batch is skipped too, because the thread that works on it is stuck.
+     * The default is <code>120000</code>.
+     *
+     * @param pageExtractionTimeoutMillis
+     */
+    public void setPageExtractionTimeoutMillis(long pageExtractionTimeoutMillis) {
+        this.pageExtractionTimeoutMillis = pageExtractionTimeoutMillis;
+        userConfigured.add("pageExtractionTimeoutMillis");
+    }
+
+    public int getPageExtractionMaxChars() {
+        return pageExtractionMaxChars;
+    }
+
+    /**
+     * Maximum number of characters that are kept for a single page when
+     * pages are extracted concurrently. The rest of the page is dropped
+     * and a warning is added to the metadata. Use
+     * <code>-1</code> for no limit. The default is <code>1000000</code>.
+     *
+     * @param pageExtractionMaxChars
+     */
+    public void setPageExtractionMaxChars(int pageExtractionMaxChars) {
+        this.pageExtractionMaxChars = pageExtractionMaxChars;
+        userConfigured.add("pageExtractionMaxChars");
+    }
+
     public enum OCR_STRATEGY {
         AUTO, NO_OCR, OCR_ONLY, OCR_AND_TEXT_EXTRACTION;
 
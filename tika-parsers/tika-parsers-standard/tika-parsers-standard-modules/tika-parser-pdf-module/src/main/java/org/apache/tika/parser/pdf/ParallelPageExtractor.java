@@ -0,0 +1,397 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tika.parser.pdf;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageTree;
+import org.apache.pdfbox.text.TextPosition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.helpers.DefaultHandler;
+
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.parser.ParseContext;
+
+/**
+ * Extracts the text of the pages of a document on a bounded pool of threads
+ * for {@link PDF2XHTML}.
+ * <p>
+ * A {@link PDDocument} is not thread safe, so each thread loads its own copy
+ * of the document. Threads take batches of consecutive pages, and record
+ * the paragraphs, strings and separators of each page instead of writing
+ * them out. {@link PDF2XHTML} then takes the pages in order and replays
+ * them on the calling thread, where annotations, images and OCR are handled
+ * as in sequential extraction.
+ * <p>
+ * Memory is bounded by letting the threads work at most two batches per thread
+ * ahead of the page that is written out, and by a maximum number of characters
+ * per page.
+ */
+class ParallelPageExtractor implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ParallelPageExtractor.class);
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    /**
+     * Loads another copy of the document that is being parsed.
+     */
+    interface DocumentLoader {
+        PDDocument load() throws IOException;
+    }
+
+    enum OP {
+        PARAGRAPH_START, PARAGRAPH_END, STRING, WORD_SEPARATOR, LINE_SEPARATOR, EXCEPTION
+    }
+
+    /**
+     * What was recorded for one page
+     */
+    static class PageText {
+        private final List<OP> ops = new ArrayList<>();
+        //String for STRING, IOException for EXCEPTION, null otherwise
+        private final List<Object> args = new ArrayList<>();
+        int totalChars;
+        int unmappedUnicodeChars;
+        boolean containsDamagedFont;
+        boolean containsNonEmbeddedFont;
+        //true if characters were dropped because of the maximum per page
+        boolean truncated;
+        private long length;
+
+        private void add(OP op, Object arg) {
+            ops.add(op);
+            args.add(arg);
+        }
+
+        int size() {
+            return ops.size();
+        }
+
+        OP getOp(int i) {
+            return ops.get(i);
+        }
+
+        Object getArg(int i) {
+            return args.get(i);
+        }
+
+        void clear() {
+            ops.clear();
+            args.clear();
+        }
+    }
+
+    private final int numPages;
+    private final int batchSize;
+    private final long timeoutMillis;
+    private final CompletableFuture<PageText>[] pages;
+    private final AtomicInteger nextBatch = new AtomicInteger();
+    private final Semaphore readAhead;
+    private final ExecutorService executorService;
+
+    private int timedOutBatch = -1;
+
+    @SuppressWarnings("unchecked")
+    ParallelPageExtractor(DocumentLoader loader, int numPages, ParseContext context,
+                          PDFParserConfig config) {
+        this.numPages = numPages;
+        this.batchSize = config.getPageExtractionBatchSize();
+        this.timeoutMillis = config.getPageExtractionTimeoutMillis();
+        this.pages = new CompletableFuture[numPages];
+        for (int i = 0; i < numPages; i++) {
+            pages[i] = new CompletableFuture<>();
+        }
+        int numBatches = (numPages + batchSize - 1) / batchSize;
+        int numThreads = Math.min(config.getPageExtractionThreads(), numBatches);
+        this.readAhead = new Semaphore(2 * numThreads);
+        this.executorService = Executors.newFixedThreadPool(numThreads, r -> {
+            Thread t = new Thread(r, "tika-pdf-page-extractor-" +
+                    THREAD_COUNTER.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        for (int i = 0; i < numThreads; i++) {
+            executorService.execute(() -> extractBatches(loader, context, config));
+        }
+    }
+
+    /**
+     * @return whether the pages of this document should be extracted concurrently
+     */
+    static boolean shouldExtractInParallel(PDDocument document, PDFParserConfig config) {
+        return config.getPageExtractionThreads() > 1 &&
+                document.getNumberOfPages() > config.getPageExtractionBatchSize();
+    }
+
+    /**
+     * Waits for the text of a page. Pages must be taken in order.
+     *
+     * @param pageNo one-based page number
+     * @return the text of the page or <code>null</code> if it could not be
+     * extracted and should be extracted sequentially instead
+     * @throws IOException if interrupted
+     */
+    PageText take(int pageNo) throws IOException {
+        if (pageNo < 1 || pageNo > numPages) {
+            return null;
+        }
+        int batch = (pageNo - 1) / batchSize;
+        try {
+            long timeout = batch == timedOutBatch ? 0 : timeoutMillis;
+            return pages[pageNo - 1].get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timedOutBatch = batch;
+            PageText timedOut = new PageText();
+            timedOut.add(OP.EXCEPTION, new IOException("Timed out after " + timeoutMillis +
+                    " ms waiting for the text of page " + pageNo));
+            return timedOut;
+        } catch (ExecutionException e) {
+            LOG.debug("extracting page {} sequentially", pageNo, e.getCause());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting for page " + pageNo);
+        } finally {
+            if (pageNo % batchSize == 0 || pageNo == numPages) {
+                readAhead.release();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        executorService.shutdownNow();
+    }
+
+    private void extractBatches(DocumentLoader loader, ParseContext context,
+                                PDFParserConfig config) {
+        PDDocument document = null;
+        PageWorker worker = null;
+        IOException loadException = null;
+        try {
+            while (true) {
+                readAhead.acquire();
+                int first = nextBatch.getAndIncrement() * batchSize + 1;
+                if (first > numPages) {
+                    return;
+                }
+                int last = Math.min(numPages, first + batchSize - 1);
+                try {
+                    if (loadException != null) {
+                        throw loadException;
+                    }
+                    if (worker == null) {
+                        try {
+                            document = loader.load();
+                        } catch (IOException e) {
+                            loadException = e;
+                            throw e;
+                        }
+                        worker = new PageWorker(document, context, config);
+                        config.configure(worker);
+                    }
+                    worker.extract(first, last);
+                } catch (IOException | RuntimeException e) {
+                    fail(first, last, e);
+                }
+                //anything that the worker didn't complete is extracted sequentially
+                fail(first, last, new IOException("page was not extracted"));
+            }
+        } catch (InterruptedException e) {
+            //closed
+        } finally {
+            IOUtils.closeQuietly(document);
+        }
+    }
+
+    private void fail(int first, int last, Exception e) {
+        for (int pageNo = first; pageNo <= last; pageNo++) {
+            pages[pageNo - 1].completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Records the text of pages instead of writing it out.
+     * <p>
+     * Only the outermost paragraph calls are recorded, because
+     * PDFTextStripper's paragraph methods call each other. Replaying
+     * the outermost calls restores the same paragraph state on the
+     * calling thread.
+     */
+    private class PageWorker extends PDF2XHTML {
+
+        private final int maxChars;
+        private int first;
+        private int last;
+        private PageText current;
+        private CompletableFuture<PageText> currentFuture;
+        private int depth = 0;
+
+        private PageWorker(PDDocument document, ParseContext context, PDFParserConfig config)
+                throws IOException {
+            super(document, new DefaultHandler(), context, new Metadata(), config);
+            this.maxChars = config.getPageExtractionMaxChars();
+        }
+
+        private void extract(int first, int last) throws IOException {
+            this.first = first;
+            this.last = last;
+            writeText(pdDocument, Writer.nullWriter());
+        }
+
+        @Override
+        protected void startDocument(PDDocument pdf) {
+            //no-op
+        }
+
+        @Override
+        protected void endDocument(PDDocument pdf) {
+            //no-op
+        }
+
+        @Override
+        protected void processPages(PDPageTree pdPages) throws IOException {
+            for (int pageNo = first; pageNo <= last; pageNo++) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("page extraction was closed");
+                }
+                pageIndex = pageNo - 1;
+                currentFuture = pages[pageNo - 1];
+                try {
+                    processPage(pdPages.get(pageNo - 1));
+                } catch (IOException | RuntimeException e) {
+                    currentFuture.completeExceptionally(e);
+                }
+                current = null;
+            }
+        }
+
+        @Override
+        protected void startPage(PDPage page) throws IOException {
+            current = null;
+            super.startPage(page);
+            current = new PageText();
+        }
+
+        @Override
+        protected void endPage(PDPage page) {
+            if (current == null) {
+                return;
+            }
+            current.totalChars = totalCharsPerPage;
+            current.unmappedUnicodeChars = unmappedUnicodeCharsPerPage;
+            current.containsDamagedFont = containsDamagedFont;
+            current.containsNonEmbeddedFont = containsNonEmbeddedFont;
+            totalCharsPerPage = 0;
+            unmappedUnicodeCharsPerPage = 0;
+            containsDamagedFont = false;
+            containsNonEmbeddedFont = false;
+            currentFuture.complete(current);
+            current = null;
+        }
+
+        @Override
+        void handleCatchableIOE(IOException e) throws IOException {
+            if (current != null) {
+                current.add(OP.EXCEPTION, e);
+            }
+            if (!config.isCatchIntermediateIOExceptions()) {
+                throw e;
+            }
+        }
+
+        @Override
+        protected void writeParagraphStart() throws IOException {
+            if (current != null && depth == 0) {
+                current.add(OP.PARAGRAPH_START, null);
+            }
+            depth++;
+            try {
+                super.writeParagraphStart();
+            } finally {
+                depth--;
+            }
+        }
+
+        @Override
+        protected void writeParagraphEnd() throws IOException {
+            if (current != null && depth == 0) {
+                current.add(OP.PARAGRAPH_END, null);
+            }
+            depth++;
+            try {
+                super.writeParagraphEnd();
+            } finally {
+                depth--;
+            }
+        }
+
+        @Override
+        protected void writeString(String text) {
+            if (current == null || current.truncated) {
+                return;
+            }
+            current.length += text.length();
+            if (maxChars > -1 && current.length > maxChars) {
+                current.truncated = true;
+                int keep = text.length() - (int) (current.length - maxChars);
+                if (keep > 0) {
+                    current.add(OP.STRING, text.substring(0, keep));
+                }
+                return;
+            }
+            current.add(OP.STRING, text);
+        }
+
+        @Override
+        protected void writeCharacters(TextPosition text) {
+            writeString(text.getUnicode());
+        }
+
+        @Override
+        protected void writeWordSeparator() {
+            if (current != null && !current.truncated) {
+                current.add(OP.WORD_SEPARATOR, null);
+            }
+        }
+
+        @Override
+        protected void writeLineSeparator() {
+            if (current != null && !current.truncated) {
+                current.add(OP.LINE_SEPARATOR, null);
+            }
+        }
+    }
+}
@@ -139,6 +139,37 @@ public class PDFParserTest extends TikaTest {
         assertContains("ABCDEE+Calibri", r.metadata.get(Font.FONT_NAME));
     }
 
+    @Test
+    public void testParallelPageExtraction() throws Exception {
+        for (String fileName : new String[]{"testJournalParser.pdf", "testPDFVarious.pdf"}) {
+            XMLResult sequential = getXML(fileName);
+
+            PDFParserConfig config = new PDFParserConfig();
+            config.setPageExtractionThreads(2);
+            config.setPageExtractionBatchSize(1);
+            ParseContext pc = new ParseContext();
+            pc.set(PDFParserConfig.class, config);
+            XMLResult parallel = getXML(fileName, pc);
+
+            assertEquals(sequential.xml, parallel.xml, fileName);
+            assertArrayEquals(sequential.metadata.getValues(PDF.CHARACTERS_PER_PAGE),
+                    parallel.metadata.getValues(PDF.CHARACTERS_PER_PAGE), fileName);
+            assertEquals(sequential.metadata.get(PDF.TOTAL_UNMAPPED_UNICODE_CHARS),
+                    parallel.metadata.get(PDF.TOTAL_UNMAPPED_UNICODE_CHARS), fileName);
+        }
+
+        PDFParserConfig config = new PDFParserConfig();
+        config.setPageExtractionThreads(3);
+        config.setPageExtractionBatchSize(2);
+        config.setPageExtractionMaxChars(10);
+        ParseContext pc = new ParseContext();
+        pc.set(PDFParserConfig.class, config);
+        XMLResult r = getXML("testJournalParser.pdf", pc);
+        assertContains("has more than 10 characters",
+                r.metadata.get(TikaCoreProperties.TIKA_META_EXCEPTION_WARNING));
+        assertEquals(10, r.metadata.getValues(PDF.CHARACTERS_PER_PAGE).length);
+    }
+
     @Test
     public void testPdfParsingMetadataOnly() throws Exception {
 
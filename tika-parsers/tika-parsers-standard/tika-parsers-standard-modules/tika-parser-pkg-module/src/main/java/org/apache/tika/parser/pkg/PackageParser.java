@@ -29,9 +29,11 @@ import static org.apache.tika.detect.zip.PackageConstants.ZIP;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.charset.Charset;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -53,6 +55,7 @@ import org.apache.commons.compress.archivers.zip.UnsupportedZipFeatureException;
 import org.apache.commons.compress.archivers.zip.UnsupportedZipFeatureException.Feature;
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
 import org.apache.commons.io.input.CloseShieldInputStream;
 import org.apache.commons.io.input.UnsynchronizedByteArrayInputStream;
 import org.xml.sax.ContentHandler;
@@ -265,6 +268,19 @@ public class PackageParser extends AbstractEncodingDetectorParser {
     private void _parse(InputStream stream, ContentHandler handler, Metadata metadata,
                 ParseContext context, TemporaryResources tmp)
             throws TikaException, IOException, SAXException {
+        if (stream instanceof TikaInputStream && ((TikaInputStream) stream).hasRandomAccess() &&
+                isZip(stream)) {
+            SeekableByteChannel channel = ((TikaInputStream) stream).getSeekableByteChannel();
+            ZipFile zipFile = openZipFile(channel, context);
+            if (zipFile != null) {
+                try {
+                    parseZipFile(zipFile, channel, handler, metadata, context);
+                } finally {
+                    zipFile.close();
+                }
+                return;
+            }
+        }
         ArchiveInputStream ais = null;
         String encoding = null;
         try {
@@ -298,7 +314,8 @@ public class PackageParser extends AbstractEncodingDetectorParser {
 
                 SevenZFile sevenz;
                 try {
-                    SevenZFile.Builder builder = new SevenZFile.Builder().setFile(tstream.getFile());
+                    SevenZFile.Builder builder = new SevenZFile.Builder()
+                            .setSeekableByteChannel(tstream.getSeekableByteChannel());
                     if (password == null) {
                         sevenz = builder.get();
                     } else {
@@ -319,7 +336,7 @@ public class PackageParser extends AbstractEncodingDetectorParser {
             throw new TikaException("Unable to unpack document stream", e);
         }
 
-        updateMediaType(ais, metadata);
+        updateMediaType(getMediaType(ais), metadata);
         // Use the delegate parser to parse the contained document
         EmbeddedDocumentExtractor extractor =
                 EmbeddedDocumentUtil.getEmbeddedDocumentExtractor(context);
@@ -352,6 +369,88 @@ public class PackageParser extends AbstractEncodingDetectorParser {
         }
     }
 
+    private static boolean isZip(InputStream stream) {
+        try {
+            return ArchiveStreamFactory.ZIP.equals(ArchiveStreamFactory.detect(stream));
+        } catch (ArchiveException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Opens a zip archive with random access as a {@link ZipFile}, so that
+     * entries can be read in place, rather than being copied out of an
+     * {@link ArchiveInputStream}.
+     *
+     * @return the zip file, or <code>null</code> if the archive should be streamed
+     */
+    private static ZipFile openZipFile(SeekableByteChannel channel, ParseContext context) {
+        ArchiveStreamFactory factory =
+                context.get(ArchiveStreamFactory.class, new ArchiveStreamFactory());
+        ZipFile.Builder builder = ZipFile.builder().setSeekableByteChannel(channel);
+        if (factory.getEntryEncoding() != null) {
+            builder.setCharset(factory.getEntryEncoding());
+        }
+        try {
+            return builder.get();
+        } catch (IOException e) {
+            //e.g. a truncated file without a central directory;
+            //the streaming api may still be able to read some of it
+            return null;
+        }
+    }
+
+    private void parseZipFile(ZipFile zipFile, SeekableByteChannel channel,
+                              ContentHandler handler, Metadata metadata, ParseContext context)
+            throws TikaException, IOException, SAXException {
+        updateMediaType(ZIP, metadata);
+        EmbeddedDocumentExtractor extractor =
+                EmbeddedDocumentUtil.getEmbeddedDocumentExtractor(context);
+
+        XHTMLContentHandler xhtml = new XHTMLContentHandler(handler, metadata);
+        xhtml.startDocument();
+        try {
+            Enumeration<ZipArchiveEntry> entries = zipFile.getEntriesInPhysicalOrder();
+            while (entries.hasMoreElements()) {
+                ZipArchiveEntry entry = entries.nextElement();
+                if (!entry.isDirectory()) {
+                    parseEntry(entry, zipFile.canReadEntryData(entry), false,
+                            (tmp, entrydata) -> openZipEntry(zipFile, channel, entry, tmp,
+                                    entrydata),
+                            extractor, metadata, xhtml);
+                }
+            }
+        } catch (UnsupportedZipFeatureException zfe) {
+            if (zfe.getFeature() == Feature.ENCRYPTION) {
+                throw new EncryptedDocumentException(zfe);
+            }
+            throw new TikaException("UnsupportedZipFeature", zfe);
+        } finally {
+            xhtml.endDocument();
+        }
+    }
+
+    /**
+     * Stored entries are exposed as a range of the archive's channel, so
+     * nothing is copied. Compressed entries are inflated on demand, and
+     * reopened rather than spooled if a parser needs random access.
+     */
+    private static TikaInputStream openZipEntry(ZipFile zipFile, SeekableByteChannel channel,
+                                                ZipArchiveEntry entry, TemporaryResources tmp,
+                                                Metadata entrydata)
+            throws IOException {
+        if (entry.getMethod() == ZipEntry.STORED && entry.getSize() >= 0) {
+            //the data offset is only resolved once the entry has been opened
+            zipFile.getRawInputStream(entry).close();
+            if (entry.getDataOffset() >= 0) {
+                return TikaInputStream.get(channel, entry.getDataOffset(),
+                        entry.getSize(), tmp, entrydata);
+            }
+        }
+        return TikaInputStream.get(() -> zipFile.getInputStream(entry), entry.getSize(), tmp,
+                entrydata);
+    }
+
     /**
      * Parse the entries of the zip archive
      *
@@ -383,7 +482,9 @@ public class PackageParser extends AbstractEncodingDetectorParser {
                 }
 
                 if (!entry.isDirectory()) {
-                    parseEntry(ais, entry, extractor, metadata, xhtml);
+                    parseEntry(entry, ais.canReadEntryData(entry), true,
+                            (tmp, entrydata) -> TikaInputStream.get(ais, tmp, entrydata),
+                            extractor, metadata, xhtml);
                 }
 
                 if (!shouldUseDataDescriptor) {
@@ -412,8 +513,7 @@ public class PackageParser extends AbstractEncodingDetectorParser {
         }
     }
 
-    private void updateMediaType(ArchiveInputStream ais, Metadata metadata) {
-        MediaType type = getMediaType(ais);
+    private void updateMediaType(MediaType type, Metadata metadata) {
         if (type.equals(MediaType.OCTET_STREAM)) {
             return;
         }
@@ -437,9 +537,9 @@ public class PackageParser extends AbstractEncodingDetectorParser {
         }
     }
 
-    private void parseEntry(ArchiveInputStream archive, ArchiveEntry entry,
-                            EmbeddedDocumentExtractor extractor, Metadata parentMetadata,
-                            XHTMLContentHandler xhtml)
+    private void parseEntry(ArchiveEntry entry, boolean canReadEntryData, boolean streaming,
+                            EntryOpener opener, EmbeddedDocumentExtractor extractor,
+                            Metadata parentMetadata, XHTMLContentHandler xhtml)
             throws SAXException, IOException, TikaException {
         String name = entry.getName();
         
@@ -465,7 +565,7 @@ public class PackageParser extends AbstractEncodingDetectorParser {
             }
         }
         
-        if (archive.canReadEntryData(entry)) {
+        if (canReadEntryData) {
             // Fetch the metadata on the entry contained in the archive
             Metadata entrydata =
                     handleEntryMetadata(name, null, entry.getLastModifiedDate(), entry.getSize(),
@@ -477,7 +577,7 @@ public class PackageParser extends AbstractEncodingDetectorParser {
                 // InputStream, which ArchiveInputStream isn't, so wrap
                 TemporaryResources tmp = new TemporaryResources();
                 try {
-                    TikaInputStream tis = TikaInputStream.get(archive, tmp, entrydata);
+                    TikaInputStream tis = opener.open(tmp, entrydata);
                     extractor.parseEmbedded(tis, xhtml, entrydata, true);
                 } finally {
                     tmp.dispose();
@@ -499,7 +599,8 @@ public class PackageParser extends AbstractEncodingDetectorParser {
                 // is met, we will catch this exception and read the zip archive once again
                 boolean usesDataDescriptor =
                         zipArchiveEntry.getGeneralPurposeBit().usesDataDescriptor();
-                if (usesDataDescriptor && zipArchiveEntry.getMethod() == ZipEntry.STORED) {
+                if (streaming && usesDataDescriptor &&
+                        zipArchiveEntry.getMethod() == ZipEntry.STORED) {
                     throw new UnsupportedZipFeatureException(
                             UnsupportedZipFeatureException.Feature.DATA_DESCRIPTOR,
                             zipArchiveEntry);
@@ -515,6 +616,10 @@ public class PackageParser extends AbstractEncodingDetectorParser {
         }
     }
 
+    private interface EntryOpener {
+        TikaInputStream open(TemporaryResources tmp, Metadata entrydata) throws IOException;
+    }
+
     // Pending a fix for COMPRESS-269, we have to wrap ourselves
     private static class SevenZWrapper extends ArchiveInputStream {
         private SevenZFile file;
@@ -16,25 +16,39 @@
  */
 package org.apache.tika.parser.pkg;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.compress.archivers.ArchiveStreamFactory;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
 import org.apache.tika.Tika;
 import org.apache.tika.exception.TikaException;
 import org.apache.tika.io.TikaInputStream;
 import org.apache.tika.metadata.Metadata;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
 import org.apache.tika.sax.BodyContentHandler;
 
 /**
@@ -159,4 +173,50 @@ public class ZipParserTest extends AbstractPkgTest {
             assertEquals(4, tracker.lastSeenStart[3]);
         }
     }
+
+    @Test
+    public void testFileBasedZip(@TempDir Path tmp) throws Exception {
+        Path zip = tmp.resolve("test.zip");
+        byte[] stored = "stored entry".getBytes(UTF_8);
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(zip))) {
+            ZipEntry entry = new ZipEntry("stored.txt");
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(stored.length);
+            CRC32 crc = new CRC32();
+            crc.update(stored);
+            entry.setCrc(crc.getValue());
+            zos.putNextEntry(entry);
+            zos.write(stored);
+            zos.putNextEntry(new ZipEntry("deflated.txt"));
+            zos.write("deflated entry".getBytes(UTF_8));
+        }
+
+        List<Boolean> randomAccess = new ArrayList<>();
+        List<String> starts = new ArrayList<>();
+        tracker = new EmbeddedTrackingParser() {
+            @Override
+            public void parse(InputStream stream, ContentHandler handler, Metadata metadata,
+                              ParseContext context)
+                    throws IOException, SAXException, TikaException {
+                randomAccess.add(((TikaInputStream) stream).hasRandomAccess());
+                super.parse(stream, handler, metadata, context);
+                starts.add(new String(lastSeenStart, UTF_8).trim());
+            }
+        };
+        trackingContext.set(Parser.class, tracker);
+
+        Metadata metadata = new Metadata();
+        try (TikaInputStream stream = TikaInputStream.get(zip)) {
+            AUTO_DETECT_PARSER.parse(stream, new DefaultHandler(), metadata, trackingContext);
+        }
+        assertEquals("application/zip", metadata.get(Metadata.CONTENT_TYPE));
+        assertEquals(2, tracker.filenames.size());
+        assertEquals("stored.txt", tracker.filenames.get(0));
+        assertEquals("deflated.txt", tracker.filenames.get(1));
+        assertEquals("stored entry", starts.get(0));
+        assertEquals("deflated entry", starts.get(1));
+        //stored entries are read in place
+        assertTrue(randomAccess.get(0));
+        assertFalse(randomAccess.get(1));
+    }
 }
@@ -60,6 +60,12 @@ public class CharsetDetector {
      */
     private static final List<CSRecognizerInfo> ALL_CS_RECOGNIZERS;
 
+    /*
+     * The highest confidence that the recognizers from index i onwards can report,
+     * including the boost for the declared encoding, which never reaches 100.
+     */
+    private static final int[] REMAINING_MAX_CONFIDENCE;
+
     static {
         List<CSRecognizerInfo> list = new ArrayList<>();
 
@@ -109,6 +115,12 @@ public class CharsetDetector {
 
         list.add(new CSRecognizerInfo(new CharsetRecog_sbcs.CharsetRecog_IBM866_ru(), true));
         ALL_CS_RECOGNIZERS = Collections.unmodifiableList(list);
+
+        REMAINING_MAX_CONFIDENCE = new int[list.size() + 1];
+        for (int i = list.size() - 1; i >= 0; i--) {
+            REMAINING_MAX_CONFIDENCE[i] = Math.max(REMAINING_MAX_CONFIDENCE[i + 1],
+                    Math.min(list.get(i).recognizer.getMaxConfidence(), MAX_CONFIDENCE));
+        }
     }
 
     /*
@@ -137,6 +149,11 @@ public class CharsetDetector {
     private boolean fStripTags =   // If true, setText() will strip tags from input text.
             false;
     private boolean[] fEnabledRecognizers;   // If not null, active set of charset recognizers had
+    // been changed from the default. The array index is
+    // corresponding to ALL_RECOGNIZER. See setDetectableCharset().
+
+    // ngram profiles of the input by byte map, shared by the single byte recognizers
+    private final List<CharsetRecog_sbcs.NGramProfile> fNGramProfiles = new ArrayList<>();
 
     /**
      * Constructor
@@ -272,17 +289,20 @@ public class CharsetDetector {
      * @stable ICU 3.4
      */
     public CharsetMatch detect() {
-//   TODO:  A better implementation would be to copy the detect loop from
-//          detectAll(), and cut it short as soon as a match with a high confidence
-//          is found.  This is something to be done later, after things are otherwise
-//          working.
-        CharsetMatch[] matches = detectAll();
-
-        if (matches == null || matches.length == 0) {
-            return null;
+        // This is the detectAll() loop, cut short as soon as none of the remaining
+        // recognizers can beat the best match so far. As in detectAll(), of
+        // several matches with the same confidence, the last one wins.
+        CharsetMatch best = null;
+        for (int i = 0; i < ALL_CS_RECOGNIZERS.size(); i++) {
+            if (best != null && best.getConfidence() > REMAINING_MAX_CONFIDENCE[i]) {
+                break;
+            }
+            CharsetMatch m = match(ALL_CS_RECOGNIZERS.get(i).recognizer);
+            if (m != null && (best == null || m.getConfidence() >= best.getConfidence())) {
+                best = m;
+            }
         }
-
-        return matches[0];
+        return best;
     }
 
     /**
@@ -300,32 +320,13 @@ public class CharsetDetector {
      * @stable ICU 3.4
      */
     public CharsetMatch[] detectAll() {
-        CharsetRecognizer csr;
-        int i;
-        CharsetMatch charsetMatch;
-        int confidence;
         ArrayList<CharsetMatch> matches = new ArrayList<>();
         //  Iterate over all possible charsets, remember all that
         //    give a match quality > 0.
-        for (i = 0; i < ALL_CS_RECOGNIZERS.size(); i++) {
-            csr = ALL_CS_RECOGNIZERS.get(i).recognizer;
-            charsetMatch = csr.match(this);
-            if (charsetMatch != null) {
-                confidence = charsetMatch.getConfidence() & 0x000000ff;
-                if (confidence > 0) {
-                    // Just to be safe, constrain
-                    confidence = Math.min(confidence, MAX_CONFIDENCE);
-
-                    // Apply charset hint.
-                    if ((fDeclaredEncoding != null) &&
-                            (fDeclaredEncoding.equalsIgnoreCase(csr.getName()))) {
-                        // Reduce lack of confidence (delta between "sure" and current) by 50%.
-                        confidence += (MAX_CONFIDENCE - confidence) / 2;
-                    }
-                    CharsetMatch m = new CharsetMatch(this, csr, confidence, charsetMatch.getName(),
-                            charsetMatch.getLanguage());
-                    matches.add(m);
-                }
+        for (int i = 0; i < ALL_CS_RECOGNIZERS.size(); i++) {
+            CharsetMatch m = match(ALL_CS_RECOGNIZERS.get(i).recognizer);
+            if (m != null) {
+                matches.add(m);
             }
         }
         Collections.sort(matches);      // CharsetMatch compares on confidence
@@ -333,6 +334,47 @@ public class CharsetDetector {
         return matches.toArray(new CharsetMatch[0]);
     }
 
+    /*
+     * Runs one recognizer, and applies the declared encoding to its confidence.
+     * Returns null if the recognizer doesn't match at all.
+     */
+    private CharsetMatch match(CharsetRecognizer csr) {
+        CharsetMatch charsetMatch = csr.match(this);
+        if (charsetMatch == null) {
+            return null;
+        }
+        int confidence = charsetMatch.getConfidence() & 0x000000ff;
+        if (confidence <= 0) {
+            return null;
+        }
+        // Just to be safe, constrain
+        confidence = Math.min(confidence, MAX_CONFIDENCE);
+
+        // Apply charset hint.
+        if ((fDeclaredEncoding != null) &&
+                (fDeclaredEncoding.equalsIgnoreCase(csr.getName()))) {
+            // Reduce lack of confidence (delta between "sure" and current) by 50%.
+            confidence += (MAX_CONFIDENCE - confidence) / 2;
+        }
+        return new CharsetMatch(this, csr, confidence, charsetMatch.getName(),
+                charsetMatch.getLanguage());
+    }
+
+    /*
+     * Returns the ngram profile of the input for the byte map, computing it on first use.
+     */
+    CharsetRecog_sbcs.NGramProfile getNGramProfile(byte[] byteMap, byte spaceChar) {
+        for (CharsetRecog_sbcs.NGramProfile profile : fNGramProfiles) {
+            if (profile.byteMap == byteMap && profile.spaceChar == spaceChar) {
+                return profile;
+            }
+        }
+        CharsetRecog_sbcs.NGramProfile profile =
+                new CharsetRecog_sbcs.NGramProfile(this, byteMap, spaceChar);
+        fNGramProfiles.add(profile);
+        return profile;
+    }
+
     /**
      * Autodetect the charset of an inputStream, and return a Java Reader
      * to access the converted input data.
@@ -414,9 +456,6 @@ public class CharsetDetector {
     public boolean inputFilterEnabled() {
         return fStripTags;
     }
-    // been changed from the default. The array index is
-    // corresponding to ALL_RECOGNIZER. See setDetectableCharset().
-
     /**
      * Enable filtering of input text. If filtering is enabled,
      * text within angle brackets ("&lt;" and "&gt;") will be removed
@@ -519,6 +558,8 @@ public class CharsetDetector {
             fByteStats[val]++;
         }
 
+        fNGramProfiles.clear();
+
         fC1Bytes = false;
         for (int i = 0x80; i <= 0x9F; i += 1) {
             if (fByteStats[i] != 0) {
@@ -10,6 +10,8 @@
 
 package org.apache.tika.parser.txt;
 
+import java.util.Arrays;
+
 /**
  * This class recognizes single-byte encodings. Because the encoding scheme is so
  * simple, language statistics are used to do the matching.
@@ -42,8 +44,13 @@ abstract class CharsetRecog_sbcs extends CharsetRecognizer {
     }
 
     int match(CharsetDetector det, int[] ngrams, byte[] byteMap, byte spaceChar) {
-        NGramParser parser = new NGramParser(ngrams, byteMap);
-        return parser.parse(det, spaceChar);
+        return det.getNGramProfile(byteMap, spaceChar).score(ngrams);
+    }
+
+    @Override
+    int getMaxConfidence() {
+        // see NGramParser.parse: at most 98, or 99 when rawPercent is just below 0.33
+        return 99;
     }
 
     int matchIBM420(CharsetDetector det, int[] ngrams, byte[] byteMap, byte spaceChar) {
@@ -183,6 +190,75 @@ abstract class CharsetRecog_sbcs extends CharsetRecognizer {
         }
     }
 
+    /**
+     * The ngrams of the input as seen through one byte map, with their counts.
+     * Many recognizers share a byte map and only differ in their ngram tables,
+     * so the input is mapped once per byte map, and each table is then only
+     * looked up once per distinct ngram. The scores are the same as those of
+     * {@link NGramParser}.
+     */
+    static class NGramProfile {
+        private static final int N_GRAM_MASK = 0xFFFFFF;
+
+        final byte[] byteMap;
+        final byte spaceChar;
+        private final int[] ngrams;
+        private final int[] counts;
+        private final int total;
+
+        NGramProfile(CharsetDetector det, byte[] byteMap, byte spaceChar) {
+            this.byteMap = byteMap;
+            this.spaceChar = spaceChar;
+            int[] all = new int[det.fInputLen + 1];
+            int n = 0;
+            int ngram = 0;
+            boolean ignoreSpace = false;
+            for (int i = 0; i < det.fInputLen; i++) {
+                byte mb = byteMap[det.fInputBytes[i] & 0xFF];
+                if (mb != 0) {
+                    if (!(mb == spaceChar && ignoreSpace)) {
+                        ngram = ((ngram << 8) + (mb & 0xFF)) & N_GRAM_MASK;
+                        all[n++] = ngram;
+                    }
+                    ignoreSpace = (mb == spaceChar);
+                }
+            }
+            // the buffer could have ended in the middle of a word
+            all[n++] = ((ngram << 8) + (spaceChar & 0xFF)) & N_GRAM_MASK;
+            total = n;
+
+            Arrays.sort(all, 0, n);
+            int[] distinct = new int[n];
+            int[] distinctCounts = new int[n];
+            int d = 0;
+            for (int i = 0; i < n; i++) {
+                if (d > 0 && distinct[d - 1] == all[i]) {
+                    distinctCounts[d - 1]++;
+                } else {
+                    distinct[d] = all[i];
+                    distinctCounts[d] = 1;
+                    d++;
+                }
+            }
+            ngrams = Arrays.copyOf(distinct, d);
+            counts = Arrays.copyOf(distinctCounts, d);
+        }
+
+        int score(int[] table) {
+            int hitCount = 0;
+            for (int i = 0; i < ngrams.length; i++) {
+                if (NGramParser.search(table, ngrams[i]) >= 0) {
+                    hitCount += counts[i];
+                }
+            }
+            double rawPercent = (double) hitCount / (double) total;
+            if (rawPercent > 0.33) {
+                return 98;
+            }
+            return (int) (rawPercent * 300.0);
+        }
+    }
+
     static class NGramParser_IBM420 extends NGramParser {
         protected static byte[] unshapeMap = {
 /*                 -0           -1           -2           -3
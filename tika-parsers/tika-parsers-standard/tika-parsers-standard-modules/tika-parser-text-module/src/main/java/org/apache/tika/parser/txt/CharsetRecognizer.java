@@ -50,4 +50,15 @@ abstract class CharsetRecognizer {
      */
     abstract CharsetMatch match(CharsetDetector det);
 
+    /**
+     * Get the highest confidence that {@link #match(CharsetDetector)} can
+     * report. The detector stops once no remaining recognizer can beat the
+     * best match so far.
+     *
+     * @return the highest possible confidence, at most 100
+     */
+    int getMaxConfidence() {
+        return 100;
+    }
+
 }
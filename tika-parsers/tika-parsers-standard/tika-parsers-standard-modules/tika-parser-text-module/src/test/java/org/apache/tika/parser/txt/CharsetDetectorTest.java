@@ -25,6 +25,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.TreeSet;
 
 import org.junit.jupiter.api.Test;
 
@@ -71,6 +73,54 @@ public class CharsetDetectorTest extends TikaTest {
         }
     }
 
+    @Test
+    public void testDetectMatchesDetectAll() throws Exception {
+        for (String name : new String[]{"english.cp500.txt", "multi-language.txt", "resume.html",
+                "russian.cp866.txt", "testTXT_win-1252.txt", "testIgnoreCharset.txt"}) {
+            byte[] bytes;
+            try (InputStream is = getResourceAsStream("/test-documents/" + name)) {
+                bytes = is.readAllBytes();
+            }
+            for (String declared : new String[]{null, "ISO-8859-1", "UTF-8"}) {
+                CharsetDetector detector = new CharsetDetector();
+                detector.setDeclaredEncoding(declared);
+                detector.setText(bytes);
+                CharsetMatch best = detector.detectAll()[0];
+                CharsetMatch detected = detector.detect();
+                assertEquals(best.getName(), detected.getName(), name);
+                assertEquals(best.getLanguage(), detected.getLanguage(), name);
+                assertEquals(best.getConfidence(), detected.getConfidence(), name);
+            }
+        }
+    }
+
+    @Test
+    public void testNGramProfile() throws Exception {
+        byte[] bytes;
+        try (InputStream is = getResourceAsStream("/test-documents/multi-language.txt")) {
+            bytes = is.readAllBytes();
+        }
+        //ngram tables have 64 sorted entries
+        String text = " the quick brown fox jumps over the lazy dog and then some more words ";
+        TreeSet<Integer> trigrams = new TreeSet<>();
+        for (int i = 0; i + 3 <= text.length() && trigrams.size() < 64; i++) {
+            trigrams.add((text.charAt(i) << 16) + (text.charAt(i + 1) << 8) + text.charAt(i + 2));
+        }
+        int[] table = new int[64];
+        int i = 0;
+        for (int trigram : trigrams) {
+            table[i++] = trigram;
+        }
+        Arrays.fill(table, i, table.length, 0xFFFFFF);
+
+        CharsetDetector detector = new CharsetDetector();
+        detector.setText(bytes);
+        byte[] byteMap = CharsetRecog_sbcs.CharsetRecog_8859_1.byteMap;
+        int expected = new CharsetRecog_sbcs.NGramParser(table, byteMap).parse(detector);
+        assertTrue(expected > 0);
+        assertEquals(expected, detector.getNGramProfile(byteMap, (byte) 0x20).score(table));
+    }
+
     @Test
     public void testWin125XHeuristics() throws Exception {
         //TIKA-2219
@@ -40,6 +40,22 @@ public class JsonStreamingSerializer implements AutoCloseable {
     }
 
     public void add(Metadata metadata) throws IOException {
+        startArray();
+        String[] names = metadata.names();
+        Arrays.sort(names);
+        JsonMetadata.writeMetadataObject(metadata, jsonGenerator, false);
+    }
+
+    /**
+     * Flushes the objects that have been added so far to the writer.
+     */
+    public void flush() throws IOException {
+        if (jsonGenerator != null) {
+            jsonGenerator.flush();
+        }
+    }
+
+    private void startArray() throws IOException {
         if (!hasStartedArray) {
             jsonGenerator = new JsonFactory()
                     .setStreamReadConstraints(StreamReadConstraints
@@ -50,13 +66,12 @@ public class JsonStreamingSerializer implements AutoCloseable {
             jsonGenerator.writeStartArray();
             hasStartedArray = true;
         }
-        String[] names = metadata.names();
-        Arrays.sort(names);
-        JsonMetadata.writeMetadataObject(metadata, jsonGenerator, false);
     }
 
     @Override
     public void close() throws IOException {
+        //write an empty array if nothing was added
+        startArray();
         jsonGenerator.writeEndArray();
         jsonGenerator.flush();
         jsonGenerator.close();
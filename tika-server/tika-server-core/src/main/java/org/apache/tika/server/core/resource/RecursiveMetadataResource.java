@@ -17,12 +17,19 @@
 
 package org.apache.tika.server.core.resource;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.apache.tika.server.core.resource.TikaResource.fillMetadata;
 import static org.apache.tika.server.core.resource.TikaResource.fillParseContext;
 import static org.apache.tika.server.core.resource.TikaResource.getConfig;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.POST;
@@ -35,26 +42,39 @@ import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MultivaluedMap;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 import jakarta.ws.rs.core.UriInfo;
 import org.apache.cxf.jaxrs.ext.multipart.Attachment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
 
+import org.apache.tika.exception.TikaException;
 import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.metadata.filter.MetadataFilter;
 import org.apache.tika.metadata.listfilter.MetadataListFilter;
+import org.apache.tika.metadata.listfilter.NoOpListFilter;
 import org.apache.tika.parser.ParseContext;
 import org.apache.tika.parser.Parser;
 import org.apache.tika.parser.RecursiveParserWrapper;
 import org.apache.tika.pipes.HandlerConfig;
+import org.apache.tika.sax.AbstractRecursiveParserWrapperHandler;
 import org.apache.tika.sax.BasicContentHandlerFactory;
+import org.apache.tika.sax.ContentHandlerFactory;
 import org.apache.tika.sax.RecursiveParserWrapperHandler;
+import org.apache.tika.serialization.JsonStreamingSerializer;
 import org.apache.tika.server.core.MetadataList;
 import org.apache.tika.server.core.TikaServerParseException;
+import org.apache.tika.utils.ParserUtils;
 
 @Path("/rmeta")
 public class RecursiveMetadataResource {
 
     protected static final String HANDLER_TYPE_PARAM = "handler";
+    protected static final String STREAMING_HEADER = "streaming";
     protected static final BasicContentHandlerFactory.HANDLER_TYPE DEFAULT_HANDLER_TYPE = BasicContentHandlerFactory.HANDLER_TYPE.XML;
     private static final Logger LOG = LoggerFactory.getLogger(RecursiveMetadataResource.class);
 
@@ -64,9 +84,14 @@ public class RecursiveMetadataResource {
         final ParseContext context = new ParseContext();
         Parser parser = TikaResource.createParser();
 
-        RecursiveParserWrapper wrapper = new RecursiveParserWrapper(parser);
         fillMetadata(parser, metadata, httpHeaders);
         fillParseContext(httpHeaders, metadata, context);
+        return parseMetadata(is, metadata, httpHeaders, info, handlerConfig, parser, context);
+    }
+
+    private static List<Metadata> parseMetadata(InputStream is, Metadata metadata, MultivaluedMap<String, String> httpHeaders, UriInfo info, HandlerConfig handlerConfig,
+                                                Parser parser, ParseContext context) throws TikaException {
+        RecursiveParserWrapper wrapper = new RecursiveParserWrapper(parser);
         TikaResource.logRequest(LOG, "/rmeta", metadata);
 
         BasicContentHandlerFactory.HANDLER_TYPE type = handlerConfig.getType();
@@ -90,6 +115,66 @@ public class RecursiveMetadataResource {
         return metadataListFilter.filter(handler.getMetadataList());
     }
 
+    /**
+     * Same as {@link #parseMetadata(InputStream, Metadata, MultivaluedMap, UriInfo, HandlerConfig)},
+     * but writes the metadata of each top level embedded document, and of the documents
+     * embedded in it, to the response as soon as its parse has completed, so that the
+     * full metadata list is never held in memory. The metadata of the container
+     * document is written last.
+     * <p>
+     * A {@link MetadataListFilter} needs the full list, so if one is configured,
+     * this falls back to writing the full list at the end.
+     */
+    public static StreamingOutput streamMetadata(InputStream is, Metadata metadata, MultivaluedMap<String, String> httpHeaders, UriInfo info,
+                                                 HandlerConfig handlerConfig) {
+        final ParseContext context = new ParseContext();
+        Parser parser = TikaResource.createParser();
+
+        RecursiveParserWrapper wrapper = new RecursiveParserWrapper(parser);
+        fillMetadata(parser, metadata, httpHeaders);
+        fillParseContext(httpHeaders, metadata, context);
+        MetadataListFilter metadataListFilter = context.get(MetadataListFilter.class, getConfig().getMetadataListFilter());
+        if (!(metadataListFilter instanceof NoOpListFilter)) {
+            return outputStream -> {
+                List<Metadata> metadataList;
+                try {
+                    metadataList = parseMetadata(is, metadata, httpHeaders, info, handlerConfig, parser, context);
+                } catch (TikaException e) {
+                    throw new IOException(e);
+                }
+                try (JsonStreamingSerializer serializer = new JsonStreamingSerializer(new OutputStreamWriter(outputStream, UTF_8))) {
+                    for (Metadata m : metadataList) {
+                        serializer.add(m);
+                    }
+                }
+            };
+        }
+        TikaResource.logRequest(LOG, "/rmeta", metadata);
+
+        return outputStream -> {
+            try (JsonStreamingSerializer serializer = new JsonStreamingSerializer(new OutputStreamWriter(outputStream, UTF_8))) {
+                StreamingHandler handler = new StreamingHandler(
+                        new BasicContentHandlerFactory(handlerConfig.getType(), handlerConfig.getWriteLimit(), handlerConfig.isThrowOnWriteLimitReached(), context),
+                        handlerConfig.getMaxEmbeddedResources(), getConfig().getMetadataFilter(), serializer);
+                try {
+                    TikaResource.parse(wrapper, LOG, "/rmeta", is, handler, metadata, context);
+                } catch (TikaServerParseException e) {
+                    //do nothing
+                    LOG.debug("server parse exception", e);
+                } catch (SecurityException | WebApplicationException e) {
+                    throw e;
+                } catch (Exception e) {
+                    //we shouldn't get here?
+                    LOG.error("something went seriously wrong", e);
+                }
+            }
+        };
+    }
+
+    static boolean isStreaming(MultivaluedMap<String, String> httpHeaders) {
+        return "true".equalsIgnoreCase(httpHeaders.getFirst(STREAMING_HEADER));
+    }
+
     static HandlerConfig buildHandlerConfig(MultivaluedMap<String, String> httpHeaders, String handlerTypeName, HandlerConfig.PARSE_MODE parseMode) {
         int writeLimit = -1;
         if (httpHeaders.containsKey("writeLimit")) {
@@ -121,6 +206,10 @@ public class RecursiveMetadataResource {
      * /rmeta/form/xml    (store the content as xml)<br/>
      * /rmeta/form/text   (store the content as text)<br/>
      * /rmeta/form/ignore (don't record any content)<br/>
+     * <p>
+     * With the header <code>streaming: true</code>, the metadata of each embedded
+     * document is written as soon as its top level embedded document has been
+     * parsed, and the metadata of the main document comes last. See {@link #streamMetadata}.
      *
      * @param att             attachment
      * @param info            uri info
@@ -133,6 +222,12 @@ public class RecursiveMetadataResource {
     @Produces({"application/json"})
     @Path("form{" + HANDLER_TYPE_PARAM + " : (\\w+)?}")
     public Response getMetadataFromMultipart(Attachment att, @Context UriInfo info, @PathParam(HANDLER_TYPE_PARAM) String handlerTypeName) throws Exception {
+        if (isStreaming(att.getHeaders())) {
+            return Response
+                    .ok(streamMetadata(att.getObject(InputStream.class), new Metadata(), att.getHeaders(), info,
+                            buildHandlerConfig(att.getHeaders(), handlerTypeName, HandlerConfig.PARSE_MODE.RMETA)))
+                    .build();
+        }
         return Response
                 .ok(parseMetadataToMetadataList(att.getObject(InputStream.class), new Metadata(), att.getHeaders(), info,
                         buildHandlerConfig(att.getHeaders(), handlerTypeName, HandlerConfig.PARSE_MODE.RMETA)))
@@ -156,6 +251,10 @@ public class RecursiveMetadataResource {
      * /rmeta/xml    (store the content as xml)<br/>
      * /rmeta/text   (store the content as text)<br/>
      * /rmeta/ignore (don't record any content)<br/>
+     * <p>
+     * With the header <code>streaming: true</code>, the metadata of each embedded
+     * document is written as soon as its top level embedded document has been
+     * parsed, and the metadata of the main document comes last. See {@link #streamMetadata}.
      *
      * @param info            uri info
      * @param handlerTypeName which type of handler to use
@@ -168,6 +267,12 @@ public class RecursiveMetadataResource {
     @Path("{" + HANDLER_TYPE_PARAM + " : (\\w+)?}")
     public Response getMetadata(InputStream is, @Context HttpHeaders httpHeaders, @Context UriInfo info, @PathParam(HANDLER_TYPE_PARAM) String handlerTypeName) throws Exception {
         Metadata metadata = new Metadata();
+        if (isStreaming(httpHeaders.getRequestHeaders())) {
+            return Response
+                    .ok(streamMetadata(TikaResource.getInputStream(is, metadata, httpHeaders, info), metadata, httpHeaders.getRequestHeaders(), info,
+                            buildHandlerConfig(httpHeaders.getRequestHeaders(), handlerTypeName, HandlerConfig.PARSE_MODE.RMETA)))
+                    .build();
+        }
         return Response
                 .ok(parseMetadataToMetadataList(TikaResource.getInputStream(is, metadata, httpHeaders, info), metadata, httpHeaders.getRequestHeaders(), info,
                         buildHandlerConfig(httpHeaders.getRequestHeaders(), handlerTypeName, HandlerConfig.PARSE_MODE.RMETA)))
@@ -178,4 +283,110 @@ public class RecursiveMetadataResource {
             throws Exception {
         return new MetadataList(parseMetadata(is, metadata, httpHeaders, info, handlerConfig));
     }
+
+    /**
+     * Writes the metadata of each document to a {@link JsonStreamingSerializer}
+     * once the top level embedded document that contains it has been parsed.
+     * <p>
+     * The names and final embedded resource paths are worked out the same way as
+     * in {@link RecursiveParserWrapperHandler}: unnamed documents are numbered in
+     * the order their parses end, and a document's path uses the final names of
+     * its ancestors. A parent's name may only be known after its parse, and it
+     * ends after its children, so the children are held until their top level
+     * ancestor has ended.
+     */
+    private static class StreamingHandler extends AbstractRecursiveParserWrapperHandler {
+
+        private final MetadataFilter metadataFilter;
+        private final JsonStreamingSerializer serializer;
+        //embedded id -> resource name, to build the final embedded resource paths
+        private final Map<String, String> idToName = new HashMap<>();
+        private final AtomicInteger unknownCount = new AtomicInteger(0);
+        //documents of the current top level embedded document, in the order they ended
+        private final List<Metadata> pending = new ArrayList<>();
+
+        StreamingHandler(ContentHandlerFactory contentHandlerFactory, int maxEmbeddedResources, MetadataFilter metadataFilter, JsonStreamingSerializer serializer) {
+            super(contentHandlerFactory, maxEmbeddedResources);
+            this.metadataFilter = metadataFilter;
+            this.serializer = serializer;
+        }
+
+        @Override
+        public void endEmbeddedDocument(ContentHandler contentHandler, Metadata metadata) throws SAXException {
+            super.endEmbeddedDocument(contentHandler, metadata);
+            Integer depth = metadata.getInt(TikaCoreProperties.EMBEDDED_DEPTH);
+            if (filter(contentHandler, metadata)) {
+                String id = metadata.get(TikaCoreProperties.EMBEDDED_ID);
+                if (id != null) {
+                    idToName.put(id, RecursiveParserWrapper.getResourceName(metadata, unknownCount));
+                }
+                pending.add(ParserUtils.cloneMetadata(metadata));
+            }
+            if (depth == null || depth <= 1) {
+                writePending();
+            }
+        }
+
+        @Override
+        public void endDocument(ContentHandler contentHandler, Metadata metadata) throws SAXException {
+            super.endDocument(contentHandler, metadata);
+            writePending();
+            if (filter(contentHandler, metadata)) {
+                write(metadata);
+            }
+        }
+
+        /**
+         * Adds the content and applies the metadata filter.
+         *
+         * @return whether there is any metadata left to write
+         */
+        private boolean filter(ContentHandler contentHandler, Metadata metadata) throws SAXException {
+            if (!contentHandler.getClass().equals(DefaultHandler.class)) {
+                String content = contentHandler.toString();
+                if (content != null && content.trim().length() > 0) {
+                    metadata.add(TikaCoreProperties.TIKA_CONTENT, content);
+                    metadata.add(TikaCoreProperties.TIKA_CONTENT_HANDLER, contentHandler.getClass().getSimpleName());
+                }
+            }
+            try {
+                metadataFilter.filter(metadata);
+            } catch (TikaException e) {
+                throw new SAXException(e);
+            }
+            return metadata.size() > 0;
+        }
+
+        private void writePending() throws SAXException {
+            for (Metadata metadata : pending) {
+                setFinalEmbeddedPath(metadata);
+                write(metadata);
+            }
+            pending.clear();
+        }
+
+        private void setFinalEmbeddedPath(Metadata metadata) {
+            String idPath = metadata.get(TikaCoreProperties.EMBEDDED_ID_PATH);
+            if (idPath == null) {
+                return;
+            }
+            if (idPath.startsWith("/")) {
+                idPath = idPath.substring(1);
+            }
+            StringBuilder sb = new StringBuilder();
+            for (String id : idPath.split("/")) {
+                sb.append("/").append(idToName.get(id));
+            }
+            metadata.set(TikaCoreProperties.FINAL_EMBEDDED_RESOURCE_PATH, sb.toString());
+        }
+
+        private void write(Metadata metadata) throws SAXException {
+            try {
+                serializer.add(metadata);
+                serializer.flush();
+            } catch (IOException e) {
+                throw new SAXException(e);
+            }
+        }
+    }
 }
@@ -19,10 +19,12 @@ package org.apache.tika.server.core;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -33,6 +35,7 @@ import org.apache.cxf.jaxrs.lifecycle.SingletonResourceProvider;
 import org.junit.jupiter.api.Test;
 
 import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.Property;
 import org.apache.tika.metadata.TikaCoreProperties;
 import org.apache.tika.serialization.JsonMetadataList;
 import org.apache.tika.server.core.resource.RecursiveMetadataResource;
@@ -41,6 +44,8 @@ import org.apache.tika.server.core.writer.MetadataListMessageBodyWriter;
 public class RecursiveMetadataResourceTest extends CXFTestBase {
 
     public static final String TEST_NULL_POINTER = "test-documents/mock/null_pointer.xml";
+    public static final String TEST_EMBEDDED = "test-documents/mock/embedded.xml";
+    public static final String TEST_EMBEDDED_NESTED = "test-documents/mock/embedded_nested.xml";
     private static final String META_PATH = "/rmeta";
 
     @Override
@@ -72,6 +77,74 @@ public class RecursiveMetadataResourceTest extends CXFTestBase {
         assertContains("null pointer message", metadata.get(TikaCoreProperties.CONTAINER_EXCEPTION));
 
     }
+
+    @Test
+    public void testStreaming() throws Exception {
+        Response response = WebClient
+                .create(endPoint + META_PATH + "/text")
+                .accept("application/json")
+                .put(ClassLoader.getSystemResourceAsStream(TEST_EMBEDDED));
+        List<Metadata> expected = JsonMetadataList.fromJson(new InputStreamReader((InputStream) response.getEntity(), UTF_8));
+
+        response = WebClient
+                .create(endPoint + META_PATH + "/text")
+                .accept("application/json")
+                .header("streaming", "true")
+                .put(ClassLoader.getSystemResourceAsStream(TEST_EMBEDDED));
+        assertEquals(200, response.getStatus());
+        String json = new String(((InputStream) response.getEntity()).readAllBytes(), UTF_8);
+        //the container comes last when streaming...
+        assertTrue(json.indexOf("Nikolai Lobachevsky") > json.lastIndexOf("embeddedAuthor"));
+        //...and is flipped to the front when deserializing
+        List<Metadata> streamed = JsonMetadataList.fromJson(new StringReader(json));
+
+        assertEquals(5, expected.size());
+        assertEquals(expected.size(), streamed.size());
+        assertEquals("Nikolai Lobachevsky", streamed.get(0).get("author"));
+        for (int i = 0; i < expected.size(); i++) {
+            for (Property p : new Property[]{TikaCoreProperties.TIKA_CONTENT, TikaCoreProperties.EMBEDDED_RESOURCE_PATH,
+                    TikaCoreProperties.FINAL_EMBEDDED_RESOURCE_PATH}) {
+                assertEquals(expected.get(i).get(p), streamed.get(i).get(p));
+            }
+        }
+        assertContains("some_embedded_content", streamed.get(1).get(TikaCoreProperties.TIKA_CONTENT));
+    }
+
+    @Test
+    public void testStreamingNested() throws Exception {
+        List<Metadata> expected = getMetadataList(TEST_EMBEDDED_NESTED, false);
+        List<Metadata> streamed = getMetadataList(TEST_EMBEDDED_NESTED, true);
+
+        assertEquals(7, expected.size());
+        assertEquals(expected.size(), streamed.size());
+        for (int i = 0; i < expected.size(); i++) {
+            for (Property p : new Property[]{TikaCoreProperties.TIKA_CONTENT, TikaCoreProperties.EMBEDDED_RESOURCE_PATH,
+                    TikaCoreProperties.FINAL_EMBEDDED_RESOURCE_PATH}) {
+                assertEquals(expected.get(i).get(p), streamed.get(i).get(p));
+            }
+        }
+        //unnamed documents are numbered in the order their parses end,
+        //and the children of a late named document get its final name
+        assertEquals("/late.xml/embedded-1", streamed.get(1).get(TikaCoreProperties.FINAL_EMBEDDED_RESOURCE_PATH));
+        assertEquals("/late.xml/late_child2.xml", streamed.get(2).get(TikaCoreProperties.FINAL_EMBEDDED_RESOURCE_PATH));
+        assertEquals("/late.xml", streamed.get(3).get(TikaCoreProperties.FINAL_EMBEDDED_RESOURCE_PATH));
+        assertEquals("/embedded-3/embedded-2", streamed.get(4).get(TikaCoreProperties.FINAL_EMBEDDED_RESOURCE_PATH));
+        assertEquals("/embedded-3", streamed.get(5).get(TikaCoreProperties.FINAL_EMBEDDED_RESOURCE_PATH));
+        assertEquals("/named.xml", streamed.get(6).get(TikaCoreProperties.FINAL_EMBEDDED_RESOURCE_PATH));
+    }
+
+    private List<Metadata> getMetadataList(String resource, boolean streaming) throws Exception {
+        WebClient client = WebClient
+                .create(endPoint + META_PATH + "/text")
+                .accept("application/json");
+        if (streaming) {
+            client.header("streaming", "true");
+        }
+        Response response = client.put(ClassLoader.getSystemResourceAsStream(resource));
+        assertEquals(200, response.getStatus());
+        return JsonMetadataList.fromJson(new InputStreamReader((InputStream) response.getEntity(), UTF_8));
+    }
+
     /*
     @Test
     public void testWriteLimitInAll() throws Exception {